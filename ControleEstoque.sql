@@ -25,7 +25,9 @@ CREATE TABLE IF NOT EXISTS `categoria` (
   `nome` varchar(100) NOT NULL,
   `tamanho` varchar(20) NOT NULL,
   `embalagem` varchar(20) NOT NULL,
-  PRIMARY KEY (`id`)
+  `versao` bigint NOT NULL DEFAULT '0',
+  PRIMARY KEY (`id`),
+  KEY `idx_categoria_versao` (`versao`)
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 -- Exportação de dados foi desmarcado.
@@ -35,10 +37,11 @@ CREATE TABLE IF NOT EXISTS `movimentacao` (
   `id` int NOT NULL AUTO_INCREMENT,
   `tipo` enum('ENTRADA','SAIDA') NOT NULL,
   `quantidade` int NOT NULL,
-  `data_movimento` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  `data_movimento` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `produto_id` int NOT NULL,
   PRIMARY KEY (`id`),
-  KEY `produto_id` (`produto_id`),
+  KEY `idx_movimentacao_produto_data` (`produto_id`,`data_movimento`),
+  KEY `idx_movimentacao_data` (`data_movimento`),
   CONSTRAINT `movimentacao_ibfk_1` FOREIGN KEY (`produto_id`) REFERENCES `produto` (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=11 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -50,17 +53,62 @@ CREATE TABLE IF NOT EXISTS `produto` (
   `nome` varchar(100) NOT NULL,
   `preco_unitario` double NOT NULL,
   `unidade` varchar(20) NOT NULL,
-  `quantidade_estoque` int NOT NULL,
+  `quantidade` int NOT NULL,
   `quantidade_minima` int NOT NULL,
   `quantidade_maxima` int NOT NULL,
   `categoria_id` int DEFAULT NULL,
+  `versao` bigint NOT NULL DEFAULT '0',
   PRIMARY KEY (`id`),
-  KEY `categoria_id` (`categoria_id`),
+  KEY `idx_produto_categoria_nome` (`categoria_id`,`nome`),
+  KEY `idx_produto_nome` (`nome`),
+  KEY `idx_produto_deficit` ((`quantidade` - `quantidade_minima`)),
+  KEY `idx_produto_excesso` ((`quantidade` - `quantidade_maxima`)),
+  KEY `idx_produto_versao` (`versao`),
   CONSTRAINT `produto_ibfk_1` FOREIGN KEY (`categoria_id`) REFERENCES `categoria` (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=24 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 -- Exportação de dados foi desmarcado.
 
+-- Copiando estrutura para tabela controle_estoque.produto_exclusao
+CREATE TABLE IF NOT EXISTS `produto_exclusao` (
+  `produto_id` int NOT NULL,
+  `versao` bigint NOT NULL,
+  PRIMARY KEY (`produto_id`),
+  KEY `idx_produto_exclusao_versao` (`versao`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Copiando estrutura para tabela controle_estoque.versao_alteracao
+CREATE TABLE IF NOT EXISTS `versao_alteracao` (
+  `id` tinyint NOT NULL,
+  `valor` bigint NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT IGNORE INTO `versao_alteracao` (`id`, `valor`) VALUES (1, 0);
+
+-- Índices dos relatórios (MySQL 8.0.13+). Para bancos já existentes:
+-- ALTER TABLE `produto`
+--   ADD KEY `idx_produto_categoria_nome` (`categoria_id`,`nome`),
+--   ADD KEY `idx_produto_nome` (`nome`),
+--   ADD KEY `idx_produto_deficit` ((`quantidade` - `quantidade_minima`)),
+--   ADD KEY `idx_produto_excesso` ((`quantidade` - `quantidade_maxima`));
+--
+-- Índices da paginação do histórico de movimentações. Para bancos já existentes:
+-- ALTER TABLE `movimentacao`
+--   MODIFY `data_movimento` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+--   ADD KEY `idx_movimentacao_produto_data` (`produto_id`,`data_movimento`),
+--   ADD KEY `idx_movimentacao_data` (`data_movimento`),
+--   DROP KEY `produto_id`;
+--
+-- Versões da sincronização incremental (GET /api/produtos/changes). Para bancos já
+-- existentes, criar as tabelas produto_exclusao e versao_alteracao acima e:
+-- ALTER TABLE `categoria`
+--   ADD `versao` bigint NOT NULL DEFAULT '0',
+--   ADD KEY `idx_categoria_versao` (`versao`);
+-- ALTER TABLE `produto`
+--   ADD `versao` bigint NOT NULL DEFAULT '0',
+--   ADD KEY `idx_produto_versao` (`versao`);
+
 /*!40103 SET TIME_ZONE=IFNULL(@OLD_TIME_ZONE, 'system') */;
 /*!40101 SET SQL_MODE=IFNULL(@OLD_SQL_MODE, '') */;
 /*!40014 SET FOREIGN_KEY_CHECKS=IFNULL(@OLD_FOREIGN_KEY_CHECKS, 1) */;
@@ -0,0 +1,145 @@
+package desempenho;
+
+/**
+ * Banco H2 em memória, no modo de compatibilidade com o MySQL, populado com um catálogo
+ * sintético para os benchmarks. A aplicação é apontada para ele pelas propriedades de
+ * sistema lidas por {@code dao.Configuracao} (estoque.db.url, usuario e senha), que
+ * precisam ser definidas antes do primeiro uso dos DAOs — por isso cada benchmark chama
+ * {@link #preparar(int, int)} no início do seu {@code @Setup}.
+ *
+ * Os dados são gerados com INSERT ... SELECT sobre SYSTEM_RANGE (coluna "X"), de forma determinística:
+ * 20 categorias, produtos com preços e quantidades variados (parte abaixo do mínimo e parte
+ * acima do máximo) e movimentações distribuídas entre os produtos, uma por segundo a partir
+ * de 01/01/2020.
+ */
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+final class BaseSintetica {
+
+    private static final int CATEGORIAS = 20;
+
+    private static String preparada;
+
+    private BaseSintetica() {
+    }
+
+    /**
+     * Cria e popula o banco, se ainda não tiver sido criado com o mesmo tamanho nesta JVM,
+     * e aponta a aplicação para ele.
+     *
+     * @param produtos      Quantidade de produtos.
+     * @param movimentacoes Quantidade de movimentações.
+     * @throws SQLException Se ocorrer erro ao criar o banco.
+     */
+    static synchronized void preparar(int produtos, int movimentacoes) throws SQLException {
+        String url = "jdbc:h2:mem:estoque_" + produtos + "_" + movimentacoes
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        if (url.equals(preparada)) {
+            return;
+        }
+        if (preparada != null) {
+            throw new IllegalStateException("A aplicação já está usando outro banco nesta JVM: " + preparada);
+        }
+
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            criarTabelas(conn);
+            popular(conn, produtos, movimentacoes);
+        }
+
+        System.setProperty("estoque.db.url", url);
+        System.setProperty("estoque.db.usuario", "sa");
+        System.setProperty("estoque.db.senha", "");
+        preparada = url;
+    }
+
+    private static void criarTabelas(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE categoria ("
+                    + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "nome VARCHAR(100) NOT NULL, "
+                    + "tamanho VARCHAR(20) NOT NULL, "
+                    + "embalagem VARCHAR(20) NOT NULL, "
+                    + "versao BIGINT NOT NULL DEFAULT 0)");
+            stmt.execute("CREATE TABLE produto ("
+                    + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "nome VARCHAR(100) NOT NULL, "
+                    + "preco_unitario DOUBLE NOT NULL, "
+                    + "unidade VARCHAR(20) NOT NULL, "
+                    + "quantidade INT NOT NULL, "
+                    + "quantidade_minima INT NOT NULL, "
+                    + "quantidade_maxima INT NOT NULL, "
+                    + "categoria_id INT, "
+                    + "versao BIGINT NOT NULL DEFAULT 0, "
+                    + "FOREIGN KEY (categoria_id) REFERENCES categoria (id))");
+            stmt.execute("CREATE INDEX idx_produto_categoria_nome ON produto (categoria_id, nome)");
+            stmt.execute("CREATE INDEX idx_produto_nome ON produto (nome)");
+            stmt.execute("CREATE INDEX idx_produto_versao ON produto (versao)");
+            stmt.execute("CREATE TABLE produto_exclusao ("
+                    + "produto_id INT NOT NULL PRIMARY KEY, "
+                    + "versao BIGINT NOT NULL)");
+            stmt.execute("CREATE TABLE versao_alteracao ("
+                    + "id TINYINT NOT NULL PRIMARY KEY, "
+                    + "valor BIGINT NOT NULL)");
+            stmt.execute("INSERT INTO versao_alteracao (id, valor) VALUES (1, 0)");
+            stmt.execute("CREATE TABLE movimentacao ("
+                    + "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "tipo ENUM('ENTRADA','SAIDA') NOT NULL, "
+                    + "quantidade INT NOT NULL, "
+                    + "data_movimento TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "produto_id INT NOT NULL, "
+                    + "FOREIGN KEY (produto_id) REFERENCES produto (id))");
+            stmt.execute("CREATE INDEX idx_movimentacao_produto_data ON movimentacao (produto_id, data_movimento)");
+            stmt.execute("CREATE INDEX idx_movimentacao_data ON movimentacao (data_movimento)");
+        }
+    }
+
+    private static void popular(Connection conn, int produtos, int movimentacoes) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO categoria (id, nome, tamanho, embalagem) "
+                        + "SELECT \"X\", 'Categoria ' || \"X\", "
+                        + "CASEWHEN(MOD(\"X\", 3) = 0, 'Grande', CASEWHEN(MOD(\"X\", 3) = 1, 'Médio', 'Pequeno')), "
+                        + "CASEWHEN(MOD(\"X\", 2) = 0, 'Caixa', 'Unidade') "
+                        + "FROM SYSTEM_RANGE(1, ?)")) {
+            stmt.setInt(1, CATEGORIAS);
+            stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO produto (id, nome, preco_unitario, unidade, quantidade, quantidade_minima, "
+                        + "quantidade_maxima, categoria_id) "
+                        + "SELECT \"X\", 'Produto ' || LPAD(CAST(MOD(\"X\" * 7919, ?) AS VARCHAR), 8, '0') || '-' || \"X\", "
+                        + "1 + MOD(\"X\" * 37, 100000) / 100.0, "
+                        + "CASEWHEN(MOD(\"X\", 4) = 0, 'KG', 'UN'), "
+                        + "MOD(\"X\" * 31, 200), 20, 150, "
+                        + "1 + MOD(\"X\", ?) "
+                        + "FROM SYSTEM_RANGE(1, ?)")) {
+            stmt.setInt(1, produtos);
+            stmt.setInt(2, CATEGORIAS);
+            stmt.setInt(3, produtos);
+            stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO movimentacao (id, tipo, quantidade, data_movimento, produto_id) "
+                        + "SELECT \"X\", CASEWHEN(MOD(\"X\", 3) = 0, 'SAIDA', 'ENTRADA'), "
+                        + "1 + MOD(\"X\", 50), "
+                        + "DATEADD('SECOND', \"X\", TIMESTAMP '2020-01-01 00:00:00'), "
+                        + "1 + MOD(\"X\" * 7, ?) "
+                        + "FROM SYSTEM_RANGE(1, ?)")) {
+            stmt.setInt(1, produtos);
+            stmt.setInt(2, movimentacoes);
+            stmt.executeUpdate();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE categoria ALTER COLUMN id RESTART WITH " + (CATEGORIAS + 1));
+            stmt.execute("ALTER TABLE produto ALTER COLUMN id RESTART WITH " + (produtos + 1));
+            stmt.execute("ALTER TABLE movimentacao ALTER COLUMN id RESTART WITH " + (movimentacoes + 1));
+            stmt.execute("ANALYZE");
+        }
+    }
+}
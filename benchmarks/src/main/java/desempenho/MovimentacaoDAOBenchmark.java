@@ -0,0 +1,92 @@
+package desempenho;
+
+/**
+ * Benchmarks das consultas do histórico de movimentações do {@link MovimentacaoDAO}:
+ * primeira página, página no meio do histórico (cursor), página de um produto e leitura
+ * sequencial de um período.
+ *
+ * Os tamanhos podem ser alterados na linha de comando, por exemplo:
+ * java -jar target/benchmarks.jar MovimentacaoDAOBenchmark -p produtos=1000000 -p movimentacoes=10000000
+ */
+import dao.FiltroMovimentacao;
+import dao.MovimentacaoDAO;
+import dao.Pagina;
+import modelo.Movimentacao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovimentacaoDAOBenchmark {
+
+    @Param({"1000"})
+    public int produtos;
+
+    @Param({"100000", "1000000"})
+    public int movimentacoes;
+
+    private MovimentacaoDAO movimentacaoDAO;
+    private String cursorMeio;
+    private FiltroMovimentacao filtroProduto;
+    private FiltroMovimentacao filtroPeriodo;
+
+    @Setup
+    public void preparar() throws SQLException {
+        BaseSintetica.preparar(produtos, movimentacoes);
+        movimentacaoDAO = new MovimentacaoDAO();
+
+        // Avança até o meio do histórico para medir páginas que não são a primeira
+        Pagina<Movimentacao> pagina = movimentacaoDAO.listarPagina(null, null, 1000);
+        for (int i = 1; i < movimentacoes / 2000 && pagina.isPossuiProxima(); i++) {
+            pagina = movimentacaoDAO.listarPagina(null, pagina.getProximoCursor(), 1000);
+        }
+        cursorMeio = pagina.getProximoCursor();
+
+        filtroProduto = new FiltroMovimentacao();
+        filtroProduto.setProdutoId(1);
+
+        // Primeiras 10.000 movimentações (uma por segundo a partir de 01/01/2020)
+        filtroPeriodo = new FiltroMovimentacao();
+        filtroPeriodo.setDataInicio(LocalDateTime.of(2020, 1, 1, 0, 0));
+        filtroPeriodo.setDataFim(LocalDateTime.of(2020, 1, 1, 0, 0).plusSeconds(10000));
+    }
+
+    @Benchmark
+    public Pagina<Movimentacao> primeiraPagina() {
+        return movimentacaoDAO.listarPagina(null, null, 100);
+    }
+
+    @Benchmark
+    public Pagina<Movimentacao> paginaNoMeio() {
+        return movimentacaoDAO.listarPagina(null, cursorMeio, 100);
+    }
+
+    @Benchmark
+    public Pagina<Movimentacao> paginaPorProduto() {
+        return movimentacaoDAO.listarPagina(filtroProduto, null, 100);
+    }
+
+    @Benchmark
+    public void percorrerPeriodo(Blackhole bh) throws IOException {
+        movimentacaoDAO.percorrer(filtroPeriodo, bh::consume);
+    }
+}
@@ -0,0 +1,74 @@
+package desempenho;
+
+/**
+ * Benchmarks das consultas e do mapeamento de linhas do {@link ProdutoDAO}, medidos direto
+ * no banco (o cache de produtos é desativado).
+ *
+ * Os tamanhos do catálogo podem ser alterados na linha de comando, por exemplo:
+ * java -jar target/benchmarks.jar ProdutoDAOBenchmark -p produtos=1000000
+ */
+import dao.ProdutoDAO;
+import modelo.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProdutoDAOBenchmark {
+
+    @Param({"1000", "100000"})
+    public int produtos;
+
+    private ProdutoDAO produtoDAO;
+
+    @Setup
+    public void preparar() throws SQLException {
+        System.setProperty("estoque.cache.produtos.ativo", "false");
+        BaseSintetica.preparar(produtos, 0);
+        produtoDAO = new ProdutoDAO();
+    }
+
+    @Benchmark
+    public List<Produto> listarTodos() {
+        return produtoDAO.listarTodos();
+    }
+
+    @Benchmark
+    public void percorrerTodos(Blackhole bh) throws IOException {
+        produtoDAO.percorrerTodos(bh::consume);
+    }
+
+    @Benchmark
+    public List<Produto> listarAbaixoMinimo() {
+        return produtoDAO.listarAbaixoMinimo();
+    }
+
+    @Benchmark
+    public List<Produto> listarPorCategoria() {
+        return produtoDAO.listarPorCategoria(1);
+    }
+
+    @Benchmark
+    public Produto buscarPorId() {
+        return produtoDAO.buscarPorId(produtos / 2);
+    }
+}
@@ -0,0 +1,92 @@
+package desempenho;
+
+/**
+ * Benchmarks dos relatórios do {@link RelatorioRestController}: dashboard e balanço
+ * financeiro (totais mantidos em {@code AgregadosEstoque}), relatório de produtos abaixo do
+ * mínimo (filtro no banco) e, como referência, o cálculo dos totais do dashboard com streams
+ * sobre o catálogo completo, como era feito antes dos totais incrementais. Na referência o
+ * cache de produtos é descartado antes de cada chamada, para que o catálogo seja lido do
+ * banco como na falha de cache que os totais incrementais evitam.
+ */
+import controller.rest.RelatorioRestController;
+import dao.CacheProdutos;
+import dao.ProdutoDAO;
+import modelo.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.ws.rs.core.Response;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelatorioBenchmark {
+
+    @Param({"1000", "100000"})
+    public int produtos;
+
+    private RelatorioRestController controller;
+    private ProdutoDAO produtoDAO;
+
+    @Setup
+    public void preparar() throws SQLException {
+        BaseSintetica.preparar(produtos, 0);
+        controller = new RelatorioRestController();
+        produtoDAO = new ProdutoDAO();
+        // Carrega os totais e o catálogo em cache antes das medições
+        controller.dashboard();
+        produtoDAO.listarTodos();
+    }
+
+    @Benchmark
+    public Response dashboard() {
+        return controller.dashboard();
+    }
+
+    @Benchmark
+    public Response balancoFinanceiro() {
+        return controller.balancoFinanceiro();
+    }
+
+    @Benchmark
+    public Response produtosAbaixoMinimo() {
+        return controller.produtosAbaixoMinimo();
+    }
+
+    @Benchmark
+    public void dashboardComStreams(CatalogoSemCache semCache, Blackhole bh) {
+        List<Produto> lista = produtoDAO.listarTodos();
+        bh.consume(lista.stream().filter(p -> p.getQuantidade() < p.getQuantidadeMinima()).count());
+        bh.consume(lista.stream().filter(p -> p.getQuantidade() > p.getQuantidadeMaxima()).count());
+        bh.consume(lista.stream().mapToDouble(p -> p.getPrecoUnitario() * p.getQuantidade()).sum());
+    }
+
+    /**
+     * Descarta o catálogo em cache antes de cada chamada do benchmark que o recebe.
+     */
+    @State(Scope.Thread)
+    public static class CatalogoSemCache {
+
+        @Setup(Level.Invocation)
+        public void descartar() {
+            CacheProdutos.getInstancia().invalidar();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package desempenho;
+
+/**
+ * Benchmarks da serialização JSON das listas de produtos: a serialização padrão do Jackson
+ * (a mesma usada pelo Jersey nas respostas comuns) sobre listas já carregadas e a escrita
+ * sequencial de {@code GET /api/produtos?stream=true}, que inclui a leitura do banco.
+ */
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controller.rest.ProdutoRestController;
+import modelo.Categoria;
+import modelo.Produto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    @Param({"1000", "100000"})
+    public int produtos;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private List<Produto> lista;
+    private ProdutoRestController controller;
+
+    @Setup
+    public void preparar() throws SQLException {
+        BaseSintetica.preparar(produtos, 0);
+        controller = new ProdutoRestController();
+
+        lista = new ArrayList<>(produtos);
+        for (int i = 1; i <= produtos; i++) {
+            Categoria cat = new Categoria(1 + i % 20, "Categoria " + (1 + i % 20), "Médio", "Caixa");
+            lista.add(new Produto(i, "Produto " + i, 1 + (i * 37 % 100000) / 100.0, "UN",
+                    i * 31 % 200, 20, 150, cat));
+        }
+    }
+
+    @Benchmark
+    public long serializarLista() throws IOException {
+        SaidaDescartada saida = new SaidaDescartada();
+        mapper.writeValue(saida, lista);
+        return saida.bytes;
+    }
+
+    @Benchmark
+    public long escreverSequencialDoBanco() throws IOException {
+        SaidaDescartada saida = new SaidaDescartada();
+        ((StreamingOutput) controller.listarTodos(true, null, null, null).getEntity()).write(saida);
+        return saida.bytes;
+    }
+
+    /**
+     * Fluxo de saída que apenas conta os bytes recebidos.
+     */
+    static final class SaidaDescartada extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -179,7 +179,12 @@ public class CategoriaServlet extends HttpServlet {
     private void excluirCategoria(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         int id = Integer.parseInt(request.getParameter("id"));
-        categoriaDAO.excluir(id);
+        try {
+            categoriaDAO.excluir(id);
+        } catch (IllegalStateException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
         response.sendRedirect("categorias");
     }
 }
@@ -0,0 +1,599 @@
+package controller;
+
+import dao.Configuracao;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Filtro de compressão gzip das respostas de texto (JSON, NDJSON, CSV, HTML das JSPs, CSS e JS).
+ *
+ * A compressão só é aplicada quando o cliente aceita gzip (Accept-Encoding) e o corpo passa do
+ * tamanho mínimo configurado: os primeiros bytes ficam em um buffer do tamanho do limite e,
+ * se a resposta terminar antes disso, é enviada sem compressão e com Content-Length. Acima do
+ * limite, o corpo é comprimido à medida que é escrito, sem ser montado em memória; um flush da
+ * aplicação (ex.: respostas em streaming) envia o que já foi comprimido.
+ *
+ * Toda resposta de tipo compressível recebe Vary: Accept-Encoding, inclusive as enviadas sem
+ * compressão (cliente sem gzip, HEAD ou corpo pequeno), para que caches intermediários não
+ * entreguem a versão comprimida a quem não a aceita, nem o contrário.
+ *
+ * Os Deflaters são reaproveitados entre as requisições (pool limitado), evitando alocar a
+ * memória nativa do zlib a cada resposta.
+ *
+ * A ETag forte de uma resposta comprimida recebe o sufixo "-gzip", pois os bytes enviados são
+ * outros; o sufixo é retirado de If-None-Match / If-Match antes de a requisição seguir, para que
+ * a revalidação continue funcionando.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.http.compressao.ativo            (padrão true)
+ * - estoque.http.compressao.tamanhoMinimo    (padrão 1024 bytes)
+ * - estoque.http.compressao.nivel            (padrão 6, de 1 a 9)
+ * - estoque.http.compressao.deflatersEmCache (padrão 2 por processador)
+ *
+ * Mapeamento: /* (aplica-se a todas as requisições)
+ */
+@WebFilter("/*")
+public class CompressaoFilter implements Filter {
+
+    private static final boolean ATIVO = Configuracao.getBoolean("estoque.http.compressao.ativo", true);
+    private static final int TAMANHO_MINIMO =
+            Math.max(0, Configuracao.getInt("estoque.http.compressao.tamanhoMinimo", 1024));
+    private static final int NIVEL =
+            Math.max(1, Math.min(9, Configuracao.getInt("estoque.http.compressao.nivel", 6)));
+    private static final int DEFLATERS_EM_CACHE = Math.max(1, Configuracao.getInt(
+            "estoque.http.compressao.deflatersEmCache", 2 * Runtime.getRuntime().availableProcessors()));
+
+    private static final Set<String> TIPOS_COMPRESSIVEIS = new HashSet<>(Arrays.asList(
+            "application/json", "application/x-ndjson", "text/csv", "text/html", "text/plain",
+            "text/css", "application/javascript", "text/javascript", "application/xml", "text/xml"));
+
+    private static final String SUFIXO_ETAG = "-gzip\"";
+    private static final byte[] CABECALHO_GZIP = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TAMANHO_BLOCO = 8192;
+
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(DEFLATERS_EM_CACHE);
+
+    /**
+     * Método de inicialização do filtro.
+     *
+     * @param filterConfig Objeto de configuração do filtro.
+     * @throws ServletException Se ocorrer erro na inicialização.
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Inicialização do filtro
+    }
+
+    /**
+     * Envolve a resposta para comprimi-la quando o cliente aceitar gzip.
+     *
+     * @param servletRequest Requisição do cliente.
+     * @param servletResponse Resposta para o cliente.
+     * @param chain Cadeia de filtros para continuar o processamento.
+     * @throws IOException Se ocorrer erro de entrada/saída.
+     * @throws ServletException Se ocorrer erro no processamento.
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        if (!ATIVO) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        RequisicaoCompactada requisicao = new RequisicaoCompactada(request);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || !aceitaGzip(request.getHeader("Accept-Encoding"))) {
+            chain.doFilter(requisicao, new RespostaVariavel(response));
+            return;
+        }
+
+        RespostaCompactada resposta = new RespostaCompactada(response);
+        try {
+            chain.doFilter(requisicao, resposta);
+            resposta.concluir();
+        } finally {
+            resposta.liberar();
+        }
+    }
+
+    /**
+     * Método de limpeza do filtro.
+     * Libera a memória nativa dos Deflaters guardados.
+     */
+    @Override
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = DEFLATERS.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Verifica se o Accept-Encoding aceita gzip (diretamente ou por "*") com q maior que zero.
+     */
+    private static boolean aceitaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean aceitaQualquer = false;
+        for (String item : acceptEncoding.split(",")) {
+            String[] partes = item.split(";");
+            String codificacao = partes[0].trim().toLowerCase(Locale.ROOT);
+            boolean aceito = true;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.startsWith("q=")) {
+                    try {
+                        aceito = Double.parseDouble(parametro.substring(2).trim()) > 0;
+                    } catch (NumberFormatException e) {
+                        aceito = false;
+                    }
+                }
+            }
+            if (codificacao.equals("gzip") || codificacao.equals("x-gzip")) {
+                return aceito;
+            }
+            if (codificacao.equals("*")) {
+                aceitaQualquer = aceito;
+            }
+        }
+        return aceitaQualquer;
+    }
+
+    private static boolean compressivel(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int fim = contentType.indexOf(';');
+        String tipo = (fim < 0 ? contentType : contentType.substring(0, fim)).trim().toLowerCase(Locale.ROOT);
+        return TIPOS_COMPRESSIVEIS.contains(tipo);
+    }
+
+    private static Deflater obterDeflater() {
+        Deflater deflater = DEFLATERS.poll();
+        return deflater != null ? deflater : new Deflater(NIVEL, true);
+    }
+
+    private static void devolverDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!DEFLATERS.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Requisição que retira o sufixo "-gzip" das ETags de If-None-Match e If-Match.
+     */
+    private static class RequisicaoCompactada extends HttpServletRequestWrapper {
+
+        RequisicaoCompactada(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String nome) {
+            String valor = super.getHeader(nome);
+            return condicional(nome) && valor != null ? valor.replace(SUFIXO_ETAG, "\"") : valor;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String nome) {
+            Enumeration<String> valores = super.getHeaders(nome);
+            if (!condicional(nome) || valores == null) {
+                return valores;
+            }
+            List<String> lista = new ArrayList<>();
+            while (valores.hasMoreElements()) {
+                lista.add(valores.nextElement().replace(SUFIXO_ETAG, "\""));
+            }
+            return Collections.enumeration(lista);
+        }
+
+        private static boolean condicional(String nome) {
+            return "If-None-Match".equalsIgnoreCase(nome) || "If-Match".equalsIgnoreCase(nome);
+        }
+    }
+
+    /**
+     * Resposta enviada sem compressão que recebe Vary: Accept-Encoding assim que o seu tipo
+     * for definido como compressível.
+     */
+    private static class RespostaVariavel extends HttpServletResponseWrapper {
+
+        private boolean variavel;
+
+        RespostaVariavel(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setContentType(String tipo) {
+            super.setContentType(tipo);
+            marcarVariavel();
+        }
+
+        @Override
+        public void setHeader(String nome, String valor) {
+            super.setHeader(nome, valor);
+            if ("Content-Type".equalsIgnoreCase(nome)) {
+                marcarVariavel();
+            }
+        }
+
+        @Override
+        public void addHeader(String nome, String valor) {
+            super.addHeader(nome, valor);
+            if ("Content-Type".equalsIgnoreCase(nome)) {
+                marcarVariavel();
+            }
+        }
+
+        private void marcarVariavel() {
+            if (!variavel && !isCommitted() && compressivel(getContentType())) {
+                variavel = true;
+                super.addHeader("Vary", "Accept-Encoding");
+            }
+        }
+    }
+
+    /**
+     * Resposta que decide pela compressão quando o corpo passa do tamanho mínimo.
+     * O Content-Length informado pela aplicação só é repassado se o corpo não for comprimido.
+     */
+    private static class RespostaCompactada extends HttpServletResponseWrapper {
+
+        private final HttpServletResponse original;
+        private SaidaCompactada saida;
+        private PrintWriter writer;
+        private long comprimentoPendente = -1;
+
+        RespostaCompactada(HttpServletResponse response) {
+            super(response);
+            this.original = response;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() já foi chamado nesta resposta.");
+            }
+            if (saida == null) {
+                saida = new SaidaCompactada(this, original.getOutputStream());
+            }
+            return saida;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (saida != null) {
+                    throw new IllegalStateException("getOutputStream() já foi chamado nesta resposta.");
+                }
+                saida = new SaidaCompactada(this, original.getOutputStream());
+                writer = new PrintWriter(new OutputStreamWriter(saida, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int comprimento) {
+            setContentLengthLong(comprimento);
+        }
+
+        @Override
+        public void setContentLengthLong(long comprimento) {
+            if (saida != null && saida.isDireta()) {
+                original.setContentLengthLong(comprimento);
+            } else {
+                comprimentoPendente = comprimento;
+            }
+        }
+
+        @Override
+        public void setHeader(String nome, String valor) {
+            if ("Content-Length".equalsIgnoreCase(nome)) {
+                setContentLengthLong(Long.parseLong(valor.trim()));
+            } else {
+                super.setHeader(nome, valor);
+            }
+        }
+
+        @Override
+        public void addHeader(String nome, String valor) {
+            if ("Content-Length".equalsIgnoreCase(nome)) {
+                setContentLengthLong(Long.parseLong(valor.trim()));
+            } else {
+                super.addHeader(nome, valor);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String nome, int valor) {
+            if ("Content-Length".equalsIgnoreCase(nome)) {
+                setContentLengthLong(valor);
+            } else {
+                super.setIntHeader(nome, valor);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String nome, int valor) {
+            if ("Content-Length".equalsIgnoreCase(nome)) {
+                setContentLengthLong(valor);
+            } else {
+                super.addIntHeader(nome, valor);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (saida != null) {
+                saida.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            comprimentoPendente = -1;
+            if (saida != null) {
+                saida.descartarBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (saida != null) {
+                saida.descartarBuffer();
+            }
+        }
+
+        /**
+         * Envia o restante do corpo ao final da requisição.
+         */
+        void concluir() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (saida != null) {
+                saida.close();
+            }
+        }
+
+        void liberar() {
+            if (saida != null) {
+                saida.liberar();
+            }
+        }
+
+        /**
+         * Decide, pelos cabeçalhos já definidos, se o corpo será comprimido.
+         */
+        boolean iniciarCompressao() {
+            int status = original.getStatus();
+            if (original.isCommitted() || status == SC_NO_CONTENT || status == SC_NOT_MODIFIED
+                    || status == SC_PARTIAL_CONTENT || original.getHeader("Content-Encoding") != null
+                    || !compressivel(original.getContentType())) {
+                return false;
+            }
+            original.setHeader("Content-Encoding", "gzip");
+            original.addHeader("Vary", "Accept-Encoding");
+            String etag = original.getHeader("ETag");
+            if (etag != null && !etag.startsWith("W/") && etag.endsWith("\"")) {
+                original.setHeader("ETag", etag.substring(0, etag.length() - 1) + SUFIXO_ETAG);
+            }
+            return true;
+        }
+
+        /**
+         * Repassa o Content-Length da aplicação (ou o tamanho do corpo, se conhecido) a uma
+         * resposta que não será comprimida.
+         */
+        void iniciarDireta(long tamanhoConhecido) {
+            if (original.isCommitted()) {
+                return;
+            }
+            if (compressivel(original.getContentType())) {
+                original.addHeader("Vary", "Accept-Encoding");
+            }
+            long comprimento = comprimentoPendente >= 0 ? comprimentoPendente : tamanhoConhecido;
+            if (comprimento >= 0) {
+                original.setContentLengthLong(comprimento);
+            }
+        }
+    }
+
+    /**
+     * Saída que guarda os primeiros bytes até a decisão e depois escreve direto ou comprimido.
+     */
+    private static class SaidaCompactada extends ServletOutputStream {
+
+        private static final int INDECISA = 0;
+        private static final int DIRETA = 1;
+        private static final int COMPRIMIDA = 2;
+
+        private final RespostaCompactada resposta;
+        private final ServletOutputStream destino;
+        private final byte[] buffer = new byte[TAMANHO_MINIMO];
+        private int usados;
+        private int estado = INDECISA;
+        private boolean fechada;
+
+        private Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private long tamanhoOriginal;
+        private byte[] bloco;
+
+        SaidaCompactada(RespostaCompactada resposta, ServletOutputStream destino) {
+            this.resposta = resposta;
+            this.destino = destino;
+        }
+
+        boolean isDireta() {
+            return estado == DIRETA;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fechada) {
+                throw new IOException("Saída já fechada.");
+            }
+            if (estado == INDECISA) {
+                if (usados + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, usados, len);
+                    usados += len;
+                    return;
+                }
+                decidir();
+            }
+            if (estado == DIRETA) {
+                destino.write(b, off, len);
+            } else {
+                comprimir(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Enquanto indecisa, os bytes continuam no buffer (no máximo o tamanho mínimo)
+            if (estado == COMPRIMIDA) {
+                drenar(Deflater.SYNC_FLUSH);
+                destino.flush();
+            } else if (estado == DIRETA) {
+                destino.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechada) {
+                return;
+            }
+            if (estado == INDECISA) {
+                decidirPequena();
+            }
+            if (estado == COMPRIMIDA) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(bloco, 0, bloco.length);
+                    destino.write(bloco, 0, n);
+                }
+                escreverInteiro((int) crc.getValue());
+                escreverInteiro((int) tamanhoOriginal);
+            }
+            fechada = true;
+            liberar();
+            destino.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return destino.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            destino.setWriteListener(writeListener);
+        }
+
+        void descartarBuffer() {
+            if (estado == INDECISA) {
+                usados = 0;
+            }
+        }
+
+        void liberar() {
+            if (deflater != null) {
+                devolverDeflater(deflater);
+                deflater = null;
+            }
+        }
+
+        /** Corpo terminou dentro do limite: vai sem compressão, com o tamanho exato. */
+        private void decidirPequena() throws IOException {
+            estado = DIRETA;
+            resposta.iniciarDireta(usados);
+            destino.write(buffer, 0, usados);
+            usados = 0;
+        }
+
+        /** Corpo passou do limite: comprime se o tipo permitir e descarrega o buffer. */
+        private void decidir() throws IOException {
+            if (resposta.iniciarCompressao()) {
+                estado = COMPRIMIDA;
+                deflater = obterDeflater();
+                bloco = new byte[TAMANHO_BLOCO];
+                destino.write(CABECALHO_GZIP);
+                comprimir(buffer, 0, usados);
+            } else {
+                estado = DIRETA;
+                resposta.iniciarDireta(-1);
+                destino.write(buffer, 0, usados);
+            }
+            usados = 0;
+        }
+
+        private void comprimir(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            crc.update(b, off, len);
+            tamanhoOriginal += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                int n = deflater.deflate(bloco, 0, bloco.length, Deflater.NO_FLUSH);
+                if (n > 0) {
+                    destino.write(bloco, 0, n);
+                }
+            }
+        }
+
+        private void drenar(int modo) throws IOException {
+            int n;
+            do {
+                n = deflater.deflate(bloco, 0, bloco.length, modo);
+                destino.write(bloco, 0, n);
+            } while (n == bloco.length);
+        }
+
+        /** Escreve um inteiro de 32 bits em little-endian (rodapé do gzip). */
+        private void escreverInteiro(int valor) throws IOException {
+            destino.write(valor & 0xff);
+            destino.write((valor >>> 8) & 0xff);
+            destino.write((valor >>> 16) & 0xff);
+            destino.write((valor >>> 24) & 0xff);
+        }
+    }
+}
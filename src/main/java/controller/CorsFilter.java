@@ -16,6 +16,7 @@ import java.io.IOException;
  * - Access-Control-Allow-Methods: Métodos HTTP permitidos (GET, POST, PUT, DELETE, OPTIONS)
  * - Access-Control-Allow-Headers: Headers HTTP permitidos nas requisições
  * - Access-Control-Allow-Credentials: Permite envio de credenciais (cookies, autenticação)
+ * - Access-Control-Expose-Headers: Headers de resposta legíveis pelo front-end (paginação, nome dos arquivos exportados)
  * 
  * Mapeamento: /* (aplica-se a todas as requisições)
  * 
@@ -60,10 +61,13 @@ public class CorsFilter implements Filter {
         response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
         
         // Headers permitidos
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Requested-With");
+        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Requested-With, If-None-Match");
         
         // Permite credenciais
         response.setHeader("Access-Control-Allow-Credentials", "true");
+
+        // Headers de resposta expostos ao front-end (paginação por cursor e revalidação)
+        response.setHeader("Access-Control-Expose-Headers", "Link, X-Proximo-Cursor, ETag, Content-Disposition");
         
         // Tempo de cache do preflight
         response.setHeader("Access-Control-Max-Age", "3600");
@@ -0,0 +1,65 @@
+package controller;
+
+import dao.UnidadeDeTrabalho;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import java.io.IOException;
+
+/**
+ * Filtro que garante o encerramento da unidade de trabalho das requisições da API REST.
+ *
+ * A unidade é aberta e confirmada pelos filtros JAX-RS ({@link controller.rest.UnidadeDeTrabalhoRestFilter}),
+ * mas o filtro de resposta não é executado se a requisição terminar com exceção antes dele
+ * (ex.: em outro filtro de requisição). Ao final da requisição, qualquer unidade ainda aberta
+ * na thread é desfeita e encerrada, devolvendo a conexão ao pool, para que a próxima
+ * requisição atendida pela mesma thread possa abrir a sua.
+ *
+ * Mapeamento: /api/*
+ */
+@WebFilter("/api/*")
+public class EncerramentoUnidadeFilter implements Filter {
+
+    /**
+     * Método de inicialização do filtro.
+     *
+     * @param filterConfig Objeto de configuração do filtro.
+     * @throws ServletException Se ocorrer erro na inicialização.
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Inicialização do filtro
+    }
+
+    /**
+     * Processa a requisição e, ao final, desfaz e encerra a unidade de trabalho que tenha
+     * ficado aberta na thread.
+     *
+     * @param servletRequest Requisição do cliente.
+     * @param servletResponse Resposta para o cliente.
+     * @param chain Cadeia de filtros para continuar o processamento.
+     * @throws IOException Se ocorrer erro de entrada/saída.
+     * @throws ServletException Se ocorrer erro no processamento.
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(servletRequest, servletResponse);
+        } finally {
+            UnidadeDeTrabalho restante = UnidadeDeTrabalho.atual();
+            if (restante != null) {
+                restante.desfazer();
+                restante.encerrar();
+            }
+        }
+    }
+
+    /**
+     * Método de limpeza do filtro.
+     */
+    @Override
+    public void destroy() {
+        // Limpeza do filtro
+    }
+}
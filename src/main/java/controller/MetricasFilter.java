@@ -0,0 +1,115 @@
+package controller;
+
+import dao.Metricas;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filtro que mede a duração das requisições das páginas web e registra em {@link Metricas},
+ * por endpoint (método, caminho e ação), junto com o status da resposta.
+ * Uma exceção não tratada pelo Servlet é registrada como status 500.
+ *
+ * Mapeamento: /produtos, /categorias, /movimentacoes, /relatorios
+ */
+@WebFilter({"/produtos", "/categorias", "/movimentacoes", "/relatorios"})
+public class MetricasFilter implements Filter {
+
+    /** Valor do parâmetro action nas séries de ações que os Servlets não tratam. */
+    private static final String ACAO_OUTRA = "outro";
+
+    /** Ações tratadas por cada Servlet, por caminho; só elas viram séries próprias. */
+    private static final Map<String, Set<String>> ACOES = new HashMap<>();
+
+    static {
+        ACOES.put("/produtos", acoes("novo", "editar", "excluir", "salvar", "atualizar"));
+        ACOES.put("/categorias", acoes("novo", "editar", "excluir", "salvar", "atualizar"));
+        ACOES.put("/movimentacoes", acoes("novo"));
+        ACOES.put("/relatorios", acoes("lista-precos", "abaixo-minimo", "acima-maximo"));
+    }
+
+    /**
+     * Método de inicialização do filtro.
+     *
+     * @param filterConfig Objeto de configuração do filtro.
+     * @throws ServletException Se ocorrer erro na inicialização.
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Inicialização do filtro
+    }
+
+    /**
+     * Processa a requisição e registra sua duração e status.
+     *
+     * @param servletRequest Requisição do cliente.
+     * @param servletResponse Resposta para o cliente.
+     * @param chain Cadeia de filtros para continuar o processamento.
+     * @throws IOException Se ocorrer erro de entrada/saída.
+     * @throws ServletException Se ocorrer erro no processamento.
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        Metricas metricas = Metricas.getInstancia();
+        if (!metricas.isAtivo()) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        long inicio = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(servletRequest, servletResponse);
+            status = response.getStatus();
+        } finally {
+            metricas.registrarRequisicao(endpoint(request), status, System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Método de limpeza do filtro.
+     */
+    @Override
+    public void destroy() {
+        // Limpeza do filtro
+    }
+
+    /**
+     * Monta o nome do endpoint, ex.: "GET /produtos?action=editar".
+     * O parâmetro action só é lido da query string, para não consumir o corpo de formulários.
+     * Só as ações tratadas pelo Servlet do caminho entram no nome; as demais são agrupadas em
+     * "action=outro", para que valores arbitrários enviados pelo cliente não criem séries novas.
+     */
+    private static String endpoint(HttpServletRequest request) {
+        String caminho = request.getServletPath();
+        String endpoint = request.getMethod() + " " + caminho;
+        String query = request.getQueryString();
+        if (query != null) {
+            for (String parametro : query.split("&")) {
+                if (parametro.startsWith("action=")) {
+                    String acao = parametro.substring("action=".length());
+                    Set<String> conhecidas = ACOES.getOrDefault(caminho, Collections.emptySet());
+                    return endpoint + "?action=" + (conhecidas.contains(acao) ? acao : ACAO_OUTRA);
+                }
+            }
+        }
+        return endpoint;
+    }
+
+    private static Set<String> acoes(String... nomes) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(nomes)));
+    }
+}
@@ -1,6 +1,7 @@
 package controller;
 
 import dao.MovimentacaoDAO;
+import dao.Pagina;
 import dao.ProdutoDAO;
 import modelo.Movimentacao;
 import modelo.Produto;
@@ -17,7 +18,7 @@ import java.util.List;
  * Mapeamento: /movimentacoes
  * 
  * Ações suportadas (via parâmetro action):
- * - listar - Lista todas as movimentações (padrão)
+ * - listar - Lista as movimentações, uma página por vez (padrão; parâmetro cursor)
  * - novo   - Exibe formulário para registrar nova movimentação
  * - POST   - Registra uma nova movimentação de estoque
  * 
@@ -71,7 +72,8 @@ public class MovimentacaoServlet extends HttpServlet {
     }
 
     /**
-     * Lista todas as movimentações cadastradas e encaminha para a página de listagem.
+     * Lista uma página das movimentações cadastradas e encaminha para a página de listagem.
+     * A página seguinte é indicada pelo atributo proximoCursor.
      * 
      * @param request Objeto HttpServletRequest contendo a requisição do cliente.
      * @param response Objeto HttpServletResponse para enviar a resposta ao cliente.
@@ -80,8 +82,15 @@ public class MovimentacaoServlet extends HttpServlet {
      */
     private void listarMovimentacoes(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        List<Movimentacao> listaMovimentacoes = movimentacaoDAO.listarTodas();
-        request.setAttribute("listaMovimentacoes", listaMovimentacoes);
+        Pagina<Movimentacao> pagina;
+        try {
+            pagina = movimentacaoDAO.listarPagina(null, request.getParameter("cursor"), 0);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        request.setAttribute("listaMovimentacoes", pagina.getItens());
+        request.setAttribute("proximoCursor", pagina.getProximoCursor());
         request.getRequestDispatcher("/movimentacoes.jsp").forward(request, response);
     }
 
@@ -0,0 +1,101 @@
+package controller;
+
+import dao.UnidadeDeTrabalho;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Filtro que executa cada requisição das páginas web em uma única unidade de trabalho.
+ * Todas as chamadas aos DAOs feitas pelo Servlet compartilham uma conexão e uma transação,
+ * confirmada ao final quando a resposta não indica erro (status menor que 400) e desfeita
+ * caso contrário ou se for lançada exceção.
+ *
+ * Nos redirecionamentos após salvar, a transação é confirmada antes do envio do
+ * redirecionamento, para que a página seguinte já encontre os dados gravados.
+ *
+ * Mapeamento: /produtos, /categorias, /movimentacoes, /relatorios
+ */
+@WebFilter({"/produtos", "/categorias", "/movimentacoes", "/relatorios"})
+public class UnidadeDeTrabalhoFilter implements Filter {
+
+    /**
+     * Método de inicialização do filtro.
+     *
+     * @param filterConfig Objeto de configuração do filtro.
+     * @throws ServletException Se ocorrer erro na inicialização.
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Inicialização do filtro
+    }
+
+    /**
+     * Abre a unidade de trabalho, processa a requisição e confirma ou desfaz a transação.
+     *
+     * @param servletRequest Requisição do cliente.
+     * @param servletResponse Resposta para o cliente.
+     * @param chain Cadeia de filtros para continuar o processamento.
+     * @throws IOException Se ocorrer erro de entrada/saída.
+     * @throws ServletException Se ocorrer erro no processamento ou ao confirmar a transação.
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        UnidadeDeTrabalho unidade = UnidadeDeTrabalho.iniciar();
+        RespostaTransacional response = new RespostaTransacional((HttpServletResponse) servletResponse, unidade);
+        boolean sucesso = false;
+        try {
+            chain.doFilter(servletRequest, response);
+            sucesso = response.getStatus() < 400;
+        } finally {
+            try {
+                if (sucesso) {
+                    unidade.confirmar();
+                } else {
+                    unidade.desfazer();
+                }
+            } catch (SQLException e) {
+                throw new ServletException("Erro ao confirmar transação.", e);
+            } finally {
+                unidade.encerrar();
+            }
+        }
+    }
+
+    /**
+     * Método de limpeza do filtro.
+     */
+    @Override
+    public void destroy() {
+        // Limpeza do filtro
+    }
+
+    /**
+     * Resposta que confirma a unidade de trabalho antes de enviar um redirecionamento.
+     */
+    private static class RespostaTransacional extends HttpServletResponseWrapper {
+
+        private final UnidadeDeTrabalho unidade;
+
+        RespostaTransacional(HttpServletResponse response, UnidadeDeTrabalho unidade) {
+            super(response);
+            this.unidade = unidade;
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            try {
+                unidade.confirmar();
+            } catch (SQLException e) {
+                throw new IOException("Erro ao confirmar transação.", e);
+            }
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -13,7 +13,7 @@ import java.util.List;
  * Fornece endpoints da API REST para operações CRUD (Create, Read, Update, Delete) de categorias.
  * 
  * Endpoints disponíveis:
- * - GET    /api/categorias      - Lista todas as categorias
+ * - GET    /api/categorias      - Lista todas as categorias (com ETag, ver {@link VersaoCatalogo})
  * - GET    /api/categorias/{id} - Busca categoria por ID
  * - POST   /api/categorias      - Cria nova categoria
  * - PUT    /api/categorias/{id} - Atualiza categoria existente
@@ -35,6 +35,7 @@ public class CategoriaRestController {
      * @return Response com lista de categorias em formato JSON ou mensagem de erro.
      */
     @GET
+    @VersaoCatalogo
     public Response listarTodas() {
         try {
             List<Categoria> categorias = categoriaDAO.listarTodas();
@@ -140,7 +141,8 @@ public class CategoriaRestController {
      * Endpoint: DELETE /api/categorias/{id}
      * 
      * @param id Identificador da categoria a ser excluída.
-     * @return Response com mensagem de sucesso ou erro (404 se categoria não encontrada).
+     * @return Response com mensagem de sucesso ou erro (404 se categoria não encontrada,
+     *         400 se houver produtos vinculados).
      */
     @DELETE
     @Path("/{id}")
@@ -153,9 +155,19 @@ public class CategoriaRestController {
                         .build();
             }
 
+            if (categoriaDAO.possuiProdutos(id)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(new ErrorResponse("Não é possível excluir a categoria: existem produtos vinculados."))
+                        .build();
+            }
+
             categoriaDAO.excluir(id);
             
             return Response.ok(new SuccessResponse("Categoria excluída com sucesso")).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorResponse("Erro ao excluir categoria: " + e.getMessage()))
@@ -0,0 +1,24 @@
+package controller.rest;
+
+import dao.ProcessadorLinha;
+
+import java.io.IOException;
+
+/**
+ * Consulta que percorre sequencialmente os itens de uma resposta escrita à medida que é lida
+ * do banco (ex.: {@code produtoDAO::percorrerTodos}), usada pelas exportações de
+ * {@link CsvSequencial} e {@link JsonSequencial}.
+ *
+ * @param <T> Tipo dos itens.
+ */
+@FunctionalInterface
+interface ConsultaSequencial<T> {
+
+    /**
+     * Executa a consulta, entregando os itens ao processador.
+     *
+     * @param processador Destino dos itens.
+     * @throws IOException Se o processador falhar ao gravar um item.
+     */
+    void percorrer(ProcessadorLinha<T> processador) throws IOException;
+}
@@ -0,0 +1,213 @@
+package controller.rest;
+
+import dao.FiltroMovimentacao;
+import dao.MovimentacaoDAO;
+import modelo.Movimentacao;
+import modelo.Produto;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Exportações em CSV escritas diretamente no fluxo de saída, à medida que as linhas são
+ * lidas do banco, como em {@link JsonSequencial}: o consumo de memória não depende da
+ * quantidade de registros, e o conteúdo é enviado ao cliente periodicamente
+ * ({@link EnvioPeriodico}).
+ *
+ * Formato: UTF-8, separador vírgula, ponto decimal, primeira linha com os nomes das colunas
+ * e fim de linha CRLF (RFC 4180). Valores com vírgula, aspas ou quebra de linha vão entre
+ * aspas duplas. As colunas de produtos têm os mesmos nomes das aceitas pela importação
+ * (POST /api/produtos/bulk); id e categoriaNome só existem na exportação e são ignoradas
+ * pela importação, de modo que o arquivo exportado pode ser importado sem alterações.
+ *
+ * Textos que começam com =, +, -, @, tabulação ou retorno de carro recebem um apóstrofo
+ * na frente, para que as planilhas não os interpretem como fórmulas (injeção de fórmulas em
+ * CSV). Textos que já começam com apóstrofo também recebem outro, para que a importação
+ * ({@link LeitorImportacao}) remova apenas o apóstrofo posto aqui. As colunas numéricas não
+ * são alteradas.
+ */
+final class CsvSequencial {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final String[] COLUNAS_PRODUTO = {"id", "nome", "precoUnitario", "unidade", "quantidade",
+            "quantidadeMinima", "quantidadeMaxima", "categoriaId", "categoriaNome"};
+
+    private CsvSequencial() {
+    }
+
+    /**
+     * Cria a exportação de produtos com todos os campos.
+     *
+     * @param consulta Consulta que percorre os produtos (ex.: produtoDAO::percorrerTodos).
+     * @return Saída que escreve o CSV.
+     */
+    static StreamingOutput produtos(ConsultaSequencial<Produto> consulta) {
+        return csv(COLUNAS_PRODUTO, consulta, (linha, p) -> {
+            linha.numero(p.getId());
+            linha.texto(p.getNome());
+            linha.numero(p.getPrecoUnitario());
+            linha.texto(p.getUnidade());
+            linha.numero(p.getQuantidadeEstoque());
+            linha.numero(p.getQuantidadeMinima());
+            linha.numero(p.getQuantidadeMaxima());
+            linha.numero(p.getCategoria().getId());
+            linha.texto(p.getCategoria().getNome());
+        });
+    }
+
+    /**
+     * Cria a exportação da lista de preços.
+     *
+     * @param consulta Consulta que percorre os produtos.
+     * @return Saída que escreve o CSV.
+     */
+    static StreamingOutput listaPrecos(ConsultaSequencial<Produto> consulta) {
+        String[] colunas = {"id", "nome", "unidade", "precoUnitario", "categoriaNome"};
+        return csv(colunas, consulta, (linha, p) -> {
+            linha.numero(p.getId());
+            linha.texto(p.getNome());
+            linha.texto(p.getUnidade());
+            linha.numero(p.getPrecoUnitario());
+            linha.texto(p.getCategoria().getNome());
+        });
+    }
+
+    /**
+     * Cria a exportação do balanço financeiro, com o valor em estoque de cada produto
+     * (preço unitário × quantidade).
+     *
+     * @param consulta Consulta que percorre os produtos.
+     * @return Saída que escreve o CSV.
+     */
+    static StreamingOutput balancoFinanceiro(ConsultaSequencial<Produto> consulta) {
+        String[] colunas = {"id", "nome", "quantidade", "precoUnitario", "valorTotal"};
+        return csv(colunas, consulta, (linha, p) -> {
+            linha.numero(p.getId());
+            linha.texto(p.getNome());
+            linha.numero(p.getQuantidadeEstoque());
+            linha.numero(p.getPrecoUnitario());
+            linha.numero(p.getPrecoUnitario() * p.getQuantidadeEstoque());
+        });
+    }
+
+    /**
+     * Cria a exportação das movimentações que atendem ao filtro, da mais recente para a mais antiga.
+     *
+     * @param movimentacaoDAO DAO usado na consulta.
+     * @param filtro          Critérios da consulta.
+     * @return Saída que escreve o CSV.
+     */
+    static StreamingOutput movimentacoes(MovimentacaoDAO movimentacaoDAO, FiltroMovimentacao filtro) {
+        String[] colunas = {"id", "tipo", "quantidade", "dataMovimento", "produtoId", "produtoNome"};
+        ConsultaSequencial<Movimentacao> consulta = processador -> movimentacaoDAO.percorrer(filtro, processador);
+        return csv(colunas, consulta, (linha, m) -> {
+            linha.numero(m.getId());
+            linha.texto(m.getTipo());
+            linha.numero(m.getQuantidade());
+            linha.texto(FORMATO_DATA.format(m.getDataMovimento()));
+            linha.numero(m.getProduto().getId());
+            linha.texto(m.getProduto().getNome());
+        });
+    }
+
+    /**
+     * Indica se um texto iniciado pelo caractere recebe o apóstrofo na exportação: caracteres
+     * de fórmula e o próprio apóstrofo.
+     *
+     * @param c Primeiro caractere do texto.
+     * @return true se o texto for protegido com um apóstrofo.
+     */
+    static boolean protegido(char c) {
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r' || c == '\'';
+    }
+
+    private static <T> StreamingOutput csv(String[] colunas, ConsultaSequencial<T> consulta, Colunas<T> valores) {
+        return saida -> {
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 16 * 1024);
+            Linha linha = new Linha(escritor);
+            for (String coluna : colunas) {
+                linha.texto(coluna);
+            }
+            linha.encerrar();
+            EnvioPeriodico envio = new EnvioPeriodico(escritor);
+            consulta.percorrer(item -> {
+                valores.escrever(linha, item);
+                linha.encerrar();
+                envio.linhaEscrita();
+            });
+            escritor.flush();
+        };
+    }
+
+    /**
+     * Escreve os valores das colunas de um item.
+     */
+    @FunctionalInterface
+    private interface Colunas<T> {
+        void escrever(Linha linha, T item) throws IOException;
+    }
+
+    /**
+     * Escreve os valores de uma linha, separados por vírgula.
+     */
+    private static final class Linha {
+        private final Writer escritor;
+        private boolean primeiro = true;
+
+        Linha(Writer escritor) {
+            this.escritor = escritor;
+        }
+
+        void texto(String valor) throws IOException {
+            separar();
+            if (valor == null) {
+                return;
+            }
+            if (!valor.isEmpty() && protegido(valor.charAt(0))) {
+                valor = "'" + valor;
+            }
+            boolean aspas = false;
+            for (int i = 0; i < valor.length() && !aspas; i++) {
+                char c = valor.charAt(i);
+                aspas = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!aspas) {
+                escritor.write(valor);
+                return;
+            }
+            escritor.write('"');
+            escritor.write(valor.replace("\"", "\"\""));
+            escritor.write('"');
+        }
+
+        void numero(int valor) throws IOException {
+            separar();
+            escritor.write(Integer.toString(valor));
+        }
+
+        void numero(double valor) throws IOException {
+            separar();
+            // Sem notação científica (1.0E7), que as planilhas não leem como número
+            escritor.write(BigDecimal.valueOf(valor).toPlainString());
+        }
+
+        void encerrar() throws IOException {
+            escritor.write("\r\n");
+            primeiro = true;
+        }
+
+        private void separar() throws IOException {
+            if (!primeiro) {
+                escritor.write(',');
+            }
+            primeiro = false;
+        }
+    }
+}
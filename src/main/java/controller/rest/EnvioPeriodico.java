@@ -0,0 +1,42 @@
+package controller.rest;
+
+import dao.Configuracao;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Envia ao cliente, a cada quantidade configurada de linhas, o que já foi escrito em uma
+ * exportação sequencial. Sem isso, os bytes ficam nos buffers até enchê-los, e uma
+ * exportação longa pode passar muito tempo sem enviar nada, o que faz proxies e clientes
+ * encerrarem a conexão por inatividade.
+ *
+ * Configuração (via {@link Configuracao}):
+ * - estoque.exportacao.linhasPorEnvio (padrão 1000)
+ */
+final class EnvioPeriodico {
+
+    private static final int LINHAS_POR_ENVIO = Math.max(1, Configuracao.getInt("estoque.exportacao.linhasPorEnvio", 1000));
+
+    private final Flushable destino;
+    private int linhas;
+
+    /**
+     * @param destino Escritor cujo flush envia os dados ao fluxo de saída da resposta.
+     */
+    EnvioPeriodico(Flushable destino) {
+        this.destino = destino;
+    }
+
+    /**
+     * Registra uma linha escrita e envia o conteúdo pendente ao completar o intervalo.
+     *
+     * @throws IOException Se o envio falhar (ex.: cliente desconectado).
+     */
+    void linhaEscrita() throws IOException {
+        if (++linhas == LINHAS_POR_ENVIO) {
+            linhas = 0;
+            destino.flush();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package controller.rest;
+
+import controller.rest.ProdutoRestController.ErrorResponse;
+import dao.FiltroMovimentacao;
+import dao.MovimentacaoDAO;
+import dao.ProdutoDAO;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Controlador REST de exportação de dados em CSV e NDJSON.
+ *
+ * Os arquivos são escritos à medida que as linhas são lidas do banco, com uma consulta
+ * sequencial ({@link dao.Conexao#prepararConsultaSequencial(String)}), e enviados ao cliente
+ * periodicamente ({@link EnvioPeriodico}): o consumo de memória do servidor é constante e
+ * exportações longas continuam recebendo dados até o fim. Com Accept-Encoding: gzip, o
+ * arquivo é comprimido à medida que é enviado.
+ *
+ * Endpoints disponíveis:
+ * - GET /api/export/produtos.csv | produtos.ndjson                - Todos os produtos
+ * - GET /api/export/movimentacoes.csv | movimentacoes.ndjson      - Movimentações (dataInicio,
+ *                                                                   dataFim, tipo, produtoId)
+ * - GET /api/export/relatorios/produtos-abaixo-minimo.csv
+ * - GET /api/export/relatorios/produtos-acima-maximo.csv
+ * - GET /api/export/relatorios/lista-precos.csv
+ * - GET /api/export/relatorios/produtos-por-categoria/{categoriaId}.csv
+ * - GET /api/export/relatorios/balanco-financeiro.csv
+ *
+ * As exportações de produtos e relatórios dependem apenas do catálogo e são revalidadas por
+ * ETag ({@link VersaoCatalogo}).
+ */
+@Path("/api/export")
+public class ExportacaoRestController {
+
+    private static final String TEXT_CSV = "text/csv; charset=UTF-8";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private ProdutoDAO produtoDAO = new ProdutoDAO();
+    private MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+
+    /**
+     * Exporta todos os produtos em CSV, em ordem de nome.
+     * Endpoint: GET /api/export/produtos.csv
+     *
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/produtos.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response produtosCsv() {
+        return arquivo(CsvSequencial.produtos(produtoDAO::percorrerTodos), TEXT_CSV, "produtos.csv");
+    }
+
+    /**
+     * Exporta todos os produtos em NDJSON (um objeto por linha), em ordem de nome.
+     * Endpoint: GET /api/export/produtos.ndjson
+     *
+     * @return Response com o arquivo NDJSON.
+     */
+    @GET
+    @Path("/produtos.ndjson")
+    @Produces(APPLICATION_NDJSON)
+    @VersaoCatalogo
+    public Response produtosNdjson() {
+        return arquivo(JsonSequencial.produtosNdjson(produtoDAO::percorrerTodos), APPLICATION_NDJSON, "produtos.ndjson");
+    }
+
+    /**
+     * Exporta as movimentações em CSV, da mais recente para a mais antiga.
+     * Endpoint: GET /api/export/movimentacoes.csv
+     *
+     * @param dataInicio Início do período (yyyy-MM-dd ou yyyy-MM-ddTHH:mm:ss).
+     * @param dataFim    Fim do período (uma data sem hora inclui o dia inteiro).
+     * @param tipo       Tipo das movimentações (ENTRADA ou SAIDA).
+     * @param produtoId  Produto das movimentações.
+     * @return Response com o arquivo CSV ou erro (400 se algum parâmetro for inválido).
+     */
+    @GET
+    @Path("/movimentacoes.csv")
+    @Produces(TEXT_CSV)
+    public Response movimentacoesCsv(@QueryParam("dataInicio") String dataInicio,
+                                     @QueryParam("dataFim") String dataFim,
+                                     @QueryParam("tipo") String tipo,
+                                     @QueryParam("produtoId") Integer produtoId) {
+        try {
+            FiltroMovimentacao filtro = montarFiltro(dataInicio, dataFim, tipo, produtoId);
+            return arquivo(CsvSequencial.movimentacoes(movimentacaoDAO, filtro), TEXT_CSV, "movimentacoes.csv");
+        } catch (IllegalArgumentException e) {
+            return erro(e);
+        }
+    }
+
+    /**
+     * Exporta as movimentações em NDJSON (um objeto por linha), da mais recente para a mais antiga.
+     * Endpoint: GET /api/export/movimentacoes.ndjson
+     *
+     * @param dataInicio Início do período (yyyy-MM-dd ou yyyy-MM-ddTHH:mm:ss).
+     * @param dataFim    Fim do período (uma data sem hora inclui o dia inteiro).
+     * @param tipo       Tipo das movimentações (ENTRADA ou SAIDA).
+     * @param produtoId  Produto das movimentações.
+     * @return Response com o arquivo NDJSON ou erro (400 se algum parâmetro for inválido).
+     */
+    @GET
+    @Path("/movimentacoes.ndjson")
+    @Produces(APPLICATION_NDJSON)
+    public Response movimentacoesNdjson(@QueryParam("dataInicio") String dataInicio,
+                                        @QueryParam("dataFim") String dataFim,
+                                        @QueryParam("tipo") String tipo,
+                                        @QueryParam("produtoId") Integer produtoId) {
+        try {
+            FiltroMovimentacao filtro = montarFiltro(dataInicio, dataFim, tipo, produtoId);
+            return arquivo(JsonSequencial.movimentacoesNdjson(movimentacaoDAO, filtro), APPLICATION_NDJSON,
+                    "movimentacoes.ndjson");
+        } catch (IllegalArgumentException e) {
+            return erro(e);
+        }
+    }
+
+    /**
+     * Exporta em CSV o relatório de produtos com estoque abaixo do mínimo.
+     * Endpoint: GET /api/export/relatorios/produtos-abaixo-minimo.csv
+     *
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/relatorios/produtos-abaixo-minimo.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response produtosAbaixoMinimoCsv() {
+        return arquivo(CsvSequencial.produtos(produtoDAO::percorrerAbaixoMinimo), TEXT_CSV,
+                "produtos-abaixo-minimo.csv");
+    }
+
+    /**
+     * Exporta em CSV o relatório de produtos com estoque acima do máximo.
+     * Endpoint: GET /api/export/relatorios/produtos-acima-maximo.csv
+     *
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/relatorios/produtos-acima-maximo.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response produtosAcimaMaximoCsv() {
+        return arquivo(CsvSequencial.produtos(produtoDAO::percorrerAcimaMaximo), TEXT_CSV,
+                "produtos-acima-maximo.csv");
+    }
+
+    /**
+     * Exporta em CSV a lista de preços de todos os produtos.
+     * Endpoint: GET /api/export/relatorios/lista-precos.csv
+     *
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/relatorios/lista-precos.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response listaPrecosCsv() {
+        return arquivo(CsvSequencial.listaPrecos(produtoDAO::percorrerTodos), TEXT_CSV, "lista-precos.csv");
+    }
+
+    /**
+     * Exporta em CSV os produtos de uma categoria.
+     * Endpoint: GET /api/export/relatorios/produtos-por-categoria/{categoriaId}.csv
+     *
+     * @param categoriaId Identificador da categoria.
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/relatorios/produtos-por-categoria/{categoriaId: \\d+}.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response produtosPorCategoriaCsv(@PathParam("categoriaId") int categoriaId) {
+        return arquivo(CsvSequencial.produtos(p -> produtoDAO.percorrerPorCategoria(categoriaId, p)), TEXT_CSV,
+                "produtos-categoria-" + categoriaId + ".csv");
+    }
+
+    /**
+     * Exporta em CSV o balanço financeiro, com o valor em estoque de cada produto. Os totais
+     * gerais continuam disponíveis em GET /api/relatorios/balanco-financeiro.
+     * Endpoint: GET /api/export/relatorios/balanco-financeiro.csv
+     *
+     * @return Response com o arquivo CSV.
+     */
+    @GET
+    @Path("/relatorios/balanco-financeiro.csv")
+    @Produces(TEXT_CSV)
+    @VersaoCatalogo
+    public Response balancoFinanceiroCsv() {
+        return arquivo(CsvSequencial.balancoFinanceiro(produtoDAO::percorrerTodos), TEXT_CSV,
+                "balanco-financeiro.csv");
+    }
+
+    private FiltroMovimentacao montarFiltro(String dataInicio, String dataFim, String tipo, Integer produtoId) {
+        FiltroMovimentacao filtro = MovimentacaoRestController.montarFiltro(dataInicio, dataFim, tipo);
+        filtro.setProdutoId(produtoId);
+        return filtro;
+    }
+
+    /**
+     * Resposta 200 com o arquivo, oferecido para download com o nome informado.
+     */
+    private Response arquivo(StreamingOutput conteudo, String tipo, String nome) {
+        return Response.ok(conteudo, tipo)
+                .header("Content-Disposition", "attachment; filename=\"" + nome + "\"")
+                .build();
+    }
+
+    private Response erro(IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
+    }
+}
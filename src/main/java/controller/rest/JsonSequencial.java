@@ -0,0 +1,381 @@
+package controller.rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dao.CategoriaDAO;
+import dao.FiltroMovimentacao;
+import dao.MovimentacaoDAO;
+import dao.ProdutoDAO;
+import dao.Projecao;
+import modelo.Categoria;
+import modelo.Movimentacao;
+import modelo.Produto;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respostas JSON escritas diretamente no fluxo de saída, à medida que as linhas são lidas
+ * do banco, com o gerador de streaming do Jackson. Nenhuma lista é montada em memória, de
+ * modo que o consumo de memória não depende da quantidade de registros.
+ *
+ * Os objetos JSON têm os mesmos campos da serialização padrão de {@link Produto} e
+ * {@link Movimentacao}; datas são escritas no formato ISO (yyyy-MM-ddTHH:mm:ss).
+ *
+ * Os formatos compactos de produtos não repetem a categoria em cada produto: cada categoria é
+ * escrita uma única vez no mapa "categorias" (por id) e os produtos trazem só o categoriaId,
+ * em objetos (compact) ou em um array por campo (columnar). Neles o alias "quantidade" de
+ * quantidadeEstoque é omitido.
+ *
+ * A consulta é executada quando o servidor grava a resposta, já fora da unidade de trabalho
+ * da requisição, com uma conexão própria do pool mantida até o fim da escrita.
+ */
+final class JsonSequencial {
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private JsonSequencial() {
+    }
+
+    /**
+     * Cria a resposta com todos os produtos, em ordem de nome.
+     *
+     * @param produtoDAO DAO usado na consulta.
+     * @return Saída que escreve o array JSON de produtos.
+     */
+    static StreamingOutput produtos(ProdutoDAO produtoDAO) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartArray();
+                produtoDAO.percorrerTodos(p -> escreverProduto(gerador, p));
+                gerador.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta compacta com todos os produtos, lidos do banco à medida que são escritos.
+     * Todas as categorias cadastradas são escritas antes dos produtos.
+     * Formato: {"categorias": {"1": {...}}, "produtos": [{"id": 1, ..., "categoriaId": 1}]}
+     *
+     * @param produtoDAO   DAO usado na consulta dos produtos.
+     * @param categoriaDAO DAO usado na consulta das categorias.
+     * @return Saída que escreve o objeto JSON.
+     */
+    static StreamingOutput produtosCompactos(ProdutoDAO produtoDAO, CategoriaDAO categoriaDAO) {
+        return saida -> {
+            List<Categoria> categorias = categoriaDAO.listarTodas();
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartObject();
+                escreverCategorias(gerador, categorias);
+                gerador.writeArrayFieldStart("produtos");
+                produtoDAO.percorrerTodos(p -> escreverProdutoCompacto(gerador, p));
+                gerador.writeEndArray();
+                gerador.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta compacta a partir de uma lista de produtos já carregada, com apenas as
+     * categorias usadas por eles.
+     *
+     * @param produtos Produtos a escrever.
+     * @return Saída que escreve o objeto JSON.
+     */
+    static StreamingOutput produtosCompactos(List<Produto> produtos) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartObject();
+                escreverCategorias(gerador, categoriasUsadas(produtos));
+                gerador.writeArrayFieldStart("produtos");
+                for (Produto p : produtos) {
+                    escreverProdutoCompacto(gerador, p);
+                }
+                gerador.writeEndArray();
+                gerador.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta colunar a partir de uma lista de produtos já carregada: um array por
+     * campo, todos na mesma ordem, e as categorias usadas pelos produtos.
+     * Formato: {"total": n, "categorias": {...}, "produtos": {"id": [...], "nome": [...], ...}}
+     *
+     * @param produtos Produtos a escrever.
+     * @return Saída que escreve o objeto JSON.
+     */
+    static StreamingOutput produtosColunares(List<Produto> produtos) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartObject();
+                gerador.writeNumberField("total", produtos.size());
+                escreverCategorias(gerador, categoriasUsadas(produtos));
+                gerador.writeObjectFieldStart("produtos");
+
+                gerador.writeArrayFieldStart("id");
+                for (Produto p : produtos) {
+                    gerador.writeNumber(p.getId());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("nome");
+                for (Produto p : produtos) {
+                    gerador.writeString(p.getNome());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("precoUnitario");
+                for (Produto p : produtos) {
+                    gerador.writeNumber(p.getPrecoUnitario());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("unidade");
+                for (Produto p : produtos) {
+                    gerador.writeString(p.getUnidade());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("quantidadeEstoque");
+                for (Produto p : produtos) {
+                    gerador.writeNumber(p.getQuantidadeEstoque());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("quantidadeMinima");
+                for (Produto p : produtos) {
+                    gerador.writeNumber(p.getQuantidadeMinima());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("quantidadeMaxima");
+                for (Produto p : produtos) {
+                    gerador.writeNumber(p.getQuantidadeMaxima());
+                }
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("categoriaId");
+                for (Produto p : produtos) {
+                    if (p.getCategoria() == null) {
+                        gerador.writeNull();
+                    } else {
+                        gerador.writeNumber(p.getCategoria().getId());
+                    }
+                }
+                gerador.writeEndArray();
+
+                gerador.writeEndObject();
+                gerador.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta com as movimentações que atendem ao filtro, da mais recente para a mais antiga.
+     *
+     * @param movimentacaoDAO DAO usado na consulta.
+     * @param filtro          Critérios da consulta.
+     * @return Saída que escreve o array JSON de movimentações.
+     */
+    static StreamingOutput movimentacoes(MovimentacaoDAO movimentacaoDAO, FiltroMovimentacao filtro) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartArray();
+                movimentacaoDAO.percorrer(filtro, m -> escreverMovimentacao(gerador, m));
+                gerador.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta com todos os produtos, em ordem de nome, apenas com os campos da projeção.
+     *
+     * @param produtoDAO DAO usado na consulta.
+     * @param projecao   Campos a escrever.
+     * @return Saída que escreve o array JSON de produtos.
+     */
+    static StreamingOutput produtosProjetados(ProdutoDAO produtoDAO, Projecao projecao) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartArray();
+                produtoDAO.percorrerProjetado(projecao, linha -> escreverMapa(gerador, linha));
+                gerador.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Cria a resposta com as movimentações que atendem ao filtro, da mais recente para a mais
+     * antiga, apenas com os campos da projeção.
+     *
+     * @param movimentacaoDAO DAO usado na consulta.
+     * @param filtro          Critérios da consulta.
+     * @param projecao        Campos a escrever.
+     * @return Saída que escreve o array JSON de movimentações.
+     */
+    static StreamingOutput movimentacoesProjetadas(MovimentacaoDAO movimentacaoDAO, FiltroMovimentacao filtro,
+                                                   Projecao projecao) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGerador(saida)) {
+                gerador.writeStartArray();
+                movimentacaoDAO.percorrerProjetado(filtro, projecao, linha -> escreverMapa(gerador, linha));
+                gerador.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Cria a exportação NDJSON de produtos: um objeto por linha, com os mesmos campos da
+     * serialização padrão, enviado ao cliente periodicamente ({@link EnvioPeriodico}).
+     *
+     * @param consulta Consulta que percorre os produtos (ex.: produtoDAO::percorrerTodos).
+     * @return Saída que escreve um produto por linha.
+     */
+    static StreamingOutput produtosNdjson(ConsultaSequencial<Produto> consulta) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGeradorNdjson(saida)) {
+                EnvioPeriodico envio = new EnvioPeriodico(gerador);
+                consulta.percorrer(p -> {
+                    escreverProduto(gerador, p);
+                    gerador.writeRaw('\n');
+                    envio.linhaEscrita();
+                });
+            }
+        };
+    }
+
+    /**
+     * Cria a exportação NDJSON das movimentações que atendem ao filtro, da mais recente para
+     * a mais antiga, uma por linha.
+     *
+     * @param movimentacaoDAO DAO usado na consulta.
+     * @param filtro          Critérios da consulta.
+     * @return Saída que escreve uma movimentação por linha.
+     */
+    static StreamingOutput movimentacoesNdjson(MovimentacaoDAO movimentacaoDAO, FiltroMovimentacao filtro) {
+        return saida -> {
+            try (JsonGenerator gerador = criarGeradorNdjson(saida)) {
+                EnvioPeriodico envio = new EnvioPeriodico(gerador);
+                movimentacaoDAO.percorrer(filtro, m -> {
+                    escreverMovimentacao(gerador, m);
+                    gerador.writeRaw('\n');
+                    envio.linhaEscrita();
+                });
+            }
+        };
+    }
+
+    private static JsonGenerator criarGeradorNdjson(OutputStream saida) throws IOException {
+        JsonGenerator gerador = criarGerador(saida);
+        // As linhas são separadas por '\n' escrito após cada objeto
+        gerador.setRootValueSeparator(null);
+        return gerador;
+    }
+
+    private static JsonGenerator criarGerador(OutputStream saida) throws IOException {
+        JsonGenerator gerador = FABRICA.createGenerator(saida, JsonEncoding.UTF8);
+        // O fluxo de saída pertence ao servidor
+        gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return gerador;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void escreverMapa(JsonGenerator gerador, Map<String, Object> mapa) throws IOException {
+        gerador.writeStartObject();
+        for (Map.Entry<String, Object> campo : mapa.entrySet()) {
+            Object valor = campo.getValue();
+            gerador.writeFieldName(campo.getKey());
+            if (valor == null) {
+                gerador.writeNull();
+            } else if (valor instanceof Integer) {
+                gerador.writeNumber((Integer) valor);
+            } else if (valor instanceof Double) {
+                gerador.writeNumber((Double) valor);
+            } else if (valor instanceof Map) {
+                escreverMapa(gerador, (Map<String, Object>) valor);
+            } else {
+                gerador.writeString(valor.toString());
+            }
+        }
+        gerador.writeEndObject();
+    }
+
+    private static void escreverProduto(JsonGenerator gerador, Produto p) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeNumberField("id", p.getId());
+        gerador.writeStringField("nome", p.getNome());
+        gerador.writeNumberField("precoUnitario", p.getPrecoUnitario());
+        gerador.writeStringField("unidade", p.getUnidade());
+        gerador.writeNumberField("quantidadeEstoque", p.getQuantidadeEstoque());
+        gerador.writeNumberField("quantidade", p.getQuantidade());
+        gerador.writeNumberField("quantidadeMinima", p.getQuantidadeMinima());
+        gerador.writeNumberField("quantidadeMaxima", p.getQuantidadeMaxima());
+        gerador.writeFieldName("categoria");
+        escreverCategoria(gerador, p.getCategoria());
+        gerador.writeEndObject();
+    }
+
+    private static void escreverProdutoCompacto(JsonGenerator gerador, Produto p) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeNumberField("id", p.getId());
+        gerador.writeStringField("nome", p.getNome());
+        gerador.writeNumberField("precoUnitario", p.getPrecoUnitario());
+        gerador.writeStringField("unidade", p.getUnidade());
+        gerador.writeNumberField("quantidadeEstoque", p.getQuantidadeEstoque());
+        gerador.writeNumberField("quantidadeMinima", p.getQuantidadeMinima());
+        gerador.writeNumberField("quantidadeMaxima", p.getQuantidadeMaxima());
+        if (p.getCategoria() == null) {
+            gerador.writeNullField("categoriaId");
+        } else {
+            gerador.writeNumberField("categoriaId", p.getCategoria().getId());
+        }
+        gerador.writeEndObject();
+    }
+
+    private static void escreverCategorias(JsonGenerator gerador, Collection<Categoria> categorias) throws IOException {
+        gerador.writeObjectFieldStart("categorias");
+        for (Categoria c : categorias) {
+            gerador.writeFieldName(String.valueOf(c.getId()));
+            escreverCategoria(gerador, c);
+        }
+        gerador.writeEndObject();
+    }
+
+    private static Collection<Categoria> categoriasUsadas(List<Produto> produtos) {
+        Map<Integer, Categoria> categorias = new LinkedHashMap<>();
+        for (Produto p : produtos) {
+            if (p.getCategoria() != null) {
+                categorias.putIfAbsent(p.getCategoria().getId(), p.getCategoria());
+            }
+        }
+        return categorias.values();
+    }
+
+    private static void escreverCategoria(JsonGenerator gerador, Categoria c) throws IOException {
+        if (c == null) {
+            gerador.writeNull();
+            return;
+        }
+        gerador.writeStartObject();
+        gerador.writeNumberField("id", c.getId());
+        gerador.writeStringField("nome", c.getNome());
+        gerador.writeStringField("tamanho", c.getTamanho());
+        gerador.writeStringField("embalagem", c.getEmbalagem());
+        gerador.writeEndObject();
+    }
+
+    private static void escreverMovimentacao(JsonGenerator gerador, Movimentacao m) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeNumberField("id", m.getId());
+        gerador.writeStringField("tipo", m.getTipo());
+        gerador.writeNumberField("quantidade", m.getQuantidade());
+        gerador.writeStringField("dataMovimento", FORMATO_DATA.format(m.getDataMovimento()));
+        gerador.writeFieldName("produto");
+        escreverProduto(gerador, m.getProduto());
+        gerador.writeStringField("dataFormatada", m.getDataFormatada());
+        gerador.writeEndObject();
+    }
+}
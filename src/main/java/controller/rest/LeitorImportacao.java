@@ -0,0 +1,309 @@
+package controller.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import dao.ImportacaoProdutos;
+import modelo.Categoria;
+import modelo.Produto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura sequencial dos arquivos de importação de produtos, em CSV ou NDJSON (um objeto
+ * JSON por linha). O corpo da requisição é lido aos poucos e cada registro é entregue à
+ * {@link ImportacaoProdutos} assim que é lido, sem carregar o arquivo em memória.
+ *
+ * Os campos têm os mesmos nomes do corpo de POST /api/produtos: nome, precoUnitario,
+ * unidade, quantidade (ou quantidadeEstoque), quantidadeMinima, quantidadeMaxima e
+ * categoriaId. No CSV, a primeira linha é o cabeçalho com os nomes das colunas, em qualquer
+ * ordem, separados por vírgula ou ponto e vírgula; valores com separador, aspas ou quebra de
+ * linha vão entre aspas duplas (aspas dentro do valor são duplicadas). Um apóstrofo antes
+ * de =, +, -, @, tabulação, retorno de carro ou de outro apóstrofo, posto pela exportação
+ * para que as planilhas não leiam o valor como fórmula ({@link CsvSequencial}), é removido;
+ * os demais apóstrofos fazem parte do valor. As colunas id e categoriaNome, que só existem
+ * na exportação, são ignoradas.
+ *
+ * Linhas em branco são ignoradas. Um registro que não pode ser lido é recusado com o número
+ * da sua linha e a leitura continua no registro seguinte.
+ */
+final class LeitorImportacao {
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    private LeitorImportacao() {
+    }
+
+    /**
+     * Lê um arquivo CSV com cabeçalho.
+     *
+     * @param corpo      Corpo da requisição.
+     * @param importacao Destino dos produtos lidos.
+     * @throws IOException              Se ocorrer erro na leitura do corpo.
+     * @throws IllegalArgumentException Se o cabeçalho estiver ausente ou tiver colunas desconhecidas.
+     */
+    static void lerCsv(InputStream corpo, ImportacaoProdutos importacao) throws IOException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+        String cabecalho = leitor.readLine();
+        if (cabecalho != null && !cabecalho.isEmpty() && cabecalho.charAt(0) == '\uFEFF') {
+            // BOM gravado por planilhas
+            cabecalho = cabecalho.substring(1);
+        }
+        if (cabecalho == null || cabecalho.trim().isEmpty()) {
+            throw new IllegalArgumentException("Arquivo CSV sem cabeçalho");
+        }
+        char separador = cabecalho.indexOf(';') >= 0 && cabecalho.indexOf(',') < 0 ? ';' : ',';
+        List<String> colunas = new RegistrosCsv(new StringReader(cabecalho), separador, 1).proximo();
+        for (int i = 0; i < colunas.size(); i++) {
+            String coluna = colunas.get(i).trim();
+            colunas.set(i, coluna);
+            if (!campoValido(coluna) && !somenteExportacao(coluna)) {
+                throw new IllegalArgumentException("Coluna desconhecida no cabeçalho: " + coluna);
+            }
+        }
+
+        RegistrosCsv registros = new RegistrosCsv(leitor, separador, 2);
+        List<String> valores;
+        while ((valores = registros.proximo()) != null) {
+            int linha = registros.getLinhaInicial();
+            if (valores.size() == 1 && valores.get(0).trim().isEmpty()) {
+                continue;
+            }
+            if (valores.size() != colunas.size()) {
+                importacao.recusar(linha, "Esperadas " + colunas.size() + " colunas, encontradas " + valores.size());
+                continue;
+            }
+            Produto produto = new Produto();
+            try {
+                for (int i = 0; i < colunas.size(); i++) {
+                    if (!somenteExportacao(colunas.get(i))) {
+                        atribuir(produto, colunas.get(i), semApostrofo(valores.get(i).trim()));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                importacao.recusar(linha, e.getMessage());
+                continue;
+            }
+            importacao.adicionar(linha, produto);
+        }
+    }
+
+    /**
+     * Lê um arquivo NDJSON, com um objeto de produto por linha.
+     *
+     * @param corpo      Corpo da requisição.
+     * @param importacao Destino dos produtos lidos.
+     * @throws IOException Se ocorrer erro na leitura do corpo.
+     */
+    static void lerNdjson(InputStream corpo, ImportacaoProdutos importacao) throws IOException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+        String texto;
+        int linha = 0;
+        while ((texto = leitor.readLine()) != null) {
+            linha++;
+            if (texto.trim().isEmpty()) {
+                continue;
+            }
+            Produto produto = new Produto();
+            try (JsonParser parser = FABRICA.createParser(texto)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("A linha não é um objeto JSON");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.getCurrentName();
+                    JsonToken valor = parser.nextToken();
+                    if (valor == JsonToken.START_OBJECT || valor == JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("Valor inválido em " + campo);
+                    }
+                    if (!campoValido(campo)) {
+                        throw new IllegalArgumentException("Campo desconhecido: " + campo);
+                    }
+                    if (valor != JsonToken.VALUE_NULL) {
+                        atribuir(produto, campo, parser.getText().trim());
+                    }
+                }
+                if (parser.nextToken() != null) {
+                    throw new IllegalArgumentException("Conteúdo após o objeto JSON");
+                }
+            } catch (JsonProcessingException e) {
+                importacao.recusar(linha, "JSON inválido: " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                importacao.recusar(linha, e.getMessage());
+                continue;
+            }
+            importacao.adicionar(linha, produto);
+        }
+    }
+
+    private static boolean campoValido(String campo) {
+        switch (campo) {
+            case "nome":
+            case "precoUnitario":
+            case "unidade":
+            case "quantidade":
+            case "quantidadeEstoque":
+            case "quantidadeMinima":
+            case "quantidadeMaxima":
+            case "categoriaId":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Colunas escritas pela exportação de produtos que não são campos do produto importado.
+     */
+    private static boolean somenteExportacao(String coluna) {
+        return "id".equals(coluna) || "categoriaNome".equals(coluna);
+    }
+
+    /**
+     * Remove o apóstrofo posto pela exportação na frente de um valor iniciado por caractere de
+     * fórmula ou por apóstrofo.
+     */
+    private static String semApostrofo(String valor) {
+        if (valor.length() > 1 && valor.charAt(0) == '\'' && CsvSequencial.protegido(valor.charAt(1))) {
+            return valor.substring(1);
+        }
+        return valor;
+    }
+
+    /**
+     * Atribui ao produto o valor de um campo. Valores vazios deixam o campo com o valor padrão.
+     *
+     * @throws IllegalArgumentException Se o valor não for um número válido.
+     */
+    private static void atribuir(Produto produto, String campo, String valor) {
+        if (valor.isEmpty()) {
+            return;
+        }
+        switch (campo) {
+            case "nome":
+                produto.setNome(valor);
+                break;
+            case "precoUnitario":
+                produto.setPrecoUnitario(decimal(campo, valor));
+                break;
+            case "unidade":
+                produto.setUnidade(valor);
+                break;
+            case "quantidade":
+            case "quantidadeEstoque":
+                produto.setQuantidadeEstoque(inteiro(campo, valor));
+                break;
+            case "quantidadeMinima":
+                produto.setQuantidadeMinima(inteiro(campo, valor));
+                break;
+            case "quantidadeMaxima":
+                produto.setQuantidadeMaxima(inteiro(campo, valor));
+                break;
+            case "categoriaId":
+                Categoria categoria = new Categoria();
+                categoria.setId(inteiro(campo, valor));
+                produto.setCategoria(categoria);
+                break;
+            default:
+                throw new IllegalArgumentException("Campo desconhecido: " + campo);
+        }
+    }
+
+    private static int inteiro(String campo, String valor) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inteiro inválido em " + campo + ": " + valor);
+        }
+    }
+
+    private static double decimal(String campo, String valor) {
+        try {
+            return Double.parseDouble(valor.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido em " + campo + ": " + valor);
+        }
+    }
+
+    /**
+     * Divide um texto CSV em registros, respeitando valores entre aspas que contenham
+     * separadores ou quebras de linha.
+     */
+    private static final class RegistrosCsv {
+        private final Reader leitor;
+        private final char separador;
+        private int linha;
+        private int linhaInicial;
+        private final StringBuilder valor = new StringBuilder();
+
+        RegistrosCsv(Reader leitor, char separador, int primeiraLinha) {
+            this.leitor = leitor;
+            this.separador = separador;
+            this.linha = primeiraLinha;
+        }
+
+        /**
+         * Número da linha do arquivo em que começa o último registro lido.
+         */
+        int getLinhaInicial() {
+            return linhaInicial;
+        }
+
+        /**
+         * Lê o próximo registro.
+         *
+         * @return Valores do registro ou null no fim do arquivo.
+         */
+        List<String> proximo() throws IOException {
+            int c = leitor.read();
+            if (c < 0) {
+                return null;
+            }
+            linhaInicial = linha;
+            List<String> valores = new ArrayList<>();
+            valor.setLength(0);
+            boolean entreAspas = false;
+            while (c >= 0) {
+                if (entreAspas) {
+                    if (c == '"') {
+                        int seguinte = leitor.read();
+                        if (seguinte == '"') {
+                            valor.append('"');
+                        } else {
+                            entreAspas = false;
+                            c = seguinte;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            linha++;
+                        }
+                        valor.append((char) c);
+                    }
+                } else if (c == '"' && valor.length() == 0) {
+                    entreAspas = true;
+                } else if (c == separador) {
+                    valores.add(valor.toString());
+                    valor.setLength(0);
+                } else if (c == '\n') {
+                    linha++;
+                    break;
+                } else if (c != '\r') {
+                    valor.append((char) c);
+                }
+                c = leitor.read();
+            }
+            valores.add(valor.toString());
+            return valores;
+        }
+    }
+}
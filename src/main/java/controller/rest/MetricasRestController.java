@@ -0,0 +1,179 @@
+package controller.rest;
+
+import dao.AgrupadorMovimentacoes;
+import dao.CacheProdutos;
+import dao.Metricas;
+import dao.PoolConexoes;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Controlador REST que exporta as métricas da aplicação no formato texto do Prometheus
+ * (versão 0.0.4), para coleta periódica.
+ *
+ * Endpoints disponíveis:
+ * - GET /api/metrics - Histogramas de latência por endpoint HTTP e por operação de DAO,
+ *                      contadores de respostas, linhas e erros, e estatísticas do pool de
+ *                      conexões, do cache de produtos e do agrupador de movimentações
+ *
+ * Métricas exportadas:
+ * - estoque_http_requisicao_segundos{endpoint}   - histograma da duração das requisições
+ * - estoque_http_respostas_total{endpoint,status} - respostas por status
+ * - estoque_http_erros_total{endpoint}           - respostas com status 5xx
+ * - estoque_dao_operacao_segundos{operacao}      - histograma da duração das operações de DAO
+ * - estoque_dao_linhas_total{operacao}           - linhas lidas ou gravadas
+ * - estoque_dao_erros_total{operacao}            - operações que falharam
+ * - estoque_movimentacoes_agrupadas_lote_tamanho - histograma do tamanho dos lotes de movimentações
+ * - estoque_pool_*, estoque_cache_produtos_*, estoque_movimentacoes_agrupadas_*
+ */
+@Path("/api/metrics")
+public class MetricasRestController {
+
+    private static final String TIPO_CONTEUDO = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Exporta todas as métricas.
+     * Endpoint: GET /api/metrics
+     *
+     * @return Response com as métricas em formato texto ou mensagem de erro.
+     */
+    @GET
+    @Produces(TIPO_CONTEUDO)
+    public Response exportar() {
+        try {
+            StringBuilder sb = new StringBuilder(16 * 1024);
+            Metricas metricas = Metricas.getInstancia();
+            double[] limites = Metricas.getLimitesSegundos();
+
+            escreverHistogramas(sb, "estoque_http_requisicao_segundos",
+                    "Duração das requisições HTTP, em segundos.", "endpoint", metricas.getRequisicoes(), limites);
+
+            cabecalho(sb, "estoque_http_respostas_total", "counter", "Respostas HTTP por endpoint e status.");
+            for (Map.Entry<String, Map<Integer, Long>> e : metricas.getRespostasPorStatus().entrySet()) {
+                for (Map.Entry<Integer, Long> s : e.getValue().entrySet()) {
+                    sb.append("estoque_http_respostas_total{endpoint=\"").append(escapar(e.getKey()))
+                            .append("\",status=\"").append(s.getKey()).append("\"} ")
+                            .append(s.getValue()).append('\n');
+                }
+            }
+
+            cabecalho(sb, "estoque_http_erros_total", "counter", "Respostas HTTP com status 5xx.");
+            for (Map.Entry<String, Metricas.Operacao> e : metricas.getRequisicoes().entrySet()) {
+                amostra(sb, "estoque_http_erros_total", "endpoint", e.getKey(), e.getValue().getErros());
+            }
+
+            Map<String, Metricas.Operacao> operacoes = metricas.getOperacoesDao();
+            escreverHistogramas(sb, "estoque_dao_operacao_segundos",
+                    "Duração das operações dos DAOs, em segundos.", "operacao", operacoes, limites);
+
+            cabecalho(sb, "estoque_dao_linhas_total", "counter", "Linhas lidas ou gravadas pelas operações dos DAOs.");
+            for (Map.Entry<String, Metricas.Operacao> e : operacoes.entrySet()) {
+                amostra(sb, "estoque_dao_linhas_total", "operacao", e.getKey(), e.getValue().getLinhas());
+            }
+
+            cabecalho(sb, "estoque_dao_erros_total", "counter", "Operações dos DAOs que falharam.");
+            for (Map.Entry<String, Metricas.Operacao> e : operacoes.entrySet()) {
+                amostra(sb, "estoque_dao_erros_total", "operacao", e.getKey(), e.getValue().getErros());
+            }
+
+            escreverPool(sb, PoolConexoes.getInstancia().getEstatisticas());
+            escreverCache(sb, CacheProdutos.getInstancia().getEstatisticas());
+            escreverAgrupador(sb, AgrupadorMovimentacoes.getInstancia().getEstatisticas());
+
+            return Response.ok(sb.toString(), TIPO_CONTEUDO).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .type(TIPO_CONTEUDO)
+                    .entity("# Erro ao exportar métricas: " + e.getMessage() + "\n")
+                    .build();
+        }
+    }
+
+    private static void escreverHistogramas(StringBuilder sb, String nome, String ajuda, String rotulo,
+                                            Map<String, Metricas.Operacao> operacoes, double[] limites) {
+        cabecalho(sb, nome, "histogram", ajuda);
+        for (Map.Entry<String, Metricas.Operacao> e : operacoes.entrySet()) {
+            String valorRotulo = escapar(e.getKey());
+            long[] acumuladas = e.getValue().getContagensAcumuladas();
+            for (int i = 0; i < acumuladas.length; i++) {
+                String le = i < limites.length ? BigDecimal.valueOf(limites[i]).toPlainString() : "+Inf";
+                sb.append(nome).append("_bucket{").append(rotulo).append("=\"").append(valorRotulo)
+                        .append("\",le=\"").append(le).append("\"} ").append(acumuladas[i]).append('\n');
+            }
+            sb.append(nome).append("_sum{").append(rotulo).append("=\"").append(valorRotulo).append("\"} ")
+                    .append(e.getValue().getSomaSegundos()).append('\n');
+            sb.append(nome).append("_count{").append(rotulo).append("=\"").append(valorRotulo).append("\"} ")
+                    .append(acumuladas[acumuladas.length - 1]).append('\n');
+        }
+    }
+
+    private static void escreverPool(StringBuilder sb, PoolConexoes.Estatisticas pool) {
+        metrica(sb, "estoque_pool_conexoes_ativas", "gauge", "Conexões emprestadas no momento.", pool.getAtivas());
+        metrica(sb, "estoque_pool_conexoes_ociosas", "gauge", "Conexões abertas aguardando uso.", pool.getOciosas());
+        metrica(sb, "estoque_pool_threads_aguardando", "gauge", "Threads aguardando uma conexão livre.", pool.getAguardando());
+        metrica(sb, "estoque_pool_tamanho_maximo", "gauge", "Número máximo de conexões simultâneas.", pool.getTamanhoMaximo());
+        metrica(sb, "estoque_pool_emprestimos_total", "counter", "Empréstimos de conexão realizados.", pool.getEmprestimos());
+        metrica(sb, "estoque_pool_conexoes_criadas_total", "counter", "Conexões físicas abertas.", pool.getConexoesCriadas());
+        metrica(sb, "estoque_pool_conexoes_descartadas_total", "counter", "Conexões físicas fechadas pelo pool.", pool.getConexoesDescartadas());
+        metrica(sb, "estoque_pool_esperas_esgotadas_total", "counter", "Esperas que ultrapassaram o tempo máximo.", pool.getEsperasEsgotadas());
+        metrica(sb, "estoque_pool_espera_maxima_segundos", "gauge", "Maior tempo de espera por conexão, em segundos.", pool.getTempoMaximoEsperaMs() / 1000);
+    }
+
+    private static void escreverCache(StringBuilder sb, CacheProdutos.Estatisticas cache) {
+        metrica(sb, "estoque_cache_produtos_acertos_total", "counter", "Consultas atendidas pelo cache de produtos.", cache.getAcertos());
+        metrica(sb, "estoque_cache_produtos_falhas_total", "counter", "Consultas que precisaram ir ao banco.", cache.getFalhas());
+        metrica(sb, "estoque_cache_produtos_remocoes_total", "counter", "Produtos removidos do cache por tamanho.", cache.getRemocoes());
+        metrica(sb, "estoque_cache_produtos_invalidacoes_total", "counter", "Invalidações do catálogo em cache.", cache.getInvalidacoes());
+        metrica(sb, "estoque_cache_produtos_catalogo", "gauge", "Produtos no catálogo em cache.", cache.getProdutosNoCatalogo());
+        metrica(sb, "estoque_cache_produtos_individuais", "gauge", "Produtos em cache individualmente.", cache.getProdutosIndividuais());
+    }
+
+    private static void escreverAgrupador(StringBuilder sb, AgrupadorMovimentacoes.Estatisticas agrupador) {
+        metrica(sb, "estoque_movimentacoes_agrupadas_lotes_total", "counter", "Lotes de movimentações confirmados.", agrupador.getLotes());
+        metrica(sb, "estoque_movimentacoes_agrupadas_total", "counter", "Movimentações gravadas em lote.", agrupador.getMovimentacoes());
+        metrica(sb, "estoque_movimentacoes_agrupadas_recusadas_total", "counter", "Movimentações recusadas por falta de estoque.", agrupador.getRecusadas());
+        metrica(sb, "estoque_movimentacoes_agrupadas_pendentes", "gauge", "Movimentações aguardando o próximo lote.", agrupador.getPendentes());
+        metrica(sb, "estoque_movimentacoes_agrupadas_maior_lote", "gauge", "Maior lote gravado, em movimentações.", agrupador.getMaiorLote());
+        metrica(sb, "estoque_movimentacoes_agrupadas_tamanho_medio_lote", "gauge", "Tamanho médio dos lotes, em movimentações.", agrupador.getTamanhoMedioLote());
+
+        String nome = "estoque_movimentacoes_agrupadas_lote_tamanho";
+        cabecalho(sb, nome, "histogram", "Tamanho dos lotes gravados, em movimentações.");
+        int[] faixas = AgrupadorMovimentacoes.getFaixasTamanhoLote();
+        long acumulado = 0;
+        int i = 0;
+        for (long lotes : agrupador.getLotesPorTamanho().values()) {
+            acumulado += lotes;
+            String le = i < faixas.length ? Integer.toString(faixas[i]) : "+Inf";
+            sb.append(nome).append("_bucket{le=\"").append(le).append("\"} ").append(acumulado).append('\n');
+            i++;
+        }
+        // Cada lote contém as movimentações gravadas e as recusadas
+        sb.append(nome).append("_sum ").append(agrupador.getMovimentacoes() + agrupador.getRecusadas()).append('\n');
+        sb.append(nome).append("_count ").append(acumulado).append('\n');
+    }
+
+    private static void cabecalho(StringBuilder sb, String nome, String tipo, String ajuda) {
+        sb.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        sb.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+    }
+
+    private static void metrica(StringBuilder sb, String nome, String tipo, String ajuda, Number valor) {
+        cabecalho(sb, nome, tipo, ajuda);
+        sb.append(nome).append(' ').append(valor).append('\n');
+    }
+
+    private static void amostra(StringBuilder sb, String nome, String rotulo, String valorRotulo, long valor) {
+        sb.append(nome).append('{').append(rotulo).append("=\"").append(escapar(valorRotulo)).append("\"} ")
+                .append(valor).append('\n');
+    }
+
+    /** Escapa barra invertida, aspas e quebra de linha no valor de um rótulo. */
+    private static String escapar(String valor) {
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,127 @@
+package controller.rest;
+
+import dao.Metricas;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filtro JAX-RS que mede a duração das requisições da API REST e registra em {@link Metricas},
+ * por endpoint (método HTTP e rota do controlador, ex.: "GET /api/produtos/{id}"), junto com
+ * o status da resposta.
+ *
+ * Quando a resposta tem corpo, a medição termina depois da serialização, no interceptador de
+ * escrita, de modo que as respostas em streaming são medidas até o último byte gravado.
+ * Requisições que não correspondem a nenhum controlador não são medidas.
+ */
+@Provider
+public class MetricasRestFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String INICIO = MetricasRestFilter.class.getName() + ".inicio";
+    private static final String ENDPOINT = MetricasRestFilter.class.getName() + ".endpoint";
+    private static final String STATUS = MetricasRestFilter.class.getName() + ".status";
+
+    /** Nome do endpoint de cada método de controlador, montado uma única vez. */
+    private static final ConcurrentHashMap<Method, String> ENDPOINTS = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    /**
+     * Marca o início da requisição e identifica o endpoint chamado.
+     *
+     * @param requestContext Contexto da requisição.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!Metricas.getInstancia().isAtivo() || resourceInfo.getResourceMethod() == null) {
+            return;
+        }
+        requestContext.setProperty(ENDPOINT, endpoint(requestContext.getMethod(), resourceInfo));
+        requestContext.setProperty(INICIO, System.nanoTime());
+    }
+
+    /**
+     * Registra a requisição se a resposta não tiver corpo; caso contrário guarda o status
+     * para o registro após a serialização.
+     *
+     * @param requestContext Contexto da requisição.
+     * @param responseContext Contexto da resposta.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Long inicio = (Long) requestContext.getProperty(INICIO);
+        if (inicio == null) {
+            return;
+        }
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(STATUS, responseContext.getStatus());
+            return;
+        }
+        requestContext.removeProperty(INICIO);
+        Metricas.getInstancia().registrarRequisicao((String) requestContext.getProperty(ENDPOINT),
+                responseContext.getStatus(), System.nanoTime() - inicio);
+    }
+
+    /**
+     * Serializa o corpo da resposta e registra a requisição ao final da escrita.
+     *
+     * @param context Contexto da escrita.
+     * @throws IOException Se ocorrer erro ao gravar a resposta.
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Long inicio = (Long) context.getProperty(INICIO);
+        if (inicio == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(INICIO);
+        int status = 500;
+        try {
+            context.proceed();
+            status = (Integer) context.getProperty(STATUS);
+        } finally {
+            Metricas.getInstancia().registrarRequisicao((String) context.getProperty(ENDPOINT),
+                    status, System.nanoTime() - inicio);
+        }
+    }
+
+    private static String endpoint(String metodoHttp, ResourceInfo info) {
+        Method metodo = info.getResourceMethod();
+        String rota = ENDPOINTS.computeIfAbsent(metodo, m -> {
+            StringBuilder sb = new StringBuilder();
+            anexar(sb, info.getResourceClass().getAnnotation(Path.class));
+            anexar(sb, m.getAnnotation(Path.class));
+            return sb.length() == 0 ? "/" : sb.toString();
+        });
+        return metodoHttp + " " + rota;
+    }
+
+    private static void anexar(StringBuilder sb, Path path) {
+        if (path == null) {
+            return;
+        }
+        String valor = path.value();
+        while (valor.startsWith("/")) {
+            valor = valor.substring(1);
+        }
+        while (valor.endsWith("/")) {
+            valor = valor.substring(0, valor.length() - 1);
+        }
+        if (!valor.isEmpty()) {
+            sb.append('/').append(valor);
+        }
+    }
+}
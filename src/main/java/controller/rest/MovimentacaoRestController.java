@@ -1,24 +1,44 @@
 package controller.rest;
 
+import dao.EstoqueInsuficienteException;
+import dao.FiltroMovimentacao;
 import dao.MovimentacaoDAO;
+import dao.Pagina;
 import dao.ProdutoDAO;
+import dao.Projecao;
 import modelo.Movimentacao;
 import modelo.Produto;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para gerenciamento de Movimentações de Estoque.
  * Fornece endpoints da API REST para registro e consulta de movimentações (entradas e saídas).
  * 
  * Endpoints disponíveis:
- * - GET  /api/movimentacoes                  - Lista todas as movimentações
+ * - GET  /api/movimentacoes                  - Lista as movimentações (paginado)
  * - GET  /api/movimentacoes/{id}             - Busca movimentação por ID
  * - POST /api/movimentacoes                  - Registra nova movimentação
- * - GET  /api/movimentacoes/produto/{produtoId} - Lista movimentações de um produto
+ * - POST /api/movimentacoes/lote             - Registra várias movimentações em uma transação
+ * - GET  /api/movimentacoes/produto/{produtoId} - Lista movimentações de um produto (paginado)
+ *
+ * As listagens aceitam os parâmetros limite, cursor, dataInicio, dataFim (yyyy-MM-dd ou
+ * yyyy-MM-ddTHH:mm:ss; uma data sem hora em dataFim inclui o dia inteiro) e tipo
+ * (ENTRADA ou SAIDA). Quando há mais resultados, a resposta traz o cabeçalho
+ * X-Proximo-Cursor e um Link rel="next" para a página seguinte. Com stream=true, todas as
+ * movimentações do filtro são escritas de uma vez, direto do banco, sem paginação. Com
+ * fields (ex.: fields=id,quantidade,produto.nome), apenas as colunas dos campos pedidos são
+ * lidas, e o produto só é consultado se algum campo dele for pedido.
  * 
  * @author
  */
@@ -30,17 +50,47 @@ public class MovimentacaoRestController {
     private MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
     private ProdutoDAO produtoDAO = new ProdutoDAO();
 
+    @Context
+    private UriInfo uriInfo;
+
     /**
-     * Lista todas as movimentações de estoque cadastradas.
+     * Lista as movimentações de estoque, da mais recente para a mais antiga, uma página por vez.
      * Endpoint: GET /api/movimentacoes
      * 
-     * @return Response com lista de movimentações em formato JSON ou mensagem de erro.
+     * @param limite     Itens por página (limitado ao máximo configurado).
+     * @param cursor     Cursor da página anterior (cabeçalho X-Proximo-Cursor) ou vazio.
+     * @param dataInicio Início do período (inclusive).
+     * @param dataFim    Fim do período.
+     * @param tipo       Tipo das movimentações (ENTRADA ou SAIDA).
+     * @param stream     Se true, escreve todas as movimentações do filtro direto do banco ({@link JsonSequencial}).
+     * @param fields     Campos separados por vírgula ({@link Projecao#movimentacao(String)}) ou vazio.
+     * @return Response com a página de movimentações em formato JSON ou mensagem de erro.
      */
     @GET
-    public Response listarTodas() {
+    public Response listarTodas(@QueryParam("limite") int limite,
+                                @QueryParam("cursor") String cursor,
+                                @QueryParam("dataInicio") String dataInicio,
+                                @QueryParam("dataFim") String dataFim,
+                                @QueryParam("tipo") String tipo,
+                                @QueryParam("stream") boolean stream,
+                                @QueryParam("fields") String fields) {
         try {
-            List<Movimentacao> movimentacoes = movimentacaoDAO.listarTodas();
-            return Response.ok(movimentacoes).build();
+            FiltroMovimentacao filtro = montarFiltro(dataInicio, dataFim, tipo);
+            if (fields != null && !fields.isEmpty()) {
+                Projecao projecao = Projecao.movimentacao(fields);
+                if (stream) {
+                    return Response.ok(JsonSequencial.movimentacoesProjetadas(movimentacaoDAO, filtro, projecao)).build();
+                }
+                return responderPagina(movimentacaoDAO.listarPaginaProjetada(filtro, cursor, limite, projecao));
+            }
+            if (stream) {
+                return Response.ok(JsonSequencial.movimentacoes(movimentacaoDAO, filtro)).build();
+            }
+            return responderPagina(movimentacaoDAO.listarPagina(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorResponse("Erro ao listar movimentações: " + e.getMessage()))
@@ -76,11 +126,16 @@ public class MovimentacaoRestController {
 
     /**
      * Registra uma nova movimentação de estoque (entrada ou saída).
-     * Valida se o produto existe e se há estoque suficiente para saídas.
+     * Valida o tipo (ENTRADA ou SAIDA), a quantidade (maior que zero) e se o produto existe;
+     * a verificação de estoque suficiente para saídas é feita atomicamente na atualização do
+     * estoque. Com o agrupamento de movimentações habilitado
+     * (estoque.movimentacao.agrupamento.ativo), a gravação é feita em lote com as
+     * movimentações concorrentes.
      * Endpoint: POST /api/movimentacoes
      * 
      * @param movimentacaoDTO Objeto DTO contendo os dados da movimentação (tipo, quantidade, produtoId).
-     * @return Response com mensagem de sucesso (201 Created) ou erro.
+     * @return Response com mensagem de sucesso e estoque atualizado (201 Created) ou erro
+     *         (400 se a movimentação for inválida ou não houver estoque suficiente).
      */
     @POST
     public Response registrar(MovimentacaoDTO movimentacaoDTO) {
@@ -92,23 +147,19 @@ public class MovimentacaoRestController {
                         .build();
             }
 
-            // Validação: verificar se tem estoque suficiente para saída
-            if ("SAIDA".equals(movimentacaoDTO.getTipo()) && 
-                produto.getQuantidade() < movimentacaoDTO.getQuantidade()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(new ErrorResponse("Estoque insuficiente. Disponível: " + produto.getQuantidade()))
-                        .build();
-            }
-
             Movimentacao movimentacao = new Movimentacao();
             movimentacao.setTipo(movimentacaoDTO.getTipo());
             movimentacao.setQuantidade(movimentacaoDTO.getQuantidade());
             movimentacao.setProduto(produto);
 
-            movimentacaoDAO.registrarMovimento(movimentacao);
+            int quantidadeEstoque = movimentacaoDAO.registrarMovimentoAgrupado(movimentacao, false);
             
             return Response.status(Response.Status.CREATED)
-                    .entity(new SuccessResponse("Movimentação registrada com sucesso"))
+                    .entity(new RegistroResponse("Movimentação registrada com sucesso", quantidadeEstoque))
+                    .build();
+        } catch (EstoqueInsuficienteException | IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
                     .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -118,15 +169,84 @@ public class MovimentacaoRestController {
     }
 
     /**
-     * Lista todas as movimentações de um produto específico.
+     * Registra várias movimentações de uma vez (ex.: o recebimento de uma carga), de forma
+     * atômica: se alguma for recusada, nenhuma é gravada. Os produtos são validados com uma
+     * única consulta e o estoque de cada produto é atualizado uma vez, com a soma das
+     * quantidades ({@link MovimentacaoDAO#registrarLote(List, boolean)}).
+     * Endpoint: POST /api/movimentacoes/lote
+     *
+     * @param movimentacoesDTO Lista de movimentações (tipo, quantidade, produtoId).
+     * @return Response com a quantidade em estoque de cada produto após o lote (201 Created) ou
+     *         erro (400 se alguma movimentação for inválida ou não houver estoque suficiente).
+     */
+    @POST
+    @Path("/lote")
+    public Response registrarLote(List<MovimentacaoDTO> movimentacoesDTO) {
+        try {
+            if (movimentacoesDTO == null) {
+                throw new IllegalArgumentException("Nenhuma movimentação informada.");
+            }
+            List<Movimentacao> movimentacoes = new ArrayList<>(movimentacoesDTO.size());
+            for (MovimentacaoDTO dto : movimentacoesDTO) {
+                Produto produto = new Produto();
+                produto.setId(dto.getProdutoId());
+
+                Movimentacao movimentacao = new Movimentacao();
+                movimentacao.setTipo(dto.getTipo());
+                movimentacao.setQuantidade(dto.getQuantidade());
+                movimentacao.setProduto(produto);
+                movimentacoes.add(movimentacao);
+            }
+
+            Map<Integer, Integer> quantidades = movimentacaoDAO.registrarLote(movimentacoes, false);
+
+            List<EstoqueProduto> estoques = new ArrayList<>(quantidades.size());
+            for (Map.Entry<Integer, Integer> e : quantidades.entrySet()) {
+                estoques.add(new EstoqueProduto(e.getKey(), e.getValue()));
+            }
+            return Response.status(Response.Status.CREATED)
+                    .entity(new LoteResponse("Movimentações registradas com sucesso", movimentacoes.size(), estoques))
+                    .build();
+        } catch (EstoqueInsuficienteException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Estoque insuficiente para o produto " + e.getProdutoId()
+                            + ". Disponível: " + e.getDisponivel()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ErrorResponse("Erro ao registrar movimentações: " + e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Lista as movimentações de um produto específico, uma página por vez.
      * Endpoint: GET /api/movimentacoes/produto/{produtoId}
      * 
-     * @param produtoId Identificador do produto.
-     * @return Response com lista de movimentações do produto ou erro (404 se produto não encontrado).
+     * @param produtoId  Identificador do produto.
+     * @param limite     Itens por página (limitado ao máximo configurado).
+     * @param cursor     Cursor da página anterior (cabeçalho X-Proximo-Cursor) ou vazio.
+     * @param dataInicio Início do período (inclusive).
+     * @param dataFim    Fim do período.
+     * @param tipo       Tipo das movimentações (ENTRADA ou SAIDA).
+     * @param stream     Se true, escreve todas as movimentações do filtro direto do banco ({@link JsonSequencial}).
+     * @param fields     Campos separados por vírgula ({@link Projecao#movimentacao(String)}) ou vazio.
+     * @return Response com a página de movimentações do produto ou erro (404 se produto não encontrado).
      */
     @GET
     @Path("/produto/{produtoId}")
-    public Response listarPorProduto(@PathParam("produtoId") int produtoId) {
+    public Response listarPorProduto(@PathParam("produtoId") int produtoId,
+                                     @QueryParam("limite") int limite,
+                                     @QueryParam("cursor") String cursor,
+                                     @QueryParam("dataInicio") String dataInicio,
+                                     @QueryParam("dataFim") String dataFim,
+                                     @QueryParam("tipo") String tipo,
+                                     @QueryParam("stream") boolean stream,
+                                     @QueryParam("fields") String fields) {
         try {
             Produto produto = produtoDAO.buscarPorId(produtoId);
             if (produto == null) {
@@ -135,8 +255,23 @@ public class MovimentacaoRestController {
                         .build();
             }
 
-            List<Movimentacao> movimentacoes = movimentacaoDAO.listarPorProduto(produtoId);
-            return Response.ok(movimentacoes).build();
+            FiltroMovimentacao filtro = montarFiltro(dataInicio, dataFim, tipo);
+            filtro.setProdutoId(produtoId);
+            if (fields != null && !fields.isEmpty()) {
+                Projecao projecao = Projecao.movimentacao(fields);
+                if (stream) {
+                    return Response.ok(JsonSequencial.movimentacoesProjetadas(movimentacaoDAO, filtro, projecao)).build();
+                }
+                return responderPagina(movimentacaoDAO.listarPaginaProjetada(filtro, cursor, limite, projecao));
+            }
+            if (stream) {
+                return Response.ok(JsonSequencial.movimentacoes(movimentacaoDAO, filtro)).build();
+            }
+            return responderPagina(movimentacaoDAO.listarPagina(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorResponse("Erro ao listar movimentações do produto: " + e.getMessage()))
@@ -144,6 +279,71 @@ public class MovimentacaoRestController {
         }
     }
 
+    /**
+     * Monta o filtro das listagens (e das exportações) a partir dos parâmetros da requisição.
+     *
+     * @param dataInicio Início do período (yyyy-MM-dd ou yyyy-MM-ddTHH:mm:ss) ou null.
+     * @param dataFim    Fim do período (yyyy-MM-dd inclui o dia inteiro) ou null.
+     * @param tipo       ENTRADA, SAIDA ou null.
+     * @return Filtro preenchido.
+     * @throws IllegalArgumentException Se algum parâmetro for inválido.
+     */
+    static FiltroMovimentacao montarFiltro(String dataInicio, String dataFim, String tipo) {
+        FiltroMovimentacao filtro = new FiltroMovimentacao();
+        if (dataInicio != null && !dataInicio.isEmpty()) {
+            filtro.setDataInicio(lerData(dataInicio, false));
+        }
+        if (dataFim != null && !dataFim.isEmpty()) {
+            filtro.setDataFim(lerData(dataFim, true));
+        }
+        if (tipo != null && !tipo.isEmpty()) {
+            String tipoNormalizado = tipo.toUpperCase();
+            if (!"ENTRADA".equals(tipoNormalizado) && !"SAIDA".equals(tipoNormalizado)) {
+                throw new IllegalArgumentException("Tipo inválido. Use ENTRADA ou SAIDA.");
+            }
+            filtro.setTipo(tipoNormalizado);
+        }
+        return filtro;
+    }
+
+    /**
+     * Converte um parâmetro de data. Uma data sem hora usada como fim de período
+     * é convertida para o início do dia seguinte, incluindo o dia inteiro.
+     *
+     * @param valor Data (yyyy-MM-dd) ou data/hora (yyyy-MM-ddTHH:mm[:ss]).
+     * @param fim   Se o valor é o fim de um período.
+     * @return Data/hora correspondente.
+     * @throws IllegalArgumentException Se o valor não for uma data válida.
+     */
+    private static LocalDateTime lerData(String valor, boolean fim) {
+        try {
+            if (valor.length() == 10) {
+                LocalDate data = LocalDate.parse(valor);
+                return fim ? data.plusDays(1).atStartOfDay() : data.atStartOfDay();
+            }
+            return LocalDateTime.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data inválida: " + valor);
+        }
+    }
+
+    /**
+     * Monta a resposta de uma página, com os cabeçalhos da próxima página quando houver.
+     *
+     * @param pagina Página de movimentações (completas ou projetadas).
+     * @return Response com a lista de movimentações da página.
+     */
+    private Response responderPagina(Pagina<?> pagina) {
+        Response.ResponseBuilder resposta = Response.ok(pagina.getItens());
+        if (pagina.isPossuiProxima()) {
+            resposta.header("X-Proximo-Cursor", pagina.getProximoCursor())
+                    .link(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("cursor", pagina.getProximoCursor())
+                            .build(), "next");
+        }
+        return resposta.build();
+    }
+
     /**
      * DTO (Data Transfer Object) para receber dados de movimentação do cliente.
      * Utilizado nas requisições POST para registrar movimentações de estoque.
@@ -247,4 +447,91 @@ public class MovimentacaoRestController {
          */
         public String getStatus() { return status; }
     }
+
+    /**
+     * Resposta de sucesso do registro de movimentação.
+     * Inclui a quantidade em estoque do produto após a movimentação.
+     */
+    public static class RegistroResponse extends SuccessResponse {
+        private int quantidadeEstoque;
+
+        /**
+         * Construtor que cria a resposta de registro.
+         * @param message Mensagem de sucesso a ser retornada.
+         * @param quantidadeEstoque Quantidade em estoque após a movimentação.
+         */
+        public RegistroResponse(String message, int quantidadeEstoque) {
+            super(message);
+            this.quantidadeEstoque = quantidadeEstoque;
+        }
+
+        /**
+         * Obtém a quantidade em estoque após a movimentação.
+         * @return Quantidade em estoque.
+         */
+        public int getQuantidadeEstoque() { return quantidadeEstoque; }
+    }
+
+    /**
+     * Resposta de sucesso do registro de um lote de movimentações.
+     * Inclui a quantidade em estoque de cada produto movimentado após o lote.
+     */
+    public static class LoteResponse extends SuccessResponse {
+        private int movimentacoes;
+        private List<EstoqueProduto> estoques;
+
+        /**
+         * Construtor que cria a resposta do lote.
+         * @param message Mensagem de sucesso a ser retornada.
+         * @param movimentacoes Quantidade de movimentações registradas.
+         * @param estoques Estoque de cada produto após o lote, em ordem de id.
+         */
+        public LoteResponse(String message, int movimentacoes, List<EstoqueProduto> estoques) {
+            super(message);
+            this.movimentacoes = movimentacoes;
+            this.estoques = estoques;
+        }
+
+        /**
+         * Obtém a quantidade de movimentações registradas.
+         * @return Quantidade de movimentações.
+         */
+        public int getMovimentacoes() { return movimentacoes; }
+
+        /**
+         * Obtém o estoque de cada produto após o lote.
+         * @return Lista de estoques por produto.
+         */
+        public List<EstoqueProduto> getEstoques() { return estoques; }
+    }
+
+    /**
+     * Quantidade em estoque de um produto.
+     */
+    public static class EstoqueProduto {
+        private int produtoId;
+        private int quantidadeEstoque;
+
+        /**
+         * Construtor que cria o estoque de um produto.
+         * @param produtoId Identificador do produto.
+         * @param quantidadeEstoque Quantidade em estoque.
+         */
+        public EstoqueProduto(int produtoId, int quantidadeEstoque) {
+            this.produtoId = produtoId;
+            this.quantidadeEstoque = quantidadeEstoque;
+        }
+
+        /**
+         * Obtém o identificador do produto.
+         * @return ID do produto.
+         */
+        public int getProdutoId() { return produtoId; }
+
+        /**
+         * Obtém a quantidade em estoque do produto.
+         * @return Quantidade em estoque.
+         */
+        public int getQuantidadeEstoque() { return quantidadeEstoque; }
+    }
 }
@@ -1,23 +1,38 @@
 package controller.rest;
 
+import dao.Alteracoes;
 import dao.CategoriaDAO;
+import dao.ImportacaoProdutos;
 import dao.ProdutoDAO;
+import dao.Projecao;
+import dao.ResultadoImportacao;
 import modelo.Categoria;
 import modelo.Produto;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controlador REST para gerenciamento de Produtos.
  * Fornece endpoints da API REST para operações CRUD (Create, Read, Update, Delete) de produtos.
  * 
  * Endpoints disponíveis:
- * - GET    /api/produtos      - Lista todos os produtos
+ * - GET    /api/produtos      - Lista todos os produtos (?stream=true escreve direto do banco;
+ *                               ?shape=compact|columnar não repete a categoria;
+ *                               ?fields=id,nome,... lê e escreve só esses campos;
+ *                               ?ids=1,2,3 busca só esses produtos; com ETag)
+ * - GET    /api/produtos/changes?since={versao} - Produtos alterados e excluídos desde a versão
+ * - GET    /api/produtos/search?q={texto}&limit={n} - Busca por nome ou categoria (autocompletar)
  * - GET    /api/produtos/{id} - Busca produto por ID
  * - POST   /api/produtos      - Cria novo produto
+ * - POST   /api/produtos/bulk - Importa produtos em massa (text/csv ou application/x-ndjson)
  * - PUT    /api/produtos/{id} - Atualiza produto existente
  * - DELETE /api/produtos/{id} - Exclui produto
  * 
@@ -28,20 +43,80 @@ import java.util.List;
 @Consumes(MediaType.APPLICATION_JSON)
 public class ProdutoRestController {
 
+    /** Quantidade máxima de ids aceita em GET /api/produtos?ids=. */
+    private static final int MAXIMO_IDS = 1000;
+
+    /** Quantidade de resultados padrão e máxima de GET /api/produtos/search. */
+    private static final int LIMITE_BUSCA_PADRAO = 10;
+    private static final int LIMITE_BUSCA_MAXIMO = 50;
+
     private ProdutoDAO produtoDAO = new ProdutoDAO();
     private CategoriaDAO categoriaDAO = new CategoriaDAO();
 
     /**
      * Lista todos os produtos cadastrados no sistema.
+     * Com stream=true, o JSON é escrito à medida que os produtos são lidos do banco,
+     * sem montar a lista em memória (indicado para catálogos grandes e exportações).
+     * Com shape=compact, cada categoria é enviada uma única vez em um mapa "categorias" e os
+     * produtos trazem apenas o categoriaId; com shape=columnar, os produtos vêm em um array
+     * por campo (indicado para cargas em massa). O formato colunar não usa stream.
+     * Com fields, apenas as colunas dos campos pedidos são lidas do banco (e a categoria só
+     * é consultada se algum campo dela for pedido); a resposta é sempre sequencial e não pode
+     * ser combinada com shape.
+     * Com ids, apenas os produtos informados são buscados, em uma única consulta, e a resposta
+     * traz os produtos na ordem dos ids e os ids não encontrados ({@link BuscaPorIdsResponse}).
      * Endpoint: GET /api/produtos
      * 
+     * @param stream Se true, usa a escrita sequencial ({@link JsonSequencial}).
+     * @param shape  Formato da resposta: vazio (padrão), "compact" ou "columnar".
+     * @param fields Campos separados por vírgula ({@link Projecao#produto(String)}) ou vazio.
+     * @param ids    Ids dos produtos separados por vírgula (até 1000) ou vazio.
      * @return Response com lista de produtos em formato JSON ou mensagem de erro.
      */
     @GET
-    public Response listarTodos() {
+    @VersaoCatalogo
+    public Response listarTodos(@QueryParam("stream") boolean stream, @QueryParam("shape") String shape,
+                                @QueryParam("fields") String fields, @QueryParam("ids") String ids) {
         try {
-            List<Produto> produtos = produtoDAO.listarTodos();
-            return Response.ok(produtos).build();
+            if (ids != null && !ids.isEmpty()) {
+                if ((shape != null && !shape.isEmpty()) || (fields != null && !fields.isEmpty())) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(new ErrorResponse("O parâmetro ids não pode ser usado com fields ou shape"))
+                            .build();
+                }
+                return Response.ok(buscarPorIds(lerIds(ids))).build();
+            }
+            if (fields != null && !fields.isEmpty()) {
+                if (shape != null && !shape.isEmpty()) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(new ErrorResponse("Os parâmetros fields e shape não podem ser usados juntos"))
+                            .build();
+                }
+                return Response.ok(JsonSequencial.produtosProjetados(produtoDAO, Projecao.produto(fields))).build();
+            }
+            if (shape == null || shape.isEmpty()) {
+                if (stream) {
+                    return Response.ok(JsonSequencial.produtos(produtoDAO)).build();
+                }
+                List<Produto> produtos = produtoDAO.listarTodos();
+                return Response.ok(produtos).build();
+            }
+            switch (shape) {
+                case "compact":
+                    return Response.ok(stream
+                            ? JsonSequencial.produtosCompactos(produtoDAO, categoriaDAO)
+                            : JsonSequencial.produtosCompactos(produtoDAO.listarTodos())).build();
+                case "columnar":
+                    return Response.ok(JsonSequencial.produtosColunares(produtoDAO.listarTodos())).build();
+                default:
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(new ErrorResponse("Formato inválido: " + shape + " (use compact ou columnar)"))
+                            .build();
+            }
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorResponse("Erro ao listar produtos: " + e.getMessage()))
@@ -49,6 +124,108 @@ public class ProdutoRestController {
         }
     }
 
+    /**
+     * Busca os produtos informados e relaciona os ids que não foram encontrados.
+     */
+    private BuscaPorIdsResponse buscarPorIds(List<Integer> ids) {
+        List<Produto> produtos = produtoDAO.buscarPorIds(ids);
+        Set<Integer> encontrados = new HashSet<>(produtos.size() * 4 / 3 + 1);
+        for (Produto p : produtos) {
+            encontrados.add(p.getId());
+        }
+        List<Integer> naoEncontrados = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (!encontrados.contains(id)) {
+                naoEncontrados.add(id);
+            }
+        }
+        return new BuscaPorIdsResponse(produtos, naoEncontrados);
+    }
+
+    /**
+     * Lê a lista de ids do parâmetro ids (ex.: "1,2,3").
+     *
+     * @throws IllegalArgumentException Se algum id não for um número ou houver ids demais.
+     */
+    private static List<Integer> lerIds(String valor) {
+        String[] partes = valor.split(",");
+        if (partes.length > MAXIMO_IDS) {
+            throw new IllegalArgumentException("Informe no máximo " + MAXIMO_IDS + " ids");
+        }
+        List<Integer> ids = new ArrayList<>(partes.length);
+        for (String parte : partes) {
+            String id = parte.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            try {
+                ids.add(Integer.parseInt(id));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Id inválido: " + id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sincronização incremental do catálogo: retorna apenas os produtos inseridos ou alterados
+     * (inclusive pela alteração da categoria ou do estoque) e os ids excluídos desde a versão
+     * recebida na chamada anterior, junto com a nova versão a enviar na próxima chamada.
+     * Sem since (ou since=0), retorna o catálogo inteiro com completo=true.
+     * Endpoint: GET /api/produtos/changes?since={versao}
+     *
+     * @param since Versão retornada pela sincronização anterior ou 0.
+     * @return Response com as alterações em formato JSON ou mensagem de erro.
+     */
+    @GET
+    @Path("/changes")
+    public Response listarAlteracoes(@QueryParam("since") long since) {
+        try {
+            if (since < 0) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(new ErrorResponse("Versão inválida: " + since))
+                        .build();
+            }
+            Alteracoes<Produto> alteracoes = produtoDAO.listarAlteracoes(since);
+            return Response.ok(alteracoes).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ErrorResponse("Erro ao listar alterações de produtos: " + e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Busca os produtos cujo nome ou categoria contenham os termos digitados, para campos de
+     * autocompletar. Acentos e maiúsculas são ignorados; termos com 1 ou 2 caracteres
+     * encontram o início das palavras e os demais, qualquer trecho. Os produtos vêm do mais
+     * para o menos relevante: nome começando pelo texto, termos no início das palavras do
+     * nome, termos dentro do nome e termos só na categoria.
+     * Endpoint: GET /api/produtos/search?q={texto}&limit={n}
+     *
+     * @param q     Texto digitado (vazio retorna uma lista vazia).
+     * @param limit Quantidade máxima de produtos (padrão 10, no máximo 50).
+     * @return Response com a lista de produtos em formato JSON ou mensagem de erro.
+     */
+    @GET
+    @Path("/search")
+    public Response pesquisar(@QueryParam("q") String q, @QueryParam("limit") Integer limit) {
+        try {
+            int limite = limit != null ? limit : LIMITE_BUSCA_PADRAO;
+            if (limite < 1) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(new ErrorResponse("Limite inválido: " + limite))
+                        .build();
+            }
+            List<Produto> produtos = produtoDAO.buscar(q, Math.min(limite, LIMITE_BUSCA_MAXIMO));
+            return Response.ok(produtos).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ErrorResponse("Erro ao buscar produtos: " + e.getMessage()))
+                    .build();
+        }
+    }
+
     /**
      * Busca um produto específico pelo seu ID.
      * Endpoint: GET /api/produtos/{id}
@@ -77,7 +254,8 @@ public class ProdutoRestController {
 
     /**
      * Cria um novo produto no sistema.
-     * Valida se a categoria informada existe antes de criar o produto.
+     * Valida se a categoria informada existe antes de criar o produto (a categoria vem do
+     * {@link dao.CacheCategorias}, sem consulta ao banco a cada escrita).
      * Endpoint: POST /api/produtos
      * 
      * @param produtoDTO Objeto DTO contendo os dados do produto a ser criado.
@@ -114,9 +292,70 @@ public class ProdutoRestController {
         }
     }
 
+    /**
+     * Importa produtos em massa a partir de um arquivo CSV com cabeçalho.
+     * Endpoint: POST /api/produtos/bulk (Content-Type: text/csv)
+     *
+     * @param corpo Conteúdo do arquivo, lido à medida que os produtos são gravados.
+     * @return Response com o relatório da importação ou erro.
+     * @see #importar(InputStream, boolean)
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes("text/csv")
+    public Response importarCsv(InputStream corpo) {
+        return importar(corpo, true);
+    }
+
+    /**
+     * Importa produtos em massa a partir de um arquivo NDJSON (um produto por linha, com os
+     * mesmos campos de POST /api/produtos).
+     * Endpoint: POST /api/produtos/bulk (Content-Type: application/x-ndjson)
+     *
+     * @param corpo Conteúdo do arquivo, lido à medida que os produtos são gravados.
+     * @return Response com o relatório da importação ou erro.
+     * @see #importar(InputStream, boolean)
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes("application/x-ndjson")
+    public Response importarNdjson(InputStream corpo) {
+        return importar(corpo, false);
+    }
+
+    /**
+     * Lê o arquivo e grava os produtos em lotes ({@link ImportacaoProdutos}), cada um
+     * confirmado em sua própria transação. As linhas inválidas são recusadas sem interromper
+     * a importação e aparecem no relatório com o número da linha e o motivo.
+     *
+     * @param corpo Conteúdo do arquivo.
+     * @param csv   true para CSV, false para NDJSON.
+     * @return Response com o relatório da importação (200), 400 se o cabeçalho do CSV for
+     *         inválido ou 500 se a gravação falhar (os lotes já confirmados permanecem gravados).
+     */
+    private Response importar(InputStream corpo, boolean csv) {
+        try (ImportacaoProdutos importacao = new ImportacaoProdutos()) {
+            if (csv) {
+                LeitorImportacao.lerCsv(corpo, importacao);
+            } else {
+                LeitorImportacao.lerNdjson(corpo, importacao);
+            }
+            ResultadoImportacao resultado = importacao.concluir();
+            return Response.ok(resultado).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ErrorResponse("Erro ao importar produtos: " + e.getMessage()))
+                    .build();
+        }
+    }
+
     /**
      * Atualiza os dados de um produto existente.
-     * Valida se o produto e a categoria informados existem.
+     * Valida se o produto e a categoria informados existem (ambos atendidos pelos caches em memória).
      * Endpoint: PUT /api/produtos/{id}
      * 
      * @param id Identificador do produto a ser atualizado.
@@ -288,6 +527,37 @@ public class ProdutoRestController {
         public void setCategoriaId(int categoriaId) { this.categoriaId = categoriaId; }
     }
 
+    /**
+     * Resposta da busca de produtos por ids.
+     * Traz os produtos encontrados, na ordem dos ids pedidos, e os ids sem produto.
+     */
+    public static class BuscaPorIdsResponse {
+        private List<Produto> produtos;
+        private List<Integer> naoEncontrados;
+
+        /**
+         * Construtor que cria a resposta da busca.
+         * @param produtos Produtos encontrados.
+         * @param naoEncontrados Ids sem produto cadastrado.
+         */
+        public BuscaPorIdsResponse(List<Produto> produtos, List<Integer> naoEncontrados) {
+            this.produtos = produtos;
+            this.naoEncontrados = naoEncontrados;
+        }
+
+        /**
+         * Obtém os produtos encontrados.
+         * @return Lista de produtos na ordem dos ids pedidos.
+         */
+        public List<Produto> getProdutos() { return produtos; }
+
+        /**
+         * Obtém os ids sem produto cadastrado.
+         * @return Lista de ids não encontrados.
+         */
+        public List<Integer> getNaoEncontrados() { return naoEncontrados; }
+    }
+
     /**
      * Classe para respostas de erro da API.
      * Retorna mensagens de erro padronizadas ao cliente.
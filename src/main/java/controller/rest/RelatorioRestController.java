@@ -1,15 +1,16 @@
 package controller.rest;
 
+import dao.AgregadosEstoque;
 import dao.ProdutoDAO;
 import modelo.Produto;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Controlador REST para geração de Relatórios Gerenciais.
@@ -22,10 +23,14 @@ import java.util.stream.Collectors;
  * - GET /api/relatorios/produtos-por-categoria/{categoriaId} - Produtos por categoria
  * - GET /api/relatorios/balanco-financeiro                - Balanço financeiro do estoque
  * - GET /api/relatorios/dashboard                         - Dados resumidos do sistema
+ *
+ * Todos os relatórios dependem apenas do catálogo e são revalidados por ETag
+ * ({@link VersaoCatalogo}): sem alterações desde a última consulta, a resposta é 304.
  * 
  * @author
  */
 @Path("/api/relatorios")
+@VersaoCatalogo
 @Produces(MediaType.APPLICATION_JSON)
 public class RelatorioRestController {
 
@@ -42,10 +47,7 @@ public class RelatorioRestController {
     @Path("/produtos-abaixo-minimo")
     public Response produtosAbaixoMinimo() {
         try {
-            List<Produto> todosProdutos = produtoDAO.listarTodos();
-            List<Produto> produtosAbaixo = todosProdutos.stream()
-                    .filter(p -> p.getQuantidade() < p.getQuantidadeMinima())
-                    .collect(Collectors.toList());
+            List<Produto> produtosAbaixo = produtoDAO.listarAbaixoMinimo();
 
             Map<String, Object> resultado = new HashMap<>();
             resultado.put("total", produtosAbaixo.size());
@@ -70,10 +72,7 @@ public class RelatorioRestController {
     @Path("/produtos-acima-maximo")
     public Response produtosAcimaMaximo() {
         try {
-            List<Produto> todosProdutos = produtoDAO.listarTodos();
-            List<Produto> produtosAcima = todosProdutos.stream()
-                    .filter(p -> p.getQuantidade() > p.getQuantidadeMaxima())
-                    .collect(Collectors.toList());
+            List<Produto> produtosAcima = produtoDAO.listarAcimaMaximo();
 
             Map<String, Object> resultado = new HashMap<>();
             resultado.put("total", produtosAcima.size());
@@ -90,6 +89,7 @@ public class RelatorioRestController {
     /**
      * Gera relatório de lista de preços de todos os produtos.
      * Retorna lista de produtos com seus preços e valor total do estoque.
+     * O valor total é calculado a partir da própria lista devolvida.
      * Endpoint: GET /api/relatorios/lista-precos
      * 
      * @return Response com relatório contendo produtos e valor total do estoque ou mensagem de erro.
@@ -100,13 +100,9 @@ public class RelatorioRestController {
         try {
             List<Produto> produtos = produtoDAO.listarTodos();
 
-            double valorTotal = produtos.stream()
-                    .mapToDouble(p -> p.getPrecoUnitario() * p.getQuantidade())
-                    .sum();
-
             Map<String, Object> resultado = new HashMap<>();
             resultado.put("produtos", produtos);
-            resultado.put("valorTotalEstoque", valorTotal);
+            resultado.put("valorTotalEstoque", valorTotal(produtos));
 
             return Response.ok(resultado).build();
         } catch (Exception e) {
@@ -118,7 +114,7 @@ public class RelatorioRestController {
 
     /**
      * Gera relatório de produtos de uma categoria específica.
-     * Filtra e retorna apenas produtos da categoria solicitada.
+     * Consulta apenas os produtos da categoria solicitada.
      * Endpoint: GET /api/relatorios/produtos-por-categoria/{categoriaId}
      * 
      * @param categoriaId Identificador da categoria para filtrar os produtos.
@@ -128,10 +124,7 @@ public class RelatorioRestController {
     @Path("/produtos-por-categoria/{categoriaId}")
     public Response produtosPorCategoria(@PathParam("categoriaId") int categoriaId) {
         try {
-            List<Produto> todosProdutos = produtoDAO.listarTodos();
-            List<Produto> produtosCategoria = todosProdutos.stream()
-                    .filter(p -> p.getCategoria() != null && p.getCategoria().getId() == categoriaId)
-                    .collect(Collectors.toList());
+            List<Produto> produtosCategoria = produtoDAO.listarPorCategoria(categoriaId);
 
             Map<String, Object> resultado = new HashMap<>();
             resultado.put("total", produtosCategoria.size());
@@ -147,7 +140,8 @@ public class RelatorioRestController {
 
     /**
      * Gera relatório de balanço financeiro do estoque.
-     * Calcula e retorna valor total, quantidade de produtos e itens em estoque.
+     * Retorna valor total, quantidade de produtos e itens em estoque, calculados a partir da
+     * própria lista de produtos devolvida.
      * Endpoint: GET /api/relatorios/balanco-financeiro
      * 
      * @return Response com relatório financeiro completo contendo totais e lista de produtos ou mensagem de erro.
@@ -158,18 +152,14 @@ public class RelatorioRestController {
         try {
             List<Produto> produtos = produtoDAO.listarTodos();
 
-            double valorTotal = produtos.stream()
-                    .mapToDouble(p -> p.getPrecoUnitario() * p.getQuantidade())
-                    .sum();
-
-            int totalProdutos = produtos.size();
-            int totalItens = produtos.stream()
-                    .mapToInt(Produto::getQuantidade)
-                    .sum();
+            long totalItens = 0;
+            for (Produto p : produtos) {
+                totalItens += p.getQuantidade();
+            }
 
             Map<String, Object> balanco = new HashMap<>();
-            balanco.put("valorTotalEstoque", valorTotal);
-            balanco.put("totalProdutosCadastrados", totalProdutos);
+            balanco.put("valorTotalEstoque", valorTotal(produtos));
+            balanco.put("totalProdutosCadastrados", produtos.size());
             balanco.put("totalItensEstoque", totalItens);
             balanco.put("produtos", produtos);
 
@@ -185,6 +175,7 @@ public class RelatorioRestController {
      * Gera dados consolidados para dashboard (resumo geral do sistema).
      * Retorna estatísticas gerais: total de produtos, produtos abaixo do mínimo,
      * produtos acima do máximo e valor total do estoque.
+     * Os valores vêm dos totais mantidos em {@link AgregadosEstoque}, sem percorrer o catálogo.
      * Endpoint: GET /api/relatorios/dashboard
      * 
      * @return Response com dados resumidos do sistema ou mensagem de erro.
@@ -193,25 +184,13 @@ public class RelatorioRestController {
     @Path("/dashboard")
     public Response dashboard() {
         try {
-            List<Produto> produtos = produtoDAO.listarTodos();
-
-            long abaixoMinimo = produtos.stream()
-                    .filter(p -> p.getQuantidade() < p.getQuantidadeMinima())
-                    .count();
-
-            long acimaMaximo = produtos.stream()
-                    .filter(p -> p.getQuantidade() > p.getQuantidadeMaxima())
-                    .count();
-
-            double valorTotal = produtos.stream()
-                    .mapToDouble(p -> p.getPrecoUnitario() * p.getQuantidade())
-                    .sum();
+            AgregadosEstoque.Resumo resumo = AgregadosEstoque.getInstancia().getResumo();
 
             Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("totalProdutos", produtos.size());
-            dashboard.put("produtosAbaixoMinimo", abaixoMinimo);
-            dashboard.put("produtosAcimaMaximo", acimaMaximo);
-            dashboard.put("valorTotalEstoque", valorTotal);
+            dashboard.put("totalProdutos", resumo.getTotalProdutos());
+            dashboard.put("produtosAbaixoMinimo", resumo.getProdutosAbaixoMinimo());
+            dashboard.put("produtosAcimaMaximo", resumo.getProdutosAcimaMaximo());
+            dashboard.put("valorTotalEstoque", resumo.getValorTotalEstoque());
 
             return Response.ok(dashboard).build();
         } catch (Exception e) {
@@ -221,6 +200,20 @@ public class RelatorioRestController {
         }
     }
 
+    /**
+     * Soma preço unitário x quantidade dos produtos, sem acumular erro de arredondamento.
+     *
+     * @param produtos Produtos do relatório.
+     * @return Valor total do estoque dos produtos.
+     */
+    private static double valorTotal(List<Produto> produtos) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Produto p : produtos) {
+            total = total.add(BigDecimal.valueOf(p.getPrecoUnitario()).multiply(BigDecimal.valueOf(p.getQuantidade())));
+        }
+        return total.doubleValue();
+    }
+
     /**
      * Classe para respostas de erro da API.
      * Retorna mensagens de erro padronizadas ao cliente.
@@ -0,0 +1,108 @@
+package controller.rest;
+
+import dao.Configuracao;
+import dao.ProdutoDAO;
+import dao.UnidadeDeTrabalho;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Filtro JAX-RS de respostas condicionais para os endpoints marcados com {@link VersaoCatalogo}.
+ *
+ * A ETag da resposta é a versão de alteração do catálogo, lida antes do controlador com uma
+ * única consulta por chave primária. Se o cliente enviar If-None-Match com a mesma versão,
+ * a requisição é respondida com 304 Not Modified sem chamar o controlador, ou seja, sem
+ * consultar nem serializar o catálogo. Caso contrário a resposta 200 recebe a ETag e o
+ * Cache-Control.
+ *
+ * A ETag da resposta 200 é a versão em que o conteúdo entregue foi carregado, e nunca mais
+ * nova que ele. Os dados lidos do banco pelo controlador vêm da mesma unidade de trabalho
+ * (o mesmo snapshot) da versão lida antes dele; os dados servidos de caches em memória
+ * ({@link dao.CacheProdutos}, {@link dao.CacheCategorias}, {@link dao.AgregadosEstoque})
+ * podem ser mais antigos, e cada cache registra na unidade a versão que o seu conteúdo
+ * reflete ({@link UnidadeDeTrabalho#getVersaoEmMemoria()}): a da carga, avançada pelas
+ * escritas aplicadas depois dela. Vale a menor das duas: no pior caso, o cliente recebe o
+ * conteúdo completo mais uma vez na revalidação seguinte.
+ *
+ * Configuração (via {@link Configuracao}):
+ * - estoque.http.cache.maxAgeSegundos (padrão 0: o cliente revalida a cada uso)
+ */
+@Provider
+@VersaoCatalogo
+@Priority(Priorities.USER + 100)
+public class RespostaCondicionalFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String VERSAO = RespostaCondicionalFilter.class.getName() + ".versao";
+    private static final CacheControl CACHE_CONTROL = criarCacheControl(
+            Math.max(0, Configuracao.getInt("estoque.http.cache.maxAgeSegundos", 0)));
+
+    private final ProdutoDAO produtoDAO = new ProdutoDAO();
+
+    /**
+     * Calcula a ETag e responde 304 se ela coincidir com a enviada pelo cliente.
+     *
+     * @param requestContext Contexto da requisição.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String metodo = requestContext.getMethod();
+        if (!HttpMethod.GET.equals(metodo) && !HttpMethod.HEAD.equals(metodo)) {
+            return;
+        }
+        long versao = produtoDAO.consultarVersao();
+        EntityTag etag = criarEtag(versao);
+        Response.ResponseBuilder naoModificado = requestContext.getRequest().evaluatePreconditions(etag);
+        if (naoModificado != null) {
+            requestContext.abortWith(naoModificado.tag(etag).cacheControl(CACHE_CONTROL).build());
+            return;
+        }
+        requestContext.setProperty(VERSAO, versao);
+    }
+
+    /**
+     * Acrescenta a ETag e o Cache-Control às respostas bem-sucedidas. A versão lida antes do
+     * controlador é rebaixada para a dos dados em memória que ele tenha usado.
+     *
+     * @param requestContext Contexto da requisição.
+     * @param responseContext Contexto da resposta.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Long versao = (Long) requestContext.getProperty(VERSAO);
+        if (versao == null || responseContext.getStatus() != Response.Status.OK.getStatusCode()) {
+            return;
+        }
+        UnidadeDeTrabalho unidade = UnidadeDeTrabalho.atual();
+        if (unidade != null) {
+            versao = Math.min(versao, unidade.getVersaoEmMemoria());
+        }
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, criarEtag(versao));
+        responseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+
+    private static EntityTag criarEtag(long versao) {
+        return new EntityTag("v" + versao);
+    }
+
+    private static CacheControl criarCacheControl(int maxAgeSegundos) {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoTransform(false);
+        if (maxAgeSegundos > 0) {
+            cacheControl.setMaxAge(maxAgeSegundos);
+        } else {
+            cacheControl.setNoCache(true);
+        }
+        return cacheControl;
+    }
+}
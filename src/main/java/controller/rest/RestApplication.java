@@ -32,6 +32,13 @@ public class RestApplication extends Application {
         classes.add(CategoriaRestController.class);
         classes.add(MovimentacaoRestController.class);
         classes.add(RelatorioRestController.class);
+        classes.add(MetricasRestController.class);
+        classes.add(ExportacaoRestController.class);
+
+        // Filtros da API
+        classes.add(UnidadeDeTrabalhoRestFilter.class);
+        classes.add(MetricasRestFilter.class);
+        classes.add(RespostaCondicionalFilter.class);
         
         return classes;
     }
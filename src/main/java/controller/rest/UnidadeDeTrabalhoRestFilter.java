@@ -0,0 +1,79 @@
+package controller.rest;
+
+import dao.UnidadeDeTrabalho;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.sql.SQLException;
+
+/**
+ * Filtro JAX-RS que executa cada requisição da API REST em uma única unidade de trabalho.
+ * Todas as chamadas aos DAOs feitas pelo controlador compartilham uma conexão e uma transação.
+ *
+ * A transação é confirmada no filtro de resposta, antes da serialização do JSON, quando o
+ * status for menor que 400; caso contrário é desfeita. Se a confirmação falhar, a resposta
+ * é substituída por um erro 500.
+ *
+ * A prioridade é menor que a dos demais filtros que acessam o banco (ex.:
+ * {@link RespostaCondicionalFilter}), de modo que a unidade é aberta antes deles e encerrada
+ * depois deles. Se a requisição terminar com exceção antes do filtro de resposta, a unidade é
+ * desfeita e encerrada pelo {@link controller.EncerramentoUnidadeFilter}.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class UnidadeDeTrabalhoRestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String PROPRIEDADE = UnidadeDeTrabalho.class.getName();
+
+    /**
+     * Abre a unidade de trabalho da requisição.
+     * Uma unidade esquecida na thread por uma requisição anterior (ex.: fora do alcance do
+     * {@link controller.EncerramentoUnidadeFilter}) é desfeita e encerrada antes.
+     *
+     * @param requestContext Contexto da requisição.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        UnidadeDeTrabalho anterior = UnidadeDeTrabalho.atual();
+        if (anterior != null) {
+            anterior.desfazer();
+            anterior.encerrar();
+        }
+        requestContext.setProperty(PROPRIEDADE, UnidadeDeTrabalho.iniciar());
+    }
+
+    /**
+     * Confirma ou desfaz a transação e encerra a unidade de trabalho da requisição.
+     *
+     * @param requestContext Contexto da requisição.
+     * @param responseContext Contexto da resposta.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        UnidadeDeTrabalho unidade = (UnidadeDeTrabalho) requestContext.getProperty(PROPRIEDADE);
+        if (unidade == null) {
+            return;
+        }
+        try {
+            if (responseContext.getStatus() < 400) {
+                unidade.confirmar();
+            } else {
+                unidade.desfazer();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            unidade.desfazer();
+            responseContext.setStatus(500);
+            responseContext.setEntity(new ProdutoRestController.ErrorResponse(
+                    "Erro ao confirmar transação: " + e.getMessage()));
+        } finally {
+            unidade.encerrar();
+            requestContext.removeProperty(PROPRIEDADE);
+        }
+    }
+}
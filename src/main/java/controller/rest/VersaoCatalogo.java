@@ -0,0 +1,18 @@
+package controller.rest;
+
+import javax.ws.rs.NameBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca os endpoints GET cuja resposta depende apenas do catálogo (produtos, categorias e
+ * estoque). Essas respostas são identificadas pela versão de alteração do catálogo e
+ * revalidadas por {@link RespostaCondicionalFilter} (ETag / If-None-Match).
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface VersaoCatalogo {
+}
@@ -0,0 +1,411 @@
+package dao;
+
+/**
+ * Totais do estoque mantidos de forma incremental em memória, usados pelo dashboard e
+ * pelo balanço financeiro: quantidade de produtos, produtos abaixo do mínimo e acima do
+ * máximo, valor total e total de itens em estoque.
+ *
+ * Os totais são carregados do banco na primeira consulta e, a partir daí, ajustados a cada
+ * inclusão, alteração ou exclusão de produto e a cada movimentação, sempre após o commit.
+ * Periodicamente são recalculados a partir do banco (reconciliação), o que corrige
+ * alterações feitas por outros processos; eventos ocorridos durante o recálculo são
+ * reaplicados sobre o resultado antes de ele substituir os totais atuais.
+ *
+ * Cada evento traz a versão de alteração da escrita que o originou, e as versões seguem a
+ * ordem dos commits. Cada produto guarda a versão dos seus valores (a do recálculo ou a do
+ * último evento aplicado), e um evento de versão igual ou menor é ignorado: eventos de
+ * escritas concorrentes executados fora de ordem não deixam valores antigos. O valor total
+ * é mantido em BigDecimal, para que os ajustes sucessivos não acumulem erro de arredondamento.
+ *
+ * Os totais guardam a versão de alteração que refletem, registrada na unidade de trabalho a
+ * cada consulta ({@link UnidadeDeTrabalho#registrarVersaoEmMemoria(long)}): a lida logo antes
+ * do último recálculo, avançada pelos ajustes aplicados depois dele ({@link VersaoConteudo}).
+ * Escritas de outros processos, que não geram ajustes, seguram a versão até o recálculo
+ * seguinte. As escritas que não alteram os totais (ex.: de categorias) também são
+ * registradas ({@link #registrarVersao(long)}), para não segurar a versão.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.agregados.reconciliacaoMs  (padrão 300000)
+ */
+import modelo.Produto;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public final class AgregadosEstoque {
+
+    private static final AgregadosEstoque INSTANCIA = new AgregadosEstoque();
+
+    private final long reconciliacaoMs;
+    private final Object carga = new Object();
+
+    private volatile Totais totais;
+    /** Eventos recebidos durante um recálculo; null quando não há recálculo em andamento. */
+    private List<Consumer<Totais>> diario;
+    private ScheduledExecutorService reconciliador;
+
+    private AgregadosEstoque() {
+        reconciliacaoMs = Configuracao.getLong("estoque.agregados.reconciliacaoMs", 300000);
+    }
+
+    /**
+     * Retorna a instância única dos agregados.
+     *
+     * @return Agregados de estoque da aplicação.
+     */
+    public static AgregadosEstoque getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Retorna os totais atuais do estoque, carregando-os do banco na primeira chamada.
+     *
+     * @return Resumo dos totais do estoque.
+     */
+    public Resumo getResumo() {
+        garantirCarregado();
+        synchronized (this) {
+            Totais t = totais;
+            UnidadeDeTrabalho.registrarVersaoEmMemoria(t.conteudo.get());
+            return new Resumo(t.itens.size(), t.abaixoMinimo, t.acimaMaximo, t.valorTotal.doubleValue(), t.totalItens);
+        }
+    }
+
+    /**
+     * Registra a inclusão ou alteração de um produto na transação atual.
+     *
+     * @param produto Produto gravado (com id).
+     * @param versao  Versão de alteração da gravação.
+     */
+    public void registrarProduto(Produto produto, long versao) {
+        int id = produto.getId();
+        Item item = new Item(produto.getPrecoUnitario(), produto.getQuantidadeEstoque(),
+                produto.getQuantidadeMinima(), produto.getQuantidadeMaxima(), versao);
+        UnidadeDeTrabalho.aposConfirmar(() -> aplicar(versao, t -> t.gravar(id, item)));
+    }
+
+    /**
+     * Aplica imediatamente a inclusão ou alteração de um produto já confirmada no banco.
+     *
+     * @param produto Produto gravado (com id).
+     * @param versao  Versão de alteração da gravação.
+     */
+    public void atualizarProduto(Produto produto, long versao) {
+        atualizarProdutos(Collections.singletonList(produto), versao);
+    }
+
+    /**
+     * Aplica imediatamente, de uma vez, a inclusão ou alteração de produtos confirmada no
+     * banco com a mesma versão (ex.: um lote da importação).
+     *
+     * @param produtos Produtos gravados (com id).
+     * @param versao   Versão de alteração da gravação.
+     */
+    public void atualizarProdutos(List<Produto> produtos, long versao) {
+        Map<Integer, Item> gravados = new HashMap<>(produtos.size() * 4 / 3 + 1);
+        for (Produto produto : produtos) {
+            gravados.put(produto.getId(), new Item(produto.getPrecoUnitario(), produto.getQuantidadeEstoque(),
+                    produto.getQuantidadeMinima(), produto.getQuantidadeMaxima(), versao));
+        }
+        aplicar(versao, t -> gravados.forEach(t::gravar));
+    }
+
+    /**
+     * Registra a exclusão de um produto na transação atual.
+     *
+     * @param produtoId Identificador do produto excluído.
+     * @param versao    Versão de alteração da exclusão.
+     */
+    public void registrarExclusao(int produtoId, long versao) {
+        UnidadeDeTrabalho.aposConfirmar(() -> aplicar(versao, t -> t.remover(produtoId, versao)));
+    }
+
+    /**
+     * Registra a nova quantidade em estoque de um produto na transação atual.
+     *
+     * @param produtoId  Identificador do produto.
+     * @param quantidade Quantidade em estoque após a movimentação.
+     * @param versao     Versão de alteração da movimentação.
+     */
+    public void registrarQuantidade(int produtoId, int quantidade, long versao) {
+        registrarQuantidades(Collections.singletonMap(produtoId, quantidade), versao);
+    }
+
+    /**
+     * Registra as novas quantidades em estoque de produtos movimentados com a mesma versão
+     * na transação atual.
+     *
+     * @param quantidades Quantidade em estoque após a movimentação, por id do produto.
+     * @param versao      Versão de alteração das movimentações.
+     */
+    public void registrarQuantidades(Map<Integer, Integer> quantidades, long versao) {
+        UnidadeDeTrabalho.aposConfirmar(() -> atualizarQuantidades(quantidades, versao));
+    }
+
+    /**
+     * Registra uma escrita da transação atual que não altera os totais (ex.: de categoria),
+     * para que a versão dos totais possa avançar.
+     *
+     * @param versao Versão de alteração da escrita.
+     */
+    public void registrarVersao(long versao) {
+        UnidadeDeTrabalho.aposConfirmar(() -> aplicar(versao, t -> { }));
+    }
+
+    /**
+     * Aplica imediatamente a nova quantidade em estoque de um produto já confirmada no banco.
+     *
+     * @param produtoId  Identificador do produto.
+     * @param quantidade Quantidade em estoque.
+     * @param versao     Versão de alteração em que a quantidade foi confirmada.
+     */
+    public void atualizarQuantidade(int produtoId, int quantidade, long versao) {
+        atualizarQuantidades(Collections.singletonMap(produtoId, quantidade), versao);
+    }
+
+    /**
+     * Aplica imediatamente, de uma vez, as novas quantidades em estoque de produtos já
+     * confirmadas no banco com a mesma versão.
+     *
+     * @param quantidades Quantidade em estoque, por id do produto.
+     * @param versao      Versão de alteração em que as quantidades foram confirmadas.
+     */
+    public void atualizarQuantidades(Map<Integer, Integer> quantidades, long versao) {
+        aplicar(versao, t -> quantidades.forEach((id, quantidade) -> t.alterarQuantidade(id, quantidade, versao)));
+    }
+
+    /**
+     * Recalcula os totais a partir do banco de dados.
+     */
+    public void reconciliar() {
+        synchronized (this) {
+            if (diario != null) {
+                return;
+            }
+            diario = new ArrayList<>();
+        }
+        Totais novos;
+        try {
+            novos = consultar();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                diario = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            for (Consumer<Totais> evento : diario) {
+                evento.accept(novos);
+            }
+            diario = null;
+            totais = novos;
+        }
+    }
+
+    private void garantirCarregado() {
+        if (totais != null) {
+            return;
+        }
+        synchronized (carga) {
+            if (totais == null) {
+                reconciliar();
+                iniciarReconciliacao();
+            }
+        }
+    }
+
+    private void iniciarReconciliacao() {
+        if (reconciliador != null || reconciliacaoMs <= 0) {
+            return;
+        }
+        reconciliador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agregados-estoque-reconciliacao");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciliador.scheduleWithFixedDelay(() -> {
+            try {
+                reconciliar();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, reconciliacaoMs, reconciliacaoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Aplica um evento aos totais (e ao recálculo em andamento) e registra a sua versão.
+     */
+    private synchronized void aplicar(long versao, Consumer<Totais> alteracao) {
+        Consumer<Totais> evento = t -> {
+            alteracao.accept(t);
+            t.conteudo.aplicada(versao);
+        };
+        if (diario != null) {
+            diario.add(evento);
+        }
+        if (totais != null) {
+            evento.accept(totais);
+        }
+    }
+
+    /**
+     * Lê do banco os valores de todos os produtos necessários para os totais.
+     *
+     * @return Totais calculados a partir do banco.
+     */
+    private Totais consultar() {
+        String sql = "SELECT id, preco_unitario, quantidade, quantidade_minima, quantidade_maxima FROM produto";
+        Totais novos = new Totais();
+
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            novos.versaoCarregada = VersaoAlteracao.atual(conn);
+            novos.conteudo = new VersaoConteudo(novos.versaoCarregada);
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery(sql);
+            while (rs.next()) {
+                novos.gravar(rs.getInt(1), new Item(rs.getDouble(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+                        novos.versaoCarregada));
+            }
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao calcular os totais do estoque.", e);
+        } finally {
+            conexao.fecharConexao();
+        }
+        return novos;
+    }
+
+    /**
+     * Valores de um produto que participam dos totais.
+     */
+    private static final class Item {
+        private final double preco;
+        private final int quantidade;
+        private final int minima;
+        private final int maxima;
+        /** Versão de alteração em que estes valores foram confirmados (ou a do recálculo). */
+        private final long versao;
+        /** Preço unitário x quantidade, sem arredondamento. */
+        private final BigDecimal valor;
+
+        private Item(double preco, int quantidade, int minima, int maxima, long versao) {
+            this.preco = preco;
+            this.quantidade = quantidade;
+            this.minima = minima;
+            this.maxima = maxima;
+            this.versao = versao;
+            this.valor = BigDecimal.valueOf(preco).multiply(BigDecimal.valueOf(quantidade));
+        }
+
+        private Item comQuantidade(int novaQuantidade, long novaVersao) {
+            return new Item(preco, novaQuantidade, minima, maxima, novaVersao);
+        }
+    }
+
+    /**
+     * Totais acumulados e os valores por produto usados para ajustá-los.
+     */
+    private static final class Totais {
+        private final Map<Integer, Item> itens = new HashMap<>();
+        /** Versão da exclusão dos produtos excluídos desde o recálculo. */
+        private final Map<Integer, Long> excluidos = new HashMap<>();
+        /** Versão de alteração lida antes do recálculo que originou os totais. */
+        private long versaoCarregada;
+        /** Versão refletida pelos totais: a do recálculo, avançada pelos ajustes aplicados. */
+        private VersaoConteudo conteudo;
+        private int abaixoMinimo;
+        private int acimaMaximo;
+        private long totalItens;
+        private BigDecimal valorTotal = BigDecimal.ZERO;
+
+        private void gravar(int id, Item item) {
+            Item atual = itens.get(id);
+            Long exclusao = excluidos.get(id);
+            if (atual != null && atual.versao >= item.versao || exclusao != null && exclusao >= item.versao) {
+                return;
+            }
+            subtrair(itens.put(id, item));
+            somar(item);
+        }
+
+        private void remover(int id, long versao) {
+            excluidos.put(id, versao);
+            subtrair(itens.remove(id));
+        }
+
+        private void alterarQuantidade(int id, int quantidade, long versao) {
+            Item atual = itens.get(id);
+            if (atual != null) {
+                gravar(id, atual.comQuantidade(quantidade, versao));
+            }
+        }
+
+        private void somar(Item item) {
+            abaixoMinimo += item.quantidade < item.minima ? 1 : 0;
+            acimaMaximo += item.quantidade > item.maxima ? 1 : 0;
+            totalItens += item.quantidade;
+            valorTotal = valorTotal.add(item.valor);
+        }
+
+        private void subtrair(Item item) {
+            if (item == null) {
+                return;
+            }
+            abaixoMinimo -= item.quantidade < item.minima ? 1 : 0;
+            acimaMaximo -= item.quantidade > item.maxima ? 1 : 0;
+            totalItens -= item.quantidade;
+            valorTotal = valorTotal.subtract(item.valor);
+        }
+    }
+
+    /**
+     * Retrato imutável dos totais do estoque em um dado instante.
+     */
+    public static final class Resumo {
+        private final int totalProdutos;
+        private final int produtosAbaixoMinimo;
+        private final int produtosAcimaMaximo;
+        private final double valorTotalEstoque;
+        private final long totalItensEstoque;
+
+        private Resumo(int totalProdutos, int produtosAbaixoMinimo, int produtosAcimaMaximo,
+                       double valorTotalEstoque, long totalItensEstoque) {
+            this.totalProdutos = totalProdutos;
+            this.produtosAbaixoMinimo = produtosAbaixoMinimo;
+            this.produtosAcimaMaximo = produtosAcimaMaximo;
+            this.valorTotalEstoque = valorTotalEstoque;
+            this.totalItensEstoque = totalItensEstoque;
+        }
+
+        /** @return Quantidade de produtos cadastrados. */
+        public int getTotalProdutos() { return totalProdutos; }
+
+        /** @return Quantidade de produtos abaixo do estoque mínimo. */
+        public int getProdutosAbaixoMinimo() { return produtosAbaixoMinimo; }
+
+        /** @return Quantidade de produtos acima do estoque máximo. */
+        public int getProdutosAcimaMaximo() { return produtosAcimaMaximo; }
+
+        /** @return Valor total do estoque (preço unitário x quantidade). */
+        public double getValorTotalEstoque() { return valorTotalEstoque; }
+
+        /** @return Total de itens em estoque. */
+        public long getTotalItensEstoque() { return totalItensEstoque; }
+    }
+}
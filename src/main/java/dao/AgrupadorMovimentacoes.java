@@ -0,0 +1,428 @@
+package dao;
+
+/**
+ * Agrupador de movimentações de estoque (group commit).
+ * Movimentações enviadas por threads concorrentes são reunidas durante uma janela curta
+ * (ou até atingir o tamanho máximo do lote) e gravadas por uma única thread: os INSERTs
+ * em um lote JDBC, um UPDATE relativo por produto com a soma das quantidades e um único
+ * commit. Cada chamador recebe o seu próprio resultado (novo estoque ou erro).
+ *
+ * As regras são as mesmas de {@link MovimentacaoDAO#registrarMovimento(modelo.Movimentacao, boolean)}:
+ * as movimentações de um lote são aplicadas na ordem de chegada e uma saída que deixaria o
+ * estoque negativo é recusada sem afetar as demais.
+ *
+ * O lote é gravado em conexão própria, fora do pool e fora da unidade de trabalho de quem
+ * chamou, e é confirmado independentemente dela.
+ *
+ * Quem chama espera o resultado por no máximo estoque.movimentacao.agrupamento.tempoMaximoEsperaMs.
+ * Se o tempo se esgotar antes de o pedido entrar em um lote, ele é retirado da fila e não
+ * é gravado; se já estiver sendo gravado, o resultado é desconhecido e isso é informado.
+ * Qualquer erro na thread de gravação recusa apenas o lote em andamento, e a thread é
+ * recriada se tiver terminado.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.movimentacao.agrupamento.ativo                (padrão false)
+ * - estoque.movimentacao.agrupamento.janelaMs             (padrão 5)
+ * - estoque.movimentacao.agrupamento.tamanhoMaximo        (padrão 200)
+ * - estoque.movimentacao.agrupamento.tempoMaximoEsperaMs  (padrão 30000)
+ */
+import modelo.Movimentacao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class AgrupadorMovimentacoes {
+
+    /** Limites superiores das faixas do histograma de tamanho de lote. */
+    private static final int[] FAIXAS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512};
+
+    private static final AgrupadorMovimentacoes INSTANCIA = new AgrupadorMovimentacoes();
+
+    private final boolean ativo;
+    private final long janelaNanos;
+    private final int tamanhoMaximo;
+    private final long tempoMaximoEsperaMs;
+
+    private final LinkedBlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+    private volatile Thread gravador;
+    private Connection conexao;
+
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong movimentacoes = new AtomicLong();
+    private final AtomicLong recusadas = new AtomicLong();
+    private final AtomicLong maiorLote = new AtomicLong();
+    private final AtomicLongArray lotesPorFaixa = new AtomicLongArray(FAIXAS.length + 1);
+
+    private AgrupadorMovimentacoes() {
+        ativo = Configuracao.getBoolean("estoque.movimentacao.agrupamento.ativo", false);
+        janelaNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, Configuracao.getLong("estoque.movimentacao.agrupamento.janelaMs", 5)));
+        tamanhoMaximo = Math.max(1, Configuracao.getInt("estoque.movimentacao.agrupamento.tamanhoMaximo", 200));
+        tempoMaximoEsperaMs = Math.max(1, Configuracao.getLong("estoque.movimentacao.agrupamento.tempoMaximoEsperaMs", 30000));
+    }
+
+    /**
+     * Retorna a instância única do agrupador.
+     *
+     * @return Agrupador de movimentações da aplicação.
+     */
+    public static AgrupadorMovimentacoes getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica se o modo de gravação agrupada está habilitado na configuração.
+     *
+     * @return true se as movimentações devem ser agrupadas.
+     */
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Envia uma movimentação para o próximo lote e aguarda a sua gravação.
+     *
+     * @param mov              Movimentação a registrar (o produto precisa ter id).
+     * @param permitirNegativo Se false, a saída é recusada quando deixaria o estoque negativo.
+     * @return Quantidade em estoque do produto após a movimentação.
+     * @throws EstoqueInsuficienteException Se a saída for recusada por falta de estoque.
+     * @throws IllegalArgumentException     Se o produto não existir.
+     * @throws RuntimeException             Se a gravação falhar ou o tempo de espera se esgotar.
+     */
+    public int registrar(Movimentacao mov, boolean permitirNegativo) {
+        iniciarGravador();
+        int delta = "ENTRADA".equals(mov.getTipo()) ? mov.getQuantidade() : -mov.getQuantidade();
+        Pedido pedido = new Pedido(mov, delta, permitirNegativo);
+        fila.add(pedido);
+        try {
+            return pedido.resultado.get(tempoMaximoEsperaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Erro ao registrar movimentação.", e.getCause());
+        } catch (TimeoutException e) {
+            throw esgotado(pedido);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw esgotado(pedido);
+        }
+    }
+
+    /**
+     * Desiste de um pedido cujo resultado não chegou a tempo.
+     *
+     * @param pedido Pedido sem resultado.
+     * @return Exceção a lançar para quem chamou.
+     */
+    private RuntimeException esgotado(Pedido pedido) {
+        if (pedido.reservar()) {
+            fila.remove(pedido);
+            return new RuntimeException("Tempo de espera esgotado; a movimentação não foi registrada.");
+        }
+        return new RuntimeException("Tempo de espera esgotado durante a gravação; a movimentação pode ter sido registrada.");
+    }
+
+    /**
+     * Retorna um retrato das estatísticas de agrupamento.
+     *
+     * @return Estatísticas dos lotes gravados.
+     */
+    public Estatisticas getEstatisticas() {
+        Map<String, Long> distribuicao = new LinkedHashMap<>();
+        for (int i = 0; i < FAIXAS.length; i++) {
+            distribuicao.put("<=" + FAIXAS[i], lotesPorFaixa.get(i));
+        }
+        distribuicao.put(">" + FAIXAS[FAIXAS.length - 1], lotesPorFaixa.get(FAIXAS.length));
+        return new Estatisticas(lotes.get(), movimentacoes.get(), recusadas.get(), maiorLote.get(),
+                fila.size(), Collections.unmodifiableMap(distribuicao));
+    }
+
+    /**
+     * Retorna os limites superiores das faixas de tamanho de lote, na ordem de
+     * {@link Estatisticas#getLotesPorTamanho()} (a última faixa, sem limite, não é incluída).
+     *
+     * @return Cópia dos limites, em movimentações por lote.
+     */
+    public static int[] getFaixasTamanhoLote() {
+        return FAIXAS.clone();
+    }
+
+    /**
+     * Inicia a thread de gravação na primeira chamada ou se ela tiver terminado.
+     */
+    private void iniciarGravador() {
+        Thread atual = gravador;
+        if (atual == null || !atual.isAlive()) {
+            synchronized (this) {
+                if (gravador == atual) {
+                    Thread t = new Thread(this::executarGravador, "agrupador-movimentacoes");
+                    t.setDaemon(true);
+                    t.start();
+                    gravador = t;
+                }
+            }
+        }
+    }
+
+    private void executarGravador() {
+        List<Pedido> lote = new ArrayList<>(tamanhoMaximo);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                lote.add(fila.take());
+                long limite = System.nanoTime() + janelaNanos;
+                while (lote.size() < tamanhoMaximo) {
+                    long restante = limite - System.nanoTime();
+                    Pedido proximo = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : fila.poll();
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                }
+                // Pedidos cujo chamador já desistiu ficam de fora
+                lote.removeIf(p -> !p.reservar());
+                if (!lote.isEmpty()) {
+                    gravar(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Pedido p : lote) {
+                    p.resultado.completeExceptionally(new IllegalStateException("Agrupador de movimentações interrompido."));
+                }
+            } catch (Throwable e) {
+                // Qualquer erro recusa só o lote atual; a thread continua atendendo a fila
+                e.printStackTrace();
+                RuntimeException erro = e instanceof RuntimeException ? (RuntimeException) e
+                        : new RuntimeException("Erro ao registrar movimentação.", e);
+                for (Pedido p : lote) {
+                    p.resultado.completeExceptionally(erro);
+                }
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Grava um lote de movimentações em uma única transação.
+     *
+     * @param lote Pedidos reunidos na janela atual.
+     */
+    private void gravar(List<Pedido> lote) {
+        registrarLote(lote.size());
+
+        // Produtos em ordem de id para que os bloqueios sejam sempre obtidos na mesma ordem
+        Map<Integer, Integer> deltaPorProduto = new TreeMap<>();
+        for (Pedido p : lote) {
+            deltaPorProduto.put(p.produtoId, 0);
+        }
+
+        List<Pedido> aceitos = new ArrayList<>(lote.size());
+        long versao;
+        try {
+            Connection conn = getConexao();
+            try {
+                // Versão de alteração do lote, obtida antes dos bloqueios dos produtos
+                versao = VersaoAlteracao.proxima(conn);
+                Map<Integer, Integer> saldo = MovimentacaoDAO.bloquearProdutos(conn, deltaPorProduto.keySet());
+
+                for (Pedido p : lote) {
+                    Integer atual = saldo.get(p.produtoId);
+                    if (atual == null) {
+                        p.erro = new IllegalArgumentException("Produto não encontrado: " + p.produtoId);
+                        continue;
+                    }
+                    int novo = atual + p.delta;
+                    if (!p.permitirNegativo && novo < 0) {
+                        p.erro = new EstoqueInsuficienteException(p.produtoId, atual);
+                        continue;
+                    }
+                    saldo.put(p.produtoId, novo);
+                    deltaPorProduto.merge(p.produtoId, p.delta, Integer::sum);
+                    p.novaQuantidade = novo;
+                    aceitos.add(p);
+                }
+
+                if (!aceitos.isEmpty()) {
+                    PreparedStatement insert = conn.prepareStatement(
+                            "INSERT INTO movimentacao (tipo, quantidade, produto_id) VALUES (?, ?, ?)");
+                    for (Pedido p : aceitos) {
+                        insert.setString(1, p.mov.getTipo());
+                        insert.setInt(2, p.mov.getQuantidade());
+                        insert.setInt(3, p.produtoId);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    insert.close();
+
+                    PreparedStatement update = conn.prepareStatement(
+                            "UPDATE produto SET quantidade = quantidade + ?, versao = ? WHERE id = ?");
+                    for (Map.Entry<Integer, Integer> e : deltaPorProduto.entrySet()) {
+                        if (e.getValue() != 0) {
+                            update.setInt(1, e.getValue());
+                            update.setLong(2, versao);
+                            update.setInt(3, e.getKey());
+                            update.addBatch();
+                        }
+                    }
+                    update.executeBatch();
+                    update.close();
+                }
+
+                conn.commit();
+            } catch (Throwable e) {
+                desfazer(conn);
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            descartarConexao();
+            RuntimeException erro = new RuntimeException("Erro ao registrar movimentação.", e);
+            for (Pedido p : lote) {
+                p.resultado.completeExceptionally(erro);
+            }
+            return;
+        }
+
+        // Quantidade final de cada produto, aplicada de uma vez com a versão do lote
+        Map<Integer, Integer> quantidades = new HashMap<>();
+        for (Pedido p : aceitos) {
+            quantidades.put(p.produtoId, p.novaQuantidade);
+        }
+        CacheProdutos.getInstancia().atualizarQuantidades(quantidades, versao);
+        AgregadosEstoque.getInstancia().atualizarQuantidades(quantidades, versao);
+        movimentacoes.addAndGet(aceitos.size());
+        for (Pedido p : lote) {
+            if (p.erro != null) {
+                recusadas.incrementAndGet();
+                p.resultado.completeExceptionally(p.erro);
+            } else {
+                p.mov.getProduto().setQuantidadeEstoque(p.novaQuantidade);
+                p.resultado.complete(p.novaQuantidade);
+            }
+        }
+    }
+
+    private Connection getConexao() throws SQLException {
+        if (conexao == null || !conexao.isValid(2)) {
+            descartarConexao();
+            conexao = PoolConexoes.getInstancia().abrirConexaoDedicada();
+            conexao.setAutoCommit(false);
+        }
+        return conexao;
+    }
+
+    private void desfazer(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // a conexão será descartada
+        }
+    }
+
+    private void descartarConexao() {
+        if (conexao != null) {
+            try {
+                conexao.close();
+            } catch (SQLException e) {
+                // conexão já estava inutilizável
+            }
+            conexao = null;
+        }
+    }
+
+    private void registrarLote(int tamanho) {
+        lotes.incrementAndGet();
+        maiorLote.accumulateAndGet(tamanho, Math::max);
+        int faixa = 0;
+        while (faixa < FAIXAS.length && tamanho > FAIXAS[faixa]) {
+            faixa++;
+        }
+        lotesPorFaixa.incrementAndGet(faixa);
+    }
+
+    /**
+     * Movimentação aguardando gravação e o resultado entregue ao chamador.
+     */
+    private static final class Pedido {
+        private final Movimentacao mov;
+        private final int produtoId;
+        private final int delta;
+        private final boolean permitirNegativo;
+        private final CompletableFuture<Integer> resultado = new CompletableFuture<>();
+        /** Marcado por quem decide primeiro: a thread de gravação ou o chamador que desistiu. */
+        private final AtomicBoolean reservado = new AtomicBoolean();
+        private int novaQuantidade;
+        private RuntimeException erro;
+
+        private Pedido(Movimentacao mov, int delta, boolean permitirNegativo) {
+            this.mov = mov;
+            this.produtoId = mov.getProduto().getId();
+            this.delta = delta;
+            this.permitirNegativo = permitirNegativo;
+        }
+
+        private boolean reservar() {
+            return reservado.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Retrato imutável das estatísticas de agrupamento em um dado instante.
+     */
+    public static final class Estatisticas {
+        private final long lotes;
+        private final long movimentacoes;
+        private final long recusadas;
+        private final long maiorLote;
+        private final int pendentes;
+        private final Map<String, Long> lotesPorTamanho;
+
+        private Estatisticas(long lotes, long movimentacoes, long recusadas, long maiorLote, int pendentes,
+                             Map<String, Long> lotesPorTamanho) {
+            this.lotes = lotes;
+            this.movimentacoes = movimentacoes;
+            this.recusadas = recusadas;
+            this.maiorLote = maiorLote;
+            this.pendentes = pendentes;
+            this.lotesPorTamanho = lotesPorTamanho;
+        }
+
+        /** @return Total de lotes gravados. */
+        public long getLotes() { return lotes; }
+
+        /** @return Total de movimentações gravadas. */
+        public long getMovimentacoes() { return movimentacoes; }
+
+        /** @return Total de movimentações recusadas (produto inexistente ou estoque insuficiente). */
+        public long getRecusadas() { return recusadas; }
+
+        /** @return Maior lote gravado. */
+        public long getMaiorLote() { return maiorLote; }
+
+        /** @return Tamanho médio dos lotes. */
+        public double getTamanhoMedioLote() { return lotes == 0 ? 0 : (double) (movimentacoes + recusadas) / lotes; }
+
+        /** @return Movimentações aguardando o próximo lote. */
+        public int getPendentes() { return pendentes; }
+
+        /** @return Quantidade de lotes por faixa de tamanho, da menor para a maior faixa. */
+        public Map<String, Long> getLotesPorTamanho() { return lotesPorTamanho; }
+    }
+}
@@ -0,0 +1,65 @@
+package dao;
+
+/**
+ * Alterações do catálogo desde uma versão informada pelo cliente: os itens inseridos ou
+ * alterados, os ids excluídos e a versão a informar na próxima consulta.
+ *
+ * @param <T> Tipo dos itens.
+ */
+import java.util.List;
+
+public class Alteracoes<T> {
+
+    private final long versao;
+    private final boolean completo;
+    private final List<T> alterados;
+    private final List<Integer> excluidos;
+
+    /**
+     * Construtor com parâmetros.
+     *
+     * @param versao    Versão do catálogo refletida nesta resposta.
+     * @param completo  true se {@code alterados} contém o catálogo inteiro.
+     * @param alterados Itens inseridos ou alterados.
+     * @param excluidos IDs dos itens excluídos.
+     */
+    public Alteracoes(long versao, boolean completo, List<T> alterados, List<Integer> excluidos) {
+        this.versao = versao;
+        this.completo = completo;
+        this.alterados = alterados;
+        this.excluidos = excluidos;
+    }
+
+    /**
+     * Retorna a versão do catálogo refletida nesta resposta, a ser usada como "desde" na próxima consulta.
+     * @return Versão.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    /**
+     * Indica se a resposta contém o catálogo inteiro (primeira sincronização), caso em que o
+     * cliente deve descartar o que tinha antes.
+     * @return true se for uma carga completa.
+     */
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    /**
+     * Retorna os itens inseridos ou alterados.
+     * @return Lista de itens.
+     */
+    public List<T> getAlterados() {
+        return alterados;
+    }
+
+    /**
+     * Retorna os IDs dos itens excluídos.
+     * @return Lista de IDs.
+     */
+    public List<Integer> getExcluidos() {
+        return excluidos;
+    }
+}
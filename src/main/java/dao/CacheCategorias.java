@@ -0,0 +1,213 @@
+package dao;
+
+/**
+ * Cache em memória das categorias e da quantidade de produtos de cada uma, usado pelo
+ * {@link CategoriaDAO} (read-through).
+ *
+ * As categorias mudam raramente e são poucas: na primeira leitura a tabela inteira é
+ * carregada, em ordem de nome, com acesso por id, e passa a atender as listagens e as buscas
+ * por id (ex.: a validação da categoria a cada escrita de produto). A quantidade de produtos
+ * por categoria é carregada de uma vez, com um único GROUP BY, e atende às listagens; a
+ * verificação feita antes de excluir uma categoria consulta o banco
+ * ({@link CategoriaDAO#possuiProdutos(int)}).
+ *
+ * As categorias são descartadas nas escritas de categoria e as quantidades, nas escritas de
+ * produto, imediatamente e novamente após o commit, como no {@link CacheProdutos}; a próxima
+ * leitura recarrega do banco. O tempo de vida (TTL) limita quanto tempo alterações feitas
+ * por outros processos (ex.: a aplicação desktop) levam para aparecer.
+ *
+ * As categorias entregues são sempre cópias. Como no {@link CacheProdutos}, cada carga
+ * guarda a versão de alteração lida logo antes dela, registrada na unidade de trabalho a
+ * cada acerto.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.cache.categorias.ativo  (padrão true)
+ * - estoque.cache.categorias.ttlMs  (padrão 60000)
+ */
+import modelo.Categoria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public final class CacheCategorias {
+
+    private static final CacheCategorias INSTANCIA = new CacheCategorias();
+
+    private final boolean ativo;
+    private final long ttlMs;
+
+    /** Categorias em ordem de nome, por id; null quando não carregadas ou descartadas. */
+    private volatile Carga<Map<Integer, Categoria>> categorias;
+    /** Quantidade de produtos por id de categoria; null quando não carregada ou descartada. */
+    private volatile Carga<Map<Integer, Integer>> quantidades;
+    /** Incrementadas a cada alteração para descartar cargas concorrentes com ela. */
+    private final AtomicLong versaoCategorias = new AtomicLong();
+    private final AtomicLong versaoQuantidades = new AtomicLong();
+
+    private CacheCategorias() {
+        ativo = Configuracao.getBoolean("estoque.cache.categorias.ativo", true);
+        ttlMs = Configuracao.getLong("estoque.cache.categorias.ttlMs", 60000);
+    }
+
+    /**
+     * Retorna a instância única do cache.
+     *
+     * @return Cache de categorias da aplicação.
+     */
+    public static CacheCategorias getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Lista todas as categorias em ordem de nome.
+     *
+     * @param carregador Consulta ao banco usada quando as categorias não estão em cache.
+     * @return Nova lista com cópias das categorias.
+     */
+    public List<Categoria> listarTodas(Supplier<List<Categoria>> carregador) {
+        Map<Integer, Categoria> porId = categorias(carregador);
+        List<Categoria> lista = new ArrayList<>(porId.size());
+        for (Categoria c : porId.values()) {
+            lista.add(copiar(c));
+        }
+        return lista;
+    }
+
+    /**
+     * Busca uma categoria pelo id, carregando todas as categorias em caso de falha.
+     *
+     * @param id         Identificador da categoria.
+     * @param carregador Consulta ao banco usada quando as categorias não estão em cache.
+     * @return Cópia da categoria ou null se não existir.
+     */
+    public Categoria buscarPorId(int id, Supplier<List<Categoria>> carregador) {
+        Categoria c = categorias(carregador).get(id);
+        return c != null ? copiar(c) : null;
+    }
+
+    /**
+     * Retorna a quantidade de produtos de uma categoria.
+     *
+     * @param categoriaId Identificador da categoria.
+     * @param carregador  Consulta ao banco da quantidade de produtos de todas as categorias.
+     * @return Quantidade de produtos (0 se a categoria não tiver produtos ou não existir).
+     */
+    public int contarProdutos(int categoriaId, Supplier<Map<Integer, Integer>> carregador) {
+        Carga<Map<Integer, Integer>> atual = quantidades;
+        Map<Integer, Integer> porCategoria;
+        if (ativo && atual != null && !expirado(atual.carregadaEm)) {
+            UnidadeDeTrabalho.registrarVersaoEmMemoria(atual.versaoCarregada);
+            porCategoria = atual.valor;
+        } else {
+            long versaoInicial = versaoQuantidades.get();
+            long versaoCarregada = versaoParaCarga(versaoQuantidades, versaoInicial);
+            porCategoria = Collections.unmodifiableMap(carregador.get());
+            if (ativo && podePopular(versaoQuantidades, versaoInicial)) {
+                synchronized (this) {
+                    if (versaoQuantidades.get() == versaoInicial) {
+                        quantidades = new Carga<>(porCategoria, versaoCarregada);
+                    }
+                }
+            }
+        }
+        Integer quantidade = porCategoria.get(categoriaId);
+        return quantidade != null ? quantidade : 0;
+    }
+
+    /**
+     * Registra que categorias foram incluídas, alteradas ou excluídas na transação atual.
+     * As categorias em cache são descartadas imediatamente e novamente após o commit.
+     */
+    public void registrarAlteracao() {
+        invalidarCategorias();
+        UnidadeDeTrabalho.aposConfirmar(this::invalidarCategorias);
+    }
+
+    /**
+     * Registra que produtos foram incluídos, alterados ou excluídos na transação atual.
+     * As quantidades em cache são descartadas imediatamente e novamente após o commit.
+     */
+    public void registrarAlteracaoProdutos() {
+        invalidarQuantidades();
+        UnidadeDeTrabalho.aposConfirmar(this::invalidarQuantidades);
+    }
+
+    /**
+     * Descarta as categorias em cache.
+     */
+    public synchronized void invalidarCategorias() {
+        versaoCategorias.incrementAndGet();
+        categorias = null;
+    }
+
+    /**
+     * Descarta as quantidades de produtos em cache.
+     */
+    public synchronized void invalidarQuantidades() {
+        versaoQuantidades.incrementAndGet();
+        quantidades = null;
+    }
+
+    private Map<Integer, Categoria> categorias(Supplier<List<Categoria>> carregador) {
+        Carga<Map<Integer, Categoria>> atual = categorias;
+        if (ativo && atual != null && !expirado(atual.carregadaEm)) {
+            UnidadeDeTrabalho.registrarVersaoEmMemoria(atual.versaoCarregada);
+            return atual.valor;
+        }
+        long versaoInicial = versaoCategorias.get();
+        long versaoCarregada = versaoParaCarga(versaoCategorias, versaoInicial);
+        List<Categoria> lista = carregador.get();
+        Map<Integer, Categoria> porId = new LinkedHashMap<>(lista.size() * 4 / 3 + 1);
+        for (Categoria c : lista) {
+            porId.put(c.getId(), c);
+        }
+        if (ativo && podePopular(versaoCategorias, versaoInicial)) {
+            synchronized (this) {
+                if (versaoCategorias.get() == versaoInicial) {
+                    categorias = new Carga<>(porId, versaoCarregada);
+                }
+            }
+        }
+        return porId;
+    }
+
+    private boolean podePopular(AtomicLong versao, long versaoInicial) {
+        return versao.get() == versaoInicial && !UnidadeDeTrabalho.possuiAlteracoesPendentes();
+    }
+
+    /**
+     * Lê a versão atual do catálogo antes de uma carga que poderá ser guardada.
+     *
+     * @return Versão atual ou 0 se a carga não for guardada.
+     */
+    private long versaoParaCarga(AtomicLong versao, long versaoInicial) {
+        return ativo && podePopular(versao, versaoInicial) ? VersaoAlteracao.consultar() : 0;
+    }
+
+    private boolean expirado(long carregadaEm) {
+        return ttlMs > 0 && System.currentTimeMillis() - carregadaEm > ttlMs;
+    }
+
+    private static Categoria copiar(Categoria c) {
+        return new Categoria(c.getId(), c.getNome(), c.getTamanho(), c.getEmbalagem());
+    }
+
+    /**
+     * Conteúdo carregado em um dado instante.
+     */
+    private static final class Carga<T> {
+        private final T valor;
+        private final long versaoCarregada;
+        private final long carregadaEm = System.currentTimeMillis();
+
+        private Carga(T valor, long versaoCarregada) {
+            this.valor = valor;
+            this.versaoCarregada = versaoCarregada;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package dao;
+
+/**
+ * Cache em memória do catálogo de produtos, usado pelo {@link ProdutoDAO} (read-through).
+ * Guarda o catálogo completo na ordem por nome, com acesso por id, e também produtos
+ * buscados individualmente (LRU) quando o catálogo completo ainda não foi carregado.
+ *
+ * O cache é invalidado nas escritas de produto e categoria e tem a quantidade em estoque
+ * atualizada nas movimentações, sempre depois do commit (ver
+ * {@link UnidadeDeTrabalho#aposConfirmar(Runnable)}). Cada quantidade vem com a versão de
+ * alteração da movimentação, e as versões seguem a ordem dos commits: uma quantidade só é
+ * aplicada se for de versão maior que a do produto em cache, de modo que atualizações de
+ * movimentações concorrentes executadas fora de ordem não deixam uma quantidade antiga. Leituras feitas por uma transação que
+ * já alterou dados ainda não confirmados não populam o cache. O tempo de vida (TTL) limita
+ * quanto tempo alterações feitas por outros processos (ex.: a aplicação desktop) levam
+ * para aparecer.
+ *
+ * Os produtos entregues são sempre cópias, de modo que os chamadores podem alterá-los
+ * livremente sem afetar o cache.
+ *
+ * Cada carga guarda a versão de alteração do catálogo lida logo antes dela, e cada acerto a
+ * registra na unidade de trabalho ({@link UnidadeDeTrabalho#registrarVersaoEmMemoria(long)}),
+ * para que a ETag das respostas não seja mais nova que os produtos entregues. No catálogo
+ * completo essa versão avança com as movimentações aplicadas depois da carga
+ * ({@link VersaoConteudo}), para que os clientes que revalidam recebam 304 enquanto nada
+ * mais mudar.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.cache.produtos.ativo          (padrão true)
+ * - estoque.cache.produtos.ttlMs          (padrão 30000)
+ * - estoque.cache.produtos.tamanhoMaximo  (padrão 200000; catálogos maiores não são guardados inteiros)
+ */
+import modelo.Produto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+public final class CacheProdutos {
+
+    private static final CacheProdutos INSTANCIA = new CacheProdutos();
+
+    private final boolean ativo;
+    private final long ttlMs;
+    private final int tamanhoMaximo;
+
+    /** Catálogo completo em ordem de nome; null quando não carregado ou invalidado. */
+    private volatile Catalogo catalogo;
+    /** Produtos buscados individualmente, em ordem de acesso (LRU). */
+    private final LinkedHashMap<Integer, Entrada> porId = new LinkedHashMap<>(64, 0.75f, true);
+    /** Incrementada a cada alteração para descartar cargas concorrentes com ela. */
+    private final AtomicLong versao = new AtomicLong();
+
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private final AtomicLong remocoes = new AtomicLong();
+    private final AtomicLong invalidacoes = new AtomicLong();
+
+    private CacheProdutos() {
+        ativo = Configuracao.getBoolean("estoque.cache.produtos.ativo", true);
+        ttlMs = Configuracao.getLong("estoque.cache.produtos.ttlMs", 30000);
+        tamanhoMaximo = Math.max(1, Configuracao.getInt("estoque.cache.produtos.tamanhoMaximo", 200000));
+    }
+
+    /**
+     * Retorna a instância única do cache.
+     *
+     * @return Cache de produtos da aplicação.
+     */
+    public static CacheProdutos getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Lista todos os produtos em ordem de nome, carregando-os com o carregador em caso de falha.
+     *
+     * @param carregador Consulta ao banco usada quando o catálogo não está em cache.
+     * @return Nova lista com cópias dos produtos.
+     */
+    public List<Produto> listarTodos(Supplier<List<Produto>> carregador) {
+        Catalogo atual = catalogo;
+        if (ativo && atual != null && !expirado(atual.carregadoEm)) {
+            acertos.incrementAndGet();
+            UnidadeDeTrabalho.registrarVersaoEmMemoria(atual.conteudo.get());
+            return copiar(atual.produtos.values());
+        }
+        falhas.incrementAndGet();
+
+        long versaoInicial = versao.get();
+        long versaoCarregada = versaoParaCarga(versaoInicial);
+        List<Produto> lista = carregador.get();
+        if (ativo && lista.size() <= tamanhoMaximo && podePopular(versaoInicial)) {
+            Map<Integer, Produto> produtos = new LinkedHashMap<>(lista.size() * 4 / 3 + 1);
+            for (Produto p : lista) {
+                produtos.put(p.getId(), copiar(p));
+            }
+            synchronized (this) {
+                if (versao.get() == versaoInicial) {
+                    catalogo = new Catalogo(produtos, versaoCarregada);
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Busca um produto pelo id, carregando-o com o carregador em caso de falha.
+     *
+     * @param id         Identificador do produto.
+     * @param carregador Consulta ao banco usada quando o produto não está em cache.
+     * @return Cópia do produto ou null se não existir.
+     */
+    public Produto buscarPorId(int id, IntFunction<Produto> carregador) {
+        if (ativo) {
+            Catalogo atual = catalogo;
+            if (atual != null && !expirado(atual.carregadoEm)) {
+                acertos.incrementAndGet();
+                UnidadeDeTrabalho.registrarVersaoEmMemoria(atual.conteudo.get());
+                Produto p = atual.produtos.get(id);
+                return p != null ? copiar(p) : null;
+            }
+            synchronized (this) {
+                Entrada entrada = porId.get(id);
+                if (entrada != null && !expirado(entrada.carregadoEm)) {
+                    acertos.incrementAndGet();
+                    UnidadeDeTrabalho.registrarVersaoEmMemoria(entrada.versaoCarregada);
+                    return copiar(entrada.produto);
+                }
+            }
+        }
+        falhas.incrementAndGet();
+
+        long versaoInicial = versao.get();
+        long versaoCarregada = versaoParaCarga(versaoInicial);
+        Produto produto = carregador.apply(id);
+        if (ativo && produto != null && podePopular(versaoInicial)) {
+            synchronized (this) {
+                if (versao.get() == versaoInicial) {
+                    porId.put(id, new Entrada(copiar(produto), versaoCarregada));
+                    removerExcedentes();
+                }
+            }
+        }
+        return produto;
+    }
+
+    /**
+     * Busca vários produtos pelo id. Os que não estão em cache são carregados com uma única
+     * chamada ao carregador e guardados individualmente.
+     *
+     * @param ids        Identificadores dos produtos, sem repetição.
+     * @param carregador Consulta ao banco dos ids ausentes do cache.
+     * @return Cópias dos produtos encontrados, por id (ids inexistentes ficam de fora).
+     */
+    public Map<Integer, Produto> buscarPorIds(Collection<Integer> ids, Function<Collection<Integer>, List<Produto>> carregador) {
+        Map<Integer, Produto> encontrados = new HashMap<>(ids.size() * 4 / 3 + 1);
+        List<Integer> ausentes = new ArrayList<>();
+        Catalogo atual = ativo ? catalogo : null;
+        if (atual != null && !expirado(atual.carregadoEm)) {
+            acertos.addAndGet(ids.size());
+            UnidadeDeTrabalho.registrarVersaoEmMemoria(atual.conteudo.get());
+            for (Integer id : ids) {
+                Produto p = atual.produtos.get(id);
+                if (p != null) {
+                    encontrados.put(id, copiar(p));
+                }
+            }
+            return encontrados;
+        }
+        if (ativo) {
+            synchronized (this) {
+                for (Integer id : ids) {
+                    Entrada entrada = porId.get(id);
+                    if (entrada != null && !expirado(entrada.carregadoEm)) {
+                        UnidadeDeTrabalho.registrarVersaoEmMemoria(entrada.versaoCarregada);
+                        encontrados.put(id, copiar(entrada.produto));
+                    } else {
+                        ausentes.add(id);
+                    }
+                }
+            }
+            acertos.addAndGet(encontrados.size());
+        } else {
+            ausentes.addAll(ids);
+        }
+        if (ausentes.isEmpty()) {
+            return encontrados;
+        }
+        falhas.addAndGet(ausentes.size());
+
+        long versaoInicial = versao.get();
+        long versaoCarregada = versaoParaCarga(versaoInicial);
+        List<Produto> carregados = carregador.apply(ausentes);
+        for (Produto p : carregados) {
+            encontrados.put(p.getId(), p);
+        }
+        if (ativo && !carregados.isEmpty() && podePopular(versaoInicial)) {
+            synchronized (this) {
+                if (versao.get() == versaoInicial) {
+                    for (Produto p : carregados) {
+                        porId.put(p.getId(), new Entrada(copiar(p), versaoCarregada));
+                    }
+                    removerExcedentes();
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Registra que produtos foram incluídos, alterados ou excluídos na transação atual.
+     * O cache é invalidado imediatamente e novamente após o commit.
+     */
+    public void registrarAlteracao() {
+        invalidar();
+        UnidadeDeTrabalho.aposConfirmar(this::invalidar);
+    }
+
+    /**
+     * Registra a nova quantidade em estoque de um produto após uma movimentação.
+     * O valor é aplicado ao cache após o commit da transação atual.
+     *
+     * @param produtoId  Identificador do produto.
+     * @param quantidade Quantidade em estoque após a movimentação.
+     * @param versao     Versão de alteração da movimentação.
+     */
+    public void registrarQuantidade(int produtoId, int quantidade, long versao) {
+        registrarQuantidades(Collections.singletonMap(produtoId, quantidade), versao);
+    }
+
+    /**
+     * Registra as novas quantidades em estoque de produtos movimentados com a mesma versão.
+     * Os valores são aplicados ao cache juntos, após o commit da transação atual.
+     *
+     * @param quantidades Quantidade em estoque após a movimentação, por id do produto.
+     * @param versao      Versão de alteração das movimentações.
+     */
+    public void registrarQuantidades(Map<Integer, Integer> quantidades, long versao) {
+        this.versao.incrementAndGet();
+        UnidadeDeTrabalho.aposConfirmar(() -> atualizarQuantidades(quantidades, versao));
+    }
+
+    /**
+     * Registra uma escrita da transação atual que não altera os produtos em cache
+     * (ex.: inclusão de categoria), para que a versão do catálogo em cache possa avançar.
+     *
+     * @param versao Versão de alteração da escrita.
+     */
+    public void registrarVersao(long versao) {
+        UnidadeDeTrabalho.aposConfirmar(() -> atualizarQuantidades(Collections.emptyMap(), versao));
+    }
+
+    /**
+     * Descarta todo o conteúdo do cache.
+     */
+    public synchronized void invalidar() {
+        versao.incrementAndGet();
+        invalidacoes.incrementAndGet();
+        catalogo = null;
+        porId.clear();
+    }
+
+    /**
+     * Atualiza a quantidade em estoque de um produto em cache, se presente e se a versão
+     * informada for mais nova que a da quantidade em cache.
+     *
+     * @param produtoId  Identificador do produto.
+     * @param quantidade Quantidade em estoque.
+     * @param versao     Versão de alteração em que a quantidade foi confirmada.
+     */
+    public void atualizarQuantidade(int produtoId, int quantidade, long versao) {
+        atualizarQuantidades(Collections.singletonMap(produtoId, quantidade), versao);
+    }
+
+    /**
+     * Atualiza as quantidades em estoque de produtos em cache confirmadas com a mesma versão.
+     * Cada quantidade só é aplicada se a versão for mais nova que a da quantidade em cache;
+     * depois de todas aplicadas, a versão do catálogo em cache pode avançar.
+     *
+     * @param quantidades Quantidade em estoque, por id do produto.
+     * @param versao      Versão de alteração em que as quantidades foram confirmadas.
+     */
+    public synchronized void atualizarQuantidades(Map<Integer, Integer> quantidades, long versao) {
+        this.versao.incrementAndGet();
+        Catalogo atual = catalogo;
+        for (Map.Entry<Integer, Integer> e : quantidades.entrySet()) {
+            int produtoId = e.getKey();
+            if (atual != null) {
+                Produto p = atual.produtos.get(produtoId);
+                Long aplicada = atual.versoesQuantidade.get(produtoId);
+                if (p != null && versao > Math.max(atual.versaoCarregada, aplicada != null ? aplicada : 0)) {
+                    p.setQuantidadeEstoque(e.getValue());
+                    atual.versoesQuantidade.put(produtoId, versao);
+                }
+            }
+            Entrada entrada = porId.get(produtoId);
+            if (entrada != null && versao > entrada.versaoQuantidade) {
+                entrada.produto.setQuantidadeEstoque(e.getValue());
+                entrada.versaoQuantidade = versao;
+            }
+        }
+        if (atual != null) {
+            atual.conteudo.aplicada(versao);
+        }
+    }
+
+    /**
+     * Retorna um retrato das estatísticas do cache.
+     *
+     * @return Estatísticas de uso do cache.
+     */
+    public synchronized Estatisticas getEstatisticas() {
+        Catalogo atual = catalogo;
+        return new Estatisticas(acertos.get(), falhas.get(), remocoes.get(), invalidacoes.get(),
+                atual != null ? atual.produtos.size() : 0, porId.size(), tamanhoMaximo);
+    }
+
+    private boolean podePopular(long versaoInicial) {
+        return versao.get() == versaoInicial && !UnidadeDeTrabalho.possuiAlteracoesPendentes();
+    }
+
+    /**
+     * Lê a versão atual do catálogo antes de uma carga que poderá ser guardada.
+     *
+     * @return Versão atual ou 0 se a carga não for guardada.
+     */
+    private long versaoParaCarga(long versaoInicial) {
+        return ativo && podePopular(versaoInicial) ? VersaoAlteracao.consultar() : 0;
+    }
+
+    private boolean expirado(long carregadoEm) {
+        return ttlMs > 0 && System.currentTimeMillis() - carregadoEm > ttlMs;
+    }
+
+    private void removerExcedentes() {
+        Iterator<Entrada> it = porId.values().iterator();
+        while (porId.size() > tamanhoMaximo && it.hasNext()) {
+            it.next();
+            it.remove();
+            remocoes.incrementAndGet();
+        }
+    }
+
+    private static List<Produto> copiar(Collection<Produto> produtos) {
+        List<Produto> lista = new ArrayList<>(produtos.size());
+        for (Produto p : produtos) {
+            lista.add(copiar(p));
+        }
+        return lista;
+    }
+
+    private static Produto copiar(Produto p) {
+        return new Produto(p.getId(), p.getNome(), p.getPrecoUnitario(), p.getUnidade(), p.getQuantidadeEstoque(),
+                p.getQuantidadeMinima(), p.getQuantidadeMaxima(), p.getCategoria());
+    }
+
+    /**
+     * Catálogo completo carregado em um dado instante.
+     */
+    private static final class Catalogo {
+        private final Map<Integer, Produto> produtos;
+        private final long versaoCarregada;
+        /** Versão refletida pelo catálogo: a da carga, avançada pelas movimentações aplicadas. */
+        private final VersaoConteudo conteudo;
+        /** Versão da última quantidade aplicada a cada produto depois da carga. */
+        private final Map<Integer, Long> versoesQuantidade = new HashMap<>();
+        private final long carregadoEm = System.currentTimeMillis();
+
+        private Catalogo(Map<Integer, Produto> produtos, long versaoCarregada) {
+            this.produtos = produtos;
+            this.versaoCarregada = versaoCarregada;
+            this.conteudo = new VersaoConteudo(versaoCarregada);
+        }
+    }
+
+    /**
+     * Produto guardado individualmente.
+     */
+    private static final class Entrada {
+        private final Produto produto;
+        private final long versaoCarregada;
+        /** Versão da quantidade em cache: a da carga ou a da última quantidade aplicada. */
+        private long versaoQuantidade;
+        private final long carregadoEm = System.currentTimeMillis();
+
+        private Entrada(Produto produto, long versaoCarregada) {
+            this.produto = produto;
+            this.versaoCarregada = versaoCarregada;
+            this.versaoQuantidade = versaoCarregada;
+        }
+    }
+
+    /**
+     * Retrato imutável das estatísticas do cache em um dado instante.
+     */
+    public static final class Estatisticas {
+        private final long acertos;
+        private final long falhas;
+        private final long remocoes;
+        private final long invalidacoes;
+        private final int produtosNoCatalogo;
+        private final int produtosIndividuais;
+        private final int tamanhoMaximo;
+
+        private Estatisticas(long acertos, long falhas, long remocoes, long invalidacoes,
+                             int produtosNoCatalogo, int produtosIndividuais, int tamanhoMaximo) {
+            this.acertos = acertos;
+            this.falhas = falhas;
+            this.remocoes = remocoes;
+            this.invalidacoes = invalidacoes;
+            this.produtosNoCatalogo = produtosNoCatalogo;
+            this.produtosIndividuais = produtosIndividuais;
+            this.tamanhoMaximo = tamanhoMaximo;
+        }
+
+        /** @return Leituras atendidas pelo cache. */
+        public long getAcertos() { return acertos; }
+
+        /** @return Leituras que precisaram consultar o banco. */
+        public long getFalhas() { return falhas; }
+
+        /** @return Produtos individuais removidos por excesso de tamanho (LRU). */
+        public long getRemocoes() { return remocoes; }
+
+        /** @return Invalidações completas do cache. */
+        public long getInvalidacoes() { return invalidacoes; }
+
+        /** @return Produtos no catálogo completo em cache (0 se não carregado). */
+        public int getProdutosNoCatalogo() { return produtosNoCatalogo; }
+
+        /** @return Produtos guardados individualmente. */
+        public int getProdutosIndividuais() { return produtosIndividuais; }
+
+        /** @return Tamanho máximo configurado. */
+        public int getTamanhoMaximo() { return tamanhoMaximo; }
+
+        /** @return Proporção de acertos sobre o total de leituras. */
+        public double getTaxaAcerto() {
+            long total = acertos + falhas;
+            return total == 0 ? 0 : (double) acertos / total;
+        }
+    }
+}
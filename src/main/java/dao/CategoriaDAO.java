@@ -2,132 +2,231 @@ package dao;
 
 /**
  * Classe responsável pelas operações CRUD da tabela categoria no banco de dados.
+ * As leituras de categorias e da quantidade de produtos por categoria são atendidas pelo
+ * {@link CacheCategorias}; a verificação de produtos vinculados feita antes de excluir uma
+ * categoria consulta sempre o banco.
  * 
  * @author 
  */
 import modelo.Categoria;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CategoriaDAO {
 
     /**
      * Insere uma nova categoria no banco de dados.
+     * A linha recebe a próxima versão de alteração do catálogo, na mesma transação.
      *
      * @param categoria Objeto Categoria a ser inserido.
+     * @throws RuntimeException Se ocorrer erro ao inserir a categoria.
      */
     public void inserir(Categoria categoria) {
-        String sql = "INSERT INTO categoria (nome, tamanho, embalagem) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO categoria (nome, tamanho, embalagem, versao) VALUES (?, ?, ?, ?)";
 
-        Conexao conexao = new Conexao();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.inserir");
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, categoria.getNome());
-            stmt.setString(2, categoria.getTamanho());
-            stmt.setString(3, categoria.getEmbalagem());
-            stmt.executeUpdate();
-            stmt.close();
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, categoria.getNome());
+                    stmt.setString(2, categoria.getTamanho());
+                    stmt.setString(3, categoria.getEmbalagem());
+                    stmt.setLong(4, versao);
+                    medicao.adicionarLinhas(stmt.executeUpdate());
+                    stmt.close();
+                    CacheCategorias.getInstancia().registrarAlteracao();
+                    // Não altera os produtos nem os totais, mas consome uma versão
+                    CacheProdutos.getInstancia().registrarVersao(versao);
+                    AgregadosEstoque.getInstancia().registrarVersao(versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao inserir categoria.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
      * Atualiza os dados de uma categoria existente no banco de dados.
+     * A linha recebe a próxima versão de alteração do catálogo, o que faz os produtos da
+     * categoria serem reenviados na sincronização incremental.
      *
      * @param categoria Objeto Categoria com os dados atualizados.
+     * @throws RuntimeException Se ocorrer erro ao atualizar a categoria.
      */
     public void atualizar(Categoria categoria) {
-        String sql = "UPDATE categoria SET nome=?, tamanho=?, embalagem=? WHERE id=?";
+        String sql = "UPDATE categoria SET nome=?, tamanho=?, embalagem=?, versao=? WHERE id=?";
 
-        Conexao conexao = new Conexao();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.atualizar");
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, categoria.getNome());
-            stmt.setString(2, categoria.getTamanho());
-            stmt.setString(3, categoria.getEmbalagem());
-            stmt.setInt(4, categoria.getId());
-            stmt.executeUpdate();
-            stmt.close();
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, categoria.getNome());
+                    stmt.setString(2, categoria.getTamanho());
+                    stmt.setString(3, categoria.getEmbalagem());
+                    stmt.setLong(4, versao);
+                    stmt.setInt(5, categoria.getId());
+                    medicao.adicionarLinhas(stmt.executeUpdate());
+                    stmt.close();
+                    // Os produtos em cache carregam os dados da categoria
+                    CacheCategorias.getInstancia().registrarAlteracao();
+                    CacheProdutos.getInstancia().registrarAlteracao();
+                    IndiceBuscaProdutos.getInstancia().registrarAlteracao();
+                    AgregadosEstoque.getInstancia().registrarVersao(versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao atualizar categoria.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
      * Exclui uma categoria do banco de dados pelo seu ID.
+     * A exclusão avança a versão de alteração do catálogo, que identifica as respostas da API
+     * (ETag) que dependem das categorias.
      *
      * @param id Identificador da categoria a ser excluída.
+     * @throws IllegalStateException Se a categoria possuir produtos vinculados (chave estrangeira).
+     * @throws RuntimeException      Se ocorrer outro erro ao excluir.
      */
     public void excluir(int id) {
         String sql = "DELETE FROM categoria WHERE id=?";
 
-        Conexao conexao = new Conexao();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.excluir");
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
-            stmt.close();
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement(sql);
+                    stmt.setInt(1, id);
+                    medicao.adicionarLinhas(stmt.executeUpdate());
+                    stmt.close();
+                    // Os produtos em cache carregam os dados da categoria
+                    CacheCategorias.getInstancia().registrarAlteracao();
+                    CacheProdutos.getInstancia().registrarAlteracao();
+                    IndiceBuscaProdutos.getInstancia().registrarAlteracao();
+                    AgregadosEstoque.getInstancia().registrarVersao(versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            // Classe 23: violação de integridade (produto_ibfk_1)
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                throw new IllegalStateException("Não é possível excluir a categoria: existem produtos vinculados.", e);
+            }
+            throw new RuntimeException("Erro ao excluir categoria.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
-     * Busca uma categoria no banco de dados pelo seu ID.
+     * Busca uma categoria pelo seu ID.
+     * A consulta é atendida pelo {@link CacheCategorias}, que carrega todas as categorias de uma vez.
      *
      * @param id Identificador da categoria.
      * @return Objeto Categoria encontrado ou null se não existir.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco de dados.
      */
     public Categoria buscarPorId(int id) {
-        String sql = "SELECT * FROM categoria WHERE id=?";
-        Categoria categoria = null;
+        return CacheCategorias.getInstancia().buscarPorId(id, this::consultarTodas);
+    }
+
+    /**
+     * Lista todas as categorias cadastradas, em ordem de nome.
+     * A consulta é atendida pelo {@link CacheCategorias} quando possível.
+     *
+     * @return Lista de objetos Categoria.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco de dados.
+     */
+    public List<Categoria> listarTodas() {
+        return CacheCategorias.getInstancia().listarTodas(this::consultarTodas);
+    }
+
+    /**
+     * Retorna a quantidade de produtos vinculados a uma categoria, para exibição em listagens.
+     * A consulta é atendida pelo {@link CacheCategorias} quando possível, e por isso pode
+     * estar defasada; antes de excluir uma categoria use {@link #possuiProdutos(int)}.
+     *
+     * @param categoriaId Identificador da categoria.
+     * @return Quantidade de produtos da categoria.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco de dados.
+     */
+    public int contarProdutos(int categoriaId) {
+        return CacheCategorias.getInstancia().contarProdutos(categoriaId, this::consultarQuantidadesProdutos);
+    }
+
+    /**
+     * Verifica no banco de dados se uma categoria possui produtos vinculados.
+     * Não passa pelo cache: é a verificação feita antes de excluir a categoria.
+     *
+     * @param categoriaId Identificador da categoria.
+     * @return true se houver ao menos um produto na categoria.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco de dados.
+     */
+    public boolean possuiProdutos(int categoriaId) {
+        String sql = "SELECT 1 FROM produto WHERE categoria_id = ? LIMIT 1";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.possuiProdutos");
         Conexao conexao = new Conexao();
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
+            PreparedStatement stmt = conexao.getConexao().prepareStatement(sql);
+            stmt.setInt(1, categoriaId);
             ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                categoria = new Categoria();
-                categoria.setId(rs.getInt("id"));
-                categoria.setNome(rs.getString("nome"));
-                categoria.setTamanho(rs.getString("tamanho"));
-                categoria.setEmbalagem(rs.getString("embalagem"));
-            }
-
+            boolean possui = rs.next();
             rs.close();
             stmt.close();
+            return possui;
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao verificar produtos da categoria.", e);
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
-
-        return categoria;
     }
 
     /**
-     * Lista todas as categorias cadastradas no banco de dados.
+     * Consulta no banco de dados todas as categorias cadastradas, em ordem de nome.
      *
      * @return Lista de objetos Categoria.
      */
-    public List<Categoria> listarTodas() {
+    private List<Categoria> consultarTodas() {
         String sql = "SELECT * FROM categoria ORDER BY nome";
         List<Categoria> lista = new ArrayList<>();
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.listarTodas");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
@@ -141,16 +240,56 @@ public class CategoriaDAO {
                 categoria.setTamanho(rs.getString("tamanho"));
                 categoria.setEmbalagem(rs.getString("embalagem"));
                 lista.add(categoria);
+                medicao.adicionarLinhas(1);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            // Uma lista incompleta não pode ficar no cache
+            throw new RuntimeException("Erro ao listar categorias.", e);
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
     }
+
+    /**
+     * Consulta no banco de dados a quantidade de produtos de cada categoria.
+     *
+     * @return Quantidade de produtos por id de categoria (categorias sem produtos ficam de fora).
+     */
+    private Map<Integer, Integer> consultarQuantidadesProdutos() {
+        String sql = "SELECT categoria_id, COUNT(*) FROM produto GROUP BY categoria_id";
+        Map<Integer, Integer> quantidades = new HashMap<>();
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("CategoriaDAO.contarProdutos");
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery(sql);
+
+            while (rs.next()) {
+                quantidades.put(rs.getInt(1), rs.getInt(2));
+                medicao.adicionarLinhas(1);
+            }
+
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao contar produtos por categoria.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+
+        return quantidades;
+    }
 }
@@ -2,34 +2,40 @@ package dao;
 
 /**
  * Classe responsável por fornecer a conexão com o banco de dados MySQL.
- * A conexão é criada ao instanciar a classe.
- * 
+ * A conexão é obtida do {@link PoolConexoes} ao instanciar a classe e devolvida
+ * ao pool em {@link #fecharConexao()}.
+ *
+ * Se houver uma {@link UnidadeDeTrabalho} aberta na thread atual, a conexão da unidade
+ * é reutilizada e {@link #fecharConexao()} não a devolve; a unidade é quem decide
+ * quando confirmar a transação e liberar a conexão.
+ *
  * É necessário instanciar essa classe para obter uma conexão.
- * 
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.db.tamanhoLoteStreaming  (padrão 0: automático, ver {@link #prepararConsultaSequencial(String)})
+ *
  * @author Marcos Antonio Gasperin
  */
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class Conexao {
-    private final String URL = "jdbc:mysql://localhost:3306/controle_estoque";
-    private final String USUARIO = "root";
-    private final String SENHA = "";
+
+    private static final int TAMANHO_LOTE_STREAMING = Configuracao.getInt("estoque.db.tamanhoLoteStreaming", 0);
 
     private Connection conexao;
+    private final boolean participante;
 
     /**
-     * Construtor que estabelece a conexão com o banco de dados.
+     * Construtor que obtém uma conexão da unidade de trabalho atual ou do pool.
      */
     public Conexao() {
+        UnidadeDeTrabalho unidade = UnidadeDeTrabalho.atual();
+        participante = unidade != null;
         try {
-            // Carrega o driver JDBC do MySQL
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            conexao = DriverManager.getConnection(URL, USUARIO, SENHA);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Driver MySQL não encontrado.");
+            conexao = participante ? unidade.getConexao() : PoolConexoes.getInstancia().emprestar();
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Erro ao conectar com o banco de dados.");
@@ -38,7 +44,7 @@ public class Conexao {
 
     /**
      * Retorna a conexão ativa.
-     * 
+     *
      * @return Connection Conexão ativa com o banco de dados.
      */
     public Connection getConexao() {
@@ -46,15 +52,36 @@ public class Conexao {
     }
 
     /**
-     * Fecha a conexão com o banco de dados.
+     * Prepara uma consulta somente leitura e sequencial (forward-only) cujas linhas são
+     * trazidas do servidor aos poucos, em vez de todas carregadas na memória ao executar.
+     * No MySQL, o padrão é o modo streaming do driver (uma linha por vez); com
+     * useCursorFetch=true na URL, um estoque.db.tamanhoLoteStreaming positivo busca as
+     * linhas em lotes por cursor no servidor. Em outros bancos o padrão são lotes de 1000.
+     *
+     * Enquanto o ResultSet estiver aberto, a conexão não pode executar outros comandos.
+     *
+     * @param sql Consulta a preparar.
+     * @return PreparedStatement configurado para leitura sequencial.
+     * @throws SQLException Se ocorrer erro ao preparar a consulta.
+     */
+    public PreparedStatement prepararConsultaSequencial(String sql) throws SQLException {
+        PreparedStatement stmt = conexao.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        int tamanhoLote = TAMANHO_LOTE_STREAMING;
+        if (tamanhoLote == 0) {
+            tamanhoLote = conexao.getMetaData().getURL().startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 1000;
+        }
+        stmt.setFetchSize(tamanhoLote);
+        return stmt;
+    }
+
+    /**
+     * Devolve a conexão ao pool. Chamadas repetidas não têm efeito, e conexões
+     * pertencentes a uma unidade de trabalho permanecem com a unidade.
      */
     public void fecharConexao() {
-        try {
-            if (conexao != null && !conexao.isClosed()) {
-                conexao.close();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (conexao != null && !participante) {
+            PoolConexoes.getInstancia().devolver(conexao);
         }
+        conexao = null;
     }
 }
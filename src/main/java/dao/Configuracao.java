@@ -0,0 +1,93 @@
+package dao;
+
+/**
+ * Classe responsável por fornecer os parâmetros de configuração do sistema.
+ * Os valores são lidos, nesta ordem, das propriedades de sistema da JVM
+ * (ex.: -Destoque.pool.tamanhoMaximo=20) e do arquivo controle-estoque.properties
+ * presente no classpath. Se a chave não for encontrada, o valor padrão é utilizado.
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public final class Configuracao {
+
+    private static final String ARQUIVO = "controle-estoque.properties";
+    private static final Properties PROPRIEDADES = carregarArquivo();
+
+    private Configuracao() {
+    }
+
+    /**
+     * Carrega o arquivo de propriedades do classpath, se existir.
+     *
+     * @return Propriedades lidas do arquivo (vazio se o arquivo não existir).
+     */
+    private static Properties carregarArquivo() {
+        Properties props = new Properties();
+        try (InputStream in = Configuracao.class.getClassLoader().getResourceAsStream(ARQUIVO)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return props;
+    }
+
+    /**
+     * Retorna o valor textual de uma chave de configuração.
+     *
+     * @param chave  Nome da chave.
+     * @param padrao Valor usado quando a chave não está definida.
+     * @return Valor configurado ou o padrão.
+     */
+    public static String getString(String chave, String padrao) {
+        String valor = System.getProperty(chave);
+        if (valor == null) {
+            valor = PROPRIEDADES.getProperty(chave);
+        }
+        return valor != null ? valor.trim() : padrao;
+    }
+
+    /**
+     * Retorna o valor inteiro de uma chave de configuração.
+     *
+     * @param chave  Nome da chave.
+     * @param padrao Valor usado quando a chave não está definida ou é inválida.
+     * @return Valor configurado ou o padrão.
+     */
+    public static int getInt(String chave, int padrao) {
+        try {
+            return Integer.parseInt(getString(chave, String.valueOf(padrao)));
+        } catch (NumberFormatException e) {
+            return padrao;
+        }
+    }
+
+    /**
+     * Retorna o valor inteiro longo de uma chave de configuração.
+     *
+     * @param chave  Nome da chave.
+     * @param padrao Valor usado quando a chave não está definida ou é inválida.
+     * @return Valor configurado ou o padrão.
+     */
+    public static long getLong(String chave, long padrao) {
+        try {
+            return Long.parseLong(getString(chave, String.valueOf(padrao)));
+        } catch (NumberFormatException e) {
+            return padrao;
+        }
+    }
+
+    /**
+     * Retorna o valor lógico de uma chave de configuração.
+     *
+     * @param chave  Nome da chave.
+     * @param padrao Valor usado quando a chave não está definida.
+     * @return Valor configurado ou o padrão.
+     */
+    public static boolean getBoolean(String chave, boolean padrao) {
+        return Boolean.parseBoolean(getString(chave, String.valueOf(padrao)));
+    }
+}
@@ -0,0 +1,39 @@
+package dao;
+
+/**
+ * Exceção lançada quando uma saída de estoque deixaria a quantidade do produto negativa.
+ * Informa a quantidade disponível no momento da tentativa.
+ */
+public class EstoqueInsuficienteException extends RuntimeException {
+
+    private final int produtoId;
+    private final int disponivel;
+
+    /**
+     * Construtor da exceção.
+     *
+     * @param produtoId  Identificador do produto.
+     * @param disponivel Quantidade disponível em estoque.
+     */
+    public EstoqueInsuficienteException(int produtoId, int disponivel) {
+        super("Estoque insuficiente. Disponível: " + disponivel);
+        this.produtoId = produtoId;
+        this.disponivel = disponivel;
+    }
+
+    /**
+     * Retorna o id do produto sem estoque suficiente.
+     * @return produtoId
+     */
+    public int getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * Retorna a quantidade disponível em estoque.
+     * @return disponivel
+     */
+    public int getDisponivel() {
+        return disponivel;
+    }
+}
@@ -0,0 +1,80 @@
+package dao;
+
+/**
+ * Critérios de consulta do histórico de movimentações, usados por
+ * {@link MovimentacaoDAO#listarPagina(FiltroMovimentacao, String, int)}.
+ * Critérios não informados (null) não restringem a consulta.
+ */
+import java.time.LocalDateTime;
+
+public class FiltroMovimentacao {
+
+    private Integer produtoId;
+    private String tipo;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+
+    /**
+     * Retorna o produto das movimentações.
+     * @return ID do produto ou null para todos.
+     */
+    public Integer getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * Define o produto das movimentações.
+     * @param produtoId ID do produto ou null para todos.
+     */
+    public void setProdutoId(Integer produtoId) {
+        this.produtoId = produtoId;
+    }
+
+    /**
+     * Retorna o tipo das movimentações.
+     * @return "ENTRADA", "SAIDA" ou null para ambos.
+     */
+    public String getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Define o tipo das movimentações.
+     * @param tipo "ENTRADA", "SAIDA" ou null para ambos.
+     */
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Retorna o início do período (inclusive).
+     * @return Data/hora inicial ou null.
+     */
+    public LocalDateTime getDataInicio() {
+        return dataInicio;
+    }
+
+    /**
+     * Define o início do período (inclusive).
+     * @param dataInicio Data/hora inicial ou null.
+     */
+    public void setDataInicio(LocalDateTime dataInicio) {
+        this.dataInicio = dataInicio;
+    }
+
+    /**
+     * Retorna o fim do período (exclusive).
+     * @return Data/hora final ou null.
+     */
+    public LocalDateTime getDataFim() {
+        return dataFim;
+    }
+
+    /**
+     * Define o fim do período (exclusive).
+     * @param dataFim Data/hora final ou null.
+     */
+    public void setDataFim(LocalDateTime dataFim) {
+        this.dataFim = dataFim;
+    }
+}
@@ -0,0 +1,305 @@
+package dao;
+
+/**
+ * Importação em massa de produtos (ex.: catálogo de um fornecedor).
+ *
+ * Os produtos recebidos são validados e acumulados em memória até completar um lote, que é
+ * gravado com um único INSERT em lote JDBC e confirmado em seguida; no MySQL, com
+ * rewriteBatchedStatements=true na URL, o lote vai ao servidor como INSERTs de várias
+ * linhas. As categorias são lidas uma única vez, no início ({@link CacheCategorias}), para um
+ * mapa por id.
+ *
+ * A importação usa uma conexão própria do pool, fora da unidade de trabalho de quem chamou:
+ * cada lote é confirmado independentemente, de modo que uma falha no meio do arquivo mantém
+ * os lotes anteriores gravados. Se o lote for recusado pelo banco, ele é desfeito e
+ * regravado linha a linha, para que apenas as linhas com erro sejam recusadas.
+ *
+ * Cada lote recebe uma única versão de alteração ({@link VersaoAlteracao}), obtida logo
+ * antes da gravação para que o contador fique bloqueado só durante ela.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.importacao.tamanhoLote  (padrão 1000)
+ * - estoque.importacao.maxErros     (padrão 1000; erros além deste limite são só contados)
+ *
+ * Uso típico:
+ * <pre>
+ * try (ImportacaoProdutos importacao = new ImportacaoProdutos()) {
+ *     ... importacao.adicionar(linha, produto) ou importacao.recusar(linha, motivo) ...
+ *     ResultadoImportacao resultado = importacao.concluir();
+ * }
+ * </pre>
+ */
+import modelo.Categoria;
+import modelo.Produto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ImportacaoProdutos implements AutoCloseable {
+
+    private static final String SQL_INSERT = "INSERT INTO produto (nome, preco_unitario, unidade, quantidade, "
+            + "quantidade_minima, quantidade_maxima, categoria_id, versao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int TAMANHO_LOTE = Math.max(1, Configuracao.getInt("estoque.importacao.tamanhoLote", 1000));
+    private static final int MAX_ERROS = Math.max(0, Configuracao.getInt("estoque.importacao.maxErros", 1000));
+
+    private final Map<Integer, Categoria> categorias = new HashMap<>();
+    private final List<Produto> lote = new ArrayList<>(TAMANHO_LOTE);
+    private final List<Integer> linhasLote = new ArrayList<>(TAMANHO_LOTE);
+    private final List<ResultadoImportacao.Erro> erros = new ArrayList<>();
+
+    private Connection conexao;
+    private int linhasLidas;
+    private int inseridos;
+    private int recusados;
+
+    /**
+     * Inicia uma importação, carregando as categorias cadastradas.
+     */
+    public ImportacaoProdutos() {
+        for (Categoria c : new CategoriaDAO().listarTodas()) {
+            categorias.put(c.getId(), c);
+        }
+    }
+
+    /**
+     * Valida um produto e o acrescenta ao lote atual, gravando o lote quando ele estiver completo.
+     * A categoria do produto precisa ter apenas o id preenchido.
+     *
+     * @param linha   Número da linha no arquivo, usado no relatório de erros.
+     * @param produto Produto a importar.
+     * @throws RuntimeException Se ocorrer erro ao gravar o lote.
+     */
+    public void adicionar(int linha, Produto produto) {
+        linhasLidas++;
+        String erro = validar(produto);
+        if (erro != null) {
+            registrarErro(linha, erro);
+            return;
+        }
+        produto.setCategoria(categorias.get(produto.getCategoria().getId()));
+        lote.add(produto);
+        linhasLote.add(linha);
+        if (lote.size() >= TAMANHO_LOTE) {
+            gravarLote();
+        }
+    }
+
+    /**
+     * Recusa uma linha que não pôde ser lida (ex.: formato inválido).
+     *
+     * @param linha    Número da linha no arquivo.
+     * @param mensagem Motivo da recusa.
+     */
+    public void recusar(int linha, String mensagem) {
+        linhasLidas++;
+        registrarErro(linha, mensagem);
+    }
+
+    /**
+     * Grava o último lote e retorna o relatório da importação, com os erros em ordem de linha.
+     *
+     * @return Relatório com as quantidades e os erros.
+     * @throws RuntimeException Se ocorrer erro ao gravar o lote.
+     */
+    public ResultadoImportacao concluir() {
+        gravarLote();
+        // Erros do banco são conhecidos só na gravação do lote, depois dos de validação
+        erros.sort(Comparator.comparingInt(ResultadoImportacao.Erro::getLinha));
+        return new ResultadoImportacao(linhasLidas, inseridos, recusados, erros);
+    }
+
+    /**
+     * Devolve a conexão ao pool. O lote ainda não gravado é descartado.
+     */
+    @Override
+    public void close() {
+        lote.clear();
+        linhasLote.clear();
+        if (conexao != null) {
+            PoolConexoes.getInstancia().devolver(conexao);
+            conexao = null;
+        }
+    }
+
+    /**
+     * Retorna o motivo pelo qual o produto não pode ser importado ou null se ele for válido.
+     */
+    private String validar(Produto p) {
+        if (p.getNome() == null || p.getNome().trim().isEmpty()) {
+            return "Nome obrigatório";
+        }
+        if (p.getNome().length() > 100) {
+            return "Nome com mais de 100 caracteres";
+        }
+        if (p.getUnidade() == null || p.getUnidade().trim().isEmpty()) {
+            return "Unidade obrigatória";
+        }
+        if (p.getUnidade().length() > 20) {
+            return "Unidade com mais de 20 caracteres";
+        }
+        if (p.getPrecoUnitario() < 0 || Double.isNaN(p.getPrecoUnitario()) || Double.isInfinite(p.getPrecoUnitario())) {
+            return "Preço unitário inválido: " + p.getPrecoUnitario();
+        }
+        if (p.getQuantidadeEstoque() < 0 || p.getQuantidadeMinima() < 0 || p.getQuantidadeMaxima() < 0) {
+            return "Quantidades não podem ser negativas";
+        }
+        if (p.getQuantidadeMaxima() < p.getQuantidadeMinima()) {
+            return "Quantidade máxima menor que a mínima";
+        }
+        if (p.getCategoria() == null) {
+            return "Categoria obrigatória";
+        }
+        if (!categorias.containsKey(p.getCategoria().getId())) {
+            return "Categoria não encontrada: " + p.getCategoria().getId();
+        }
+        return null;
+    }
+
+    private void registrarErro(int linha, String mensagem) {
+        recusados++;
+        if (erros.size() < MAX_ERROS) {
+            erros.add(new ResultadoImportacao.Erro(linha, mensagem));
+        }
+    }
+
+    /**
+     * Grava e confirma o lote atual. Se o INSERT em lote falhar, o lote é desfeito e gravado
+     * novamente linha a linha, recusando apenas as linhas com erro.
+     */
+    private void gravarLote() {
+        if (lote.isEmpty()) {
+            return;
+        }
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ImportacaoProdutos.gravarLote");
+        try {
+            Connection conn = getConexao();
+            try {
+                long versao = VersaoAlteracao.proxima(conn);
+                PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
+                for (Produto p : lote) {
+                    preencher(stmt, p, versao);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                lerChaves(stmt, lote);
+                stmt.close();
+                conn.commit();
+                confirmados(lote, versao);
+                medicao.adicionarLinhas(lote.size());
+            } catch (SQLException e) {
+                desfazer(conn);
+                medicao.adicionarLinhas(gravarLinhaALinha(conn));
+            }
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao importar produtos.", e);
+        } finally {
+            lote.clear();
+            linhasLote.clear();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Grava o lote atual uma linha por vez, na mesma transação, e a confirma.
+     *
+     * @return Quantidade de linhas gravadas.
+     */
+    private int gravarLinhaALinha(Connection conn) throws SQLException {
+        List<Produto> gravados = new ArrayList<>(lote.size());
+        long versao;
+        try {
+            versao = VersaoAlteracao.proxima(conn);
+            PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < lote.size(); i++) {
+                Produto p = lote.get(i);
+                try {
+                    preencher(stmt, p, versao);
+                    stmt.executeUpdate();
+                    lerChaves(stmt, p);
+                    gravados.add(p);
+                } catch (SQLException e) {
+                    registrarErro(linhasLote.get(i), e.getMessage());
+                }
+            }
+            stmt.close();
+            conn.commit();
+        } catch (SQLException e) {
+            desfazer(conn);
+            throw e;
+        }
+        confirmados(gravados, versao);
+        return gravados.size();
+    }
+
+    private void preencher(PreparedStatement stmt, Produto p, long versao) throws SQLException {
+        stmt.setString(1, p.getNome());
+        stmt.setDouble(2, p.getPrecoUnitario());
+        stmt.setString(3, p.getUnidade());
+        stmt.setInt(4, p.getQuantidadeEstoque());
+        stmt.setInt(5, p.getQuantidadeMinima());
+        stmt.setInt(6, p.getQuantidadeMaxima());
+        stmt.setInt(7, p.getCategoria().getId());
+        stmt.setLong(8, versao);
+    }
+
+    private void lerChaves(PreparedStatement stmt, List<Produto> produtos) throws SQLException {
+        ResultSet chaves = stmt.getGeneratedKeys();
+        for (int i = 0; i < produtos.size() && chaves.next(); i++) {
+            produtos.get(i).setId(chaves.getInt(1));
+        }
+        chaves.close();
+    }
+
+    private void lerChaves(PreparedStatement stmt, Produto produto) throws SQLException {
+        ResultSet chaves = stmt.getGeneratedKeys();
+        if (chaves.next()) {
+            produto.setId(chaves.getInt(1));
+        }
+        chaves.close();
+    }
+
+    /**
+     * Atualiza os caches de produtos e categorias, o índice de busca e os agregados com os
+     * produtos de um lote já confirmado.
+     */
+    private void confirmados(List<Produto> produtos, long versao) {
+        inseridos += produtos.size();
+        CacheProdutos.getInstancia().invalidar();
+        CacheCategorias.getInstancia().invalidarQuantidades();
+        IndiceBuscaProdutos.getInstancia().marcarDesatualizado();
+        AgregadosEstoque.getInstancia().atualizarProdutos(produtos, versao);
+    }
+
+    private Connection getConexao() throws SQLException {
+        if (conexao == null) {
+            Connection nova = PoolConexoes.getInstancia().emprestar();
+            try {
+                nova.setAutoCommit(false);
+            } catch (SQLException e) {
+                PoolConexoes.getInstancia().devolver(nova);
+                throw e;
+            }
+            conexao = nova;
+        }
+        return conexao;
+    }
+
+    private void desfazer(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
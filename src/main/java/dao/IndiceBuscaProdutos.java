@@ -0,0 +1,565 @@
+package dao;
+
+/**
+ * Índice em memória para a busca de produtos por texto (autocompletar).
+ *
+ * O nome do produto e os campos da sua categoria (nome, tamanho e embalagem) são
+ * normalizados, sem acentos e em minúsculas, e o nome é dividido em trigramas, com as
+ * palavras precedidas de dois espaços para que o início de cada palavra também forme
+ * trigramas. Cada trigrama aponta para a lista das posições dos produtos que o contêm:
+ * - termos com 3 ou mais caracteres encontram o trecho em qualquer parte de uma palavra
+ *   ("net" encontra "Caneta");
+ * - termos com 1 ou 2 caracteres encontram o início de uma palavra ("ca" encontra "Caneta").
+ * Com vários termos, o produto precisa atender a todos, cada um no nome ou na categoria.
+ *
+ * A busca percorre a lista do trigrama mais raro do termo mais seletivo e confere o texto
+ * de cada candidato. Os resultados são ordenados pela relevância: nome começando pela
+ * busca, depois termos no início das palavras do nome, termos dentro do nome e, por fim,
+ * termos encontrados só na categoria; em cada grupo, nomes mais curtos primeiro. Buscas
+ * muito amplas (ex.: uma única letra) conferem no máximo estoque.busca.maxCandidatos
+ * candidatos.
+ *
+ * O índice é carregado do banco na primeira busca e depois mantido pelas alterações do
+ * catálogo ({@link ProdutoDAO#listarAlteracoes(long)}): as escritas de produtos e
+ * categorias marcam o índice como desatualizado após o commit, e as alterações feitas por
+ * outros processos (ex.: a aplicação desktop) são lidas a cada intervalo de sincronização.
+ * Um produto alterado ocupa uma nova posição e a antiga é descartada; quando as posições
+ * descartadas passam da metade, o índice é reconstruído em memória.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.busca.sincronizacaoMs  (padrão 5000)
+ * - estoque.busca.maxCandidatos    (padrão 20000)
+ */
+import modelo.Categoria;
+import modelo.Produto;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+public final class IndiceBuscaProdutos {
+
+    private static final IndiceBuscaProdutos INSTANCIA = new IndiceBuscaProdutos();
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final long intervaloSincronizacaoMs;
+    private final int maxCandidatos;
+
+    private final ProdutoDAO dao = new ProdutoDAO();
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+    /** Posição → id do produto. */
+    private int[] ids = new int[1024];
+    /** Posição → nome normalizado, precedido de espaço; null se a posição foi descartada. */
+    private String[] nomes = new String[1024];
+    /** Posição → id da categoria. */
+    private int[] categorias = new int[1024];
+    private int posicoes;
+    private int descartadas;
+
+    private final Map<Integer, Integer> posicaoPorId = new HashMap<>();
+    private final Map<Long, ListaPosicoes> porTrigrama = new HashMap<>();
+    private final Map<Integer, ListaPosicoes> porCategoria = new HashMap<>();
+    /** Categoria → nome, tamanho e embalagem normalizados, precedidos de espaço. */
+    private final Map<Integer, String> textoCategoria = new HashMap<>();
+
+    private final Object sincronizacao = new Object();
+    private volatile boolean carregado;
+    private volatile boolean desatualizado;
+    private volatile long sincronizadoEm;
+    private long versao;
+
+    private IndiceBuscaProdutos() {
+        intervaloSincronizacaoMs = Math.max(0, Configuracao.getLong("estoque.busca.sincronizacaoMs", 5000));
+        maxCandidatos = Math.max(1, Configuracao.getInt("estoque.busca.maxCandidatos", 20000));
+    }
+
+    /**
+     * Retorna a instância única do índice.
+     *
+     * @return Índice de busca de produtos da aplicação.
+     */
+    public static IndiceBuscaProdutos getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra que produtos ou categorias foram alterados na transação atual.
+     * O índice lê as alterações na primeira busca após o commit.
+     */
+    public void registrarAlteracao() {
+        UnidadeDeTrabalho.aposConfirmar(this::marcarDesatualizado);
+    }
+
+    /**
+     * Faz a próxima busca ler as alterações do catálogo antes de responder.
+     */
+    public void marcarDesatualizado() {
+        desatualizado = true;
+    }
+
+    /**
+     * Busca os produtos cujo nome ou categoria contenham todos os termos do texto.
+     *
+     * @param texto  Texto digitado (acentos e maiúsculas são ignorados).
+     * @param limite Quantidade máxima de resultados.
+     * @return Ids dos produtos encontrados, do mais para o menos relevante.
+     * @throws RuntimeException Se ocorrer erro ao ler as alterações do catálogo.
+     */
+    public List<Integer> buscar(String texto, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty() || limite <= 0) {
+            return Collections.emptyList();
+        }
+        sincronizarSeNecessario();
+
+        String[] termos = consulta.substring(1).split(" ");
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("IndiceBuscaProdutos.buscar");
+        trava.readLock().lock();
+        try {
+            return procurar(consulta, termos, limite, medicao);
+        } finally {
+            trava.readLock().unlock();
+            medicao.encerrar();
+        }
+    }
+
+    private List<Integer> procurar(String consulta, String[] termos, int limite, Metricas.Medicao medicao) {
+        // Para cada termo: a lista do trigrama mais raro no nome e as categorias que o contêm
+        ListaPosicoes[] listas = new ListaPosicoes[termos.length];
+        List<List<ListaPosicoes>> listasCategoria = new ArrayList<>(termos.length);
+        int guia = 0;
+        long menor = Long.MAX_VALUE;
+        for (int t = 0; t < termos.length; t++) {
+            listas[t] = trigramaMaisRaro(termos[t]);
+            List<ListaPosicoes> daCategoria = new ArrayList<>();
+            long total = listas[t] != null ? listas[t].tamanho : 0;
+            for (Map.Entry<Integer, String> e : textoCategoria.entrySet()) {
+                ListaPosicoes lista = porCategoria.get(e.getKey());
+                if (lista != null && contem(e.getValue(), termos[t])) {
+                    daCategoria.add(lista);
+                    total += lista.tamanho;
+                }
+            }
+            listasCategoria.add(daCategoria);
+            // O termo com menos candidatos guia a busca
+            if (total < menor) {
+                menor = total;
+                guia = t;
+            }
+        }
+
+        Busca busca = new Busca(consulta, termos, limite);
+        // Termos que não aparecem em nenhuma categoria só podem estar no nome: os candidatos
+        // precisam estar também na lista do trigrama mais raro deles
+        List<ListaPosicoes> filtros = new ArrayList<>();
+        for (int t = 0; t < termos.length; t++) {
+            if (t != guia && listasCategoria.get(t).isEmpty()) {
+                if (listas[t] == null) {
+                    return Collections.emptyList();
+                }
+                filtros.add(listas[t]);
+            }
+        }
+
+        int conferidos = 0;
+        ListaPosicoes listaGuia = listas[guia];
+        if (listaGuia != null) {
+            for (int i = 0; i < listaGuia.tamanho && conferidos < maxCandidatos; i++) {
+                int posicao = listaGuia.valores[i];
+                if (presente(posicao, filtros)) {
+                    conferidos++;
+                    conferir(posicao, busca);
+                }
+            }
+        }
+        String termoGuia = termos[guia];
+        for (ListaPosicoes lista : listasCategoria.get(guia)) {
+            for (int i = 0; i < lista.tamanho && conferidos < maxCandidatos; i++) {
+                int posicao = lista.valores[i];
+                String nome = nomes[posicao];
+                // Produtos cujo nome contém o termo guia já foram conferidos pela lista do trigrama
+                if (nome != null && !(listaGuia != null && contem(nome, termoGuia)) && presente(posicao, filtros)) {
+                    conferidos++;
+                    conferir(posicao, busca);
+                }
+            }
+        }
+        medicao.adicionarLinhas(conferidos);
+        return busca.encontrados();
+    }
+
+    /**
+     * Indica se a posição está em todas as listas (busca binária, pois as listas são crescentes).
+     */
+    private static boolean presente(int posicao, List<ListaPosicoes> listas) {
+        for (ListaPosicoes lista : listas) {
+            if (Arrays.binarySearch(lista.valores, 0, lista.tamanho, posicao) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Confere se o produto da posição atende a todos os termos e o inclui entre os melhores.
+     */
+    private void conferir(int posicao, Busca busca) {
+        String nome = nomes[posicao];
+        if (nome == null) {
+            return;
+        }
+        int grupo;
+        if (nome.startsWith(busca.consulta)) {
+            grupo = 0;
+        } else {
+            grupo = 1;
+            String categoria = null;
+            for (int t = 0; t < busca.termos.length; t++) {
+                if (nome.contains(busca.inicios[t])) {
+                    continue;
+                }
+                if (busca.termos[t].length() >= 3 && nome.contains(busca.termos[t])) {
+                    grupo = Math.max(grupo, 2);
+                    continue;
+                }
+                if (categoria == null) {
+                    categoria = textoCategoria.get(categorias[posicao]);
+                }
+                if (categoria != null && contem(categoria, busca.termos[t])) {
+                    grupo = 3;
+                } else {
+                    return;
+                }
+            }
+        }
+        busca.oferecer(ids[posicao], grupo, nome);
+    }
+
+    /**
+     * Retorna a lista do trigrama menos frequente do termo ou null se algum trigrama não existir.
+     */
+    private ListaPosicoes trigramaMaisRaro(String termo) {
+        ListaPosicoes maisRara = null;
+        for (long trigrama : trigramasDoTermo(termo)) {
+            ListaPosicoes lista = porTrigrama.get(trigrama);
+            if (lista == null) {
+                return null;
+            }
+            if (maisRara == null || lista.tamanho < maisRara.tamanho) {
+                maisRara = lista;
+            }
+        }
+        return maisRara;
+    }
+
+    private void sincronizarSeNecessario() {
+        if (carregado && !desatualizado && System.currentTimeMillis() - sincronizadoEm < intervaloSincronizacaoMs) {
+            return;
+        }
+        synchronized (sincronizacao) {
+            if (!carregado) {
+                carregar();
+            } else if (desatualizado || System.currentTimeMillis() - sincronizadoEm >= intervaloSincronizacaoMs) {
+                desatualizado = false;
+                try {
+                    // Com a versão 0 as alterações seriam o catálogo inteiro: só relê se algo mudou desde a carga
+                    if (versao > 0 || dao.consultarVersao() > 0) {
+                        aplicar(dao.listarAlteracoes(versao));
+                    }
+                } catch (RuntimeException e) {
+                    desatualizado = true;
+                    throw e;
+                }
+            }
+            sincronizadoEm = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Carrega o catálogo inteiro, lido sequencialmente do banco.
+     */
+    private void carregar() {
+        desatualizado = false;
+        // A versão é lida antes dos produtos: alterações feitas durante a carga são reaplicadas depois
+        long versaoInicial = dao.consultarVersao();
+        trava.writeLock().lock();
+        try {
+            dao.percorrerTodos(this::indexar);
+            versao = versaoInicial;
+            carregado = true;
+        } catch (IOException | RuntimeException e) {
+            limpar();
+            throw new RuntimeException("Erro ao carregar o índice de busca de produtos.", e);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void aplicar(Alteracoes<Produto> alteracoes) {
+        trava.writeLock().lock();
+        try {
+            if (alteracoes.isCompleto()) {
+                limpar();
+            }
+            for (Integer id : alteracoes.getExcluidos()) {
+                descartar(id);
+            }
+            for (Produto p : alteracoes.getAlterados()) {
+                indexar(p);
+            }
+            versao = alteracoes.getVersao();
+            if (descartadas > 1024 && descartadas > posicoes / 2) {
+                reconstruir();
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inclui ou atualiza um produto. Movimentações de estoque também chegam como alterações;
+     * se o nome e a categoria não mudaram, o produto mantém a sua posição.
+     */
+    private void indexar(Produto p) {
+        Categoria c = p.getCategoria();
+        textoCategoria.put(c.getId(), normalizar(juntar(c.getNome(), c.getTamanho(), c.getEmbalagem())));
+
+        String nome = normalizar(p.getNome());
+        Integer atual = posicaoPorId.get(p.getId());
+        if (atual != null) {
+            if (nome.equals(nomes[atual]) && categorias[atual] == c.getId()) {
+                return;
+            }
+            descartar(p.getId());
+        }
+        incluir(p.getId(), nome, c.getId());
+    }
+
+    private void incluir(int id, String nome, int categoriaId) {
+        if (posicoes == ids.length) {
+            int capacidade = posicoes * 2;
+            ids = Arrays.copyOf(ids, capacidade);
+            nomes = Arrays.copyOf(nomes, capacidade);
+            categorias = Arrays.copyOf(categorias, capacidade);
+        }
+        // As posições só crescem, então as listas de posições permanecem em ordem
+        int posicao = posicoes++;
+        ids[posicao] = id;
+        nomes[posicao] = nome;
+        categorias[posicao] = categoriaId;
+        posicaoPorId.put(id, posicao);
+
+        for (String palavra : nome.substring(1).split(" ")) {
+            String comEspacos = "  " + palavra;
+            for (int i = 0; i + 3 <= comEspacos.length(); i++) {
+                porTrigrama.computeIfAbsent(trigrama(comEspacos, i), k -> new ListaPosicoes()).adicionarSeNovo(posicao);
+            }
+        }
+        porCategoria.computeIfAbsent(categoriaId, k -> new ListaPosicoes()).adicionar(posicao);
+    }
+
+    /**
+     * Descarta a posição do produto. Ela continua nas listas até a próxima reconstrução, mas
+     * é ignorada nas buscas.
+     */
+    private void descartar(int id) {
+        Integer posicao = posicaoPorId.remove(id);
+        if (posicao != null) {
+            nomes[posicao] = null;
+            descartadas++;
+        }
+    }
+
+    /**
+     * Recria as listas apenas com as posições em uso.
+     */
+    private void reconstruir() {
+        int[] idsAnteriores = ids;
+        String[] nomesAnteriores = nomes;
+        int[] categoriasAnteriores = categorias;
+        int total = posicoes;
+
+        limpar();
+        for (int i = 0; i < total; i++) {
+            if (nomesAnteriores[i] != null) {
+                incluir(idsAnteriores[i], nomesAnteriores[i], categoriasAnteriores[i]);
+            }
+        }
+    }
+
+    /**
+     * Esvazia o índice, mantendo as categorias conhecidas.
+     */
+    private void limpar() {
+        ids = new int[1024];
+        nomes = new String[1024];
+        categorias = new int[1024];
+        posicoes = 0;
+        descartadas = 0;
+        posicaoPorId.clear();
+        porTrigrama.clear();
+        porCategoria.clear();
+    }
+
+    /**
+     * Normaliza um texto para a busca: sem acentos, em minúsculas, com as palavras separadas
+     * por um espaço e precedido de um espaço (" caneta azul"), ou vazio se não houver palavras.
+     *
+     * @param texto Texto original.
+     * @return Texto normalizado.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        String palavras = SEPARADORES.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return palavras.isEmpty() ? "" : " " + palavras;
+    }
+
+    private static String juntar(String... campos) {
+        StringBuilder texto = new StringBuilder();
+        for (String campo : campos) {
+            if (campo != null) {
+                texto.append(campo).append(' ');
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Indica se o texto normalizado atende ao termo: trecho de palavra para termos com 3 ou
+     * mais caracteres, início de palavra para os mais curtos.
+     */
+    private static boolean contem(String texto, String termo) {
+        return termo.length() >= 3 ? texto.contains(termo) : texto.contains(" " + termo);
+    }
+
+    private static long[] trigramasDoTermo(String termo) {
+        if (termo.length() < 3) {
+            return new long[]{trigrama(termo.length() == 1 ? "  " + termo : " " + termo, 0)};
+        }
+        long[] trigramas = new long[termo.length() - 2];
+        for (int i = 0; i < trigramas.length; i++) {
+            trigramas[i] = trigrama(termo, i);
+        }
+        return trigramas;
+    }
+
+    private static long trigrama(String texto, int inicio) {
+        return ((long) texto.charAt(inicio) << 32) | ((long) texto.charAt(inicio + 1) << 16) | texto.charAt(inicio + 2);
+    }
+
+    /**
+     * Lista crescente de posições.
+     */
+    private static final class ListaPosicoes {
+        private int[] valores = new int[4];
+        private int tamanho;
+
+        void adicionar(int posicao) {
+            if (tamanho == valores.length) {
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            }
+            valores[tamanho++] = posicao;
+        }
+
+        void adicionarSeNovo(int posicao) {
+            if (tamanho == 0 || valores[tamanho - 1] != posicao) {
+                adicionar(posicao);
+            }
+        }
+    }
+
+    /**
+     * Termos de uma busca e os melhores resultados encontrados até o momento.
+     */
+    private static final class Busca {
+        private final String consulta;
+        private final String[] termos;
+        /** Cada termo precedido de espaço, para encontrar o início das palavras. */
+        private final String[] inicios;
+        private final int limite;
+        private final PriorityQueue<Resultado> melhores;
+
+        private Busca(String consulta, String[] termos, int limite) {
+            this.consulta = consulta;
+            this.termos = termos;
+            this.limite = limite;
+            this.inicios = new String[termos.length];
+            for (int t = 0; t < termos.length; t++) {
+                inicios[t] = " " + termos[t];
+            }
+            this.melhores = new PriorityQueue<>(limite + 1, Resultado.ORDEM.reversed());
+        }
+
+        void oferecer(int id, int grupo, String nome) {
+            if (melhores.size() == limite) {
+                // Só cria o resultado se ele for melhor que o pior dos já encontrados
+                if (comparar(grupo, nome, id, melhores.peek()) >= 0) {
+                    return;
+                }
+                melhores.poll();
+            }
+            melhores.add(new Resultado(id, grupo, nome));
+        }
+
+        /**
+         * Compara um candidato com um resultado na mesma ordem de {@link Resultado#ORDEM}.
+         */
+        private static int comparar(int grupo, String nome, int id, Resultado r) {
+            if (grupo != r.grupo) {
+                return Integer.compare(grupo, r.grupo);
+            }
+            if (nome.length() != r.nome.length()) {
+                return Integer.compare(nome.length(), r.nome.length());
+            }
+            int porNome = nome.compareTo(r.nome);
+            return porNome != 0 ? porNome : Integer.compare(id, r.id);
+        }
+
+        List<Integer> encontrados() {
+            Resultado[] ordenados = melhores.toArray(new Resultado[0]);
+            Arrays.sort(ordenados, Resultado.ORDEM);
+            List<Integer> ids = new ArrayList<>(ordenados.length);
+            for (Resultado r : ordenados) {
+                ids.add(r.id);
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Produto encontrado e a sua relevância.
+     */
+    private static final class Resultado {
+        private static final Comparator<Resultado> ORDEM = Comparator
+                .comparingInt((Resultado r) -> r.grupo)
+                .thenComparingInt(r -> r.nome.length())
+                .thenComparing(r -> r.nome)
+                .thenComparingInt(r -> r.id);
+
+        private final int id;
+        private final int grupo;
+        private final String nome;
+
+        private Resultado(int id, int grupo, String nome) {
+            this.id = id;
+            this.grupo = grupo;
+            this.nome = nome;
+        }
+    }
+}
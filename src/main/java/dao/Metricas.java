@@ -0,0 +1,245 @@
+package dao;
+
+/**
+ * Registro das métricas de latência da aplicação: requisições HTTP (por endpoint) e
+ * operações dos DAOs (por método), cada uma com um histograma de duração, o total de
+ * linhas lidas ou gravadas e o total de erros.
+ *
+ * Os histogramas usam faixas fixas e contadores {@link LongAdder}, de modo que registrar
+ * uma medição não bloqueia e custa apenas algumas somas. Os valores são exportados no
+ * formato texto do Prometheus por {@code GET /api/metrics}.
+ *
+ * Uso nos DAOs:
+ * <pre>
+ * Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.listarTodos");
+ * try {
+ *     ... consulta ...
+ *     medicao.adicionarLinhas(lista.size());
+ * } catch (SQLException e) {
+ *     medicao.registrarErro();
+ * } finally {
+ *     medicao.encerrar();
+ * }
+ * </pre>
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.metricas.ativo  (padrão true)
+ */
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Metricas {
+
+    private static final Metricas INSTANCIA = new Metricas();
+
+    /** Limites superiores das faixas dos histogramas, em segundos. */
+    private static final double[] LIMITES_SEGUNDOS =
+            {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] LIMITES_NANOS = new long[LIMITES_SEGUNDOS.length];
+
+    static {
+        for (int i = 0; i < LIMITES_SEGUNDOS.length; i++) {
+            LIMITES_NANOS[i] = (long) (LIMITES_SEGUNDOS[i] * 1_000_000_000L);
+        }
+    }
+
+    private static final Medicao MEDICAO_INATIVA = new Medicao(null);
+
+    private final boolean ativo;
+    private final ConcurrentHashMap<String, Operacao> operacoesDao = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Operacao> requisicoes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> respostasPorStatus = new ConcurrentHashMap<>();
+
+    private Metricas() {
+        ativo = Configuracao.getBoolean("estoque.metricas.ativo", true);
+    }
+
+    /**
+     * Retorna a instância única do registro de métricas.
+     *
+     * @return Métricas da aplicação.
+     */
+    public static Metricas getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Indica se a coleta de métricas está habilitada.
+     *
+     * @return true se as medições são registradas.
+     */
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Inicia a medição de uma operação de DAO.
+     *
+     * @param operacao Nome da operação, no formato Classe.metodo (ex.: ProdutoDAO.listarTodos).
+     * @return Medição em andamento, a ser encerrada com {@link Medicao#encerrar()}.
+     */
+    public Medicao iniciar(String operacao) {
+        if (!ativo) {
+            return MEDICAO_INATIVA;
+        }
+        return new Medicao(operacoesDao.computeIfAbsent(operacao, k -> new Operacao()));
+    }
+
+    /**
+     * Registra uma requisição HTTP concluída.
+     *
+     * @param endpoint      Método e rota (ex.: GET /api/relatorios/dashboard).
+     * @param status        Status HTTP da resposta.
+     * @param duracaoNanos  Duração da requisição, em nanossegundos.
+     */
+    public void registrarRequisicao(String endpoint, int status, long duracaoNanos) {
+        if (!ativo) {
+            return;
+        }
+        requisicoes.computeIfAbsent(endpoint, k -> new Operacao()).registrar(duracaoNanos, 0, status >= 500);
+        respostasPorStatus.computeIfAbsent(endpoint + '\u0000' + status, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Retorna as operações de DAO medidas, em ordem de nome.
+     *
+     * @return Mapa de nome da operação para suas métricas.
+     */
+    public Map<String, Operacao> getOperacoesDao() {
+        return new TreeMap<>(operacoesDao);
+    }
+
+    /**
+     * Retorna os endpoints HTTP medidos, em ordem de nome.
+     *
+     * @return Mapa de endpoint para suas métricas.
+     */
+    public Map<String, Operacao> getRequisicoes() {
+        return new TreeMap<>(requisicoes);
+    }
+
+    /**
+     * Retorna a quantidade de respostas por endpoint e status HTTP.
+     *
+     * @return Mapa de endpoint para um mapa de status para quantidade.
+     */
+    public Map<String, Map<Integer, Long>> getRespostasPorStatus() {
+        Map<String, Map<Integer, Long>> resultado = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : respostasPorStatus.entrySet()) {
+            int separador = e.getKey().indexOf('\u0000');
+            String endpoint = e.getKey().substring(0, separador);
+            int status = Integer.parseInt(e.getKey().substring(separador + 1));
+            resultado.computeIfAbsent(endpoint, k -> new TreeMap<>()).put(status, e.getValue().sum());
+        }
+        return resultado;
+    }
+
+    /**
+     * Retorna os limites superiores das faixas dos histogramas.
+     *
+     * @return Cópia dos limites, em segundos.
+     */
+    public static double[] getLimitesSegundos() {
+        return LIMITES_SEGUNDOS.clone();
+    }
+
+    /**
+     * Medição em andamento de uma operação de DAO.
+     * Não é thread-safe: deve ser usada apenas pela thread que a iniciou.
+     */
+    public static final class Medicao {
+        private final Operacao operacao;
+        private final long inicio;
+        private long linhas;
+        private boolean erro;
+
+        private Medicao(Operacao operacao) {
+            this.operacao = operacao;
+            this.inicio = operacao != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Soma linhas lidas ou gravadas pela operação.
+         *
+         * @param quantidade Quantidade de linhas.
+         */
+        public void adicionarLinhas(long quantidade) {
+            linhas += quantidade;
+        }
+
+        /**
+         * Marca a operação como concluída com erro.
+         */
+        public void registrarErro() {
+            erro = true;
+        }
+
+        /**
+         * Encerra a medição e registra a duração, as linhas e o erro, se houver.
+         */
+        public void encerrar() {
+            if (operacao != null) {
+                operacao.registrar(System.nanoTime() - inicio, linhas, erro);
+            }
+        }
+    }
+
+    /**
+     * Métricas acumuladas de uma operação ou endpoint: histograma de duração,
+     * linhas e erros.
+     */
+    public static final class Operacao {
+        private final LongAdder[] faixas = new LongAdder[LIMITES_NANOS.length + 1];
+        private final LongAdder somaNanos = new LongAdder();
+        private final LongAdder linhas = new LongAdder();
+        private final LongAdder erros = new LongAdder();
+
+        private Operacao() {
+            for (int i = 0; i < faixas.length; i++) {
+                faixas[i] = new LongAdder();
+            }
+        }
+
+        private void registrar(long duracaoNanos, long quantidadeLinhas, boolean erro) {
+            int faixa = 0;
+            while (faixa < LIMITES_NANOS.length && duracaoNanos > LIMITES_NANOS[faixa]) {
+                faixa++;
+            }
+            faixas[faixa].increment();
+            somaNanos.add(duracaoNanos);
+            if (quantidadeLinhas != 0) {
+                linhas.add(quantidadeLinhas);
+            }
+            if (erro) {
+                erros.increment();
+            }
+        }
+
+        /**
+         * Retorna a quantidade acumulada de medições até cada limite (inclusive),
+         * seguida do total (faixa +Inf).
+         *
+         * @return Contagens acumuladas, uma por limite mais a faixa final.
+         */
+        public long[] getContagensAcumuladas() {
+            long[] acumuladas = new long[faixas.length];
+            long total = 0;
+            for (int i = 0; i < faixas.length; i++) {
+                total += faixas[i].sum();
+                acumuladas[i] = total;
+            }
+            return acumuladas;
+        }
+
+        /** @return Soma das durações, em segundos. */
+        public double getSomaSegundos() { return somaNanos.sum() / 1e9; }
+
+        /** @return Total de linhas lidas ou gravadas. */
+        public long getLinhas() { return linhas.sum(); }
+
+        /** @return Total de medições com erro. */
+        public long getErros() { return erros.sum(); }
+    }
+}
@@ -3,100 +3,355 @@ package dao;
 import modelo.Movimentacao;
 import modelo.Produto;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class MovimentacaoDAO {
 
+    /** Colunas das consultas de movimentações com o produto relacionado. */
+    private static final String COLUNAS = "m.id AS m_id, m.tipo, m.quantidade, m.data_movimento, "
+            + "p.id AS p_id, p.nome, p.preco_unitario, p.unidade, p.quantidade AS p_quantidade, "
+            + "p.quantidade_minima, p.quantidade_maxima ";
+
+    private static final String JUNCAO_PRODUTO = "JOIN produto p ON m.produto_id = p.id ";
+
+    private static final int TAMANHO_PAGINA_PADRAO =
+            Math.max(1, Configuracao.getInt("estoque.movimentacao.pagina.tamanhoPadrao", 100));
+    private static final int TAMANHO_PAGINA_MAXIMO =
+            Math.max(TAMANHO_PAGINA_PADRAO, Configuracao.getInt("estoque.movimentacao.pagina.tamanhoMaximo", 1000));
+    private static final int TAMANHO_LOTE_MAXIMO =
+            Math.max(1, Configuracao.getInt("estoque.movimentacao.lote.tamanhoMaximo", 1000));
+
     /**
-     * Registra uma movimentação de entrada ou saída de produto no banco de dados.
-     * Atualiza também a quantidade em estoque do produto relacionado.
+     * Registra uma movimentação de entrada ou saída de produto no banco de dados,
+     * permitindo que o estoque fique negativo.
      *
      * @param mov Objeto Movimentacao contendo os dados da movimentação e do produto.
+     * @return Quantidade em estoque do produto após a movimentação.
+     * @see #registrarMovimento(Movimentacao, boolean)
      */
-    public void registrarMovimento(Movimentacao mov) {
-        String sql = "INSERT INTO movimentacao (tipo, quantidade, produto_id) VALUES (?, ?, ?)";
+    public int registrarMovimento(Movimentacao mov) {
+        return registrarMovimento(mov, true);
+    }
 
-        Conexao conexao = new Conexao();
-        try {
-            Connection conn = conexao.getConexao();
+    /**
+     * Registra uma movimentação de entrada ou saída de produto no banco de dados.
+     * O estoque do produto é atualizado de forma relativa (quantidade = quantidade + delta)
+     * na mesma transação do INSERT, de modo que movimentações concorrentes do mesmo produto
+     * não se sobrescrevem. A quantidade do produto informado em {@code mov} é atualizada
+     * com o valor gravado.
+     *
+     * @param mov              Objeto Movimentacao contendo os dados da movimentação e do produto.
+     * @param permitirNegativo Se false, a saída é recusada quando deixaria o estoque negativo.
+     * @return Quantidade em estoque do produto após a movimentação.
+     * @throws EstoqueInsuficienteException Se a saída for recusada por falta de estoque.
+     * @throws IllegalArgumentException     Se o tipo ou a quantidade forem inválidos ou se o
+     *                                      produto não existir.
+     */
+    public int registrarMovimento(Movimentacao mov, boolean permitirNegativo) {
+        validar(mov, "");
+        int produtoId = mov.getProduto().getId();
+        int delta = "ENTRADA".equals(mov.getTipo()) ? mov.getQuantidade() : -mov.getQuantidade();
 
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, mov.getTipo());
-            stmt.setInt(2, mov.getQuantidade());
-            stmt.setInt(3, mov.getProduto().getId());
-            stmt.executeUpdate();
-            stmt.close();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.registrarMovimento");
+        try {
+            int novaQtd = UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    // A versão é obtida antes do bloqueio do produto, como nas demais gravações
+                    long versao = VersaoAlteracao.proxima(conn);
+
+                    String update = permitirNegativo
+                            ? "UPDATE produto SET quantidade = quantidade + ?, versao = ? WHERE id = ?"
+                            : "UPDATE produto SET quantidade = quantidade + ?, versao = ? WHERE id = ? AND quantidade + ? >= 0";
+                    PreparedStatement stmt = conn.prepareStatement(update);
+                    stmt.setInt(1, delta);
+                    stmt.setLong(2, versao);
+                    stmt.setInt(3, produtoId);
+                    if (!permitirNegativo) {
+                        stmt.setInt(4, delta);
+                    }
+                    int alterados = stmt.executeUpdate();
+                    stmt.close();
+                    medicao.adicionarLinhas(alterados);
+
+                    int quantidade = buscarQuantidade(conn, produtoId);
+                    if (alterados == 0) {
+                        throw new EstoqueInsuficienteException(produtoId, quantidade);
+                    }
+
+                    PreparedStatement stmt2 = conn.prepareStatement(
+                            "INSERT INTO movimentacao (tipo, quantidade, produto_id) VALUES (?, ?, ?)");
+                    stmt2.setString(1, mov.getTipo());
+                    stmt2.setInt(2, mov.getQuantidade());
+                    stmt2.setInt(3, produtoId);
+                    medicao.adicionarLinhas(stmt2.executeUpdate());
+                    stmt2.close();
+
+                    CacheProdutos.getInstancia().registrarQuantidade(produtoId, quantidade, versao);
+                    AgregadosEstoque.getInstancia().registrarQuantidade(produtoId, quantidade, versao);
+                    return quantidade;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
+            mov.getProduto().setQuantidadeEstoque(novaQtd);
+            return novaQtd;
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao registrar movimentação.", e);
+        } finally {
+            medicao.encerrar();
+        }
+    }
 
-            int novaQtd = mov.getTipo().equals("ENTRADA") ?
-                    mov.getProduto().getQuantidadeEstoque() + mov.getQuantidade() :
-                    mov.getProduto().getQuantidadeEstoque() - mov.getQuantidade();
+    /**
+     * Registra uma movimentação pelo {@link AgrupadorMovimentacoes} quando o modo de
+     * gravação agrupada estiver habilitado; caso contrário equivale a
+     * {@link #registrarMovimento(Movimentacao, boolean)}.
+     *
+     * No modo agrupado a movimentação é confirmada pelo agrupador junto com as demais
+     * do mesmo lote, independentemente da unidade de trabalho de quem chamou.
+     *
+     * @param mov              Objeto Movimentacao contendo os dados da movimentação e do produto.
+     * @param permitirNegativo Se false, a saída é recusada quando deixaria o estoque negativo.
+     * @return Quantidade em estoque do produto após a movimentação.
+     * @throws EstoqueInsuficienteException Se a saída for recusada por falta de estoque.
+     * @throws IllegalArgumentException     Se o tipo ou a quantidade forem inválidos.
+     */
+    public int registrarMovimentoAgrupado(Movimentacao mov, boolean permitirNegativo) {
+        validar(mov, "");
+        AgrupadorMovimentacoes agrupador = AgrupadorMovimentacoes.getInstancia();
+        if (!agrupador.isAtivo()) {
+            return registrarMovimento(mov, permitirNegativo);
+        }
+        return agrupador.registrar(mov, permitirNegativo);
+    }
 
-            String update = "UPDATE produto SET quantidade=? WHERE id=?";
-            PreparedStatement stmt2 = conn.prepareStatement(update);
-            stmt2.setInt(1, novaQtd);
-            stmt2.setInt(2, mov.getProduto().getId());
-            stmt2.executeUpdate();
-            stmt2.close();
+    /**
+     * Registra várias movimentações em uma única transação (ex.: o recebimento de uma carga).
+     * Os produtos envolvidos são bloqueados e lidos com uma única consulta, as movimentações
+     * são validadas na ordem da lista contra o saldo corrente de cada produto, os INSERTs são
+     * gravados em um lote JDBC e o estoque de cada produto é atualizado uma única vez, com a
+     * soma das quantidades. Se alguma movimentação for recusada, nenhuma é gravada.
+     *
+     * As movimentações são gravadas na unidade de trabalho de quem chamou (ou em uma própria),
+     * sem passar pelo {@link AgrupadorMovimentacoes}.
+     *
+     * Configuração (via {@link Configuracao}):
+     * - estoque.movimentacao.lote.tamanhoMaximo (padrão 1000)
+     *
+     * @param movs             Movimentações a registrar (o produto de cada uma precisa ter id).
+     * @param permitirNegativo Se false, o lote é recusado quando uma saída deixaria o estoque negativo.
+     * @return Quantidade em estoque de cada produto após o lote, por id do produto, em ordem de id.
+     * @throws EstoqueInsuficienteException Se uma saída for recusada por falta de estoque.
+     * @throws IllegalArgumentException     Se o lote estiver vazio ou acima do tamanho máximo, ou se
+     *                                      alguma movimentação for inválida ou de produto inexistente.
+     */
+    public Map<Integer, Integer> registrarLote(List<Movimentacao> movs, boolean permitirNegativo) {
+        if (movs.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma movimentação informada.");
+        }
+        if (movs.size() > TAMANHO_LOTE_MAXIMO) {
+            throw new IllegalArgumentException("Lote com mais de " + TAMANHO_LOTE_MAXIMO + " movimentações.");
+        }
+        // Produtos em ordem de id para que os bloqueios sejam sempre obtidos na mesma ordem
+        Map<Integer, Integer> deltaPorProduto = new TreeMap<>();
+        for (int i = 0; i < movs.size(); i++) {
+            Movimentacao mov = movs.get(i);
+            validar(mov, "Movimentação " + (i + 1) + ": ");
+            deltaPorProduto.put(mov.getProduto().getId(), 0);
+        }
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.registrarLote");
+        try {
+            return UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    // A versão é obtida antes do bloqueio dos produtos, como nas demais gravações
+                    long versao = VersaoAlteracao.proxima(conn);
+                    Map<Integer, Integer> saldo = bloquearProdutos(conn, deltaPorProduto.keySet());
+
+                    for (int i = 0; i < movs.size(); i++) {
+                        Movimentacao mov = movs.get(i);
+                        int produtoId = mov.getProduto().getId();
+                        Integer atual = saldo.get(produtoId);
+                        if (atual == null) {
+                            throw new IllegalArgumentException("Movimentação " + (i + 1) + ": produto não encontrado: " + produtoId);
+                        }
+                        int delta = "ENTRADA".equals(mov.getTipo()) ? mov.getQuantidade() : -mov.getQuantidade();
+                        if (!permitirNegativo && atual + delta < 0) {
+                            throw new EstoqueInsuficienteException(produtoId, atual);
+                        }
+                        saldo.put(produtoId, atual + delta);
+                        deltaPorProduto.merge(produtoId, delta, Integer::sum);
+                    }
+
+                    PreparedStatement insert = conn.prepareStatement(
+                            "INSERT INTO movimentacao (tipo, quantidade, produto_id) VALUES (?, ?, ?)");
+                    for (Movimentacao mov : movs) {
+                        insert.setString(1, mov.getTipo());
+                        insert.setInt(2, mov.getQuantidade());
+                        insert.setInt(3, mov.getProduto().getId());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    insert.close();
+                    medicao.adicionarLinhas(movs.size());
+
+                    PreparedStatement update = conn.prepareStatement(
+                            "UPDATE produto SET quantidade = quantidade + ?, versao = ? WHERE id = ?");
+                    for (Map.Entry<Integer, Integer> e : deltaPorProduto.entrySet()) {
+                        if (e.getValue() != 0) {
+                            update.setInt(1, e.getValue());
+                            update.setLong(2, versao);
+                            update.setInt(3, e.getKey());
+                            update.addBatch();
+                        }
+                    }
+                    update.executeBatch();
+                    update.close();
+
+                    Map<Integer, Integer> quantidades = new TreeMap<>();
+                    for (Integer produtoId : deltaPorProduto.keySet()) {
+                        quantidades.put(produtoId, saldo.get(produtoId));
+                    }
+                    CacheProdutos.getInstancia().registrarQuantidades(quantidades, versao);
+                    AgregadosEstoque.getInstancia().registrarQuantidades(quantidades, versao);
+                    return quantidades;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao registrar movimentações.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Bloqueia (SELECT ... FOR UPDATE) os produtos informados e retorna o estoque atual de cada um.
+     * Produtos inexistentes ficam fora do mapa.
+     *
+     * @param conn Conexão (e transação) em uso.
+     * @param ids  Identificadores dos produtos.
+     * @return Quantidade em estoque por id do produto.
+     * @throws SQLException Se ocorrer erro de acesso ao banco.
+     */
+    static Map<Integer, Integer> bloquearProdutos(Connection conn, Collection<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, quantidade FROM produto WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY id FOR UPDATE");
+
+        Map<Integer, Integer> saldo = new HashMap<>();
+        PreparedStatement stmt = conn.prepareStatement(sql.toString());
+        int i = 1;
+        for (Integer id : ids) {
+            stmt.setInt(i++, id);
+        }
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+            saldo.put(rs.getInt(1), rs.getInt(2));
+        }
+        rs.close();
+        stmt.close();
+        return saldo;
+    }
+
+    /**
+     * Valida o tipo (ENTRADA ou SAIDA) e a quantidade (maior que zero) de uma movimentação.
+     *
+     * @param mov     Movimentação a validar.
+     * @param prefixo Prefixo das mensagens de erro (ex.: a posição da movimentação no lote).
+     * @throws IllegalArgumentException Se o tipo ou a quantidade forem inválidos.
+     */
+    private static void validar(Movimentacao mov, String prefixo) {
+        if (!"ENTRADA".equals(mov.getTipo()) && !"SAIDA".equals(mov.getTipo())) {
+            throw new IllegalArgumentException(prefixo + "Tipo inválido. Use ENTRADA ou SAIDA.");
+        }
+        if (mov.getQuantidade() <= 0) {
+            throw new IllegalArgumentException(prefixo + "Quantidade deve ser maior que zero.");
+        }
+    }
+
+    /**
+     * Lê a quantidade em estoque de um produto na conexão informada.
+     *
+     * @param conn      Conexão (e transação) em uso.
+     * @param produtoId ID do produto.
+     * @return Quantidade em estoque.
+     * @throws SQLException             Se ocorrer erro de acesso ao banco.
+     * @throws IllegalArgumentException Se o produto não existir.
+     */
+    private int buscarQuantidade(Connection conn, int produtoId) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement("SELECT quantidade FROM produto WHERE id = ?");
+        stmt.setInt(1, produtoId);
+        ResultSet rs = stmt.executeQuery();
+        try {
+            if (!rs.next()) {
+                throw new IllegalArgumentException("Produto não encontrado: " + produtoId);
+            }
+            return rs.getInt(1);
+        } finally {
+            rs.close();
+            stmt.close();
         }
     }
 
     /**
      * Lista todas as movimentações cadastradas no banco de dados, incluindo informações do produto relacionado.
+     * As movimentações do mesmo produto compartilham a mesma instância de Produto.
+     * Para o histórico completo prefira {@link #listarPagina(FiltroMovimentacao, String, int)}.
      *
      * @return Lista de objetos Movimentacao com os dados das movimentações e produtos.
      */
     public List<Movimentacao> listarTodas() {
         List<Movimentacao> lista = new ArrayList<>();
 
-        String sql = "SELECT m.id AS m_id, m.tipo, m.quantidade, m.data_movimento, "
-                + "p.id AS p_id, p.nome, p.preco_unitario, p.unidade, p.quantidade, "
-                + "p.quantidade_minima, p.quantidade_maxima "
+        String sql = "SELECT " + COLUNAS
                 + "FROM movimentacao m "
                 + "JOIN produto p ON m.produto_id = p.id "
-                + "ORDER BY m.data_movimento DESC";
+                + "ORDER BY m.data_movimento DESC, m.id DESC";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.listarTodas");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(sql);
 
+            LeitorMovimentacoes leitor = new LeitorMovimentacoes();
             while (rs.next()) {
-                Produto produto = new Produto(
-                        rs.getInt("p_id"),
-                        rs.getString("nome"),
-                        rs.getDouble("preco_unitario"),
-                        rs.getString("unidade"),
-                        rs.getInt("quantidade"),
-                        rs.getInt("quantidade_minima"),
-                        rs.getInt("quantidade_maxima"),
-                        null
-                );
-
-                Movimentacao mov = new Movimentacao(
-                        rs.getInt("m_id"),
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade"),
-                        rs.getTimestamp("data_movimento").toLocalDateTime(),
-                        produto
-                );
-
-                lista.add(mov);
+                lista.add(leitor.ler(rs));
+                medicao.adicionarLinhas(1);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
@@ -109,13 +364,12 @@ public class MovimentacaoDAO {
      * @return Objeto Movimentacao ou null se não encontrado.
      */
     public Movimentacao buscarPorId(int id) {
-        String sql = "SELECT m.id AS m_id, m.tipo, m.quantidade, m.data_movimento, "
-                + "p.id AS p_id, p.nome, p.preco_unitario, p.unidade, p.quantidade, "
-                + "p.quantidade_minima, p.quantidade_maxima "
+        String sql = "SELECT " + COLUNAS
                 + "FROM movimentacao m "
                 + "JOIN produto p ON m.produto_id = p.id "
                 + "WHERE m.id = ?";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.buscarPorId");
         Conexao conexao = new Conexao();
         Movimentacao mov = null;
 
@@ -126,32 +380,18 @@ public class MovimentacaoDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                Produto produto = new Produto(
-                        rs.getInt("p_id"),
-                        rs.getString("nome"),
-                        rs.getDouble("preco_unitario"),
-                        rs.getString("unidade"),
-                        rs.getInt("quantidade"),
-                        rs.getInt("quantidade_minima"),
-                        rs.getInt("quantidade_maxima"),
-                        null
-                );
-
-                mov = new Movimentacao(
-                        rs.getInt("m_id"),
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade"),
-                        rs.getTimestamp("data_movimento").toLocalDateTime(),
-                        produto
-                );
+                medicao.adicionarLinhas(1);
+                mov = new LeitorMovimentacoes().ler(rs);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return mov;
@@ -159,6 +399,9 @@ public class MovimentacaoDAO {
 
     /**
      * Lista todas as movimentações de um produto específico.
+     * Todas as movimentações da lista compartilham a mesma instância do produto.
+     * Para produtos com histórico extenso prefira {@link #listarPagina(FiltroMovimentacao, String, int)}
+     * com {@link FiltroMovimentacao#setProdutoId(Integer)}.
      *
      * @param produtoId ID do produto.
      * @return Lista de movimentações do produto.
@@ -166,14 +409,13 @@ public class MovimentacaoDAO {
     public List<Movimentacao> listarPorProduto(int produtoId) {
         List<Movimentacao> lista = new ArrayList<>();
 
-        String sql = "SELECT m.id AS m_id, m.tipo, m.quantidade, m.data_movimento, "
-                + "p.id AS p_id, p.nome, p.preco_unitario, p.unidade, p.quantidade, "
-                + "p.quantidade_minima, p.quantidade_maxima "
+        String sql = "SELECT " + COLUNAS
                 + "FROM movimentacao m "
                 + "JOIN produto p ON m.produto_id = p.id "
-                + "WHERE p.id = ? "
-                + "ORDER BY m.data_movimento DESC";
+                + "WHERE m.produto_id = ? "
+                + "ORDER BY m.data_movimento DESC, m.id DESC";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.listarPorProduto");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
@@ -181,37 +423,511 @@ public class MovimentacaoDAO {
             stmt.setInt(1, produtoId);
             ResultSet rs = stmt.executeQuery();
 
+            LeitorMovimentacoes leitor = new LeitorMovimentacoes();
             while (rs.next()) {
-                Produto produto = new Produto(
-                        rs.getInt("p_id"),
-                        rs.getString("nome"),
-                        rs.getDouble("preco_unitario"),
-                        rs.getString("unidade"),
-                        rs.getInt("quantidade"),
-                        rs.getInt("quantidade_minima"),
-                        rs.getInt("quantidade_maxima"),
-                        null
-                );
-
-                Movimentacao mov = new Movimentacao(
-                        rs.getInt("m_id"),
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade"),
-                        rs.getTimestamp("data_movimento").toLocalDateTime(),
-                        produto
-                );
-
-                lista.add(mov);
+                lista.add(leitor.ler(rs));
+                medicao.adicionarLinhas(1);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
     }
+
+    /**
+     * Lista uma página do histórico de movimentações, da mais recente para a mais antiga.
+     * A paginação é feita por cursor (keyset) sobre (data_movimento, id): cada página continua
+     * exatamente após o último item da anterior, sem OFFSET, usando os índices
+     * idx_movimentacao_data e idx_movimentacao_produto_data.
+     *
+     * @param filtro Critérios da consulta (pode ser null).
+     * @param cursor Cursor retornado pela página anterior ou null para a primeira página.
+     * @param limite Quantidade de itens por página; valores menores que 1 usam o tamanho padrão
+     *               e valores acima do máximo configurado são reduzidos a ele.
+     * @return Página de movimentações.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    public Pagina<Movimentacao> listarPagina(FiltroMovimentacao filtro, String cursor, int limite) {
+        int tamanho = limite < 1 ? TAMANHO_PAGINA_PADRAO : Math.min(limite, TAMANHO_PAGINA_MAXIMO);
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+
+        aplicarCursor(cursor, condicoes, parametros);
+
+        return consultarPagina("MovimentacaoDAO.listarPagina", COLUNAS, JUNCAO_PRODUTO, condicoes, parametros,
+                tamanho, 0, new LeitorMovimentacoes());
+    }
+
+    /**
+     * Lista uma página do histórico de movimentações, na mesma ordem e com o mesmo cursor de
+     * {@link #listarPagina(FiltroMovimentacao, String, int)}, lendo apenas as colunas dos campos
+     * da projeção. A tabela produto só entra na consulta se algum campo dela, além do id, for pedido.
+     *
+     * @param filtro   Critérios da consulta (pode ser null).
+     * @param cursor   Cursor retornado pela página anterior ou null para a primeira página.
+     * @param limite   Quantidade de itens por página, limitada como em listarPagina.
+     * @param projecao Campos a ler ({@link Projecao#movimentacao(String)}).
+     * @return Página de movimentações, cada uma em um mapa com os campos pedidos.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    public Pagina<Map<String, Object>> listarPaginaProjetada(FiltroMovimentacao filtro, String cursor, int limite,
+                                                             Projecao projecao) {
+        int tamanho = limite < 1 ? TAMANHO_PAGINA_PADRAO : Math.min(limite, TAMANHO_PAGINA_MAXIMO);
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+        aplicarCursor(cursor, condicoes, parametros);
+
+        return consultarPagina("MovimentacaoDAO.listarPaginaProjetada", colunasProjetadas(projecao),
+                juncaoProjetada(projecao), condicoes, parametros, tamanho, 0, rs -> {
+                    Map<String, Object> linha = new LinkedHashMap<>();
+                    projecao.ler(rs, linha);
+                    return linha;
+                });
+    }
+
+    /**
+     * Lista a página do histórico de movimentações que começa na posição informada, na mesma
+     * ordem de {@link #listarPagina(FiltroMovimentacao, String, int)}.
+     * A posição é aplicada com OFFSET, cujo custo cresce com ela; use-a apenas para saltar a
+     * uma posição cujo cursor não é conhecido e continue a partir do cursor retornado.
+     *
+     * @param filtro  Critérios da consulta (pode ser null).
+     * @param posicao Posição (a partir de 0) do primeiro item da página.
+     * @param limite  Quantidade de itens por página, limitada como em listarPagina.
+     * @return Página de movimentações.
+     */
+    public Pagina<Movimentacao> listarPaginaNaPosicao(FiltroMovimentacao filtro, int posicao, int limite) {
+        int tamanho = limite < 1 ? TAMANHO_PAGINA_PADRAO : Math.min(limite, TAMANHO_PAGINA_MAXIMO);
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+        return consultarPagina("MovimentacaoDAO.listarPaginaNaPosicao", COLUNAS, JUNCAO_PRODUTO, condicoes, parametros,
+                tamanho, Math.max(0, posicao), new LeitorMovimentacoes());
+    }
+
+    /**
+     * Conta as movimentações que atendem ao filtro.
+     *
+     * @param filtro Critérios da consulta (pode ser null).
+     * @return Quantidade de movimentações.
+     */
+    public int contar(FiltroMovimentacao filtro) {
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+
+        String sql = "SELECT COUNT(*) FROM movimentacao m "
+                + (condicoes.isEmpty() ? "" : "WHERE " + String.join(" AND ", condicoes));
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.contar");
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            int total = rs.next() ? rs.getInt(1) : 0;
+            rs.close();
+            stmt.close();
+            return total;
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao contar movimentações.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Executa a consulta de uma página do histórico, lendo um item a mais para saber se
+     * há próxima página. As colunas m_id e data_movimento, usadas no cursor, devem estar entre
+     * as colunas informadas.
+     *
+     * @param operacao     Nome da operação nas métricas.
+     * @param colunas      Colunas do SELECT.
+     * @param juncao       JOIN com a tabela produto ou vazio.
+     * @param condicoes    Condições da cláusula WHERE.
+     * @param parametros   Valores dos parâmetros das condições.
+     * @param tamanho      Quantidade de itens da página.
+     * @param deslocamento Itens a saltar (OFFSET) ou 0.
+     * @param leitor       Converte a linha atual em um item.
+     * @return Página de movimentações.
+     */
+    private <T> Pagina<T> consultarPagina(String operacao, String colunas, String juncao, List<String> condicoes,
+                                          List<Object> parametros, int tamanho, int deslocamento,
+                                          LeitorLinha<T> leitor) {
+        String sql = "SELECT " + colunas
+                + "FROM movimentacao m "
+                + juncao
+                + (condicoes.isEmpty() ? "" : "WHERE " + String.join(" AND ", condicoes) + " ")
+                + "ORDER BY m.data_movimento DESC, m.id DESC "
+                + "LIMIT ?"
+                + (deslocamento > 0 ? " OFFSET ?" : "");
+        parametros.add(tamanho + 1);
+        if (deslocamento > 0) {
+            parametros.add(deslocamento);
+        }
+
+        List<T> lista = new ArrayList<>();
+        String proximoCursor = null;
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar(operacao);
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            int colunaData = rs.findColumn("data_movimento");
+            int colunaId = rs.findColumn("m_id");
+            Timestamp dataUltima = null;
+            int idUltima = 0;
+            while (rs.next()) {
+                if (lista.size() == tamanho) {
+                    // Item a mais: existe próxima página, que começa após o último da atual
+                    proximoCursor = codificarCursor(dataUltima.toLocalDateTime(), idUltima);
+                    break;
+                }
+                lista.add(leitor.ler(rs));
+                dataUltima = rs.getTimestamp(colunaData);
+                idUltima = rs.getInt(colunaId);
+                medicao.adicionarLinhas(1);
+            }
+
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar movimentações.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+
+        return new Pagina<>(lista, proximoCursor);
+    }
+
+    /**
+     * Percorre sequencialmente as movimentações que atendem ao filtro, da mais recente para
+     * a mais antiga, entregando uma de cada vez ao processador. As linhas são lidas do banco
+     * aos poucos (ver {@link Conexao#prepararConsultaSequencial(String)}) e a mesma instância
+     * de Movimentacao é reutilizada, de modo que o consumo de memória não depende da
+     * quantidade de movimentações.
+     *
+     * @param filtro      Critérios da consulta (pode ser null).
+     * @param processador Destino das movimentações.
+     * @throws IOException Se o processador falhar ao gravar uma movimentação.
+     */
+    public void percorrer(FiltroMovimentacao filtro, ProcessadorLinha<Movimentacao> processador) throws IOException {
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+
+        String sql = "SELECT " + COLUNAS
+                + "FROM movimentacao m "
+                + "JOIN produto p ON m.produto_id = p.id "
+                + (condicoes.isEmpty() ? "" : "WHERE " + String.join(" AND ", condicoes) + " ")
+                + "ORDER BY m.data_movimento DESC, m.id DESC";
+
+        Produto produto = new Produto();
+        Movimentacao mov = new Movimentacao();
+        mov.setProduto(produto);
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.percorrer");
+        Conexao conexao = new Conexao();
+        try {
+            PreparedStatement stmt = conexao.prepararConsultaSequencial(sql);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            try {
+                LeitorMovimentacoes leitor = new LeitorMovimentacoes();
+                while (rs.next()) {
+                    leitor.preencher(rs, mov, produto);
+                    processador.processar(mov);
+                    medicao.adicionarLinhas(1);
+                }
+            } finally {
+                rs.close();
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar movimentações.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Percorre sequencialmente as movimentações que atendem ao filtro, na mesma ordem de
+     * {@link #percorrer(FiltroMovimentacao, ProcessadorLinha)}, lendo apenas as colunas dos
+     * campos da projeção. O mapa entregue ao processador é reutilizado a cada linha.
+     *
+     * @param filtro      Critérios da consulta (pode ser null).
+     * @param projecao    Campos a ler ({@link Projecao#movimentacao(String)}).
+     * @param processador Destino das movimentações.
+     * @throws IOException Se o processador falhar ao gravar uma movimentação.
+     */
+    public void percorrerProjetado(FiltroMovimentacao filtro, Projecao projecao,
+                                   ProcessadorLinha<Map<String, Object>> processador) throws IOException {
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        aplicarFiltro(filtro, condicoes, parametros);
+
+        String sql = "SELECT " + projecao.getColunas() + " "
+                + "FROM movimentacao m "
+                + juncaoProjetada(projecao)
+                + (condicoes.isEmpty() ? "" : "WHERE " + String.join(" AND ", condicoes) + " ")
+                + "ORDER BY m.data_movimento DESC, m.id DESC";
+
+        Map<String, Object> linha = new LinkedHashMap<>();
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("MovimentacaoDAO.percorrerProjetado");
+        Conexao conexao = new Conexao();
+        try {
+            PreparedStatement stmt = conexao.prepararConsultaSequencial(sql);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            try {
+                while (rs.next()) {
+                    projecao.ler(rs, linha);
+                    processador.processar(linha);
+                    medicao.adicionarLinhas(1);
+                }
+            } finally {
+                rs.close();
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar movimentações.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Colunas de uma consulta paginada com projeção: os campos pedidos, seguidos das colunas
+     * usadas no cursor.
+     */
+    private static String colunasProjetadas(Projecao projecao) {
+        return projecao.getColunas() + ", m.id AS m_id, m.data_movimento ";
+    }
+
+    /**
+     * JOIN com a tabela produto, apenas se algum campo da projeção vier dela.
+     */
+    private static String juncaoProjetada(Projecao projecao) {
+        return projecao.usaTabela("p") ? JUNCAO_PRODUTO : "";
+    }
+
+    /**
+     * Acrescenta a condição de continuação a partir do cursor, se houver.
+     *
+     * @param cursor     Cursor da página anterior ou null.
+     * @param condicoes  Lista que recebe a condição.
+     * @param parametros Lista que recebe os valores dos parâmetros.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    private static void aplicarCursor(String cursor, List<String> condicoes, List<Object> parametros) {
+        if (cursor != null && !cursor.isEmpty()) {
+            Object[] posicao = decodificarCursor(cursor);
+            condicoes.add("(m.data_movimento < ? OR (m.data_movimento = ? AND m.id < ?))");
+            parametros.add(posicao[0]);
+            parametros.add(posicao[0]);
+            parametros.add(posicao[1]);
+        }
+    }
+
+    /**
+     * Traduz o filtro em condições da cláusula WHERE e seus parâmetros.
+     *
+     * @param filtro     Critérios da consulta (pode ser null).
+     * @param condicoes  Lista que recebe as condições.
+     * @param parametros Lista que recebe os valores dos parâmetros, na ordem das condições.
+     */
+    private static void aplicarFiltro(FiltroMovimentacao filtro, List<String> condicoes, List<Object> parametros) {
+        if (filtro == null) {
+            return;
+        }
+        if (filtro.getProdutoId() != null) {
+            condicoes.add("m.produto_id = ?");
+            parametros.add(filtro.getProdutoId());
+        }
+        if (filtro.getTipo() != null) {
+            condicoes.add("m.tipo = ?");
+            parametros.add(filtro.getTipo());
+        }
+        if (filtro.getDataInicio() != null) {
+            condicoes.add("m.data_movimento >= ?");
+            parametros.add(Timestamp.valueOf(filtro.getDataInicio()));
+        }
+        if (filtro.getDataFim() != null) {
+            condicoes.add("m.data_movimento < ?");
+            parametros.add(Timestamp.valueOf(filtro.getDataFim()));
+        }
+    }
+
+    /**
+     * Cria o cursor que aponta para a posição logo após a movimentação informada.
+     *
+     * @param dataMovimento Data da movimentação.
+     * @param id            ID da movimentação.
+     * @return Cursor opaco (Base64 URL-safe).
+     */
+    private static String codificarCursor(LocalDateTime dataMovimento, int id) {
+        String valor = dataMovimento + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lê a posição (data_movimento e id) de um cursor.
+     *
+     * @param cursor Cursor criado por {@link #codificarCursor(LocalDateTime, int)}.
+     * @return Vetor com o Timestamp e o id.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    private static Object[] decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            LocalDateTime data = LocalDateTime.parse(valor.substring(0, separador));
+            int id = Integer.parseInt(valor.substring(separador + 1));
+            return new Object[]{Timestamp.valueOf(data), id};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.", e);
+        }
+    }
+
+    /**
+     * Converte a linha atual de uma consulta em um item.
+     *
+     * @param <T> Tipo do item.
+     */
+    @FunctionalInterface
+    private interface LeitorLinha<T> {
+        T ler(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Converte as linhas de uma consulta com as colunas de {@link #COLUNAS} em movimentações.
+     * Cada instância atende a uma única consulta: os índices das colunas são resolvidos na
+     * primeira linha, e cada produto é criado uma só vez (mapa de identidade por id), de modo
+     * que as movimentações do mesmo produto compartilham a mesma instância e as colunas do
+     * produto só são lidas na sua primeira linha. O tipo também é compartilhado.
+     */
+    private static final class LeitorMovimentacoes implements LeitorLinha<Movimentacao> {
+        private final Map<Integer, Produto> produtos = new HashMap<>();
+        private boolean resolvido;
+        private int mId;
+        private int tipo;
+        private int quantidade;
+        private int dataMovimento;
+        private int pId;
+        private int nome;
+        private int precoUnitario;
+        private int unidade;
+        private int pQuantidade;
+        private int quantidadeMinima;
+        private int quantidadeMaxima;
+
+        /**
+         * Cria a movimentação da linha atual, com o produto compartilhado pelas demais
+         * movimentações dele na mesma consulta.
+         */
+        @Override
+        public Movimentacao ler(ResultSet rs) throws SQLException {
+            resolver(rs);
+            int produtoId = rs.getInt(pId);
+            Produto produto = produtos.get(produtoId);
+            if (produto == null) {
+                produto = new Produto();
+                lerProduto(rs, produto);
+                produtos.put(produtoId, produto);
+            }
+            return new Movimentacao(
+                    rs.getInt(mId),
+                    lerTipo(rs),
+                    rs.getInt(quantidade),
+                    rs.getTimestamp(dataMovimento).toLocalDateTime(),
+                    produto
+            );
+        }
+
+        /**
+         * Preenche instâncias reutilizadas com a linha atual (leitura sequencial).
+         */
+        void preencher(ResultSet rs, Movimentacao mov, Produto produto) throws SQLException {
+            resolver(rs);
+            lerProduto(rs, produto);
+            mov.setId(rs.getInt(mId));
+            mov.setTipo(lerTipo(rs));
+            mov.setQuantidade(rs.getInt(quantidade));
+            mov.setDataMovimento(rs.getTimestamp(dataMovimento).toLocalDateTime());
+        }
+
+        /**
+         * Lê o tipo, devolvendo as constantes "ENTRADA" e "SAIDA" em vez de uma nova String por linha.
+         */
+        private String lerTipo(ResultSet rs) throws SQLException {
+            String valor = rs.getString(tipo);
+            if ("ENTRADA".equals(valor)) {
+                return "ENTRADA";
+            }
+            return "SAIDA".equals(valor) ? "SAIDA" : valor;
+        }
+
+        private void lerProduto(ResultSet rs, Produto produto) throws SQLException {
+            produto.setId(rs.getInt(pId));
+            produto.setNome(rs.getString(nome));
+            produto.setPrecoUnitario(rs.getDouble(precoUnitario));
+            produto.setUnidade(rs.getString(unidade));
+            produto.setQuantidadeEstoque(rs.getInt(pQuantidade));
+            produto.setQuantidadeMinima(rs.getInt(quantidadeMinima));
+            produto.setQuantidadeMaxima(rs.getInt(quantidadeMaxima));
+        }
+
+        private void resolver(ResultSet rs) throws SQLException {
+            if (resolvido) {
+                return;
+            }
+            mId = rs.findColumn("m_id");
+            tipo = rs.findColumn("tipo");
+            quantidade = rs.findColumn("quantidade");
+            dataMovimento = rs.findColumn("data_movimento");
+            pId = rs.findColumn("p_id");
+            nome = rs.findColumn("nome");
+            precoUnitario = rs.findColumn("preco_unitario");
+            unidade = rs.findColumn("unidade");
+            pQuantidade = rs.findColumn("p_quantidade");
+            quantidadeMinima = rs.findColumn("quantidade_minima");
+            quantidadeMaxima = rs.findColumn("quantidade_maxima");
+            resolvido = true;
+        }
+    }
 }
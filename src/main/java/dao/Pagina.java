@@ -0,0 +1,51 @@
+package dao;
+
+/**
+ * Página de resultados de uma consulta paginada por cursor (keyset).
+ * O cursor da próxima página é opaco para o chamador e deve ser repassado sem alterações
+ * na consulta seguinte.
+ *
+ * @param <T> Tipo dos itens.
+ */
+import java.util.List;
+
+public class Pagina<T> {
+
+    private final List<T> itens;
+    private final String proximoCursor;
+
+    /**
+     * Construtor com parâmetros.
+     *
+     * @param itens         Itens da página.
+     * @param proximoCursor Cursor da próxima página ou null se esta for a última.
+     */
+    public Pagina(List<T> itens, String proximoCursor) {
+        this.itens = itens;
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Retorna os itens da página.
+     * @return Lista de itens.
+     */
+    public List<T> getItens() {
+        return itens;
+    }
+
+    /**
+     * Retorna o cursor da próxima página.
+     * @return Cursor ou null se não houver próxima página.
+     */
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+
+    /**
+     * Indica se há uma próxima página.
+     * @return true se houver mais itens após esta página.
+     */
+    public boolean isPossuiProxima() {
+        return proximoCursor != null;
+    }
+}
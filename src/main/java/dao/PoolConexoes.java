@@ -0,0 +1,354 @@
+package dao;
+
+/**
+ * Pool limitado de conexões com o banco de dados MySQL.
+ * Mantém as conexões físicas abertas entre as chamadas dos DAOs, evitando o custo de
+ * carregar o driver e refazer o handshake TCP e a autenticação a cada operação.
+ *
+ * As conexões são validadas ao serem emprestadas, descartadas quando ultrapassam o tempo
+ * máximo ocioso ou o tempo máximo de vida, e o número de conexões simultâneas é limitado;
+ * quem excede o limite aguarda até o tempo máximo de espera configurado.
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.db.url, estoque.db.usuario, estoque.db.senha
+ * - estoque.pool.tamanhoMaximo         (padrão 10)
+ * - estoque.pool.tempoMaximoEsperaMs   (padrão 30000)
+ * - estoque.pool.tempoOciosoMaximoMs   (padrão 600000)
+ * - estoque.pool.tempoVidaMaximoMs     (padrão 1800000)
+ * - estoque.pool.intervaloValidacaoMs  (padrão 1000; conexões usadas há menos tempo não são revalidadas)
+ * - estoque.pool.consultaValidacao     (padrão vazio, usa Connection.isValid)
+ */
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class PoolConexoes {
+
+    private static final PoolConexoes INSTANCIA = new PoolConexoes();
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoMaximo;
+    private final long tempoMaximoEsperaMs;
+    private final long tempoOciosoMaximoMs;
+    private final long tempoVidaMaximoMs;
+    private final long intervaloValidacaoMs;
+    private final String consultaValidacao;
+
+    private final Semaphore permissoes;
+    private final LinkedBlockingDeque<EntradaPool> ociosas = new LinkedBlockingDeque<>();
+    private final ConcurrentHashMap<Connection, EntradaPool> emUso = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService manutencao;
+
+    private final AtomicInteger aguardando = new AtomicInteger();
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong conexoesCriadas = new AtomicLong();
+    private final AtomicLong conexoesDescartadas = new AtomicLong();
+    private final AtomicLong esperasEsgotadas = new AtomicLong();
+    private final AtomicLong tempoEsperaTotalNanos = new AtomicLong();
+    private final AtomicLong tempoEsperaMaximoNanos = new AtomicLong();
+
+    private PoolConexoes() {
+        url = Configuracao.getString("estoque.db.url", "jdbc:mysql://localhost:3306/controle_estoque?rewriteBatchedStatements=true");
+        usuario = Configuracao.getString("estoque.db.usuario", "root");
+        senha = Configuracao.getString("estoque.db.senha", "");
+        tamanhoMaximo = Math.max(1, Configuracao.getInt("estoque.pool.tamanhoMaximo", 10));
+        tempoMaximoEsperaMs = Configuracao.getLong("estoque.pool.tempoMaximoEsperaMs", 30000);
+        tempoOciosoMaximoMs = Configuracao.getLong("estoque.pool.tempoOciosoMaximoMs", 600000);
+        tempoVidaMaximoMs = Configuracao.getLong("estoque.pool.tempoVidaMaximoMs", 1800000);
+        intervaloValidacaoMs = Configuracao.getLong("estoque.pool.intervaloValidacaoMs", 1000);
+        consultaValidacao = Configuracao.getString("estoque.pool.consultaValidacao", "");
+
+        try {
+            // Carrega o driver JDBC do MySQL uma única vez
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Driver MySQL não encontrado.");
+        }
+
+        permissoes = new Semaphore(tamanhoMaximo, true);
+        manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexoes-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        manutencao.scheduleWithFixedDelay(this::removerExpiradas, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Retorna a instância única do pool.
+     *
+     * @return Pool de conexões da aplicação.
+     */
+    public static PoolConexoes getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Empresta uma conexão do pool, aguardando se todas estiverem em uso.
+     * A conexão deve ser devolvida com {@link #devolver(Connection)}.
+     *
+     * @return Conexão validada com o banco de dados.
+     * @throws SQLException Se o tempo de espera esgotar ou não for possível abrir a conexão.
+     */
+    public Connection emprestar() throws SQLException {
+        long inicio = System.nanoTime();
+        boolean obteve;
+        aguardando.incrementAndGet();
+        try {
+            obteve = permissoes.tryAcquire(tempoMaximoEsperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool.");
+        } finally {
+            aguardando.decrementAndGet();
+        }
+        registrarEspera(System.nanoTime() - inicio);
+
+        if (!obteve) {
+            esperasEsgotadas.incrementAndGet();
+            throw new SQLException("Tempo esgotado aguardando conexão do pool ("
+                    + emUso.size() + " de " + tamanhoMaximo + " em uso).");
+        }
+
+        try {
+            EntradaPool entrada;
+            while ((entrada = ociosas.pollFirst()) != null) {
+                if (valida(entrada)) {
+                    break;
+                }
+                descartar(entrada);
+            }
+            if (entrada == null) {
+                entrada = criar();
+            }
+            emUso.put(entrada.conexao, entrada);
+            emprestimos.incrementAndGet();
+            return entrada.conexao;
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Devolve uma conexão ao pool. Transações pendentes são desfeitas e o modo
+     * auto-commit é restaurado antes de a conexão voltar a ficar disponível.
+     *
+     * @param conexao Conexão obtida por {@link #emprestar()}.
+     */
+    public void devolver(Connection conexao) {
+        EntradaPool entrada = emUso.remove(conexao);
+        if (entrada == null) {
+            return;
+        }
+        try {
+            if (conexao.isClosed() || expirada(entrada, System.currentTimeMillis())) {
+                descartar(entrada);
+            } else {
+                if (!conexao.getAutoCommit()) {
+                    conexao.rollback();
+                    conexao.setAutoCommit(true);
+                }
+                entrada.ultimoUso = System.currentTimeMillis();
+                ociosas.offerFirst(entrada);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            descartar(entrada);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    /**
+     * Abre uma conexão física fora do pool, com as mesmas configurações de acesso.
+     * Destinada a tarefas de fundo de longa duração que não devem disputar as conexões
+     * das requisições; quem a obtém é responsável por fechá-la.
+     *
+     * @return Nova conexão com o banco de dados.
+     * @throws SQLException Se não for possível abrir a conexão.
+     */
+    public Connection abrirConexaoDedicada() throws SQLException {
+        return DriverManager.getConnection(url, usuario, senha);
+    }
+
+    /**
+     * Retorna um retrato das estatísticas atuais do pool.
+     *
+     * @return Estatísticas de uso do pool.
+     */
+    public Estatisticas getEstatisticas() {
+        long total = emprestimos.get();
+        return new Estatisticas(
+                emUso.size(),
+                ociosas.size(),
+                aguardando.get(),
+                tamanhoMaximo,
+                total,
+                conexoesCriadas.get(),
+                conexoesDescartadas.get(),
+                esperasEsgotadas.get(),
+                total == 0 ? 0 : tempoEsperaTotalNanos.get() / total / 1_000_000.0,
+                tempoEsperaMaximoNanos.get() / 1_000_000.0
+        );
+    }
+
+    /**
+     * Fecha todas as conexões ociosas e encerra a manutenção periódica.
+     * Usado ao finalizar a aplicação.
+     */
+    public void encerrar() {
+        manutencao.shutdownNow();
+        EntradaPool entrada;
+        while ((entrada = ociosas.pollFirst()) != null) {
+            descartar(entrada);
+        }
+    }
+
+    private EntradaPool criar() throws SQLException {
+        Connection conexao = DriverManager.getConnection(url, usuario, senha);
+        conexoesCriadas.incrementAndGet();
+        return new EntradaPool(conexao);
+    }
+
+    private boolean valida(EntradaPool entrada) {
+        long agora = System.currentTimeMillis();
+        if (expirada(entrada, agora) || agora - entrada.ultimoUso > tempoOciosoMaximoMs) {
+            return false;
+        }
+        if (agora - entrada.ultimoUso < intervaloValidacaoMs) {
+            return true;
+        }
+        try {
+            if (consultaValidacao.isEmpty()) {
+                return entrada.conexao.isValid(5);
+            }
+            try (Statement stmt = entrada.conexao.createStatement()) {
+                stmt.setQueryTimeout(5);
+                stmt.execute(consultaValidacao);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean expirada(EntradaPool entrada, long agora) {
+        return tempoVidaMaximoMs > 0 && agora - entrada.criadaEm > tempoVidaMaximoMs;
+    }
+
+    private void descartar(EntradaPool entrada) {
+        conexoesDescartadas.incrementAndGet();
+        try {
+            entrada.conexao.close();
+        } catch (SQLException e) {
+            // conexão já estava inutilizável
+        }
+    }
+
+    private void removerExpiradas() {
+        long agora = System.currentTimeMillis();
+        List<EntradaPool> candidatas = new ArrayList<>(ociosas);
+        for (EntradaPool entrada : candidatas) {
+            boolean vencida = expirada(entrada, agora) || agora - entrada.ultimoUso > tempoOciosoMaximoMs;
+            if (vencida && ociosas.remove(entrada)) {
+                descartar(entrada);
+            }
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        tempoEsperaTotalNanos.addAndGet(nanos);
+        tempoEsperaMaximoNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Conexão física mantida pelo pool, com os instantes de criação e último uso.
+     */
+    private static final class EntradaPool {
+        private final Connection conexao;
+        private final long criadaEm;
+        private volatile long ultimoUso;
+
+        private EntradaPool(Connection conexao) {
+            this.conexao = conexao;
+            this.criadaEm = System.currentTimeMillis();
+            this.ultimoUso = criadaEm;
+        }
+    }
+
+    /**
+     * Retrato imutável das estatísticas do pool em um dado instante.
+     */
+    public static final class Estatisticas {
+        private final int ativas;
+        private final int ociosas;
+        private final int aguardando;
+        private final int tamanhoMaximo;
+        private final long emprestimos;
+        private final long conexoesCriadas;
+        private final long conexoesDescartadas;
+        private final long esperasEsgotadas;
+        private final double tempoMedioEsperaMs;
+        private final double tempoMaximoEsperaMs;
+
+        private Estatisticas(int ativas, int ociosas, int aguardando, int tamanhoMaximo, long emprestimos,
+                             long conexoesCriadas, long conexoesDescartadas, long esperasEsgotadas,
+                             double tempoMedioEsperaMs, double tempoMaximoEsperaMs) {
+            this.ativas = ativas;
+            this.ociosas = ociosas;
+            this.aguardando = aguardando;
+            this.tamanhoMaximo = tamanhoMaximo;
+            this.emprestimos = emprestimos;
+            this.conexoesCriadas = conexoesCriadas;
+            this.conexoesDescartadas = conexoesDescartadas;
+            this.esperasEsgotadas = esperasEsgotadas;
+            this.tempoMedioEsperaMs = tempoMedioEsperaMs;
+            this.tempoMaximoEsperaMs = tempoMaximoEsperaMs;
+        }
+
+        /** @return Conexões emprestadas no momento. */
+        public int getAtivas() { return ativas; }
+
+        /** @return Conexões abertas aguardando uso. */
+        public int getOciosas() { return ociosas; }
+
+        /** @return Threads aguardando uma conexão livre. */
+        public int getAguardando() { return aguardando; }
+
+        /** @return Número máximo de conexões simultâneas. */
+        public int getTamanhoMaximo() { return tamanhoMaximo; }
+
+        /** @return Total de empréstimos realizados. */
+        public long getEmprestimos() { return emprestimos; }
+
+        /** @return Total de conexões físicas abertas. */
+        public long getConexoesCriadas() { return conexoesCriadas; }
+
+        /** @return Total de conexões físicas fechadas pelo pool. */
+        public long getConexoesDescartadas() { return conexoesDescartadas; }
+
+        /** @return Total de esperas que ultrapassaram o tempo máximo. */
+        public long getEsperasEsgotadas() { return esperasEsgotadas; }
+
+        /** @return Tempo médio de espera por conexão, em milissegundos. */
+        public double getTempoMedioEsperaMs() { return tempoMedioEsperaMs; }
+
+        /** @return Maior tempo de espera por conexão, em milissegundos. */
+        public double getTempoMaximoEsperaMs() { return tempoMaximoEsperaMs; }
+    }
+}
@@ -0,0 +1,24 @@
+package dao;
+
+/**
+ * Recebe, uma a uma, as linhas de uma consulta percorrida sequencialmente pelos DAOs
+ * (ex.: {@link ProdutoDAO#percorrerTodos(ProcessadorLinha)}), sem que o resultado
+ * inteiro seja carregado em memória.
+ *
+ * O objeto entregue é reutilizado a cada linha: o processador deve usá-lo durante a
+ * chamada e não guardar referências a ele.
+ *
+ * @param <T> Tipo do objeto que representa a linha.
+ */
+import java.io.IOException;
+
+public interface ProcessadorLinha<T> {
+
+    /**
+     * Processa a linha atual.
+     *
+     * @param item Objeto preenchido com os dados da linha (reutilizado).
+     * @throws IOException Se ocorrer erro ao gravar a linha no destino.
+     */
+    void processar(T item) throws IOException;
+}
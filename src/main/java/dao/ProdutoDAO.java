@@ -8,103 +8,284 @@ package dao;
 import modelo.Categoria;
 import modelo.Produto;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ProdutoDAO {
 
+    private static final int TAMANHO_PAGINA_PADRAO = 100;
+    private static final int TAMANHO_PAGINA_MAXIMO = 1000;
+    private static final int IDS_POR_CONSULTA =
+            Math.max(1, Configuracao.getInt("estoque.produto.idsPorConsulta", 500));
+
     /**
      * Insere um novo produto no banco de dados.
+     * O id gerado pelo banco é atribuído ao produto, e a linha recebe a próxima versão de
+     * alteração do catálogo, na mesma transação.
      *
      * @param produto Objeto Produto a ser inserido.
+     * @throws RuntimeException Se ocorrer erro ao inserir o produto.
      */
     public void inserir(Produto produto) {
-        String sql = "INSERT INTO produto (nome, preco_unitario, unidade, quantidade, quantidade_minima, quantidade_maxima, categoria_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO produto (nome, preco_unitario, unidade, quantidade, quantidade_minima, quantidade_maxima, categoria_id, versao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        Conexao conexao = new Conexao();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.inserir");
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, produto.getNome());
-            stmt.setDouble(2, produto.getPrecoUnitario());
-            stmt.setString(3, produto.getUnidade());
-            stmt.setInt(4, produto.getQuantidadeEstoque());
-            stmt.setInt(5, produto.getQuantidadeMinima());
-            stmt.setInt(6, produto.getQuantidadeMaxima());
-            stmt.setInt(7, produto.getCategoria().getId());
-            stmt.executeUpdate();
-            stmt.close();
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                    stmt.setString(1, produto.getNome());
+                    stmt.setDouble(2, produto.getPrecoUnitario());
+                    stmt.setString(3, produto.getUnidade());
+                    stmt.setInt(4, produto.getQuantidadeEstoque());
+                    stmt.setInt(5, produto.getQuantidadeMinima());
+                    stmt.setInt(6, produto.getQuantidadeMaxima());
+                    stmt.setInt(7, produto.getCategoria().getId());
+                    stmt.setLong(8, versao);
+                    medicao.adicionarLinhas(stmt.executeUpdate());
+                    ResultSet chaves = stmt.getGeneratedKeys();
+                    if (chaves.next()) {
+                        produto.setId(chaves.getInt(1));
+                    }
+                    chaves.close();
+                    stmt.close();
+                    CacheProdutos.getInstancia().registrarAlteracao();
+                    CacheCategorias.getInstancia().registrarAlteracaoProdutos();
+                    IndiceBuscaProdutos.getInstancia().registrarAlteracao();
+                    AgregadosEstoque.getInstancia().registrarProduto(produto, versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao inserir produto.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
      * Atualiza os dados de um produto existente no banco de dados.
+     * A linha recebe a próxima versão de alteração do catálogo, na mesma transação.
      *
      * @param produto Objeto Produto com os dados atualizados.
+     * @throws RuntimeException Se ocorrer erro ao atualizar o produto.
      */
     public void atualizar(Produto produto) {
-        String sql = "UPDATE produto SET nome=?, preco_unitario=?, unidade=?, quantidade=?, quantidade_minima=?, quantidade_maxima=?, categoria_id=? WHERE id=?";
+        String sql = "UPDATE produto SET nome=?, preco_unitario=?, unidade=?, quantidade=?, quantidade_minima=?, quantidade_maxima=?, categoria_id=?, versao=? WHERE id=?";
 
-        Conexao conexao = new Conexao();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.atualizar");
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, produto.getNome());
-            stmt.setDouble(2, produto.getPrecoUnitario());
-            stmt.setString(3, produto.getUnidade());
-            stmt.setInt(4, produto.getQuantidadeEstoque());
-            stmt.setInt(5, produto.getQuantidadeMinima());
-            stmt.setInt(6, produto.getQuantidadeMaxima());
-            stmt.setInt(7, produto.getCategoria().getId());
-            stmt.setInt(8, produto.getId());
-            stmt.executeUpdate();
-            stmt.close();
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, produto.getNome());
+                    stmt.setDouble(2, produto.getPrecoUnitario());
+                    stmt.setString(3, produto.getUnidade());
+                    stmt.setInt(4, produto.getQuantidadeEstoque());
+                    stmt.setInt(5, produto.getQuantidadeMinima());
+                    stmt.setInt(6, produto.getQuantidadeMaxima());
+                    stmt.setInt(7, produto.getCategoria().getId());
+                    stmt.setLong(8, versao);
+                    stmt.setInt(9, produto.getId());
+                    medicao.adicionarLinhas(stmt.executeUpdate());
+                    stmt.close();
+                    CacheProdutos.getInstancia().registrarAlteracao();
+                    CacheCategorias.getInstancia().registrarAlteracaoProdutos();
+                    IndiceBuscaProdutos.getInstancia().registrarAlteracao();
+                    AgregadosEstoque.getInstancia().registrarProduto(produto, versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao atualizar produto.", e);
         } finally {
-            conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
      * Exclui um produto do banco de dados pelo seu ID.
+     * A exclusão é registrada em produto_exclusao com a próxima versão de alteração do
+     * catálogo, para que os clientes sincronizados a recebam em {@link #listarAlteracoes(long)}.
      *
      * @param id Identificador do produto a ser excluído.
+     * @throws RuntimeException Se ocorrer erro ao excluir o produto.
      */
     public void excluir(int id) {
-        String sql = "DELETE FROM produto WHERE id=?";
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.excluir");
+        try {
+            UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.proxima(conn);
+                    PreparedStatement stmt = conn.prepareStatement("DELETE FROM produto WHERE id=?");
+                    stmt.setInt(1, id);
+                    int excluidos = stmt.executeUpdate();
+                    stmt.close();
+                    medicao.adicionarLinhas(excluidos);
+                    if (excluidos > 0) {
+                        PreparedStatement registro = conn.prepareStatement(
+                                "INSERT INTO produto_exclusao (produto_id, versao) VALUES (?, ?)");
+                        registro.setInt(1, id);
+                        registro.setLong(2, versao);
+                        registro.executeUpdate();
+                        registro.close();
+                    }
+                    CacheProdutos.getInstancia().registrarAlteracao();
+                    CacheCategorias.getInstancia().registrarAlteracaoProdutos();
+                    IndiceBuscaProdutos.getInstancia().registrarAlteracao();
+                    AgregadosEstoque.getInstancia().registrarExclusao(id, versao);
+                    return null;
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao excluir produto.", e);
+        } finally {
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Lista os produtos inseridos, alterados ou excluídos depois da versão informada.
+     * Um produto é considerado alterado também quando sua categoria foi alterada, pois os
+     * dados da categoria fazem parte do produto. Com versão 0 (primeira sincronização),
+     * retorna o catálogo inteiro.
+     *
+     * A versão atual e as alterações são lidas na mesma transação, de modo que a versão
+     * retornada cobre exatamente as alterações entregues (ver {@link VersaoAlteracao}).
+     *
+     * @param desde Versão recebida na sincronização anterior ou 0.
+     * @return Alterações desde a versão informada.
+     */
+    public Alteracoes<Produto> listarAlteracoes(long desde) {
+        String colunas = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
+                + "FROM produto p "
+                + "JOIN categoria c ON p.categoria_id = c.id ";
+        String sql = desde <= 0
+                ? colunas + "ORDER BY p.nome"
+                : colunas + "WHERE p.versao > ? UNION " + colunas + "WHERE c.versao > ?";
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.listarAlteracoes");
+        try {
+            return UnidadeDeTrabalho.executar(() -> {
+                Conexao conexao = new Conexao();
+                try {
+                    Connection conn = conexao.getConexao();
+                    long versao = VersaoAlteracao.atual(conn);
+
+                    List<Produto> alterados = new ArrayList<>();
+                    PreparedStatement stmt = conn.prepareStatement(sql);
+                    if (desde > 0) {
+                        stmt.setLong(1, desde);
+                        stmt.setLong(2, desde);
+                    }
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        alterados.add(mapearProduto(rs));
+                        medicao.adicionarLinhas(1);
+                    }
+                    rs.close();
+                    stmt.close();
+
+                    List<Integer> excluidos = new ArrayList<>();
+                    if (desde > 0) {
+                        stmt = conn.prepareStatement("SELECT produto_id FROM produto_exclusao WHERE versao > ?");
+                        stmt.setLong(1, desde);
+                        rs = stmt.executeQuery();
+                        while (rs.next()) {
+                            excluidos.add(rs.getInt(1));
+                            medicao.adicionarLinhas(1);
+                        }
+                        rs.close();
+                        stmt.close();
+                    }
+                    return new Alteracoes<>(versao, desde <= 0, alterados, excluidos);
+                } finally {
+                    conexao.fecharConexao();
+                }
+            });
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar alterações de produtos.", e);
+        } finally {
+            medicao.encerrar();
+        }
+    }
 
+    /**
+     * Retorna a versão de alteração atual do catálogo (produtos, categorias e estoque).
+     * A versão só muda quando alguma dessas tabelas é alterada, então serve para identificar
+     * respostas que dependem apenas delas, sem consultá-las.
+     *
+     * @return Versão atual do catálogo.
+     */
+    public long consultarVersao() {
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.consultarVersao");
         Conexao conexao = new Conexao();
         try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
-            stmt.close();
+            return VersaoAlteracao.atual(conexao.getConexao());
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao consultar versão do catálogo.", e);
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
     }
 
     /**
-     * Lista todos os produtos cadastrados no banco de dados, incluindo informações da categoria relacionada.
+     * Lista todos os produtos cadastrados, incluindo informações da categoria relacionada.
+     * A consulta é atendida pelo {@link CacheProdutos} quando possível.
      *
      * @return Lista de objetos Produto com os dados dos produtos e suas categorias.
      */
     public List<Produto> listarTodos() {
+        return CacheProdutos.getInstancia().listarTodos(this::consultarTodos);
+    }
+
+    /**
+     * Consulta no banco de dados todos os produtos cadastrados, incluindo informações da categoria relacionada.
+     *
+     * @return Lista de objetos Produto com os dados dos produtos e suas categorias.
+     */
+    private List<Produto> consultarTodos() {
         List<Produto> lista = new ArrayList<>();
         String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
                 + "FROM produto p "
                 + "JOIN categoria c ON p.categoria_id = c.id "
                 + "ORDER BY p.nome";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.listarTodos");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
@@ -130,31 +311,361 @@ public class ProdutoDAO {
                         cat
                 );
                 lista.add(p);
+                medicao.adicionarLinhas(1);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
     }
 
+    /**
+     * Percorre sequencialmente todos os produtos, em ordem de nome, entregando um de cada vez
+     * ao processador. A consulta vai direto ao banco (sem o {@link CacheProdutos}), as linhas
+     * são lidas aos poucos (ver {@link Conexao#prepararConsultaSequencial(String)}) e as mesmas
+     * instâncias de Produto e Categoria são reutilizadas, de modo que o consumo de memória não
+     * depende do tamanho do catálogo.
+     *
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    public void percorrerTodos(ProcessadorLinha<Produto> processador) throws IOException {
+        percorrerComFiltro("ProdutoDAO.percorrerTodos", "", null, processador);
+    }
+
+    /**
+     * Percorre sequencialmente os produtos com quantidade abaixo do mínimo, como em
+     * {@link #percorrerTodos(ProcessadorLinha)}.
+     *
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    public void percorrerAbaixoMinimo(ProcessadorLinha<Produto> processador) throws IOException {
+        percorrerComFiltro("ProdutoDAO.percorrerAbaixoMinimo", "WHERE (p.quantidade - p.quantidade_minima) < 0 ",
+                null, processador);
+    }
+
+    /**
+     * Percorre sequencialmente os produtos com quantidade acima do máximo, como em
+     * {@link #percorrerTodos(ProcessadorLinha)}.
+     *
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    public void percorrerAcimaMaximo(ProcessadorLinha<Produto> processador) throws IOException {
+        percorrerComFiltro("ProdutoDAO.percorrerAcimaMaximo", "WHERE (p.quantidade - p.quantidade_maxima) > 0 ",
+                null, processador);
+    }
+
+    /**
+     * Percorre sequencialmente os produtos de uma categoria, como em
+     * {@link #percorrerTodos(ProcessadorLinha)}.
+     *
+     * @param categoriaId Identificador da categoria.
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    public void percorrerPorCategoria(int categoriaId, ProcessadorLinha<Produto> processador) throws IOException {
+        percorrerComFiltro("ProdutoDAO.percorrerPorCategoria", "WHERE p.categoria_id = ? ", categoriaId, processador);
+    }
+
+    /**
+     * Percorre sequencialmente os produtos que atendem a um filtro, em ordem de nome,
+     * reutilizando as mesmas instâncias de Produto e Categoria.
+     *
+     * @param operacao    Nome da operação nas métricas.
+     * @param filtro      Cláusula WHERE aplicada à consulta ou vazio.
+     * @param parametro   Valor do parâmetro do filtro ou null se não houver.
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    private void percorrerComFiltro(String operacao, String filtro, Integer parametro,
+                                    ProcessadorLinha<Produto> processador) throws IOException {
+        String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
+                + "FROM produto p "
+                + "JOIN categoria c ON p.categoria_id = c.id "
+                + filtro
+                + "ORDER BY p.nome";
+
+        Categoria cat = new Categoria();
+        Produto p = new Produto();
+        p.setCategoria(cat);
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar(operacao);
+        Conexao conexao = new Conexao();
+        try {
+            PreparedStatement stmt = conexao.prepararConsultaSequencial(sql);
+            if (parametro != null) {
+                stmt.setInt(1, parametro);
+            }
+            ResultSet rs = stmt.executeQuery();
+            try {
+                while (rs.next()) {
+                    cat.setId(rs.getInt("cid"));
+                    cat.setNome(rs.getString("cnome"));
+                    cat.setTamanho(rs.getString("tamanho"));
+                    cat.setEmbalagem(rs.getString("embalagem"));
+                    p.setId(rs.getInt("id"));
+                    p.setNome(rs.getString("nome"));
+                    p.setPrecoUnitario(rs.getDouble("preco_unitario"));
+                    p.setUnidade(rs.getString("unidade"));
+                    p.setQuantidadeEstoque(rs.getInt("quantidade"));
+                    p.setQuantidadeMinima(rs.getInt("quantidade_minima"));
+                    p.setQuantidadeMaxima(rs.getInt("quantidade_maxima"));
+                    processador.processar(p);
+                    medicao.adicionarLinhas(1);
+                }
+            } finally {
+                rs.close();
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar produtos.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Percorre sequencialmente todos os produtos, em ordem de nome, lendo apenas as colunas
+     * dos campos da projeção. A tabela categoria só entra na consulta se algum campo dela for
+     * pedido. O mapa entregue ao processador é reutilizado a cada linha.
+     *
+     * @param projecao    Campos a ler ({@link Projecao#produto(String)}).
+     * @param processador Destino dos produtos.
+     * @throws IOException Se o processador falhar ao gravar um produto.
+     */
+    public void percorrerProjetado(Projecao projecao, ProcessadorLinha<Map<String, Object>> processador)
+            throws IOException {
+        String sql = "SELECT " + projecao.getColunas() + " "
+                + "FROM produto p "
+                + (projecao.usaTabela("c")
+                        ? "JOIN categoria c ON p.categoria_id = c.id "
+                        : "WHERE p.categoria_id IS NOT NULL ")
+                + "ORDER BY p.nome";
+
+        Map<String, Object> linha = new LinkedHashMap<>();
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.percorrerProjetado");
+        Conexao conexao = new Conexao();
+        try {
+            PreparedStatement stmt = conexao.prepararConsultaSequencial(sql);
+            ResultSet rs = stmt.executeQuery();
+            try {
+                while (rs.next()) {
+                    projecao.ler(rs, linha);
+                    processador.processar(linha);
+                    medicao.adicionarLinhas(1);
+                }
+            } finally {
+                rs.close();
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar produtos.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Lista uma página de produtos, em ordem de nome.
+     * A paginação é feita por cursor (keyset) sobre (nome, id): cada página continua exatamente
+     * após o último produto da anterior, sem OFFSET, usando o índice idx_produto_nome.
+     * A consulta vai direto ao banco, sem o {@link CacheProdutos}.
+     *
+     * @param cursor Cursor retornado pela página anterior ou null para a primeira página.
+     * @param limite Quantidade de itens por página (entre 1 e 1000; valores menores que 1 usam 100).
+     * @return Página de produtos.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    public Pagina<Produto> listarPagina(String cursor, int limite) {
+        String condicao = "";
+        List<Object> parametros = new ArrayList<>();
+        if (cursor != null && !cursor.isEmpty()) {
+            Object[] posicao = decodificarCursor(cursor);
+            condicao = "WHERE (p.nome > ? OR (p.nome = ? AND p.id > ?)) ";
+            parametros.add(posicao[1]);
+            parametros.add(posicao[1]);
+            parametros.add(posicao[0]);
+        }
+        return consultarPagina("ProdutoDAO.listarPagina", condicao, parametros, tamanhoPagina(limite), 0);
+    }
+
+    /**
+     * Lista a página de produtos que começa na posição informada, na mesma ordem de
+     * {@link #listarPagina(String, int)}.
+     * A posição é aplicada com OFFSET, cujo custo cresce com ela; use-a apenas para saltar a
+     * uma posição cujo cursor não é conhecido e continue a partir do cursor retornado.
+     *
+     * @param posicao Posição (a partir de 0) do primeiro produto da página.
+     * @param limite  Quantidade de itens por página, limitada como em listarPagina.
+     * @return Página de produtos.
+     */
+    public Pagina<Produto> listarPaginaNaPosicao(int posicao, int limite) {
+        return consultarPagina("ProdutoDAO.listarPaginaNaPosicao", "", new ArrayList<>(), tamanhoPagina(limite),
+                Math.max(0, posicao));
+    }
+
+    /**
+     * Conta os produtos cadastrados.
+     *
+     * @return Quantidade de produtos.
+     */
+    public int contar() {
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.contar");
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM produto");
+            int total = rs.next() ? rs.getInt(1) : 0;
+            rs.close();
+            stmt.close();
+            return total;
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao contar produtos.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+    }
+
+    /**
+     * Executa a consulta de uma página de produtos, lendo um item a mais para saber se há
+     * próxima página.
+     *
+     * @param operacao     Nome da operação nas métricas.
+     * @param condicao     Cláusula WHERE da página ou vazio.
+     * @param parametros   Valores dos parâmetros da condição.
+     * @param tamanho      Quantidade de itens da página.
+     * @param deslocamento Itens a saltar (OFFSET) ou 0.
+     * @return Página de produtos.
+     */
+    private Pagina<Produto> consultarPagina(String operacao, String condicao, List<Object> parametros,
+                                            int tamanho, int deslocamento) {
+        String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
+                + "FROM produto p "
+                + "JOIN categoria c ON p.categoria_id = c.id "
+                + condicao
+                + "ORDER BY p.nome, p.id "
+                + "LIMIT ?"
+                + (deslocamento > 0 ? " OFFSET ?" : "");
+        parametros.add(tamanho + 1);
+        if (deslocamento > 0) {
+            parametros.add(deslocamento);
+        }
+
+        List<Produto> lista = new ArrayList<>();
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar(operacao);
+        Conexao conexao = new Conexao();
+        try {
+            Connection conn = conexao.getConexao();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                lista.add(mapearProduto(rs));
+                medicao.adicionarLinhas(1);
+            }
+
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            medicao.registrarErro();
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao listar produtos.", e);
+        } finally {
+            conexao.fecharConexao();
+            medicao.encerrar();
+        }
+
+        String proximoCursor = null;
+        if (lista.size() > tamanho) {
+            lista.remove(tamanho);
+            Produto ultimo = lista.get(tamanho - 1);
+            proximoCursor = codificarCursor(ultimo.getId(), ultimo.getNome());
+        }
+        return new Pagina<>(lista, proximoCursor);
+    }
+
+    private static int tamanhoPagina(int limite) {
+        return limite < 1 ? TAMANHO_PAGINA_PADRAO : Math.min(limite, TAMANHO_PAGINA_MAXIMO);
+    }
+
+    /**
+     * Cria o cursor que aponta para a posição logo após o produto informado.
+     *
+     * @param id   ID do produto.
+     * @param nome Nome do produto.
+     * @return Cursor opaco (Base64 URL-safe).
+     */
+    private static String codificarCursor(int id, String nome) {
+        String valor = id + "|" + nome;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lê a posição (id e nome) de um cursor.
+     *
+     * @param cursor Cursor criado por {@link #codificarCursor(int, String)}.
+     * @return Vetor com o id e o nome.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    private static Object[] decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf('|');
+            int id = Integer.parseInt(valor.substring(0, separador));
+            return new Object[]{id, valor.substring(separador + 1)};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.", e);
+        }
+    }
+
     /**
      * Busca um produto específico pelo seu ID.
+     * A consulta é atendida pelo {@link CacheProdutos} quando possível.
      *
      * @param id Identificador do produto.
      * @return Objeto Produto ou null se não encontrado.
      */
     public Produto buscarPorId(int id) {
+        return CacheProdutos.getInstancia().buscarPorId(id, this::consultarPorId);
+    }
+
+    /**
+     * Consulta um produto específico no banco de dados pelo seu ID.
+     *
+     * @param id Identificador do produto.
+     * @return Objeto Produto ou null se não encontrado.
+     */
+    private Produto consultarPorId(int id) {
         String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
                 + "FROM produto p "
                 + "JOIN categoria c ON p.categoria_id = c.id "
                 + "WHERE p.id = ?";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.buscarPorId");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
@@ -163,6 +674,7 @@ public class ProdutoDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
+                medicao.adicionarLinhas(1);
                 Categoria cat = new Categoria(
                         rs.getInt("cid"),
                         rs.getString("cnome"),
@@ -188,113 +700,226 @@ public class ProdutoDAO {
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return null;
     }
 
     /**
-     * Lista produtos com quantidade abaixo do mínimo.
+     * Busca vários produtos pelo id, na ordem em que os ids foram informados (ids repetidos
+     * aparecem uma vez e ids inexistentes ficam de fora). Os produtos que não estão no
+     * {@link CacheProdutos} são lidos com consultas WHERE id IN (...) de até
+     * estoque.produto.idsPorConsulta ids cada (padrão 500), em vez de uma consulta por produto.
      *
-     * @return Lista de produtos abaixo do mínimo.
+     * @param ids Identificadores dos produtos.
+     * @return Lista com os produtos encontrados.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco.
      */
-    public List<Produto> listarAbaixoMinimo() {
-        List<Produto> lista = new ArrayList<>();
-        String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
-                + "FROM produto p "
-                + "JOIN categoria c ON p.categoria_id = c.id "
-                + "WHERE p.quantidade < p.quantidade_minima "
-                + "ORDER BY p.nome";
+    public List<Produto> buscarPorIds(Collection<Integer> ids) {
+        Set<Integer> unicos = new LinkedHashSet<>(ids);
+        if (unicos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Produto> encontrados = CacheProdutos.getInstancia().buscarPorIds(unicos, this::consultarPorIds);
+        List<Produto> lista = new ArrayList<>(encontrados.size());
+        for (Integer id : unicos) {
+            Produto p = encontrados.get(id);
+            if (p != null) {
+                lista.add(p);
+            }
+        }
+        return lista;
+    }
 
+    /**
+     * Busca produtos pelo nome ou pela categoria, para o autocompletar das telas e da API.
+     * Os termos do texto são procurados no {@link IndiceBuscaProdutos}, sem acentos e sem
+     * diferenciar maiúsculas, e os produtos encontrados são lidos com
+     * {@link #buscarPorIds(Collection)}.
+     *
+     * @param texto  Texto digitado.
+     * @param limite Quantidade máxima de produtos.
+     * @return Produtos encontrados, do mais para o menos relevante.
+     */
+    public List<Produto> buscar(String texto, int limite) {
+        return buscarPorIds(IndiceBuscaProdutos.getInstancia().buscar(texto, limite));
+    }
+
+    /**
+     * Consulta no banco de dados os produtos com os ids informados, em blocos de
+     * IDS_POR_CONSULTA ids.
+     *
+     * @param ids Identificadores dos produtos, sem repetição.
+     * @return Produtos encontrados, em qualquer ordem.
+     */
+    private List<Produto> consultarPorIds(Collection<Integer> ids) {
+        List<Produto> lista = new ArrayList<>(ids.size());
+        List<Integer> pendentes = new ArrayList<>(ids);
+
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar("ProdutoDAO.buscarPorIds");
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-                Categoria cat = new Categoria(
-                        rs.getInt("cid"),
-                        rs.getString("cnome"),
-                        rs.getString("tamanho"),
-                        rs.getString("embalagem")
-                );
-
-                Produto p = new Produto(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getDouble("preco_unitario"),
-                        rs.getString("unidade"),
-                        rs.getInt("quantidade"),
-                        rs.getInt("quantidade_minima"),
-                        rs.getInt("quantidade_maxima"),
-                        cat
-                );
-                lista.add(p);
+            PreparedStatement completo = null;
+            try {
+                for (int inicio = 0; inicio < pendentes.size(); inicio += IDS_POR_CONSULTA) {
+                    List<Integer> bloco = pendentes.subList(inicio, Math.min(inicio + IDS_POR_CONSULTA, pendentes.size()));
+                    // Os blocos completos reaproveitam o mesmo comando; só o último tem outro tamanho
+                    PreparedStatement stmt;
+                    if (bloco.size() == IDS_POR_CONSULTA) {
+                        if (completo == null) {
+                            completo = conn.prepareStatement(sqlPorIds(IDS_POR_CONSULTA));
+                        }
+                        stmt = completo;
+                    } else {
+                        stmt = conn.prepareStatement(sqlPorIds(bloco.size()));
+                    }
+                    for (int i = 0; i < bloco.size(); i++) {
+                        stmt.setInt(i + 1, bloco.get(i));
+                    }
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        lista.add(mapearProduto(rs));
+                        medicao.adicionarLinhas(1);
+                    }
+                    rs.close();
+                    if (stmt != completo) {
+                        stmt.close();
+                    }
+                }
+            } finally {
+                if (completo != null) {
+                    completo.close();
+                }
             }
-
-            rs.close();
-            stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
+            throw new RuntimeException("Erro ao buscar produtos.", e);
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
     }
 
+    private static String sqlPorIds(int quantidade) {
+        StringBuilder sql = new StringBuilder("SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
+                + "FROM produto p "
+                + "JOIN categoria c ON p.categoria_id = c.id "
+                + "WHERE p.id IN (");
+        for (int i = 0; i < quantidade; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Lista produtos com quantidade abaixo do mínimo.
+     * A condição é escrita como (quantidade - quantidade_minima) < 0 para usar o índice
+     * funcional idx_produto_deficit.
+     *
+     * @return Lista de produtos abaixo do mínimo.
+     */
+    public List<Produto> listarAbaixoMinimo() {
+        return listarComFiltro("ProdutoDAO.listarAbaixoMinimo", "WHERE (p.quantidade - p.quantidade_minima) < 0 ", null);
+    }
+
     /**
      * Lista produtos com quantidade acima do máximo.
+     * A condição é escrita como (quantidade - quantidade_maxima) > 0 para usar o índice
+     * funcional idx_produto_excesso.
      *
      * @return Lista de produtos acima do máximo.
      */
     public List<Produto> listarAcimaMaximo() {
+        return listarComFiltro("ProdutoDAO.listarAcimaMaximo", "WHERE (p.quantidade - p.quantidade_maxima) > 0 ", null);
+    }
+
+    /**
+     * Lista os produtos de uma categoria, usando o índice idx_produto_categoria_nome.
+     *
+     * @param categoriaId Identificador da categoria.
+     * @return Lista de produtos da categoria.
+     */
+    public List<Produto> listarPorCategoria(int categoriaId) {
+        return listarComFiltro("ProdutoDAO.listarPorCategoria", "WHERE p.categoria_id = ? ", categoriaId);
+    }
+
+    /**
+     * Lista os produtos que atendem a um filtro, em ordem de nome.
+     *
+     * @param operacao  Nome da operação nas métricas.
+     * @param filtro    Cláusula WHERE aplicada à consulta.
+     * @param parametro Valor do parâmetro do filtro ou null se não houver.
+     * @return Lista de produtos filtrados.
+     */
+    private List<Produto> listarComFiltro(String operacao, String filtro, Integer parametro) {
         List<Produto> lista = new ArrayList<>();
         String sql = "SELECT p.*, c.id AS cid, c.nome AS cnome, c.tamanho, c.embalagem "
                 + "FROM produto p "
                 + "JOIN categoria c ON p.categoria_id = c.id "
-                + "WHERE p.quantidade > p.quantidade_maxima "
+                + filtro
                 + "ORDER BY p.nome";
 
+        Metricas.Medicao medicao = Metricas.getInstancia().iniciar(operacao);
         Conexao conexao = new Conexao();
         try {
             Connection conn = conexao.getConexao();
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            if (parametro != null) {
+                stmt.setInt(1, parametro);
+            }
+            ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Categoria cat = new Categoria(
-                        rs.getInt("cid"),
-                        rs.getString("cnome"),
-                        rs.getString("tamanho"),
-                        rs.getString("embalagem")
-                );
-
-                Produto p = new Produto(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getDouble("preco_unitario"),
-                        rs.getString("unidade"),
-                        rs.getInt("quantidade"),
-                        rs.getInt("quantidade_minima"),
-                        rs.getInt("quantidade_maxima"),
-                        cat
-                );
-                lista.add(p);
+                lista.add(mapearProduto(rs));
+                medicao.adicionarLinhas(1);
             }
 
             rs.close();
             stmt.close();
         } catch (SQLException e) {
+            medicao.registrarErro();
             e.printStackTrace();
         } finally {
             conexao.fecharConexao();
+            medicao.encerrar();
         }
 
         return lista;
     }
+
+    /**
+     * Cria um Produto, com sua categoria, a partir da linha atual do ResultSet.
+     *
+     * @param rs ResultSet posicionado na linha a ser lida.
+     * @return Produto lido.
+     * @throws SQLException Se ocorrer erro na leitura das colunas.
+     */
+    private Produto mapearProduto(ResultSet rs) throws SQLException {
+        Categoria cat = new Categoria(
+                rs.getInt("cid"),
+                rs.getString("cnome"),
+                rs.getString("tamanho"),
+                rs.getString("embalagem")
+        );
+
+        return new Produto(
+                rs.getInt("id"),
+                rs.getString("nome"),
+                rs.getDouble("preco_unitario"),
+                rs.getString("unidade"),
+                rs.getInt("quantidade"),
+                rs.getInt("quantidade_minima"),
+                rs.getInt("quantidade_maxima"),
+                cat
+        );
+    }
 }
@@ -0,0 +1,229 @@
+package dao;
+
+/**
+ * Seleção de campos (?fields=) de uma consulta de produtos ou de movimentações.
+ *
+ * Cada campo permitido corresponde a uma coluna do SELECT, de modo que só as colunas pedidas
+ * são lidas do banco, e a tabela relacionada (categoria ou produto) só entra na consulta se
+ * algum campo dela for pedido. Os campos da tabela relacionada são escritos com ponto
+ * ("categoria.nome", "produto.quantidadeEstoque") e podem ser pedidos juntos pelo nome do
+ * grupo ("categoria", "produto"). Nomes fora da lista são recusados.
+ *
+ * As linhas são lidas em mapas com os mesmos nomes e o mesmo aninhamento da serialização
+ * padrão; datas são escritas no formato ISO (yyyy-MM-ddTHH:mm:ss).
+ */
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class Projecao {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final Map<String, Campo> CAMPOS_PRODUTO = new LinkedHashMap<>();
+    private static final Map<String, Campo> CAMPOS_MOVIMENTACAO = new LinkedHashMap<>();
+
+    static {
+        registrar(CAMPOS_PRODUTO, "id", "p.id", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "nome", "p.nome", Tipo.TEXTO);
+        registrar(CAMPOS_PRODUTO, "precoUnitario", "p.preco_unitario", Tipo.DECIMAL);
+        registrar(CAMPOS_PRODUTO, "unidade", "p.unidade", Tipo.TEXTO);
+        registrar(CAMPOS_PRODUTO, "quantidadeEstoque", "p.quantidade", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "quantidade", "p.quantidade", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "quantidadeMinima", "p.quantidade_minima", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "quantidadeMaxima", "p.quantidade_maxima", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "categoria.id", "p.categoria_id", Tipo.INTEIRO);
+        registrar(CAMPOS_PRODUTO, "categoria.nome", "c.nome", Tipo.TEXTO);
+        registrar(CAMPOS_PRODUTO, "categoria.tamanho", "c.tamanho", Tipo.TEXTO);
+        registrar(CAMPOS_PRODUTO, "categoria.embalagem", "c.embalagem", Tipo.TEXTO);
+
+        registrar(CAMPOS_MOVIMENTACAO, "id", "m.id", Tipo.INTEIRO);
+        registrar(CAMPOS_MOVIMENTACAO, "tipo", "m.tipo", Tipo.TEXTO);
+        registrar(CAMPOS_MOVIMENTACAO, "quantidade", "m.quantidade", Tipo.INTEIRO);
+        registrar(CAMPOS_MOVIMENTACAO, "dataMovimento", "m.data_movimento", Tipo.DATA_HORA);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.id", "m.produto_id", Tipo.INTEIRO);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.nome", "p.nome", Tipo.TEXTO);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.precoUnitario", "p.preco_unitario", Tipo.DECIMAL);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.unidade", "p.unidade", Tipo.TEXTO);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.quantidadeEstoque", "p.quantidade", Tipo.INTEIRO);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.quantidadeMinima", "p.quantidade_minima", Tipo.INTEIRO);
+        registrar(CAMPOS_MOVIMENTACAO, "produto.quantidadeMaxima", "p.quantidade_maxima", Tipo.INTEIRO);
+    }
+
+    private final List<Campo> campos;
+
+    private Projecao(List<Campo> campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Cria a projeção de produtos a partir do parâmetro fields.
+     *
+     * @param fields Nomes dos campos separados por vírgula.
+     * @return Projeção validada.
+     * @throws IllegalArgumentException Se algum campo não for permitido ou nenhum for informado.
+     */
+    public static Projecao produto(String fields) {
+        return analisar(CAMPOS_PRODUTO, fields);
+    }
+
+    /**
+     * Cria a projeção de movimentações a partir do parâmetro fields.
+     *
+     * @param fields Nomes dos campos separados por vírgula.
+     * @return Projeção validada.
+     * @throws IllegalArgumentException Se algum campo não for permitido ou nenhum for informado.
+     */
+    public static Projecao movimentacao(String fields) {
+        return analisar(CAMPOS_MOVIMENTACAO, fields);
+    }
+
+    /**
+     * Retorna os nomes dos campos selecionados, na ordem do pedido.
+     * @return Lista de nomes.
+     */
+    public List<String> getCampos() {
+        List<String> nomes = new ArrayList<>(campos.size());
+        for (Campo c : campos) {
+            nomes.add(c.caminho);
+        }
+        return Collections.unmodifiableList(nomes);
+    }
+
+    /**
+     * Lista de colunas do SELECT, na ordem dos campos, a partir da primeira coluna.
+     */
+    String getColunas() {
+        StringBuilder sb = new StringBuilder();
+        for (Campo c : campos) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(c.expressao);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Indica se algum campo vem da tabela com o apelido informado (ex.: "c" ou "p").
+     */
+    boolean usaTabela(String apelido) {
+        for (Campo c : campos) {
+            if (c.expressao.startsWith(apelido + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lê os campos da linha atual para o mapa informado, que pode ser reaproveitado entre
+     * as linhas. As colunas são lidas pela posição (ver {@link #getColunas()}).
+     */
+    @SuppressWarnings("unchecked")
+    void ler(ResultSet rs, Map<String, Object> destino) throws SQLException {
+        for (int i = 0; i < campos.size(); i++) {
+            Campo c = campos.get(i);
+            Object valor = c.tipo.ler(rs, i + 1);
+            if (c.grupo == null) {
+                destino.put(c.nome, valor);
+            } else {
+                ((Map<String, Object>) destino.computeIfAbsent(c.grupo, g -> new LinkedHashMap<String, Object>()))
+                        .put(c.nome, valor);
+            }
+        }
+    }
+
+    private static void registrar(Map<String, Campo> campos, String caminho, String expressao, Tipo tipo) {
+        campos.put(caminho, new Campo(caminho, expressao, tipo));
+    }
+
+    private static Projecao analisar(Map<String, Campo> permitidos, String fields) {
+        Set<Campo> escolhidos = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String item : fields.split(",")) {
+                String nome = item.trim();
+                if (nome.isEmpty()) {
+                    continue;
+                }
+                Campo campo = permitidos.get(nome);
+                if (campo != null) {
+                    escolhidos.add(campo);
+                    continue;
+                }
+                boolean grupo = false;
+                for (Campo c : permitidos.values()) {
+                    if (nome.equals(c.grupo)) {
+                        escolhidos.add(c);
+                        grupo = true;
+                    }
+                }
+                if (!grupo) {
+                    throw new IllegalArgumentException("Campo inválido em fields: " + nome
+                            + ". Campos permitidos: " + String.join(", ", permitidos.keySet()));
+                }
+            }
+        }
+        if (escolhidos.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um campo em fields.");
+        }
+        return new Projecao(new ArrayList<>(escolhidos));
+    }
+
+    private enum Tipo {
+        INTEIRO {
+            @Override
+            Object ler(ResultSet rs, int coluna) throws SQLException {
+                int valor = rs.getInt(coluna);
+                return rs.wasNull() ? null : valor;
+            }
+        },
+        DECIMAL {
+            @Override
+            Object ler(ResultSet rs, int coluna) throws SQLException {
+                double valor = rs.getDouble(coluna);
+                return rs.wasNull() ? null : valor;
+            }
+        },
+        TEXTO {
+            @Override
+            Object ler(ResultSet rs, int coluna) throws SQLException {
+                return rs.getString(coluna);
+            }
+        },
+        DATA_HORA {
+            @Override
+            Object ler(ResultSet rs, int coluna) throws SQLException {
+                Timestamp valor = rs.getTimestamp(coluna);
+                return valor == null ? null : FORMATO_DATA.format(valor.toLocalDateTime());
+            }
+        };
+
+        abstract Object ler(ResultSet rs, int coluna) throws SQLException;
+    }
+
+    private static final class Campo {
+        final String caminho;
+        final String grupo;
+        final String nome;
+        final String expressao;
+        final Tipo tipo;
+
+        Campo(String caminho, String expressao, Tipo tipo) {
+            int ponto = caminho.indexOf('.');
+            this.caminho = caminho;
+            this.grupo = ponto < 0 ? null : caminho.substring(0, ponto);
+            this.nome = ponto < 0 ? caminho : caminho.substring(ponto + 1);
+            this.expressao = expressao;
+            this.tipo = tipo;
+        }
+    }
+}
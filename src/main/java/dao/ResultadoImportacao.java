@@ -0,0 +1,97 @@
+package dao;
+
+/**
+ * Relatório de uma importação em massa: quantas linhas foram lidas, inseridas e recusadas,
+ * e o motivo da recusa de cada linha (até o limite configurado em {@link ImportacaoProdutos}).
+ */
+import java.util.List;
+
+public class ResultadoImportacao {
+
+    private final int linhasLidas;
+    private final int inseridos;
+    private final int recusados;
+    private final List<Erro> erros;
+
+    /**
+     * Construtor com parâmetros.
+     *
+     * @param linhasLidas Registros lidos do arquivo (sem o cabeçalho e as linhas em branco).
+     * @param inseridos   Registros gravados no banco.
+     * @param recusados   Registros recusados.
+     * @param erros       Erros das linhas recusadas, na ordem do arquivo.
+     */
+    public ResultadoImportacao(int linhasLidas, int inseridos, int recusados, List<Erro> erros) {
+        this.linhasLidas = linhasLidas;
+        this.inseridos = inseridos;
+        this.recusados = recusados;
+        this.erros = erros;
+    }
+
+    /**
+     * Retorna a quantidade de registros lidos.
+     * @return Registros lidos.
+     */
+    public int getLinhasLidas() {
+        return linhasLidas;
+    }
+
+    /**
+     * Retorna a quantidade de registros gravados.
+     * @return Registros inseridos.
+     */
+    public int getInseridos() {
+        return inseridos;
+    }
+
+    /**
+     * Retorna a quantidade de registros recusados, inclusive os que não constam em {@link #getErros()}.
+     * @return Registros recusados.
+     */
+    public int getRecusados() {
+        return recusados;
+    }
+
+    /**
+     * Retorna os erros das linhas recusadas.
+     * @return Lista de erros.
+     */
+    public List<Erro> getErros() {
+        return erros;
+    }
+
+    /**
+     * Motivo da recusa de uma linha do arquivo.
+     */
+    public static class Erro {
+        private final int linha;
+        private final String mensagem;
+
+        /**
+         * Construtor com parâmetros.
+         *
+         * @param linha    Número da linha no arquivo (a primeira é 1).
+         * @param mensagem Motivo da recusa.
+         */
+        public Erro(int linha, String mensagem) {
+            this.linha = linha;
+            this.mensagem = mensagem;
+        }
+
+        /**
+         * Retorna o número da linha no arquivo.
+         * @return Número da linha.
+         */
+        public int getLinha() {
+            return linha;
+        }
+
+        /**
+         * Retorna o motivo da recusa.
+         * @return Mensagem de erro.
+         */
+        public String getMensagem() {
+            return mensagem;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package dao;
+
+/**
+ * Unidade de trabalho associada à thread atual.
+ * Enquanto uma unidade estiver aberta, todas as instâncias de {@link Conexao} criadas
+ * pelos DAOs nesta thread compartilham a mesma conexão e a mesma transação, que é
+ * confirmada ou desfeita uma única vez ao final.
+ *
+ * A conexão só é obtida do pool no primeiro acesso ao banco, de modo que abrir uma
+ * unidade para uma requisição que não consulta o banco não tem custo.
+ *
+ * Uso típico:
+ * <pre>
+ * UnidadeDeTrabalho unidade = UnidadeDeTrabalho.iniciar();
+ * try {
+ *     ... chamadas aos DAOs ...
+ *     unidade.confirmar();
+ * } finally {
+ *     unidade.encerrar();
+ * }
+ * </pre>
+ */
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class UnidadeDeTrabalho {
+
+    private static final ThreadLocal<UnidadeDeTrabalho> ATUAL = new ThreadLocal<>();
+
+    private Connection conexao;
+    private boolean encerrada;
+    private final List<Runnable> aposConfirmar = new ArrayList<>();
+    private long versaoEmMemoria = Long.MAX_VALUE;
+
+    private UnidadeDeTrabalho() {
+    }
+
+    /**
+     * Abre uma nova unidade de trabalho na thread atual.
+     *
+     * @return Unidade de trabalho aberta.
+     * @throws IllegalStateException Se já existir uma unidade aberta nesta thread.
+     */
+    public static UnidadeDeTrabalho iniciar() {
+        if (ATUAL.get() != null) {
+            throw new IllegalStateException("Já existe uma unidade de trabalho aberta nesta thread.");
+        }
+        UnidadeDeTrabalho unidade = new UnidadeDeTrabalho();
+        ATUAL.set(unidade);
+        return unidade;
+    }
+
+    /**
+     * Retorna a unidade de trabalho aberta na thread atual.
+     *
+     * @return Unidade de trabalho atual ou null se não houver.
+     */
+    public static UnidadeDeTrabalho atual() {
+        return ATUAL.get();
+    }
+
+    /**
+     * Agenda uma ação para depois que as alterações da unidade atual forem confirmadas,
+     * como atualizar caches em memória. A ação é descartada se a unidade for desfeita.
+     * Sem unidade aberta (auto-commit), a ação é executada imediatamente.
+     *
+     * @param acao Ação a executar após o commit.
+     */
+    public static void aposConfirmar(Runnable acao) {
+        UnidadeDeTrabalho unidade = ATUAL.get();
+        if (unidade == null) {
+            acao.run();
+        } else {
+            unidade.aposConfirmar.add(acao);
+        }
+    }
+
+    /**
+     * Registra que a unidade atual entregou dados mantidos em memória (caches), carregados do
+     * banco na versão de alteração informada. A unidade guarda a menor versão registrada, que
+     * pode ser mais antiga que a lida do banco na mesma transação.
+     * Sem unidade aberta, nada é registrado.
+     *
+     * @param versao Versão em que os dados foram carregados.
+     */
+    public static void registrarVersaoEmMemoria(long versao) {
+        UnidadeDeTrabalho unidade = ATUAL.get();
+        if (unidade != null && versao < unidade.versaoEmMemoria) {
+            unidade.versaoEmMemoria = versao;
+        }
+    }
+
+    /**
+     * Retorna a menor versão dos dados em memória entregues por esta unidade.
+     *
+     * @return Versão registrada ou Long.MAX_VALUE se nenhum dado em memória foi entregue.
+     */
+    public long getVersaoEmMemoria() {
+        return versaoEmMemoria;
+    }
+
+    /**
+     * Indica se a unidade aberta na thread atual possui alterações ainda não confirmadas,
+     * isto é, se leituras feitas agora podem enxergar dados que outras threads não veem.
+     *
+     * @return true se houver alterações pendentes na unidade atual.
+     */
+    public static boolean possuiAlteracoesPendentes() {
+        UnidadeDeTrabalho unidade = ATUAL.get();
+        return unidade != null && !unidade.aposConfirmar.isEmpty();
+    }
+
+    /**
+     * Executa um trabalho dentro de uma transação. Se já houver uma unidade aberta
+     * nesta thread, o trabalho participa dela; caso contrário uma unidade é aberta,
+     * confirmada ao final e desfeita se o trabalho lançar exceção.
+     *
+     * @param trabalho Trabalho a ser executado.
+     * @param <T>      Tipo do resultado.
+     * @return Resultado do trabalho.
+     * @throws SQLException Se ocorrer erro de acesso ao banco.
+     */
+    public static <T> T executar(Trabalho<T> trabalho) throws SQLException {
+        if (ATUAL.get() != null) {
+            return trabalho.executar();
+        }
+        UnidadeDeTrabalho unidade = iniciar();
+        try {
+            T resultado = trabalho.executar();
+            unidade.confirmar();
+            return resultado;
+        } catch (SQLException | RuntimeException e) {
+            unidade.desfazer();
+            throw e;
+        } finally {
+            unidade.encerrar();
+        }
+    }
+
+    /**
+     * Retorna a conexão da unidade, obtendo-a do pool no primeiro acesso.
+     * A conexão é entregue com auto-commit desativado.
+     *
+     * @return Conexão compartilhada pela unidade.
+     * @throws SQLException Se não for possível obter a conexão.
+     */
+    Connection getConexao() throws SQLException {
+        if (encerrada) {
+            throw new IllegalStateException("Unidade de trabalho já encerrada.");
+        }
+        if (conexao == null) {
+            Connection nova = PoolConexoes.getInstancia().emprestar();
+            try {
+                nova.setAutoCommit(false);
+            } catch (SQLException e) {
+                PoolConexoes.getInstancia().devolver(nova);
+                throw e;
+            }
+            conexao = nova;
+        }
+        return conexao;
+    }
+
+    /**
+     * Confirma (commit) as alterações feitas até o momento.
+     *
+     * @throws SQLException Se ocorrer erro ao confirmar.
+     */
+    public void confirmar() throws SQLException {
+        if (conexao != null) {
+            conexao.commit();
+        }
+        List<Runnable> acoes = new ArrayList<>(aposConfirmar);
+        aposConfirmar.clear();
+        for (Runnable acao : acoes) {
+            try {
+                acao.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Desfaz (rollback) as alterações feitas até o momento.
+     */
+    public void desfazer() {
+        aposConfirmar.clear();
+        if (conexao != null) {
+            try {
+                conexao.rollback();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Encerra a unidade de trabalho, desfazendo o que não foi confirmado,
+     * devolvendo a conexão ao pool e desassociando a unidade da thread.
+     */
+    public void encerrar() {
+        if (encerrada) {
+            return;
+        }
+        encerrada = true;
+        if (ATUAL.get() == this) {
+            ATUAL.remove();
+        }
+        if (conexao != null) {
+            PoolConexoes.getInstancia().devolver(conexao);
+            conexao = null;
+        }
+    }
+
+    /**
+     * Trabalho executado dentro de uma unidade de trabalho.
+     *
+     * @param <T> Tipo do resultado.
+     */
+    public interface Trabalho<T> {
+
+        /**
+         * Executa o trabalho.
+         *
+         * @return Resultado do trabalho.
+         * @throws SQLException Se ocorrer erro de acesso ao banco.
+         */
+        T executar() throws SQLException;
+    }
+}
@@ -0,0 +1,94 @@
+package dao;
+
+/**
+ * Contador global de versões de alteração do catálogo (tabela versao_alteracao, linha única).
+ *
+ * Cada escrita em produto ou categoria obtém a próxima versão com {@link #proxima(Connection)}
+ * na mesma transação e na mesma conexão da escrita, e grava-a na coluna versao da linha
+ * alterada (ou em produto_exclusao, nas exclusões). O contador é incrementado por um único
+ * UPDATE, que guarda o novo valor em LAST_INSERT_ID() da sessão; não há bloqueio na JVM nem
+ * commit próprio. O UPDATE bloqueia a linha do contador até o fim da transação, de modo que
+ * as transações que alteram o catálogo são confirmadas na ordem das versões: quem lê a
+ * versão atual e as linhas com versão maior que a anterior, no mesmo snapshot, nunca deixa
+ * de ver uma alteração que venha a ser confirmada com versão menor.
+ *
+ * A versão é obtida antes dos bloqueios das linhas alteradas, para que os bloqueios sejam
+ * sempre obtidos na mesma ordem. As gravações em lote (importação e movimentações agrupadas)
+ * usam uma única versão para o lote inteiro, repartindo a espera pelo contador entre as linhas.
+ */
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+final class VersaoAlteracao {
+
+    private VersaoAlteracao() {
+    }
+
+    /**
+     * Incrementa o contador e retorna a nova versão.
+     * A conexão deve estar em uma transação (auto-commit desativado), que mantém o contador
+     * bloqueado até ser confirmada ou desfeita.
+     *
+     * @param conn Conexão da transação da escrita.
+     * @return Versão a gravar nas linhas alteradas.
+     * @throws SQLException Se ocorrer erro de acesso ao banco.
+     */
+    static long proxima(Connection conn) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE versao_alteracao SET valor = LAST_INSERT_ID(valor + 1) WHERE id = 1");
+        int alterados = stmt.executeUpdate();
+        stmt.close();
+        if (alterados == 0) {
+            throw new SQLException("Tabela versao_alteracao sem a linha de id 1.");
+        }
+        // Valor da sessão: não lê nem bloqueia a tabela novamente
+        stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+        ResultSet rs = stmt.executeQuery();
+        try {
+            rs.next();
+            return rs.getLong(1);
+        } finally {
+            rs.close();
+            stmt.close();
+        }
+    }
+
+    /**
+     * Retorna a versão mais recente já confirmada, no snapshot da conexão informada.
+     *
+     * @param conn Conexão em uso.
+     * @return Versão atual do catálogo.
+     * @throws SQLException Se ocorrer erro de acesso ao banco.
+     */
+    static long atual(Connection conn) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement("SELECT valor FROM versao_alteracao WHERE id = 1");
+        ResultSet rs = stmt.executeQuery();
+        try {
+            return rs.next() ? rs.getLong(1) : 0;
+        } finally {
+            rs.close();
+            stmt.close();
+        }
+    }
+
+    /**
+     * Consulta a versão atual na unidade de trabalho da thread ou, sem unidade aberta, em uma
+     * conexão avulsa. Usada pelos caches antes de carregar os dados que guardam, de modo que
+     * a versão registrada nunca é mais nova que eles.
+     *
+     * @return Versão atual do catálogo.
+     */
+    static long consultar() {
+        Conexao conexao = new Conexao();
+        try {
+            return atual(conexao.getConexao());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Erro ao consultar versão do catálogo.", e);
+        } finally {
+            conexao.fecharConexao();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dao;
+
+/**
+ * Versão de alteração refletida por um conteúdo mantido em memória (cache ou agregados),
+ * usada como ETag das respostas que o entregam.
+ *
+ * Começa na versão lida antes da carga e avança à medida que as escritas deste processo são
+ * aplicadas ao conteúdo após o commit. Como as versões são confirmadas em ordem e sem
+ * lacunas (o contador é incrementado na transação da escrita), a versão só avança por
+ * versões consecutivas: uma versão aplicada fora de ordem fica guardada até que as
+ * anteriores também sejam aplicadas. Uma lacuna que não se fecha (ex.: escrita de outro
+ * processo) segura a versão até a próxima carga, de modo que ela nunca é mais nova que o
+ * conteúdo.
+ *
+ * Não é thread-safe para escrita: {@link #aplicada(long)} deve ser chamado sob o bloqueio do
+ * dono do conteúdo, depois de o conteúdo ter sido alterado.
+ */
+import java.util.TreeSet;
+
+final class VersaoConteudo {
+
+    /** Versões guardadas acima de uma lacuna antes de a versão deixar de avançar. */
+    private static final int MAXIMO_PENDENTES = 10000;
+
+    private volatile long versao;
+    private final TreeSet<Long> acimaDaLacuna = new TreeSet<>();
+    private boolean parada;
+
+    /**
+     * @param carregada Versão lida antes da carga do conteúdo.
+     */
+    VersaoConteudo(long carregada) {
+        this.versao = carregada;
+    }
+
+    /**
+     * @return Versão refletida pelo conteúdo.
+     */
+    long get() {
+        return versao;
+    }
+
+    /**
+     * Registra que as alterações de uma versão já estão no conteúdo.
+     *
+     * @param aplicada Versão de alteração aplicada.
+     */
+    void aplicada(long aplicada) {
+        if (parada || aplicada <= versao) {
+            return;
+        }
+        if (aplicada != versao + 1) {
+            acimaDaLacuna.add(aplicada);
+            if (acimaDaLacuna.size() > MAXIMO_PENDENTES) {
+                acimaDaLacuna.clear();
+                parada = true;
+            }
+            return;
+        }
+        long nova = aplicada;
+        while (acimaDaLacuna.remove(nova + 1)) {
+            nova++;
+        }
+        versao = nova;
+    }
+}
@@ -0,0 +1,185 @@
+package visao;
+
+/**
+ * Campo de texto com autocompletar de produtos.
+ *
+ * A busca ({@link ProdutoDAO#buscar(String, int)}) é feita quando o usuário para de digitar
+ * por um instante, em segundo plano ({@link CarregadorDados}), e os produtos encontrados
+ * aparecem em uma lista abaixo do campo, com a categoria de cada um. Uma nova digitação
+ * cancela a busca anterior. As setas percorrem a lista, Enter ou o clique escolhe o produto
+ * e Esc fecha a lista.
+ */
+
+import dao.ProdutoDAO;
+import modelo.Produto;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CampoBuscaProdutos extends JTextField {
+
+    /** Tempo sem digitação, em milissegundos, antes de buscar. */
+    private static final int ESPERA_MS = 200;
+    private static final int LIMITE = 10;
+
+    private final JComponent tela;
+    private final Consumer<Produto> aoEscolher;
+    private final DefaultListModel<Produto> encontrados = new DefaultListModel<>();
+    private final JList<Produto> lista = new JList<>(encontrados);
+    private final JScrollPane rolagem = new JScrollPane(lista);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Timer espera;
+    private CarregadorDados<Produto> busca;
+
+    /**
+     * Cria o campo de busca.
+     *
+     * @param tela       Painel da tela, usado para cancelar a busca ao trocar de tela.
+     * @param aoEscolher Recebe o produto escolhido na lista, na EDT.
+     */
+    public CampoBuscaProdutos(JComponent tela, Consumer<Produto> aoEscolher) {
+        this.tela = tela;
+        this.aoEscolher = aoEscolher;
+
+        lista.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lista.setFocusable(false);
+        lista.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                Produto p = (Produto) value;
+                String texto = p.getNome() + " — " + p.getCategoria().getNome();
+                return super.getListCellRendererComponent(list, texto, index, isSelected, cellHasFocus);
+            }
+        });
+        lista.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                escolher();
+            }
+        });
+
+        // O popup não recebe o foco, para que o usuário continue digitando no campo
+        popup.setFocusable(false);
+        popup.add(rolagem);
+
+        espera = new Timer(ESPERA_MS, e -> buscar());
+        espera.setRepeats(false);
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                espera.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                espera.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        mover(1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        mover(-1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        escolher();
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popup.setVisible(false);
+                        e.consume();
+                        break;
+                    default:
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancela a busca em andamento e busca o texto atual em segundo plano.
+     */
+    private void buscar() {
+        if (busca != null) {
+            busca.cancel(false);
+        }
+        String texto = getText();
+        busca = new CarregadorDados<>(tela, null, itens -> {
+            for (Produto p : new ProdutoDAO().buscar(texto, LIMITE)) {
+                itens.processar(p);
+            }
+        }, new CarregadorDados.Destino<Produto>() {
+            @Override
+            public void limpar() {
+                encontrados.clear();
+                popup.setVisible(false);
+            }
+
+            @Override
+            public void adicionar(List<Produto> itens) {
+                for (Produto p : itens) {
+                    encontrados.addElement(p);
+                }
+                mostrar();
+            }
+        });
+        busca.iniciar();
+    }
+
+    /**
+     * Exibe a lista abaixo do campo, se ele ainda estiver visível.
+     */
+    private void mostrar() {
+        if (!isShowing()) {
+            return;
+        }
+        lista.setVisibleRowCount(Math.min(encontrados.size(), LIMITE));
+        Dimension linhas = lista.getPreferredScrollableViewportSize();
+        rolagem.setPreferredSize(new Dimension(Math.max(getWidth(), 320), linhas.height + 4));
+        popup.pack();
+        popup.show(this, 0, getHeight());
+    }
+
+    private void mover(int passo) {
+        int indice = lista.getSelectedIndex() + passo;
+        if (indice >= 0 && indice < encontrados.size()) {
+            lista.setSelectedIndex(indice);
+            lista.ensureIndexIsVisible(indice);
+        }
+    }
+
+    /**
+     * Entrega o produto selecionado (ou o primeiro da lista) e fecha a lista.
+     */
+    private void escolher() {
+        if (encontrados.isEmpty()) {
+            return;
+        }
+        int indice = Math.max(lista.getSelectedIndex(), 0);
+        Produto escolhido = encontrados.get(indice);
+        popup.setVisible(false);
+        aoEscolher.accept(escolhido);
+    }
+}
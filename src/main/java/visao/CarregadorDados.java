@@ -0,0 +1,237 @@
+package visao;
+
+/**
+ * Carregamento dos dados de uma tela fora da Event Dispatch Thread (EDT).
+ *
+ * A consulta ({@link Fonte}) roda em segundo plano e entrega os itens um a um; eles são
+ * repassados à tela em lotes ({@link Destino}), na EDT, à medida que chegam, de modo que as
+ * primeiras linhas aparecem antes do fim da consulta e a interface não trava. Um rótulo de
+ * situação mostra "Carregando..." com a quantidade já exibida e, ao final, o total ou o erro.
+ *
+ * O carregamento é registrado no painel da tela e cancelado por {@link #cancelarTodos(Component)}
+ * quando o usuário troca de tela no {@link MenuPrincipal}. A consulta é interrompida no próximo
+ * item lido, liberando a conexão; lotes ainda pendentes são descartados.
+ *
+ * @param <T> Tipo dos itens carregados.
+ */
+
+import dao.ProcessadorLinha;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class CarregadorDados<T> extends SwingWorker<Integer, T> {
+
+    private static final String PROPRIEDADE = CarregadorDados.class.getName();
+
+    private final JComponent tela;
+    private final JLabel status;
+    private final Fonte<T> fonte;
+    private final Destino<T> destino;
+    private Runnable aoConcluir;
+    private int exibidos;
+
+    /**
+     * Cria o carregamento de uma tela.
+     *
+     * @param tela    Painel da tela, usado para cancelar o carregamento ao trocar de tela.
+     * @param status  Rótulo de situação do carregamento ou null se não houver.
+     * @param fonte   Consulta executada em segundo plano.
+     * @param destino Componente que recebe os itens, na EDT.
+     */
+    public CarregadorDados(JComponent tela, JLabel status, Fonte<T> fonte, Destino<T> destino) {
+        this.tela = tela;
+        this.status = status;
+        this.fonte = fonte;
+        this.destino = destino;
+    }
+
+    /**
+     * Define uma ação executada na EDT quando o carregamento termina com sucesso.
+     *
+     * @param acao Ação a executar.
+     * @return Este carregamento.
+     */
+    public CarregadorDados<T> aoConcluir(Runnable acao) {
+        this.aoConcluir = acao;
+        return this;
+    }
+
+    /**
+     * Limpa o destino, indica o carregamento e inicia a consulta em segundo plano.
+     * Deve ser chamado na EDT.
+     */
+    public void iniciar() {
+        carregamentos(tela).add(this);
+        destino.limpar();
+        atualizarStatus("Carregando...");
+        execute();
+    }
+
+    /**
+     * Cancela os carregamentos em andamento de uma tela.
+     *
+     * @param tela Painel da tela.
+     */
+    public static void cancelarTodos(Component tela) {
+        if (!(tela instanceof JComponent)) {
+            return;
+        }
+        List<CarregadorDados<?>> carregamentos = carregamentos((JComponent) tela);
+        for (CarregadorDados<?> c : carregamentos) {
+            c.cancel(false);
+        }
+        carregamentos.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Integer doInBackground() throws Exception {
+        int[] total = {0};
+        fonte.carregar(item -> {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            publish(item);
+            total[0]++;
+        });
+        return total[0];
+    }
+
+    @Override
+    protected void process(List<T> lote) {
+        if (isCancelled()) {
+            return;
+        }
+        destino.adicionar(lote);
+        exibidos += lote.size();
+        atualizarStatus("Carregando... " + exibidos + " registro(s)");
+    }
+
+    @Override
+    protected void done() {
+        carregamentos(tela).remove(this);
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            atualizarStatus(get() + " registro(s)");
+            if (aoConcluir != null) {
+                aoConcluir.run();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            causa.printStackTrace();
+            atualizarStatus("Erro ao carregar dados: " + causa.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CarregadorDados<?>> carregamentos(JComponent tela) {
+        Object lista = tela.getClientProperty(PROPRIEDADE);
+        if (lista == null) {
+            lista = new ArrayList<CarregadorDados<?>>();
+            tela.putClientProperty(PROPRIEDADE, lista);
+        }
+        return (List<CarregadorDados<?>>) lista;
+    }
+
+    private void atualizarStatus(String texto) {
+        if (status != null) {
+            status.setText(texto);
+        }
+    }
+
+    /**
+     * Destino que acrescenta as linhas a uma tabela, com um único evento por lote.
+     *
+     * @param modelo Modelo da tabela.
+     * @return Destino da tabela.
+     */
+    public static Destino<Object[]> tabela(DefaultTableModel modelo) {
+        return new Destino<Object[]>() {
+            @Override
+            public void limpar() {
+                modelo.setRowCount(0);
+            }
+
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public void adicionar(List<Object[]> linhas) {
+                int inicio = modelo.getRowCount();
+                Vector dados = modelo.getDataVector();
+                for (Object[] linha : linhas) {
+                    dados.add(new Vector<>(Arrays.asList(linha)));
+                }
+                modelo.fireTableRowsInserted(inicio, modelo.getRowCount() - 1);
+            }
+        };
+    }
+
+    /**
+     * Destino que acrescenta os itens a um combo.
+     *
+     * @param combo Combo de seleção.
+     * @param <E>   Tipo dos itens do combo.
+     * @return Destino do combo.
+     */
+    public static <E> Destino<E> combo(JComboBox<E> combo) {
+        return new Destino<E>() {
+            @Override
+            public void limpar() {
+                combo.removeAllItems();
+            }
+
+            @Override
+            public void adicionar(List<E> itens) {
+                for (E item : itens) {
+                    combo.addItem(item);
+                }
+            }
+        };
+    }
+
+    /**
+     * Consulta executada em segundo plano, que entrega os itens um a um.
+     *
+     * @param <T> Tipo dos itens.
+     */
+    @FunctionalInterface
+    public interface Fonte<T> {
+
+        /**
+         * Executa a consulta.
+         * O item entregue é copiado ou repassado à tela, então pode ser um objeto novo a cada
+         * chamada; objetos reutilizados pelos DAOs devem ser convertidos antes (ex.: em Object[]).
+         *
+         * @param itens Recebe cada item lido.
+         * @throws Exception Se ocorrer erro na consulta.
+         */
+        void carregar(ProcessadorLinha<T> itens) throws Exception;
+    }
+
+    /**
+     * Componente da tela que recebe os itens carregados. Os métodos são chamados na EDT.
+     *
+     * @param <T> Tipo dos itens.
+     */
+    public interface Destino<T> {
+
+        /** Remove os itens exibidos antes do carregamento. */
+        void limpar();
+
+        /**
+         * Acrescenta um lote de itens.
+         *
+         * @param itens Itens do lote, na ordem da consulta.
+         */
+        void adicionar(List<T> itens);
+    }
+}
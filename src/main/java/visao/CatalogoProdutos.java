@@ -0,0 +1,90 @@
+package visao;
+
+/**
+ * Cópia local do catálogo de produtos usada pelas telas da aplicação desktop.
+ *
+ * A primeira leitura traz o catálogo inteiro; as seguintes trazem apenas os produtos
+ * alterados e excluídos desde a última versão recebida ({@link ProdutoDAO#listarAlteracoes(long)}),
+ * de modo que abrir novamente o combo de movimentações ou um relatório sobre todos os
+ * produtos não relê a tabela inteira a cada vez.
+ *
+ * As leituras devem ser feitas fora da EDT (ex.: na {@link CarregadorDados.Fonte} da tela).
+ * Os produtos retornados são compartilhados entre as telas; cada produto alterado no banco é
+ * substituído por um objeto novo na sincronização seguinte.
+ */
+
+import dao.Alteracoes;
+import dao.ProdutoDAO;
+import modelo.Produto;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class CatalogoProdutos {
+
+    private static final CatalogoProdutos INSTANCIA = new CatalogoProdutos();
+
+    /**
+     * Mesma ordem das listagens do banco: nome, sem distinguir maiúsculas nem acentos (como a
+     * collation do MySQL), depois id.
+     */
+    private static final Comparator<Produto> ORDEM = Comparator
+            .comparing(Produto::getNome, criarCollator())
+            .thenComparingInt(Produto::getId);
+
+    private final ProdutoDAO dao = new ProdutoDAO();
+    private final Map<Integer, Produto> produtos = new HashMap<>();
+    private List<Produto> ordenados = Collections.emptyList();
+    private long versao;
+
+    private CatalogoProdutos() {
+    }
+
+    /**
+     * Retorna a instância única do catálogo.
+     *
+     * @return Catálogo de produtos.
+     */
+    public static CatalogoProdutos getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Aplica as alterações feitas no banco desde a última sincronização e retorna o catálogo
+     * atualizado, em ordem de nome.
+     *
+     * @return Lista imutável de produtos.
+     */
+    public synchronized List<Produto> sincronizar() {
+        Alteracoes<Produto> alteracoes = dao.listarAlteracoes(versao);
+        if (alteracoes.isCompleto()) {
+            produtos.clear();
+        } else if (alteracoes.getAlterados().isEmpty() && alteracoes.getExcluidos().isEmpty()) {
+            versao = alteracoes.getVersao();
+            return ordenados;
+        }
+        for (Produto p : alteracoes.getAlterados()) {
+            produtos.put(p.getId(), p);
+        }
+        for (Integer id : alteracoes.getExcluidos()) {
+            produtos.remove(id);
+        }
+        List<Produto> lista = new ArrayList<>(produtos.values());
+        lista.sort(ORDEM);
+        ordenados = Collections.unmodifiableList(lista);
+        versao = alteracoes.getVersao();
+        return ordenados;
+    }
+
+    private static Collator criarCollator() {
+        Collator collator = Collator.getInstance(new Locale("pt", "BR"));
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+}
@@ -7,6 +7,7 @@ package visao;
  * 
  * Os botões permitem salvar uma nova categoria, atualizar uma existente ou excluir.
  * A seleção de uma linha na tabela preenche os campos para edição.
+ * A tabela é carregada em segundo plano, com a quantidade de produtos de cada categoria.
  * 
  * @author Douglas Pierri Beccari
  */
@@ -18,7 +19,6 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
 
 public class CategoriaVisao {
 
@@ -28,6 +28,8 @@ public class CategoriaVisao {
     private JTextField txtEmbalagem;
     private JTable tabela;
     private DefaultTableModel modelo;
+    private JLabel lblStatus;
+    private CarregadorDados<Object[]> carregamentoTabela;
 
     /**
      * Construtor da tela de categorias.
@@ -78,12 +80,17 @@ public class CategoriaVisao {
         modelo.addColumn("Nome");
         modelo.addColumn("Tamanho");
         modelo.addColumn("Embalagem");
+        modelo.addColumn("Produtos");
 
         tabela = new JTable(modelo);
         JScrollPane scroll = new JScrollPane(tabela);
         scroll.setBounds(10, 110, 560, 230);
         panel.add(scroll);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 345, 400, 20);
+        panel.add(lblStatus);
+
         carregarTabela();
 
         btnSalvar.addActionListener(e -> {
@@ -118,12 +125,16 @@ public class CategoriaVisao {
             if (selected != -1) {
                 int id = Integer.parseInt(modelo.getValueAt(selected, 0).toString());
 
-                if (MenuPrincipal.categoriaTemProdutos(id)) {
-                    JOptionPane.showMessageDialog(panel, "Não é possível excluir esta categoria: existem produtos vinculados.");
+                try {
+                    if (MenuPrincipal.categoriaTemProdutos(id)) {
+                        JOptionPane.showMessageDialog(panel, "Não é possível excluir esta categoria: existem produtos vinculados.");
+                        return;
+                    }
+                    new CategoriaDAO().excluir(id);
+                } catch (RuntimeException ex) {
+                    JOptionPane.showMessageDialog(panel, ex.getMessage());
                     return;
                 }
-
-                new CategoriaDAO().excluir(id);
                 limparCampos();
                 carregarTabela();
             } else {
@@ -143,14 +154,21 @@ public class CategoriaVisao {
 
     /**
      * Carrega os dados das categorias cadastradas na tabela.
-     * Busca todas as categorias no banco e preenche o modelo da tabela.
+     * Busca todas as categorias no banco, em segundo plano, e preenche o modelo da tabela.
+     * Um carregamento anterior ainda em andamento é cancelado.
      */
     private void carregarTabela() {
-        modelo.setRowCount(0);
-        List<Categoria> lista = new CategoriaDAO().listarTodas();
-        for (Categoria c : lista) {
-            modelo.addRow(new Object[]{c.getId(), c.getNome(), c.getTamanho(), c.getEmbalagem()});
+        if (carregamentoTabela != null) {
+            carregamentoTabela.cancel(false);
         }
+        carregamentoTabela = new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            CategoriaDAO dao = new CategoriaDAO();
+            for (Categoria c : dao.listarTodas()) {
+                linhas.processar(new Object[]{c.getId(), c.getNome(), c.getTamanho(), c.getEmbalagem(),
+                        dao.contarProdutos(c.getId())});
+            }
+        }, CarregadorDados.tabela(modelo));
+        carregamentoTabela.iniciar();
     }
 
     /**
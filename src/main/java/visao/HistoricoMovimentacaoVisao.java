@@ -3,65 +3,78 @@ package visao;
 /**
  * Tela de histórico de movimentações de produtos.
  * Exibe uma tabela com todas as movimentações cadastradas, mostrando tipo, produto, quantidade e data/hora.
- * Os dados são carregados do banco de dados através do MovimentacaoDAO.
+ * Os dados são lidos do banco de dados através do MovimentacaoDAO, em segundo plano e por páginas,
+ * apenas para a região visível da tabela ({@link ModeloTabelaPaginado}).
  * 
  * @author Kaike Augusto Dias dos Santos
  */
 
 import dao.MovimentacaoDAO;
+import dao.Pagina;
 import modelo.Movimentacao;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 public class HistoricoMovimentacaoVisao {
 
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     private JPanel panel;
     private JTable tabela;
-    private DefaultTableModel modelo;
+    private ModeloTabelaPaginado<Movimentacao> modelo;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de histórico de movimentações.
-     * Inicializa os componentes gráficos e carrega os dados da tabela.
+     * Inicializa os componentes gráficos e inicia a leitura das páginas da tabela.
      */
     public HistoricoMovimentacaoVisao() {
         panel = new JPanel();
         panel.setLayout(null);
 
-        modelo = new DefaultTableModel();
-        modelo.addColumn("ID");
-        modelo.addColumn("Tipo");
-        modelo.addColumn("Produto");
-        modelo.addColumn("Quantidade");
-        modelo.addColumn("Data/Hora");
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 345, 400, 20);
+        panel.add(lblStatus);
+
+        modelo = criarModelo();
 
         tabela = new JTable(modelo);
+        modelo.vincular(tabela);
         JScrollPane scroll = new JScrollPane(tabela);
         scroll.setBounds(10, 10, 660, 330);
         panel.add(scroll);
-
-        carregarHistorico();
     }
 
     /**
-     * Carrega o histórico de movimentações do banco de dados e preenche a tabela.
+     * Cria o modelo paginado da tabela: apenas as páginas próximas da área visível são lidas
+     * do banco, seguindo o cursor do histórico (mais recentes primeiro).
+     *
+     * @return Modelo da tabela.
      */
-    private void carregarHistorico() {
-        modelo.setRowCount(0);
-        List<Movimentacao> lista = new MovimentacaoDAO().listarTodas();
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private ModeloTabelaPaginado<Movimentacao> criarModelo() {
+        MovimentacaoDAO dao = new MovimentacaoDAO();
+        String[] colunas = {"ID", "Tipo", "Produto", "Quantidade", "Data/Hora"};
+
+        return new ModeloTabelaPaginado<>(colunas, new ModeloTabelaPaginado.FontePaginas<Movimentacao>() {
+            @Override
+            public int contar() {
+                return dao.contar(null);
+            }
 
-        for (Movimentacao mov : lista) {
-            modelo.addRow(new Object[]{
-                mov.getId(),
-                mov.getTipo(),
-                mov.getProduto().getNome(),
-                mov.getQuantidade(),
-                dtf.format(mov.getDataMovimento())
-            });
-        }
+            @Override
+            public Pagina<Movimentacao> carregar(String cursor, int posicao, int limite) {
+                return cursor != null
+                        ? dao.listarPagina(null, cursor, limite)
+                        : dao.listarPaginaNaPosicao(null, posicao, limite);
+            }
+        }, mov -> new Object[]{
+            mov.getId(),
+            mov.getTipo(),
+            mov.getProduto().getNome(),
+            mov.getQuantidade(),
+            FORMATO_DATA.format(mov.getDataMovimento())
+        }, lblStatus);
     }
 
     /**
@@ -12,12 +12,8 @@ package visao;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
-import dao.Conexao;
+import dao.CategoriaDAO;
 
 public class MenuPrincipal extends JFrame {
 
@@ -79,10 +75,14 @@ public class MenuPrincipal extends JFrame {
 
     /**
      * Troca o painel de conteúdo exibido na área principal da tela.
+     * Os carregamentos ainda em andamento da tela anterior são cancelados.
      * 
      * @param painel Novo painel a ser exibido.
      */
     private void mostrarPainel(JPanel painel) {
+        for (Component anterior : painelConteudo.getComponents()) {
+            CarregadorDados.cancelarTodos(anterior);
+        }
         painelConteudo.removeAll();
         painelConteudo.add(painel, BorderLayout.CENTER);
         painelConteudo.revalidate();
@@ -90,33 +90,14 @@ public class MenuPrincipal extends JFrame {
     }
 
     /**
-     * Verifica se uma categoria possui produtos vinculados.
+     * Verifica se uma categoria possui produtos vinculados, consultando o banco de dados.
      * 
      * @param categoriaId ID da categoria a ser verificada.
      * @return true se houver produtos vinculados, false caso contrário.
+     * @throws RuntimeException Se ocorrer erro ao consultar o banco de dados.
      */
     public static boolean categoriaTemProdutos(int categoriaId) {
-        String sql = "SELECT COUNT(*) FROM produto WHERE categoria_id = ?";
-        Conexao conexao = new Conexao();
-        try {
-            Connection conn = conexao.getConexao();
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, categoriaId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                boolean temProdutos = rs.getInt(1) > 0;
-                rs.close();
-                stmt.close();
-                return temProdutos;
-            }
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            conexao.fecharConexao();
-        }
-        return false;
+        return new CategoriaDAO().possuiProdutos(categoriaId);
     }
 
     /**
@@ -0,0 +1,292 @@
+package visao;
+
+/**
+ * Modelo de tabela que mantém em memória apenas as páginas de linhas próximas da área
+ * visível, em vez de copiar a consulta inteira para um DefaultTableModel.
+ *
+ * A quantidade de linhas vem de uma contagem no banco; as páginas são lidas sob demanda, em
+ * segundo plano, quando a tabela pede uma linha ainda não carregada (que aparece vazia até a
+ * página chegar). Cada página é buscada pelo cursor (keyset) retornado pela página anterior;
+ * só quando o usuário salta para uma posição cujo cursor ainda não é conhecido a página é
+ * buscada pela posição (OFFSET). As páginas seguintes à visível são antecipadas, e as páginas
+ * mais antigas saem do cache (LRU), de modo que o consumo de memória não depende do tamanho
+ * da tabela.
+ *
+ * As leituras são feitas por uma única thread do modelo; pedidos de páginas que já saíram da
+ * região visível quando chega a vez deles são descartados. A thread é encerrada quando a
+ * tabela vinculada por {@link #vincular(JTable)} deixa de ser exibida (troca de tela).
+ *
+ * Configurações (via {@link Configuracao}):
+ * - estoque.visao.tabela.tamanhoPagina   (padrão 200, máximo 1000)
+ * - estoque.visao.tabela.paginasEmCache  (padrão 20)
+ *
+ * @param <T> Tipo dos itens lidos do banco.
+ */
+
+import dao.Configuracao;
+import dao.Pagina;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+public class ModeloTabelaPaginado<T> extends AbstractTableModel {
+
+    private static final int TAMANHO_PAGINA =
+            Math.max(1, Math.min(1000, Configuracao.getInt("estoque.visao.tabela.tamanhoPagina", 200)));
+    private static final int PAGINAS_EM_CACHE =
+            Math.max(4, Configuracao.getInt("estoque.visao.tabela.paginasEmCache", 20));
+    private static final int PAGINAS_ANTECIPADAS = 2;
+
+    private final String[] colunas;
+    private final FontePaginas<T> fonte;
+    private final Function<T, Object[]> conversor;
+    private final JLabel status;
+    private final ExecutorService executor;
+
+    // Estado acessado apenas na EDT
+    private final Map<Integer, List<Object[]>> paginas = new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> maisAntiga) {
+            return size() > PAGINAS_EM_CACHE;
+        }
+    };
+    private final Set<Integer> pendentes = new HashSet<>();
+    private int total;
+    private boolean contado;
+
+    // Estado compartilhado com a thread de leitura
+    private volatile Map<Integer, String> cursores = new ConcurrentHashMap<>();
+    private volatile int geracao;
+    private volatile int paginaVisivel;
+    private volatile boolean encerrado;
+
+    /**
+     * Cria o modelo e inicia a leitura da primeira página e da contagem.
+     *
+     * @param colunas   Nomes das colunas.
+     * @param fonte     Consultas de contagem e de páginas.
+     * @param conversor Converte cada item em uma linha da tabela (executado em segundo plano).
+     * @param status    Rótulo de situação do carregamento ou null se não houver.
+     */
+    public ModeloTabelaPaginado(String[] colunas, FontePaginas<T> fonte, Function<T, Object[]> conversor, JLabel status) {
+        this.colunas = colunas;
+        this.fonte = fonte;
+        this.conversor = conversor;
+        this.status = status;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "modelo-tabela-paginado");
+            t.setDaemon(true);
+            return t;
+        });
+        iniciar();
+    }
+
+    /**
+     * Encerra a leitura de páginas quando a tabela deixar de ser exibida.
+     *
+     * @param tabela Tabela que usa este modelo.
+     */
+    public void vincular(JTable tabela) {
+        tabela.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !tabela.isDisplayable()) {
+                encerrar();
+            }
+        });
+    }
+
+    /**
+     * Descarta as páginas carregadas e lê a tabela novamente (ex.: após uma alteração).
+     * Deve ser chamado na EDT.
+     */
+    public void recarregar() {
+        geracao++;
+        paginas.clear();
+        pendentes.clear();
+        cursores = new ConcurrentHashMap<>();
+        total = 0;
+        contado = false;
+        fireTableDataChanged();
+        iniciar();
+    }
+
+    /**
+     * Interrompe a leitura de páginas. As páginas já carregadas continuam disponíveis.
+     */
+    public void encerrar() {
+        encerrado = true;
+        executor.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return total;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return colunas.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return colunas[coluna];
+    }
+
+    /**
+     * Retorna o valor da célula, ou null se a página da linha ainda não foi carregada.
+     * A leitura da página (e das seguintes) é solicitada quando necessário.
+     */
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        int numero = linha / TAMANHO_PAGINA;
+        paginaVisivel = numero;
+        for (int i = 0; i <= PAGINAS_ANTECIPADAS; i++) {
+            solicitar(numero + i);
+        }
+        List<Object[]> pagina = paginas.get(numero);
+        int indice = linha % TAMANHO_PAGINA;
+        if (pagina == null || indice >= pagina.size()) {
+            return null;
+        }
+        return pagina.get(indice)[coluna];
+    }
+
+    private void iniciar() {
+        atualizarStatus("Carregando...");
+        solicitar(0);
+        int geracaoAtual = geracao;
+        executar(() -> {
+            int quantidade = fonte.contar();
+            SwingUtilities.invokeLater(() -> receberContagem(geracaoAtual, quantidade));
+        });
+    }
+
+    private void solicitar(int numero) {
+        if (numero < 0 || (contado && numero * TAMANHO_PAGINA >= total)
+                || paginas.containsKey(numero) || !pendentes.add(numero)) {
+            return;
+        }
+        int geracaoAtual = geracao;
+        Map<Integer, String> cursoresAtuais = cursores;
+        executar(() -> {
+            if (Math.abs(numero - paginaVisivel) > PAGINAS_EM_CACHE / 2) {
+                // A página saiu da região visível enquanto aguardava
+                SwingUtilities.invokeLater(() -> receberPagina(geracaoAtual, numero, null));
+                return;
+            }
+            List<Object[]> linhas;
+            try {
+                String cursor = numero == 0 ? null : cursoresAtuais.get(numero);
+                Pagina<T> pagina = fonte.carregar(cursor, numero * TAMANHO_PAGINA, TAMANHO_PAGINA);
+                if (pagina.isPossuiProxima()) {
+                    cursoresAtuais.put(numero + 1, pagina.getProximoCursor());
+                }
+                linhas = new ArrayList<>(pagina.getItens().size());
+                for (T item : pagina.getItens()) {
+                    linhas.add(conversor.apply(item));
+                }
+            } catch (RuntimeException e) {
+                // Libera a página para que seja solicitada de novo quando voltar a ser exibida
+                SwingUtilities.invokeLater(() -> receberPagina(geracaoAtual, numero, null));
+                throw e;
+            }
+            SwingUtilities.invokeLater(() -> receberPagina(geracaoAtual, numero, linhas));
+        });
+    }
+
+    private void executar(Runnable tarefa) {
+        if (encerrado) {
+            return;
+        }
+        executor.execute(() -> {
+            if (encerrado) {
+                return;
+            }
+            try {
+                tarefa.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> atualizarStatus("Erro ao carregar dados: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void receberPagina(int geracaoPagina, int numero, List<Object[]> linhas) {
+        if (geracaoPagina != geracao) {
+            return;
+        }
+        pendentes.remove(numero);
+        if (linhas == null) {
+            return;
+        }
+        paginas.put(numero, linhas);
+
+        int inicio = numero * TAMANHO_PAGINA;
+        if (!contado && inicio + linhas.size() > total) {
+            // Exibe a primeira página antes de a contagem terminar
+            int anterior = total;
+            total = inicio + linhas.size();
+            fireTableRowsInserted(anterior, total - 1);
+        } else if (!linhas.isEmpty() && inicio < total) {
+            fireTableRowsUpdated(inicio, Math.min(total, inicio + linhas.size()) - 1);
+        }
+    }
+
+    private void receberContagem(int geracaoContagem, int quantidade) {
+        if (geracaoContagem != geracao) {
+            return;
+        }
+        contado = true;
+        int anterior = total;
+        total = quantidade;
+        if (quantidade > anterior) {
+            fireTableRowsInserted(anterior, quantidade - 1);
+        } else if (quantidade < anterior) {
+            fireTableDataChanged();
+        }
+        atualizarStatus(quantidade + " registro(s)");
+    }
+
+    private void atualizarStatus(String texto) {
+        if (status != null) {
+            status.setText(texto);
+        }
+    }
+
+    /**
+     * Consultas usadas pelo modelo, executadas em segundo plano.
+     *
+     * @param <T> Tipo dos itens.
+     */
+    public interface FontePaginas<T> {
+
+        /**
+         * Conta os itens da consulta.
+         *
+         * @return Quantidade total de itens.
+         */
+        int contar();
+
+        /**
+         * Lê uma página de itens.
+         *
+         * @param cursor  Cursor retornado pela página anterior ou null se não for conhecido;
+         *                nesse caso a página deve ser lida pela posição.
+         * @param posicao Posição (a partir de 0) do primeiro item da página.
+         * @param limite  Quantidade de itens da página.
+         * @return Página lida, com o cursor da próxima.
+         */
+        Pagina<T> carregar(String cursor, int posicao, int limite);
+    }
+}
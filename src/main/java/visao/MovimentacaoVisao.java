@@ -5,24 +5,26 @@ package visao;
  * Permite registrar entradas e saídas de produtos, selecionando o produto e a quantidade.
  * Exibe alertas caso o estoque fique acima do máximo ou abaixo do mínimo após a movimentação.
  * 
- * Os dados são atualizados no banco de dados e a lista de produtos é recarregada após cada operação.
+ * Os dados são atualizados no banco de dados e a lista de produtos é recarregada, em segundo plano,
+ * após cada operação; só os produtos alterados desde a leitura anterior são lidos do banco
+ * ({@link CatalogoProdutos}).
  * 
  * @author Kaike Augusto Dias dos Santos
  */
 
 import dao.MovimentacaoDAO;
-import dao.ProdutoDAO;
 import modelo.Movimentacao;
 import modelo.Produto;
 
 import javax.swing.*;
-import java.util.List;
 
 public class MovimentacaoVisao {
 
     private JPanel panel;
     private JComboBox<Produto> comboProduto;
     private JTextField txtQuantidade;
+    private JLabel lblStatus;
+    private CarregadorDados<Produto> carregamentoProdutos;
 
     /**
      * Construtor da tela de movimentação.
@@ -56,6 +58,10 @@ public class MovimentacaoVisao {
         btnSaida.setBounds(180, 110, 100, 30);
         panel.add(btnSaida);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(20, 150, 330, 20);
+        panel.add(lblStatus);
+
         carregarProdutos();
 
         btnEntrada.addActionListener(e -> registrarMovimento("ENTRADA"));
@@ -63,14 +69,19 @@ public class MovimentacaoVisao {
     }
 
     /**
-     * Carrega todos os produtos cadastrados no banco e preenche o combo de seleção.
+     * Carrega todos os produtos cadastrados no banco, em segundo plano, e preenche o combo de seleção.
+     * Um carregamento anterior ainda em andamento é cancelado.
      */
     private void carregarProdutos() {
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-        comboProduto.removeAllItems();
-        for (Produto p : lista) {
-            comboProduto.addItem(p);
+        if (carregamentoProdutos != null) {
+            carregamentoProdutos.cancel(false);
         }
+        carregamentoProdutos = new CarregadorDados<Produto>(panel, lblStatus, itens -> {
+            for (Produto p : CatalogoProdutos.getInstancia().sincronizar()) {
+                itens.processar(p);
+            }
+        }, CarregadorDados.combo(comboProduto));
+        carregamentoProdutos.iniciar();
     }
 
     /**
@@ -100,11 +111,7 @@ public class MovimentacaoVisao {
         mov.setQuantidade(qtd);
         mov.setProduto(produto);
 
-        new MovimentacaoDAO().registrarMovimento(mov);
-
-        int novaQtd = tipo.equals("ENTRADA") ?
-            produto.getQuantidadeEstoque() + qtd :
-            produto.getQuantidadeEstoque() - qtd;
+        int novaQtd = new MovimentacaoDAO().registrarMovimento(mov);
 
         String alerta = null;
         if (tipo.equals("ENTRADA") && novaQtd > produto.getQuantidadeMaxima()) {
@@ -6,29 +6,43 @@ package visao;
  * Os campos incluem nome, preço, unidade, quantidades, categoria e uma tabela para exibição dos produtos cadastrados.
  * 
  * Os botões permitem salvar um novo produto, atualizar um existente ou excluir.
- * A seleção de uma linha na tabela preenche os campos para edição.
+ * A seleção de uma linha na tabela preenche os campos para edição, assim como a escolha de
+ * um produto no campo de busca ({@link CampoBuscaProdutos}).
+ * A tabela é lida por páginas, apenas para a região visível ({@link ModeloTabelaPaginado}),
+ * e as categorias são carregadas em segundo plano (do cache de categorias, {@link dao.CacheCategorias})
+ * e selecionadas no combo pelo id.
  * 
  * @author João Vitor Cardoso de Jesus
  */
 
 import dao.CategoriaDAO;
+import dao.Pagina;
 import dao.ProdutoDAO;
 import modelo.Categoria;
 import modelo.Produto;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ProdutoVisao {
 
+    /** Posição, nas linhas da tabela, do id da categoria (fora das colunas exibidas). */
+    private static final int COLUNA_CATEGORIA_ID = 8;
+
     private JPanel panel;
     private JTextField txtNome, txtPreco, txtUnidade, txtQtd, txtMin, txtMax;
     private JComboBox<Categoria> comboCategoria;
+    /** Itens do combo de categorias, por id. */
+    private final Map<Integer, Categoria> categoriasPorId = new HashMap<>();
     private JTable tabela;
-    private DefaultTableModel modelo;
+    private ModeloTabelaPaginado<Produto> modelo;
+    private JLabel lblStatus;
+    /** Produto escolhido no campo de busca, editado quando não há linha selecionada na tabela. */
+    private Produto produtoBuscado;
 
     /**
      * Construtor da tela de produtos.
@@ -63,14 +77,23 @@ public class ProdutoVisao {
         btnExcluir.setBounds(320, 80, 100, 25);
         panel.add(btnExcluir);
 
-        modelo = new DefaultTableModel(new String[]{"ID", "Nome", "Preço", "Unidade", "Estoque", "Min", "Max", "Categoria"}, 0);
+        panel.add(label("Buscar:", 440, 10));
+        CampoBuscaProdutos campoBusca = new CampoBuscaProdutos(panel, this::preencherCampos);
+        campoBusca.setBounds(500, 10, 170, 25);
+        panel.add(campoBusca);
+
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, y + 255, 400, 20);
+        panel.add(lblStatus);
+
+        modelo = criarModelo();
         tabela = new JTable(modelo);
+        modelo.vincular(tabela);
         JScrollPane scroll = new JScrollPane(tabela);
         scroll.setBounds(10, y, 660, 250);
         panel.add(scroll);
 
         carregarCategorias();
-        carregarTabela();
 
         btnSalvar.addActionListener(e -> {
             Produto p = new Produto();
@@ -88,10 +111,10 @@ public class ProdutoVisao {
         });
 
         btnAtualizar.addActionListener(e -> {
-            int selected = tabela.getSelectedRow();
-            if (selected != -1) {
+            Integer id = idEmEdicao();
+            if (id != null) {
                 Produto p = new Produto();
-                p.setId((int) modelo.getValueAt(selected, 0));
+                p.setId(id);
                 p.setNome(txtNome.getText());
                 p.setPrecoUnitario(Double.parseDouble(txtPreco.getText()));
                 p.setUnidade(txtUnidade.getText());
@@ -107,9 +130,8 @@ public class ProdutoVisao {
         });
 
         btnExcluir.addActionListener(e -> {
-            int selected = tabela.getSelectedRow();
-            if (selected != -1) {
-                int id = (int) modelo.getValueAt(selected, 0);
+            Integer id = idEmEdicao();
+            if (id != null) {
                 new ProdutoDAO().excluir(id);
                 limparCampos();
                 carregarTabela();
@@ -119,19 +141,18 @@ public class ProdutoVisao {
         tabela.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 int i = tabela.getSelectedRow();
+                if (i == -1 || modelo.getValueAt(i, 0) == null) {
+                    // Linha ainda não carregada
+                    return;
+                }
+                produtoBuscado = null;
                 txtNome.setText(modelo.getValueAt(i, 1).toString());
                 txtPreco.setText(modelo.getValueAt(i, 2).toString());
                 txtUnidade.setText(modelo.getValueAt(i, 3).toString());
                 txtQtd.setText(modelo.getValueAt(i, 4).toString());
                 txtMin.setText(modelo.getValueAt(i, 5).toString());
                 txtMax.setText(modelo.getValueAt(i, 6).toString());
-                String cat = modelo.getValueAt(i, 7).toString();
-                for (int j = 0; j < comboCategoria.getItemCount(); j++) {
-                    if (comboCategoria.getItemAt(j).getNome().equals(cat)) {
-                        comboCategoria.setSelectedIndex(j);
-                        break;
-                    }
-                }
+                selecionarCategoria((int) modelo.getValueAt(i, COLUNA_CATEGORIA_ID));
             }
         });
     }
@@ -162,28 +183,109 @@ public class ProdutoVisao {
     }
 
     /**
-     * Carrega todas as categorias cadastradas no banco e preenche o combo de seleção.
+     * Preenche os campos com o produto escolhido no campo de busca, desfazendo a seleção da tabela.
+     *
+     * @param p Produto escolhido.
      */
-    private void carregarCategorias() {
-        List<Categoria> lista = new CategoriaDAO().listarTodas();
-        comboCategoria.removeAllItems();
-        for (Categoria c : lista) {
-            comboCategoria.addItem(c);
+    private void preencherCampos(Produto p) {
+        tabela.clearSelection();
+        produtoBuscado = p;
+        txtNome.setText(p.getNome());
+        txtPreco.setText(String.valueOf(p.getPrecoUnitario()));
+        txtUnidade.setText(p.getUnidade());
+        txtQtd.setText(String.valueOf(p.getQuantidadeEstoque()));
+        txtMin.setText(String.valueOf(p.getQuantidadeMinima()));
+        txtMax.setText(String.valueOf(p.getQuantidadeMaxima()));
+        selecionarCategoria(p.getCategoria().getId());
+    }
+
+    /**
+     * Seleciona no combo a categoria com o id informado (ou nenhuma, se ela não estiver no combo).
+     *
+     * @param categoriaId Identificador da categoria.
+     */
+    private void selecionarCategoria(int categoriaId) {
+        Categoria categoria = categoriasPorId.get(categoriaId);
+        if (categoria != null) {
+            comboCategoria.setSelectedItem(categoria);
+        } else {
+            comboCategoria.setSelectedIndex(-1);
         }
     }
 
     /**
-     * Carrega todos os produtos cadastrados no banco e preenche a tabela.
+     * Retorna o id do produto em edição: o da linha selecionada na tabela ou, sem seleção,
+     * o do produto escolhido no campo de busca.
+     *
+     * @return Id do produto ou null se nenhum estiver em edição.
      */
-    private void carregarTabela() {
-        modelo.setRowCount(0);
-        for (Produto p : new ProdutoDAO().listarTodos()) {
-            modelo.addRow(new Object[]{
-                    p.getId(), p.getNome(), p.getPrecoUnitario(), p.getUnidade(),
-                    p.getQuantidadeEstoque(), p.getQuantidadeMinima(), p.getQuantidadeMaxima(),
-                    p.getCategoria().getNome()
-            });
+    private Integer idEmEdicao() {
+        int selected = tabela.getSelectedRow();
+        if (selected != -1) {
+            return (Integer) modelo.getValueAt(selected, 0);
         }
+        return produtoBuscado != null ? produtoBuscado.getId() : null;
+    }
+
+    /**
+     * Carrega todas as categorias cadastradas, em segundo plano, e preenche o combo de seleção
+     * e o mapa de categorias por id.
+     */
+    private void carregarCategorias() {
+        CarregadorDados.Destino<Categoria> combo = CarregadorDados.combo(comboCategoria);
+        new CarregadorDados<Categoria>(panel, null, itens -> {
+            for (Categoria c : new CategoriaDAO().listarTodas()) {
+                itens.processar(c);
+            }
+        }, new CarregadorDados.Destino<Categoria>() {
+            @Override
+            public void limpar() {
+                combo.limpar();
+                categoriasPorId.clear();
+            }
+
+            @Override
+            public void adicionar(List<Categoria> itens) {
+                combo.adicionar(itens);
+                for (Categoria c : itens) {
+                    categoriasPorId.put(c.getId(), c);
+                }
+            }
+        }).iniciar();
+    }
+
+    /**
+     * Cria o modelo paginado da tabela: apenas as páginas próximas da área visível são lidas
+     * do banco, em ordem de nome.
+     *
+     * @return Modelo da tabela.
+     */
+    private ModeloTabelaPaginado<Produto> criarModelo() {
+        ProdutoDAO dao = new ProdutoDAO();
+        String[] colunas = {"ID", "Nome", "Preço", "Unidade", "Estoque", "Min", "Max", "Categoria"};
+
+        return new ModeloTabelaPaginado<>(colunas, new ModeloTabelaPaginado.FontePaginas<Produto>() {
+            @Override
+            public int contar() {
+                return dao.contar();
+            }
+
+            @Override
+            public Pagina<Produto> carregar(String cursor, int posicao, int limite) {
+                return cursor != null ? dao.listarPagina(cursor, limite) : dao.listarPaginaNaPosicao(posicao, limite);
+            }
+        }, p -> new Object[]{
+                p.getId(), p.getNome(), p.getPrecoUnitario(), p.getUnidade(),
+                p.getQuantidadeEstoque(), p.getQuantidadeMinima(), p.getQuantidadeMaxima(),
+                p.getCategoria().getNome(), p.getCategoria().getId()
+        }, lblStatus);
+    }
+
+    /**
+     * Lê novamente a tabela de produtos após uma alteração.
+     */
+    private void carregarTabela() {
+        modelo.recarregar();
     }
 
     /**
@@ -198,6 +300,7 @@ public class ProdutoVisao {
         txtMin.setText("");
         txtMax.setText("");
         comboCategoria.setSelectedIndex(-1);
+        produtoBuscado = null;
     }
 
     /**
@@ -5,17 +5,16 @@ package visao;
  * Exibe uma tabela com todos os produtos, mostrando quantidade em estoque, valor unitário e valor total por produto.
  * Também exibe o valor total geral do estoque.
  * 
- * Os dados são carregados do banco de dados através do ProdutoDAO.
+ * Os dados vêm do {@link CatalogoProdutos}, que só lê do banco, em segundo plano, os produtos
+ * alterados desde a última abertura; o total geral é exibido ao final.
  * 
  * @author Marcos Antonio Gasperin
  */
 
-import dao.ProdutoDAO;
 import modelo.Produto;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
-import java.util.List;
 
 public class RelatorioBalancoFinanceiroVisao {
 
@@ -23,6 +22,7 @@ public class RelatorioBalancoFinanceiroVisao {
     private JTable tabela;
     private DefaultTableModel modelo;
     private JLabel lblTotalGeral;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de relatório de balanço financeiro.
@@ -47,31 +47,35 @@ public class RelatorioBalancoFinanceiroVisao {
         lblTotalGeral.setBounds(10, 320, 300, 25);
         panel.add(lblTotalGeral);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(320, 320, 330, 25);
+        panel.add(lblStatus);
+
         carregarDados();
     }
 
     /**
-     * Carrega os dados dos produtos do banco de dados e preenche a tabela.
-     * Calcula o valor total de cada produto e o total geral do estoque.
+     * Carrega os dados dos produtos do banco de dados, em segundo plano, e preenche a tabela.
+     * Calcula o valor total de cada produto e, ao final, o total geral do estoque.
      */
     private void carregarDados() {
-        modelo.setRowCount(0);
-        double totalGeral = 0;
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-        lista.sort((a, b) -> a.getNome().compareToIgnoreCase(b.getNome()));
-
-        for (Produto p : lista) {
-            double total = p.getPrecoUnitario() * p.getQuantidadeEstoque();
-            modelo.addRow(new Object[]{
-                p.getNome(),
-                p.getQuantidadeEstoque(),
-                String.format("R$ %.2f", p.getPrecoUnitario()),
-                String.format("R$ %.2f", total)
-            });
-            totalGeral += total;
-        }
+        double[] totalGeral = {0};
 
-        lblTotalGeral.setText(String.format("Total Geral: R$ %.2f", totalGeral));
+        new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            for (Produto p : CatalogoProdutos.getInstancia().sincronizar()) {
+                double total = p.getPrecoUnitario() * p.getQuantidadeEstoque();
+                totalGeral[0] += total;
+                linhas.processar(new Object[]{
+                    p.getNome(),
+                    p.getQuantidadeEstoque(),
+                    String.format("R$ %.2f", p.getPrecoUnitario()),
+                    String.format("R$ %.2f", total)
+                });
+            }
+        },
+                CarregadorDados.tabela(modelo))
+                .aoConcluir(() -> lblTotalGeral.setText(String.format("Total Geral: R$ %.2f", totalGeral[0])))
+                .iniciar();
     }
 
     /**
@@ -3,23 +3,23 @@ package visao;
 /**
  * Tela de relatório de lista de preços dos produtos.
  * Exibe uma tabela com todos os produtos cadastrados, mostrando nome, preço unitário, unidade e categoria.
- * Os dados são carregados do banco de dados através do ProdutoDAO.
+ * Os dados vêm do {@link CatalogoProdutos}, que só lê do banco, em segundo plano, os produtos
+ * alterados desde a última abertura.
  * 
  * @author Marcos Antonio Gasperin
  */
 
-import dao.ProdutoDAO;
 import modelo.Produto;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
-import java.util.List;
 
 public class RelatorioListaDePrecosVisao {
 
     private JPanel panel;
     private JTable tabela;
     private DefaultTableModel modelo;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de relatório de lista de preços.
@@ -40,25 +40,29 @@ public class RelatorioListaDePrecosVisao {
         scroll.setBounds(10, 10, 560, 330);
         panel.add(scroll);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 345, 400, 20);
+        panel.add(lblStatus);
+
         carregarDados();
     }
 
     /**
-     * Carrega os dados dos produtos do banco de dados e preenche a tabela.
+     * Carrega os dados dos produtos do banco de dados, em segundo plano, e preenche a tabela.
+     * Os produtos já vêm ordenados por nome da consulta.
      */
     private void carregarDados() {
-        modelo.setRowCount(0);
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-        lista.sort((a, b) -> a.getNome().compareToIgnoreCase(b.getNome()));
-
-        for (Produto p : lista) {
-            modelo.addRow(new Object[]{
-                p.getNome(),
-                String.format("R$ %.2f", p.getPrecoUnitario()),
-                p.getUnidade(),
-                p.getCategoria().getNome()
-            });
-        }
+        new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            for (Produto p : CatalogoProdutos.getInstancia().sincronizar()) {
+                linhas.processar(new Object[]{
+                    p.getNome(),
+                    String.format("R$ %.2f", p.getPrecoUnitario()),
+                    p.getUnidade(),
+                    p.getCategoria().getNome()
+                });
+            }
+        },
+                CarregadorDados.tabela(modelo)).iniciar();
     }
 
     /**
@@ -5,12 +5,11 @@ import modelo.Produto;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
-import java.util.List;
 
 /**
  * Tela de relatório de produtos abaixo do estoque mínimo.
  * Exibe uma tabela com todos os produtos cujo estoque está abaixo da quantidade mínima definida.
- * Os dados são carregados do banco de dados através do ProdutoDAO.
+ * Os dados são carregados do banco de dados através do ProdutoDAO, em segundo plano.
  * 
  * @author Marcos Antonio Gasperin
  */
@@ -19,6 +18,7 @@ public class RelatorioProdutosAbaixoMinimoVisao  {
     private JPanel panel;
     private JTable tabela;
     private DefaultTableModel modelo;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de relatório de produtos abaixo do mínimo.
@@ -38,25 +38,26 @@ public class RelatorioProdutosAbaixoMinimoVisao  {
         scroll.setBounds(10, 10, 500, 300);
         panel.add(scroll);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 315, 400, 20);
+        panel.add(lblStatus);
+
         carregarDados();
     }
 
     /**
-     * Carrega os dados dos produtos do banco de dados e preenche a tabela apenas com os que estão abaixo do mínimo.
+     * Carrega do banco de dados, em segundo plano, apenas os produtos abaixo do mínimo e preenche a tabela.
      */
     private void carregarDados() {
-        modelo.setRowCount(0);
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-
-        for (Produto p : lista) {
-            if (p.getQuantidadeEstoque() < p.getQuantidadeMinima()) {
-                modelo.addRow(new Object[]{
+        new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            for (Produto p : new ProdutoDAO().listarAbaixoMinimo()) {
+                linhas.processar(new Object[]{
                     p.getNome(),
                     p.getQuantidadeEstoque(),
                     p.getQuantidadeMinima()
                 });
             }
-        }
+        }, CarregadorDados.tabela(modelo)).iniciar();
     }
 
     /**
@@ -3,7 +3,7 @@ package visao;
 /**
  * Tela de relatório de produtos acima do estoque máximo.
  * Exibe uma tabela com todos os produtos cujo estoque está acima da quantidade máxima definida.
- * Os dados são carregados do banco de dados através do ProdutoDAO.
+ * Os dados são carregados do banco de dados através do ProdutoDAO, em segundo plano.
  * 
  * @author Marcos Antonio Gasperin
  */
@@ -13,13 +13,13 @@ import modelo.Produto;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
-import java.util.List;
 
 public class RelatorioProdutosAcimaMaximoVisao {
 
     private JPanel panel;
     private JTable tabela;
     private DefaultTableModel modelo;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de relatório de produtos acima do máximo.
@@ -39,25 +39,26 @@ public class RelatorioProdutosAcimaMaximoVisao {
         scroll.setBounds(10, 10, 500, 300);
         panel.add(scroll);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 315, 400, 20);
+        panel.add(lblStatus);
+
         carregarDados();
     }
 
     /**
-     * Carrega os dados dos produtos do banco de dados e preenche a tabela apenas com os que estão acima do máximo.
+     * Carrega do banco de dados, em segundo plano, apenas os produtos acima do máximo e preenche a tabela.
      */
     private void carregarDados() {
-        modelo.setRowCount(0);
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-
-        for (Produto p : lista) {
-            if (p.getQuantidadeEstoque() > p.getQuantidadeMaxima()) {
-                modelo.addRow(new Object[]{
+        new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            for (Produto p : new ProdutoDAO().listarAcimaMaximo()) {
+                linhas.processar(new Object[]{
                     p.getNome(),
                     p.getQuantidadeEstoque(),
                     p.getQuantidadeMaxima()
                 });
             }
-        }
+        }, CarregadorDados.tabela(modelo)).iniciar();
     }
 
     /**
@@ -3,18 +3,16 @@ package visao;
 /**
  * Tela de relatório de produtos por categoria.
  * Exibe uma tabela com a quantidade de produtos cadastrados em cada categoria.
- * Os dados são carregados do banco de dados através do ProdutoDAO.
+ * Os dados são carregados do banco de dados através do ProdutoDAO, em segundo plano.
  * 
  * @author Marcos Antonio Gasperin
  */
 
 import dao.ProdutoDAO;
-import modelo.Produto;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class RelatorioProdutosPorCategoriaVisao {
@@ -22,6 +20,7 @@ public class RelatorioProdutosPorCategoriaVisao {
     private JPanel panel;
     private JTable tabela;
     private DefaultTableModel modelo;
+    private JLabel lblStatus;
 
     /**
      * Construtor da tela de relatório de produtos por categoria.
@@ -40,28 +39,32 @@ public class RelatorioProdutosPorCategoriaVisao {
         scroll.setBounds(10, 10, 500, 300);
         panel.add(scroll);
 
+        lblStatus = new JLabel();
+        lblStatus.setBounds(10, 315, 400, 20);
+        panel.add(lblStatus);
+
         carregarDados();
     }
 
     /**
-     * Carrega os dados dos produtos do banco de dados e preenche a tabela com a contagem por categoria.
+     * Carrega os dados dos produtos do banco de dados, em segundo plano, e preenche a tabela
+     * com a contagem por categoria.
      */
     private void carregarDados() {
-        modelo.setRowCount(0);
-        List<Produto> lista = new ProdutoDAO().listarTodos();
-
-        Map<String, Integer> contagem = new HashMap<>();
-        for (Produto p : lista) {
-            String categoria = p.getCategoria().getNome();
-            contagem.put(categoria, contagem.getOrDefault(categoria, 0) + 1);
-        }
-
-        for (Map.Entry<String, Integer> entry : contagem.entrySet()) {
-            modelo.addRow(new Object[]{
-                entry.getKey(),
-                entry.getValue()
+        new CarregadorDados<Object[]>(panel, lblStatus, linhas -> {
+            Map<String, Integer> contagem = new HashMap<>();
+            new ProdutoDAO().percorrerTodos(p -> {
+                String categoria = p.getCategoria().getNome();
+                contagem.put(categoria, contagem.getOrDefault(categoria, 0) + 1);
             });
-        }
+
+            for (Map.Entry<String, Integer> entry : contagem.entrySet()) {
+                linhas.processar(new Object[]{
+                    entry.getKey(),
+                    entry.getValue()
+                });
+            }
+        }, CarregadorDados.tabela(modelo)).iniciar();
     }
 
     /**
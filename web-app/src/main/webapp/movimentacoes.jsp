@@ -56,6 +56,15 @@
                     </tbody>
                 </table>
             </div>
+
+            <nav class="paginacao">
+                <c:if test="${not empty param.cursor}">
+                    <a href="movimentacoes" class="btn btn-secondary">← Mais recentes</a>
+                </c:if>
+                <c:if test="${not empty proximoCursor}">
+                    <a href="movimentacoes?cursor=${proximoCursor}" class="btn btn-primary">Mais antigas →</a>
+                </c:if>
+            </nav>
         </main>
     </div>
 </body>